@@ -0,0 +1,107 @@
+package expense_tally.aws.benchmark;
+
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.aws.database.SessionScopedExpenseReader;
+import expense_tally.aws.database.SessionScopedExpenseReportReader;
+import expense_tally.aws.database.SqlSessionFactoryRegistry;
+import expense_tally.aws.em_change_processor.sync.BatchTransactionWriter;
+import expense_tally.aws.em_change_processor.sync.IncrementalTransactionSynchronizer;
+import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
+import expense_tally.expense_manager.persistence.database.DatabaseSessionBuilder;
+import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * An in-memory H2 database in MySQL mode, which stands in for the Aurora database.
+ * <p>
+ *   The session factory is built the same way as {@code SqlSessionFactoryRegistry} builds it, so that the mappers of
+ *   the expense manager library are registered, but on an H2 data source.
+ * </p>
+ */
+final class AuroraStandIn implements AutoCloseable {
+  private static final int LOAD_BATCH_SIZE = 1000;
+  private final PooledDataSource pooledDataSource;
+  private final SqlSessionFactory sqlSessionFactory;
+
+  private AuroraStandIn(PooledDataSource pooledDataSource, SqlSessionFactory sqlSessionFactory) {
+    this.pooledDataSource = pooledDataSource;
+    this.sqlSessionFactory = sqlSessionFactory;
+  }
+
+  /**
+   * Create an empty expense manager transaction table in a new in-memory database named <i>databaseName</i>
+   * @param databaseName name of the in-memory database
+   * @return the stand-in of the Aurora database
+   * @throws SQLException if the table cannot be created
+   * @throws IOException if there is issue to read the myBatis configuration resource
+   */
+  static AuroraStandIn create(String databaseName) throws SQLException, IOException {
+    PooledDataSource pooledDataSource = new PooledDataSource("org.h2.Driver", "jdbc:h2:mem:" + databaseName +
+        ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    try (Connection connection = pooledDataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate("CREATE TABLE " + AuroraExpenseTransactionMapper.TABLE_NAME + " (id INT PRIMARY KEY, " +
+          "amount DOUBLE, category VARCHAR(64), subcategory VARCHAR(64), payment_method VARCHAR(64), " +
+          "description VARCHAR(255), expensed_time TIMESTAMP, reference_amount DOUBLE)");
+    }
+    Environment environment = new Environment.Builder(DatabaseEnvironmentId.MYSQL.name())
+        .dataSource(pooledDataSource)
+        .transactionFactory(new JdbcTransactionFactory())
+        .build();
+    DatabaseSessionBuilder databaseSessionBuilder = DatabaseSessionBuilder.of(new SqlSessionFactoryBuilder());
+    try (SqlSession sqlSession = databaseSessionBuilder.buildSessionFactory(environment)) {
+      return new AuroraStandIn(pooledDataSource, new DefaultSqlSessionFactory(sqlSession.getConfiguration()));
+    }
+  }
+
+  SqlSessionFactory getSqlSessionFactory() {
+    return sqlSessionFactory;
+  }
+
+  /**
+   * Load every expense of the Expense Manager database file <i>expenseManagerDatabase</i> into the table
+   * @param expenseManagerDatabase the Expense Manager database file
+   * @throws SQLException if the database cannot be read or written
+   * @throws IOException if there is issue to read the myBatis configuration resource
+   */
+  void load(File expenseManagerDatabase) throws SQLException, IOException {
+    SessionScopedExpenseReportReader expenseReportReader = SessionScopedExpenseReportReader.create(
+        SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(expenseManagerDatabase.getPath()));
+    IncrementalTransactionSynchronizer.create(SessionScopedExpenseReader.create(sqlSessionFactory),
+        BatchTransactionWriter.create(sqlSessionFactory, LOAD_BATCH_SIZE))
+        .synchronize(ExpenseTransactionTransformer.mapExpenseReports(expenseReportReader.getExpenseTransactions()));
+  }
+
+  /**
+   * Delete every transaction in the table
+   * @throws SQLException if the table cannot be truncated
+   */
+  void truncate() throws SQLException {
+    try (Connection connection = pooledDataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate("TRUNCATE TABLE " + AuroraExpenseTransactionMapper.TABLE_NAME);
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try (Connection connection = pooledDataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate("SHUTDOWN");
+    } finally {
+      pooledDataSource.forceCloseAll();
+    }
+  }
+}
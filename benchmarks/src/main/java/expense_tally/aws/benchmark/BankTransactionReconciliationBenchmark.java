@@ -0,0 +1,112 @@
+package expense_tally.aws.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import expense_tally.aws.csv_reader.BankTransactionReader;
+import expense_tally.aws.csv_reader.configuration.CsvReadMode;
+import expense_tally.aws.csv_reader.reconciliation.PartitionedExpenseReconciler;
+import expense_tally.aws.database.SessionScopedExpenseReader;
+import expense_tally.aws.s3.S3FileRetriever;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures {@link BankTransactionReader#reconcile(S3Event)} from the S3 event to the discrepant transactions. The bank
+ * statement is served by an in-memory S3, and reconciled against as many expenses in an in-memory H2 database in
+ * MySQL mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BankTransactionReconciliationBenchmark {
+  private static final String KEY = "bank_statement.csv";
+  private static final int RECONCILIATION_TOLERANCE_DAYS = 1;
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int rows;
+
+  @Param({"FILE", "STREAM"})
+  public CsvReadMode csvReadMode;
+
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private Path workingDirectory;
+  private LocalAmazonS3 localAmazonS3;
+  private AuroraStandIn auroraStandIn;
+  private File csvFile;
+  private S3Event s3Event;
+  private S3FileRetriever s3FileRetriever;
+  private BankTransactionReader bankTransactionReader;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws IOException, SQLException {
+    workingDirectory = Files.createTempDirectory("bank-transaction-reconciliation-benchmark");
+    File sourceFile = workingDirectory.resolve("source.csv").toFile();
+    BenchmarkData.createBankStatementCsv(sourceFile, rows);
+    byte[] content = Files.readAllBytes(sourceFile.toPath());
+    String eTag = BenchmarkData.computeETag(content);
+    localAmazonS3 = new LocalAmazonS3();
+    localAmazonS3.putObject(BenchmarkData.BUCKET, KEY, content, eTag);
+    s3Event = BenchmarkData.createS3Event(KEY, content.length, eTag);
+    csvFile = workingDirectory.resolve("bank_statement.csv").toFile();
+    File expenseManagerDatabase = workingDirectory.resolve("expense_manager.db").toFile();
+    BenchmarkData.createExpenseManagerDatabase(expenseManagerDatabase, rows);
+    auroraStandIn = AuroraStandIn.create("bank_transaction_reconciliation_" + rows + "_" + csvReadMode + "_" +
+        parallelism);
+    auroraStandIn.load(expenseManagerDatabase);
+    // A single retriever, and so a single pool of ranged download threads, serves every invocation of the trial
+    s3FileRetriever = S3FileRetriever.create(localAmazonS3.asClient());
+    bankTransactionReader = new BankTransactionReader.Builder(s3FileRetriever,
+        SessionScopedExpenseReader.create(auroraStandIn.getSqlSessionFactory()), csvFile)
+        .csvReadMode(csvReadMode)
+        .reconciliationToleranceDays(RECONCILIATION_TOLERANCE_DAYS)
+        .partitionedExpenseReconciler(PartitionedExpenseReconciler.create(parallelism))
+        .build();
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    // Forget the previous download, so that the file is downloaded again
+    s3FileRetriever.invalidate(csvFile);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() throws IOException, SQLException {
+    auroraStandIn.close();
+    try (Stream<Path> paths = Files.walk(workingDirectory)) {
+      paths.sorted(Comparator.reverseOrder())
+          .map(Path::toFile)
+          .forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  public List<DiscrepantTransaction> reconcile() throws IOException, SQLException {
+    return bankTransactionReader.reconcile(s3Event);
+  }
+}
@@ -0,0 +1,171 @@
+package expense_tally.aws.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * This class generates the synthetic data of the benchmarks. The data is generated from a fixed seed, so that every
+ * run of a benchmark processes the same rows.
+ */
+final class BenchmarkData {
+  static final String BUCKET = "s3-expense-tally-data";
+  private static final long SEED = 20201201L;
+  private static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+  private static final int DAYS = 365;
+  private static final DateTimeFormatter CSV_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy",
+      Locale.ENGLISH);
+  private static final int INSERT_BATCH_SIZE = 10_000;
+  /*
+   * The categories and payment methods are recorded with the names used by the Expense Manager application, which the
+   * expense manager library maps to its enums.
+   */
+  private static final String[][] CATEGORIES = {
+      {"Food", "Dinner"},
+      {"Food", "Lunch"},
+      {"Transportation", "Bus"},
+      {"Transportation", "Taxi"}
+  };
+  private static final String[] PAYMENT_METHODS = {"Cash", "Debit Card", "Credit Card"};
+  private static final String[] CSV_TRANSACTION_TYPES = {"MST", "POS", "ITR"};
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private BenchmarkData() {
+  }
+
+  /**
+   * Create an Expense Manager database file at <i>databaseFile</i> with <i>rows</i> expenses
+   * @param databaseFile the database file to be created
+   * @param rows number of expenses
+   * @throws SQLException if the database file cannot be written
+   */
+  static void createExpenseManagerDatabase(File databaseFile, int rows) throws SQLException {
+    Random random = new Random(SEED);
+    try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath())) {
+      try (Statement statement = connection.createStatement()) {
+        statement.executeUpdate("DROP TABLE IF EXISTS expense_report");
+        statement.executeUpdate("CREATE TABLE expense_report (_id INTEGER PRIMARY KEY, account TEXT, amount TEXT, " +
+            "category TEXT, subcategory TEXT, payment_method TEXT, description TEXT, expensed INTEGER, " +
+            "modified INTEGER, reference_number TEXT, status TEXT, property TEXT, property2 TEXT, property3 TEXT, " +
+            "property4 TEXT, property5 TEXT, tax TEXT, expense_tag TEXT)");
+      }
+      connection.setAutoCommit(false);
+      try (PreparedStatement preparedStatement = connection.prepareStatement("INSERT INTO expense_report (_id, " +
+          "account, amount, category, subcategory, payment_method, description, expensed, modified, " +
+          "reference_number, status, property, property2, property3, property4, property5, tax, expense_tag) " +
+          "VALUES (?, 'Personal Expenses', ?, ?, ?, ?, ?, ?, ?, '', '', '', '', '', '', '', '', '')")) {
+        for (int id = 1; id <= rows; id++) {
+          String[] category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+          long expensedTime = randomDate(random).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+          preparedStatement.setInt(1, id);
+          preparedStatement.setString(2, randomAmount(random));
+          preparedStatement.setString(3, category[0]);
+          preparedStatement.setString(4, category[1]);
+          preparedStatement.setString(5, PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+          preparedStatement.setString(6, "Expense " + id);
+          preparedStatement.setLong(7, expensedTime);
+          preparedStatement.setLong(8, expensedTime);
+          preparedStatement.addBatch();
+          if (id % INSERT_BATCH_SIZE == 0) {
+            preparedStatement.executeBatch();
+          }
+        }
+        preparedStatement.executeBatch();
+      }
+      connection.commit();
+    }
+  }
+
+  /**
+   * Create a bank statement CSV file at <i>csvFile</i> with <i>rows</i> transactions
+   * @param csvFile the CSV file to be created
+   * @param rows number of transactions
+   * @throws IOException if the CSV file cannot be written
+   */
+  static void createBankStatementCsv(File csvFile, int rows) throws IOException {
+    Random random = new Random(SEED);
+    try (BufferedWriter bufferedWriter = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+      bufferedWriter.write("Account Details For:,POSB Savings 123-45678-9\n");
+      bufferedWriter.write("Statement as at:,31 Dec 2020\n");
+      bufferedWriter.write("\n");
+      bufferedWriter.write("Transaction Date,Reference,Debit Amount,Credit Amount,Transaction Ref1," +
+          "Transaction Ref2,Transaction Ref3\n");
+      for (int row = 1; row <= rows; row++) {
+        bufferedWriter.write(CSV_DATE_FORMATTER.format(randomDate(random)));
+        bufferedWriter.write(',');
+        bufferedWriter.write(CSV_TRANSACTION_TYPES[random.nextInt(CSV_TRANSACTION_TYPES.length)]);
+        bufferedWriter.write(',');
+        bufferedWriter.write(randomAmount(random));
+        bufferedWriter.write(",,Transaction ");
+        bufferedWriter.write(Integer.toString(row));
+        bufferedWriter.write(",,\n");
+      }
+    }
+  }
+
+  /**
+   * Returns an S3 event which notifies that the object at <i>key</i> is put
+   * @param key key of the object
+   * @param size size of the object in bytes
+   * @param eTag entity tag of the object
+   * @return an S3 event which notifies that the object at <i>key</i> is put
+   */
+  static S3Event createS3Event(String key, long size, String eTag) {
+    S3EventNotification.UserIdentityEntity userIdentityEntity =
+        new S3EventNotification.UserIdentityEntity("AWS:AIDAEXAMPLE");
+    S3EventNotification.S3Entity s3Entity = new S3EventNotification.S3Entity("benchmark",
+        new S3EventNotification.S3BucketEntity(BUCKET, userIdentityEntity, "arn:aws:s3:::" + BUCKET),
+        new S3EventNotification.S3ObjectEntity(key, size, eTag, null, "0055AED6DCD90281E5"),
+        "1.0");
+    S3EventNotification.S3EventNotificationRecord s3EventNotificationRecord =
+        new S3EventNotification.S3EventNotificationRecord("us-east-1", "ObjectCreated:Put", "aws:s3",
+            "2020-12-01T00:00:00.000Z", "2.1", null, null, s3Entity, userIdentityEntity);
+    return new S3Event(Collections.singletonList(s3EventNotificationRecord));
+  }
+
+  /**
+   * Returns the entity tag of <i>content</i>, as S3 computes it for a single part upload
+   * @param content content of an object
+   * @return the entity tag of <i>content</i>
+   */
+  static String computeETag(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+      StringBuilder eTag = new StringBuilder(digest.length * 2);
+      for (byte digestByte : digest) {
+        eTag.append(String.format("%02x", digestByte));
+      }
+      return eTag.toString();
+    } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+      throw new IllegalStateException("MD5 is not supported.", noSuchAlgorithmException);
+    }
+  }
+
+  private static LocalDate randomDate(Random random) {
+    return FIRST_DATE.plusDays(random.nextInt(DAYS));
+  }
+
+  private static String randomAmount(Random random) {
+    return String.format(Locale.ENGLISH, "%.2f", (random.nextInt(20_000) + 1) / 100.0);
+  }
+}
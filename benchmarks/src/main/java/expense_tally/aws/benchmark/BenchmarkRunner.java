@@ -0,0 +1,41 @@
+package expense_tally.aws.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line, which takes the same options as the JMH runner.
+ * <p>
+ *   Unless another result format or file is given, the results are written as JSON to
+ *   {@code jmh-result-<release>.json}, so that the results of the releases can be compared with each other. The
+ *   release is taken from the {@code release} system property, and defaults to the version of this project.
+ * </p>
+ */
+public final class BenchmarkRunner {
+  private static final String RELEASE_PROPERTY = "release";
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions);
+    if (commandLineOptions.getResultFormat().hasValue() || commandLineOptions.getResult().hasValue()) {
+      new Runner(optionsBuilder.build()).run();
+      return;
+    }
+    String release = System.getProperty(RELEASE_PROPERTY,
+        BenchmarkRunner.class.getPackage().getImplementationVersion());
+    optionsBuilder.resultFormat(ResultFormatType.JSON)
+        .result("jmh-result-" + ((release == null) ? "SNAPSHOT" : release) + ".json");
+    new Runner(optionsBuilder.build()).run();
+  }
+}
@@ -0,0 +1,120 @@
+package expense_tally.aws.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import expense_tally.aws.database.SessionScopedExpenseReader;
+import expense_tally.aws.database.SessionScopedExpenseReportReader;
+import expense_tally.aws.database.SqlSessionFactoryRegistry;
+import expense_tally.aws.em_change_processor.S3ExpenseManagerUpdater;
+import expense_tally.aws.em_change_processor.sync.BatchTransactionWriter;
+import expense_tally.aws.em_change_processor.sync.IncrementalTransactionSynchronizer;
+import expense_tally.aws.s3.S3FileRetriever;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures {@link S3ExpenseManagerUpdater#updateExpenseManager(S3Event)} from the S3 event to the synchronised
+ * table. The expense manager database is a local SQLite file served by an in-memory S3, and the Aurora database is an
+ * in-memory H2 database in MySQL mode.
+ * <p>
+ *   With an {@code EMPTY} table every transaction is inserted, as in the first synchronisation. With a
+ *   {@code SYNCHRONISED} table nothing is written, which measures the download, the read and the comparison alone.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExpenseManagerSyncBenchmark {
+  private static final String KEY = "expense_manager.db";
+  private static final int WRITE_BATCH_SIZE = 500;
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int rows;
+
+  @Param({"EMPTY", "SYNCHRONISED"})
+  public String auroraState;
+
+  private Path workingDirectory;
+  private LocalAmazonS3 localAmazonS3;
+  private AuroraStandIn auroraStandIn;
+  private File expenseManagerFile;
+  private S3Event s3Event;
+  private S3FileRetriever s3FileRetriever;
+  private S3ExpenseManagerUpdater s3ExpenseManagerUpdater;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws IOException, SQLException {
+    workingDirectory = Files.createTempDirectory("expense-manager-sync-benchmark");
+    File sourceFile = workingDirectory.resolve("source.db").toFile();
+    BenchmarkData.createExpenseManagerDatabase(sourceFile, rows);
+    byte[] content = Files.readAllBytes(sourceFile.toPath());
+    String eTag = BenchmarkData.computeETag(content);
+    localAmazonS3 = new LocalAmazonS3();
+    localAmazonS3.putObject(BenchmarkData.BUCKET, KEY, content, eTag);
+    s3Event = BenchmarkData.createS3Event(KEY, content.length, eTag);
+    expenseManagerFile = workingDirectory.resolve("expense_manager.db").toFile();
+    auroraStandIn = AuroraStandIn.create("expense_manager_sync_" + rows + "_" + auroraState);
+    // A single retriever, and so a single pool of ranged download threads, serves every invocation of the trial
+    s3FileRetriever = S3FileRetriever.create(localAmazonS3.asClient());
+    s3ExpenseManagerUpdater = createS3ExpenseManagerUpdater();
+    if ("SYNCHRONISED".equals(auroraState)) {
+      s3ExpenseManagerUpdater.updateExpenseManager(s3Event);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() throws IOException, SQLException {
+    if ("EMPTY".equals(auroraState)) {
+      auroraStandIn.truncate();
+    }
+    // Forget the previous download, so that the file is downloaded again
+    s3FileRetriever.invalidate(expenseManagerFile);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() throws IOException, SQLException {
+    auroraStandIn.close();
+    try (Stream<Path> paths = Files.walk(workingDirectory)) {
+      paths.sorted(Comparator.reverseOrder())
+          .map(Path::toFile)
+          .forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  public void updateExpenseManager() throws IOException, SQLException {
+    s3ExpenseManagerUpdater.updateExpenseManager(s3Event);
+  }
+
+  private S3ExpenseManagerUpdater createS3ExpenseManagerUpdater() throws IOException, SQLException {
+    SessionScopedExpenseReportReader expenseReportReader = SessionScopedExpenseReportReader.create(
+        SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(expenseManagerFile.getPath()));
+    IncrementalTransactionSynchronizer transactionSynchronizer = IncrementalTransactionSynchronizer.create(
+        SessionScopedExpenseReader.create(auroraStandIn.getSqlSessionFactory()),
+        BatchTransactionWriter.create(auroraStandIn.getSqlSessionFactory(), WRITE_BATCH_SIZE));
+    return S3ExpenseManagerUpdater.create(s3FileRetriever, expenseReportReader, transactionSynchronizer,
+        expenseManagerFile);
+  }
+}
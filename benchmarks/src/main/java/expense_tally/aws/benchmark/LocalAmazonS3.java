@@ -0,0 +1,127 @@
+package expense_tally.aws.benchmark;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory stand-in of S3 which serves the objects put into it, so that the benchmarks measure the application
+ * instead of the network.
+ * <p>
+ *   Only the GET requests used by the application are served, with their byte ranges and ETag constraints. Any other
+ *   request fails.
+ * </p>
+ */
+final class LocalAmazonS3 {
+  private final Map<String, StoredObject> storedObjects = new ConcurrentHashMap<>();
+
+  /**
+   * Store <i>content</i> as the object at <i>bucket</i> and <i>key</i>
+   * @param bucket bucket of the object
+   * @param key key of the object
+   * @param content content of the object
+   * @param eTag entity tag of the object
+   */
+  void putObject(String bucket, String key, byte[] content, String eTag) {
+    storedObjects.put(bucket + "/" + key, new StoredObject(content, eTag));
+  }
+
+  /**
+   * Returns a client which reads the objects of this stand-in
+   * @return a client which reads the objects of this stand-in
+   */
+  AmazonS3 asClient() {
+    return (AmazonS3) Proxy.newProxyInstance(AmazonS3.class.getClassLoader(), new Class<?>[]{AmazonS3.class},
+        (proxy, method, arguments) -> invoke(method, arguments));
+  }
+
+  private Object invoke(Method method, Object[] arguments) {
+    if ("getObject".equals(method.getName()) && arguments.length == 1 &&
+        arguments[0] instanceof GetObjectRequest) {
+      return getObject((GetObjectRequest) arguments[0]);
+    }
+    if ("getObject".equals(method.getName()) && arguments.length == 2 &&
+        arguments[0] instanceof GetObjectRequest && arguments[1] instanceof File) {
+      return getObject((GetObjectRequest) arguments[0], (File) arguments[1]);
+    }
+    throw new UnsupportedOperationException(method.getName() + " is not supported.");
+  }
+
+  private S3Object getObject(GetObjectRequest getObjectRequest) {
+    StoredObject storedObject = findObject(getObjectRequest);
+    if (storedObject == null) {
+      return null;
+    }
+    long[] range = getObjectRequest.getRange();
+    int start = (range == null) ? 0 : (int) range[0];
+    int end = (range == null) ? storedObject.content.length - 1 :
+        (int) Math.min(range[1], storedObject.content.length - 1L);
+    S3Object s3Object = new S3Object();
+    s3Object.setBucketName(getObjectRequest.getBucketName());
+    s3Object.setKey(getObjectRequest.getKey());
+    s3Object.setObjectMetadata(storedObject.createObjectMetadata(end - start + 1L));
+    s3Object.setObjectContent(new ByteArrayInputStream(storedObject.content, start, end - start + 1));
+    return s3Object;
+  }
+
+  private ObjectMetadata getObject(GetObjectRequest getObjectRequest, File destinationFile) {
+    StoredObject storedObject = findObject(getObjectRequest);
+    if (storedObject == null) {
+      return null;
+    }
+    try {
+      Files.write(destinationFile.toPath(), storedObject.content);
+    } catch (IOException ioException) {
+      throw new UncheckedIOException(ioException);
+    }
+    return storedObject.createObjectMetadata(storedObject.content.length);
+  }
+
+  /**
+   * Returns the requested object, or null if a constraint of the request is not met, as the real client does
+   */
+  private StoredObject findObject(GetObjectRequest getObjectRequest) {
+    StoredObject storedObject = storedObjects.get(getObjectRequest.getBucketName() + "/" +
+        getObjectRequest.getKey());
+    if (storedObject == null) {
+      throw new IllegalArgumentException("No such key: " + getObjectRequest.getKey());
+    }
+    List<String> matchingETagConstraints = getObjectRequest.getMatchingETagConstraints();
+    if (!matchingETagConstraints.isEmpty() && !matchingETagConstraints.contains(storedObject.eTag)) {
+      return null;
+    }
+    if (getObjectRequest.getNonmatchingETagConstraints().contains(storedObject.eTag)) {
+      return null;
+    }
+    return storedObject;
+  }
+
+  private static final class StoredObject {
+    private final byte[] content;
+    private final String eTag;
+
+    private StoredObject(byte[] content, String eTag) {
+      this.content = content;
+      this.eTag = eTag;
+    }
+
+    private ObjectMetadata createObjectMetadata(long contentLength) {
+      ObjectMetadata objectMetadata = new ObjectMetadata();
+      objectMetadata.setContentLength(contentLength);
+      objectMetadata.setHeader("ETag", eTag);
+      return objectMetadata;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package expense_tally.aws.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import expense_tally.aws.log.ObjectToString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost per call of {@link ObjectToString#extractStringFromObject(Object)} with its former
+ * implementation, which registered the Joda module on every call.
+ * <p>
+ *   Run with the GC profiler to also compare the allocation per call: {@code java -jar target/benchmarks.jar
+ *   ObjectToStringBenchmark -prof gc}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectToStringBenchmark {
+  private final ObjectMapper legacyObjectMapper = new ObjectMapper();
+  private S3Event s3Event;
+  private ObjectMetadata objectMetadata;
+
+  @Setup
+  public void setUp() {
+    S3EventNotification.UserIdentityEntity userIdentityEntity =
+        new S3EventNotification.UserIdentityEntity("AWS:AIDAEXAMPLE");
+    S3EventNotification.S3Entity s3Entity = new S3EventNotification.S3Entity("testConfiguration",
+        new S3EventNotification.S3BucketEntity("s3-expense-tally-data", userIdentityEntity,
+            "arn:aws:s3:::s3-expense-tally-data"),
+        new S3EventNotification.S3ObjectEntity("expense_manager.db", 1_048_576L,
+            "0123456789abcdef0123456789abcdef", "testVersionId", "0055AED6DCD90281E5"),
+        "1.0");
+    S3EventNotification.S3EventNotificationRecord s3EventNotificationRecord =
+        new S3EventNotification.S3EventNotificationRecord("us-east-1", "ObjectCreated:Put", "aws:s3",
+            "2020-12-01T00:00:00.000Z", "2.1", null, null, s3Entity, userIdentityEntity);
+    s3Event = new S3Event(Collections.singletonList(s3EventNotificationRecord));
+    objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentLength(1_048_576L);
+    objectMetadata.setHeader("ETag", "0123456789abcdef0123456789abcdef");
+    objectMetadata.setHeader("x-amz-version-id", "testVersionId");
+    objectMetadata.setContentType("application/octet-stream");
+  }
+
+  @Benchmark
+  public String s3EventLegacy() throws JsonProcessingException {
+    return legacyExtractStringFromObject(s3Event);
+  }
+
+  @Benchmark
+  public String s3EventShared() {
+    return ObjectToString.extractStringFromObject(s3Event);
+  }
+
+  @Benchmark
+  public String objectMetadataLegacy() throws JsonProcessingException {
+    return legacyExtractStringFromObject(objectMetadata);
+  }
+
+  @Benchmark
+  public String objectMetadataShared() {
+    return ObjectToString.extractStringFromObject(objectMetadata);
+  }
+
+  /**
+   * The former implementation, which registers the module on every call
+   */
+  private String legacyExtractStringFromObject(Object object) throws JsonProcessingException {
+    legacyObjectMapper.registerModule(new JodaModule());
+    return legacyObjectMapper.writeValueAsString(object);
+  }
+}
@@ -0,0 +1,47 @@
+package expense_tally.aws.benchmark;
+
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.aws.s3.DatabaseS3EventAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the extraction of the changed S3 object from an S3 event, which runs once per invocation of both handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3EventAnalyzerBenchmark {
+  private S3Event s3Event;
+
+  @Setup
+  public void setUp() {
+    s3Event = BenchmarkData.createS3Event("expense_manager.db", 1_048_576L, "0123456789abcdef0123456789abcdef");
+  }
+
+  @Benchmark
+  public Optional<S3ObjectId> extractChangedS3ObjectId() {
+    return DatabaseS3EventAnalyzer.extractChangedS3ObjectId(s3Event);
+  }
+
+  @Benchmark
+  public Optional<ChangedS3Object> extractChangedS3Object() {
+    return DatabaseS3EventAnalyzer.extractChangedS3Object(s3Event);
+  }
+}
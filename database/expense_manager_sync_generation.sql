@@ -0,0 +1,6 @@
+-- Version stamp of the expense manager transactions, advanced after every synchronisation of the table. The bank
+-- transaction reconciliation reuses a cached result for as long as the generation is unchanged.
+CREATE TABLE IF NOT EXISTS expense_manager_sync_generation (
+  id TINYINT NOT NULL PRIMARY KEY,
+  generation BIGINT NOT NULL
+);
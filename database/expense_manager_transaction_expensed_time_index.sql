@@ -0,0 +1,5 @@
+-- Serves the period query of the bank transaction reconciliation, which only reads the expense manager transactions
+-- spent around the dates of a bank statement.
+-- The staging table of the atomic refresh is created with CREATE TABLE ... LIKE, which copies this index.
+CREATE INDEX idx_expense_manager_transaction_expensed_time
+  ON expense_manager_transaction (expensed_time);
@@ -8,7 +8,16 @@ import java.util.Optional;
 public enum AppConfigEnum {
   CSV_FILE_PATH("csv_local_file_path"),
   EXPENSE_MANAGER_FILE_PATH("expense_manager_local_file_path"),
-  EXPENSE_REPORT_ENVIRONMENTAL_ID("expense_manager_local_file_db_environment_id")
+  EXPENSE_REPORT_ENVIRONMENTAL_ID("expense_manager_local_file_db_environment_id"),
+  AURORA_WRITE_BATCH_SIZE("expense_manager_db_write_batch_size"),
+  AURORA_REFRESH_MODE("expense_manager_db_refresh_mode"),
+  AURORA_READ_AHEAD_BATCHES("expense_manager_db_read_ahead_batches"),
+  CSV_READ_MODE("csv_read_mode"),
+  RECONCILIATION_TOLERANCE_DAYS("reconciliation_tolerance_days"),
+  RECONCILIATION_PARALLELISM("reconciliation_parallelism"),
+  RECONCILIATION_RESULT_LOCATION("reconciliation_result_location"),
+  RECONCILIATION_CACHE_SIZE("reconciliation_cache_size"),
+  OBJECT_PARALLELISM("object_parallelism")
   ;
 
   private String key;
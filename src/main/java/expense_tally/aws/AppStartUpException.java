@@ -8,4 +8,8 @@ public class AppStartUpException extends Exception implements Serializable {
   public AppStartUpException(String message) {
     super(message);
   }
+
+  public AppStartUpException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -1,42 +1,81 @@
 package expense_tally.aws.csv_reader;
 
 import com.amazonaws.services.lambda.runtime.events.S3Event;
-import com.amazonaws.services.s3.model.S3ObjectId;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import expense_tally.aws.csv_reader.configuration.CsvReadMode;
+import expense_tally.aws.csv_reader.parser.CsvTransactionCursor;
+import expense_tally.aws.csv_reader.parser.MappedCsvTransactionCursor;
+import expense_tally.aws.csv_reader.parser.StreamCsvTransactionCursor;
+import expense_tally.aws.csv_reader.reconciliation.ExpenseTransactionIndex;
+import expense_tally.aws.csv_reader.reconciliation.PartitionedExpenseReconciler;
+import expense_tally.aws.csv_reader.reconciliation.ReconciliationWindow;
+import expense_tally.aws.csv_reader.result.ReconciliationResultCache;
+import expense_tally.aws.csv_reader.result.ReconciliationResultSink;
+import expense_tally.aws.database.ExpenseRangeReadable;
 import expense_tally.aws.log.ObjectToString;
+import expense_tally.aws.metrics.Stage;
+import expense_tally.aws.metrics.StageMetrics;
+import expense_tally.aws.s3.ChangedS3Object;
 import expense_tally.aws.s3.DatabaseS3EventAnalyzer;
+import expense_tally.aws.s3.DownloadStatus;
 import expense_tally.aws.s3.S3FileRetriever;
-import expense_tally.csv.parser.CsvParser;
 import expense_tally.expense_manager.persistence.ExpenseReadable;
-import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
 import expense_tally.model.csv.AbstractCsvTransaction;
 import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
-import expense_tally.model.persistence.transformation.PaymentMethod;
 import expense_tally.reconciliation.DiscrepantTransaction;
-import expense_tally.reconciliation.ExpenseReconciler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 public class BankTransactionReader {
   private static final Logger LOGGER = LogManager.getLogger(BankTransactionReader.class);
+  private static final int DEFAULT_RECONCILIATION_TOLERANCE_DAYS = 1;
+  // Large enough to spread a chunk over every partition of the PartitionedExpenseReconciler
+  private static final int CSV_CHUNK_SIZE = 4096;
 
   private final S3FileRetriever s3FileRetriever;
   private final ExpenseReadable expenseReadable;
   private final File csvFile;
+  private final CsvReadMode csvReadMode;
+  private final int reconciliationToleranceDays;
+  private final PartitionedExpenseReconciler partitionedExpenseReconciler;
+  private final ReconciliationResultSink reconciliationResultSink;
+  private final ReconciliationResultCache reconciliationResultCache;
+  private final StageMetrics stageMetrics;
 
   public BankTransactionReader(S3FileRetriever s3FileRetriever, ExpenseReadable expenseReadable, File csvFile) {
-    this.s3FileRetriever = s3FileRetriever;
-    this.expenseReadable = expenseReadable;
-    this.csvFile = csvFile;
+    this(new Builder(s3FileRetriever, expenseReadable, csvFile));
   }
 
+  private BankTransactionReader(Builder builder) {
+    this.s3FileRetriever = builder.s3FileRetriever;
+    this.expenseReadable = builder.expenseReadable;
+    this.csvFile = builder.csvFile;
+    this.csvReadMode = builder.csvReadMode;
+    this.reconciliationToleranceDays = builder.reconciliationToleranceDays;
+    this.partitionedExpenseReconciler = builder.partitionedExpenseReconciler;
+    this.reconciliationResultSink = builder.reconciliationResultSink;
+    this.reconciliationResultCache = builder.reconciliationResultCache;
+    this.stageMetrics = builder.stageMetrics;
+  }
+
+  /**
+   * Creates a new instance of BankTransactionReader, which downloads every bank statement to <i>csvFile</i>, reconciles
+   * it on the calling thread, and neither publishes nor caches the result. Use {@link Builder} to change them.
+   * @param s3FileRetriever s3 file retriever
+   * @param expenseReadable reader of the expense manager transactions
+   * @param csvFile file to which the bank statement is downloaded
+   * @return a new instance of BankTransactionReader
+   */
   public static BankTransactionReader create(S3FileRetriever s3FileRetriever,
                                              ExpenseReadable expenseReadable,
                                              File csvFile) {
@@ -44,41 +83,273 @@ public class BankTransactionReader {
   }
 
   public List<DiscrepantTransaction> reconcile(S3Event s3Event) throws IOException, SQLException {
-    boolean downloadIsSuccessful = downloadFile(s3Event, csvFile);
-    if (!downloadIsSuccessful) {
-      LOGGER.atError().log("Unable to download bank transaction file from S3. s3Event:{}, csvFile:{}",
-          ObjectToString.extractStringFromObject(s3Event),
-          ObjectToString.extractStringFromObject(csvFile));
+    Optional<ChangedS3Object> optionalChangedS3Object = DatabaseS3EventAnalyzer.extractChangedS3Object(s3Event);
+    if (optionalChangedS3Object.isEmpty()) {
+      LOGGER.atError().log("Unable to find bank transaction file in S3 event. s3Event:{}",
+          ObjectToString.lazyStringOf(s3Event));
+      return Collections.emptyList();
+    }
+    return reconcile(optionalChangedS3Object.get());
+  }
+
+  /**
+   * Reconcile the bank statement <i>changedS3Object</i> against the expense manager transactions. In
+   * {@link CsvReadMode#FILE} mode, every bank statement is downloaded to the same file, so a reader must not reconcile
+   * two bank statements at the same time.
+   * @param changedS3Object the changed bank statement
+   * @return the discrepant transactions of the bank statement, or an empty list if it cannot be retrieved
+   * @throws IOException if the bank statement cannot be read
+   * @throws SQLException if the expense manager transactions cannot be read
+   */
+  public List<DiscrepantTransaction> reconcile(ChangedS3Object changedS3Object) throws IOException, SQLException {
+    Objects.requireNonNull(changedS3Object, "changedS3Object cannot be null");
+    // Stamped before the database is read, so that a result is never cached under a newer generation than its data
+    Optional<ReconciliationResultCache.Key> resultCacheKey = reconciliationResultCache.keyOf(changedS3Object);
+    Optional<List<DiscrepantTransaction>> cachedResult = resultCacheKey.flatMap(reconciliationResultCache::lookup);
+    if (cachedResult.isPresent()) {
+      LOGGER.atInfo().log("Bank transactions are already reconciled. resultCacheKey:{}", resultCacheKey.get());
+      return cachedResult.get();
+    }
+    Optional<List<DiscrepantTransaction>> optionalDiscrepantTransactions = (csvReadMode == CsvReadMode.STREAM) ?
+        reconcileObjectStream(changedS3Object) : reconcileDownloadedFile(changedS3Object);
+    if (optionalDiscrepantTransactions.isEmpty()) {
       return Collections.emptyList();
     }
-    LOGGER.atTrace().log("Extracting transaction from CSV file now. destinationFilePath:{}", csvFile);
-    List<AbstractCsvTransaction> csvTransactions = extractCsvTransactionsFromFile(csvFile);
-    LOGGER.atDebug().log("Transactions are extracted from CSV file. csvTransactions:{} entry", csvTransactions.size());
-    LOGGER.atTrace().log("Retrieving transaction from database. expenseReadable:{}", expenseReadable);
-    List<ExpenseManagerTransaction> expenseManagerTransactions = getExpnsMngrTxnsFromDatabase();
-    LOGGER.atDebug().log("Transactions is retrieved from database. expenseManagerTransactions:{} entry",
-        expenseManagerTransactions.size());
-    return reconcileTransaction(csvTransactions, expenseManagerTransactions);
+    List<DiscrepantTransaction> discrepantTransactions = optionalDiscrepantTransactions.get();
+    // Only a complete reconciliation is published, so that an empty result always means no discrepancy
+    reconciliationResultSink.publish(changedS3Object, discrepantTransactions);
+    resultCacheKey.ifPresent(key -> reconciliationResultCache.record(key, discrepantTransactions));
+    return discrepantTransactions;
+  }
+
+  private Optional<List<DiscrepantTransaction>> reconcileDownloadedFile(ChangedS3Object changedS3Object)
+      throws IOException, SQLException {
+    DownloadStatus downloadStatus;
+    StageMetrics.Timer timer = stageMetrics.start(Stage.S3_DOWNLOAD);
+    try {
+      downloadStatus = s3FileRetriever.retrieveFile(changedS3Object, csvFile);
+    } finally {
+      timer.close();
+    }
+    if (downloadStatus == DownloadStatus.DOWNLOADED) {
+      stageMetrics.addBytes(Stage.S3_DOWNLOAD, csvFile.length());
+    }
+    boolean downloadIsSuccessful = downloadStatus != DownloadStatus.FAILED;
+    if (!downloadIsSuccessful) {
+      LOGGER.atError().log("Unable to download bank transaction file from S3. changedS3Object:{}, csvFile:{}",
+          changedS3Object,
+          ObjectToString.lazyStringOf(csvFile));
+      return Optional.empty();
+    }
+    LOGGER.atTrace().log("Reconciling transaction from CSV file now. destinationFilePath:{}", csvFile);
+    return Optional.of(reconcileInChunks(MappedCsvTransactionCursor.map(csvFile.toPath())));
   }
 
-  private boolean downloadFile(S3Event s3Event, File destinationFile) throws IOException {
-    Optional<S3ObjectId> optionalS3Id = DatabaseS3EventAnalyzer.extractChangedS3ObjectId(s3Event);
-    return optionalS3Id.isPresent() && s3FileRetriever.downloadFile(optionalS3Id.get(), destinationFile);
+  private Optional<List<DiscrepantTransaction>> reconcileObjectStream(ChangedS3Object changedS3Object)
+      throws IOException, SQLException {
+    Optional<S3Object> optionalS3Object = s3FileRetriever.openObjectStream(changedS3Object);
+    if (optionalS3Object.isEmpty()) {
+      LOGGER.atError().log("Unable to open bank transaction file from S3. changedS3Object:{}", changedS3Object);
+      return Optional.empty();
+    }
+    LOGGER.atTrace().log("Reconciling transaction from S3 object stream now.");
+    try (S3Object s3Object = optionalS3Object.get();
+         S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+      return Optional.of(reconcileInChunks(StreamCsvTransactionCursor.create(s3ObjectInputStream)));
+    }
   }
 
-  private List<AbstractCsvTransaction> extractCsvTransactionsFromFile(File destinationFile) throws IOException {
-    String destinationFilePath = destinationFile.getAbsolutePath();
-    return CsvParser.parseCsvFile(destinationFilePath);
+  /**
+   * Reconcile the bank statement in chunks of {@value #CSV_CHUNK_SIZE} transactions, so that a bank statement is only
+   * held one chunk at a time, whether it is read from the downloaded file or from the object stream. Every bank transaction is matched on its own, so a chunk is reconciled against
+   * the expense manager transactions of its own {@link ReconciliationWindow} without changing the result.
+   */
+  private List<DiscrepantTransaction> reconcileInChunks(CsvTransactionCursor csvTransactionCursor)
+      throws IOException, SQLException {
+    List<DiscrepantTransaction> discrepantTransactions = new ArrayList<>();
+    ExpenseTransactionIndex expenseTransactionIndex = null;
+    int csvTransactionCount = 0;
+    int expenseManagerTransactionCount = 0;
+    List<AbstractCsvTransaction> csvTransactions;
+    while (!(csvTransactions = nextCsvChunk(csvTransactionCursor)).isEmpty()) {
+      csvTransactionCount += csvTransactions.size();
+      // Without a window, every chunk is reconciled against the same expense manager transactions
+      if (expenseTransactionIndex == null || expenseReadable instanceof ExpenseRangeReadable) {
+        LOGGER.atTrace().log("Retrieving transaction from database. expenseReadable:{}", expenseReadable);
+        List<ExpenseManagerTransaction> expenseManagerTransactions;
+        StageMetrics.Timer fetchTimer = stageMetrics.start(Stage.DB_FETCH);
+        try {
+          expenseManagerTransactions = getExpnsMngrTxnsFromDatabase(csvTransactions);
+        } finally {
+          fetchTimer.close();
+        }
+        stageMetrics.addRows(Stage.DB_FETCH, expenseManagerTransactions.size());
+        expenseManagerTransactionCount += expenseManagerTransactions.size();
+        expenseTransactionIndex = ExpenseTransactionIndex.create(expenseManagerTransactions);
+      }
+      StageMetrics.Timer reconcileTimer = stageMetrics.start(Stage.RECONCILE);
+      try {
+        discrepantTransactions.addAll(partitionedExpenseReconciler.reconcile(csvTransactions,
+            expenseTransactionIndex));
+      } finally {
+        reconcileTimer.close();
+      }
+      stageMetrics.addRows(Stage.RECONCILE, csvTransactions.size());
+    }
+    LOGGER.atDebug().log("Transactions are reconciled. csvTransactions:{} entry, " +
+        "expenseManagerTransactions:{} entry, discrepantTransactions:{} entry", csvTransactionCount,
+        expenseManagerTransactionCount, discrepantTransactions.size());
+    return discrepantTransactions;
   }
 
-  private List<ExpenseManagerTransaction> getExpnsMngrTxnsFromDatabase() throws IOException, SQLException {
-    return expenseReadable.getAllExpenseManagerTransaction();
+  private List<AbstractCsvTransaction> nextCsvChunk(CsvTransactionCursor csvTransactionCursor) throws IOException {
+    List<AbstractCsvTransaction> csvTransactions;
+    StageMetrics.Timer timer = stageMetrics.start(Stage.CSV_PARSE);
+    try {
+      csvTransactions = csvTransactionCursor.nextChunk(CSV_CHUNK_SIZE);
+    } finally {
+      timer.close();
+    }
+    stageMetrics.addRows(Stage.CSV_PARSE, csvTransactions.size());
+    return csvTransactions;
   }
 
-  private List<DiscrepantTransaction> reconcileTransaction(List<AbstractCsvTransaction> csvTransactions,
-                                                           List<ExpenseManagerTransaction> expenseManagerTransactions) {
-    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> expensesByAmountAndPaymentMethod =
-        ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(expenseManagerTransactions);
-    return ExpenseReconciler.reconcileBankData(csvTransactions, expensesByAmountAndPaymentMethod);
+  /**
+   * Retrieve the expense manager transactions which may match <i>csvTransactions</i>. When the database can be read by
+   * period, only the transactions within the {@link ReconciliationWindow} of <i>csvTransactions</i> are loaded, so
+   * that the read scales with the statement instead of the whole history of the account.
+   */
+  private List<ExpenseManagerTransaction> getExpnsMngrTxnsFromDatabase(List<AbstractCsvTransaction> csvTransactions)
+      throws IOException, SQLException {
+    if (!(expenseReadable instanceof ExpenseRangeReadable)) {
+      return expenseReadable.getAllExpenseManagerTransaction();
+    }
+    Optional<ReconciliationWindow> optionalReconciliationWindow =
+        ReconciliationWindow.cover(csvTransactions, reconciliationToleranceDays);
+    if (optionalReconciliationWindow.isEmpty()) {
+      LOGGER.atDebug().log("No dated transaction in CSV file. Nothing is retrieved from database.");
+      return Collections.emptyList();
+    }
+    ReconciliationWindow reconciliationWindow = optionalReconciliationWindow.get();
+    LOGGER.atTrace().log("Retrieving transaction within window. reconciliationWindow:{}", reconciliationWindow);
+    return ((ExpenseRangeReadable) expenseReadable).getExpenseManagerTransactionsBetween(
+        reconciliationWindow.getFrom(), reconciliationWindow.getTo());
+  }
+
+  /**
+   * {@code BankTransactionReader.Builder} is used for creating a {@code BankTransactionReader} from various parameters.
+   *
+   * <p>
+   *    The S3 file retriever, the reader of the expense manager transactions and the csv file are the mandatory fields
+   *    in the construction of {@code BankTransactionReader}. Unless they are set, every bank statement is downloaded to
+   *    the csv file and reconciled on the calling thread, and the result is neither published nor cached.
+   * </p>
+   *
+   * @see BankTransactionReader
+   */
+  public static class Builder {
+    private final S3FileRetriever s3FileRetriever;
+    private final ExpenseReadable expenseReadable;
+    private final File csvFile;
+    private CsvReadMode csvReadMode;
+    private int reconciliationToleranceDays;
+    private PartitionedExpenseReconciler partitionedExpenseReconciler;
+    private ReconciliationResultSink reconciliationResultSink;
+    private ReconciliationResultCache reconciliationResultCache;
+    private StageMetrics stageMetrics;
+
+    /**
+     * Default constructor of {@code BankTransactionReader.Builder}
+     * @param s3FileRetriever s3 file retriever
+     * @param expenseReadable reader of the expense manager transactions
+     * @param csvFile file to which the bank statement is downloaded
+     */
+    public Builder(S3FileRetriever s3FileRetriever, ExpenseReadable expenseReadable, File csvFile) {
+      this.s3FileRetriever = s3FileRetriever;
+      this.expenseReadable = expenseReadable;
+      this.csvFile = csvFile;
+      this.csvReadMode = CsvReadMode.FILE;
+      this.reconciliationToleranceDays = DEFAULT_RECONCILIATION_TOLERANCE_DAYS;
+      this.partitionedExpenseReconciler = PartitionedExpenseReconciler.create(1);
+      this.reconciliationResultSink = ReconciliationResultSink.discarding();
+      this.reconciliationResultCache = ReconciliationResultCache.disabled();
+      this.stageMetrics = StageMetrics.disabled();
+    }
+
+    /**
+     * Set the way the bank statement is read from S3
+     * @param csvReadMode the way the bank statement is read from S3
+     * @return this {@code BankTransactionReader.Builder}
+     */
+    public Builder csvReadMode(CsvReadMode csvReadMode) {
+      this.csvReadMode = Objects.requireNonNull(csvReadMode, "csvReadMode cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the number of days before the earliest bank transaction from which the expense manager transactions are
+     * loaded for the reconciliation
+     * @param reconciliationToleranceDays number of days before the earliest bank transaction
+     * @return this {@code BankTransactionReader.Builder}
+     */
+    public Builder reconciliationToleranceDays(int reconciliationToleranceDays) {
+      if (reconciliationToleranceDays < 0) {
+        LOGGER.atWarn().log("reconciliationToleranceDays is negative:{}", reconciliationToleranceDays);
+        throw new IllegalArgumentException("Reconciliation tolerance days cannot be negative.");
+      }
+      this.reconciliationToleranceDays = reconciliationToleranceDays;
+      return this;
+    }
+
+    /**
+     * Set the reconciler which reconciles the partitions of a bank statement at the same time
+     * @param partitionedExpenseReconciler reconciler of the partitions of a bank statement
+     * @return this {@code BankTransactionReader.Builder}
+     */
+    public Builder partitionedExpenseReconciler(PartitionedExpenseReconciler partitionedExpenseReconciler) {
+      this.partitionedExpenseReconciler = Objects.requireNonNull(partitionedExpenseReconciler,
+          "partitionedExpenseReconciler cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the destination to which every complete reconciliation result is published
+     * @param reconciliationResultSink destination of the reconciliation results
+     * @return this {@code BankTransactionReader.Builder}
+     */
+    public Builder reconciliationResultSink(ReconciliationResultSink reconciliationResultSink) {
+      this.reconciliationResultSink = Objects.requireNonNull(reconciliationResultSink,
+          "reconciliationResultSink cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the cache of the reconciliation results of the bank statements already reconciled
+     * @param reconciliationResultCache cache of the reconciliation results
+     * @return this {@code BankTransactionReader.Builder}
+     */
+    public Builder reconciliationResultCache(ReconciliationResultCache reconciliationResultCache) {
+      this.reconciliationResultCache = Objects.requireNonNull(reconciliationResultCache,
+          "reconciliationResultCache cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the recorder of the duration and size of every stage of the reconciliation
+     * @param stageMetrics recorder of the duration and size of every stage of the reconciliation
+     * @return this {@code BankTransactionReader.Builder}
+     */
+    public Builder stageMetrics(StageMetrics stageMetrics) {
+      this.stageMetrics = Objects.requireNonNull(stageMetrics, "stageMetrics cannot be null");
+      return this;
+    }
+
+    /**
+     * Returns a {@code BankTransactionReader} built from the parameters set by the setter methods.
+     * @return a {@code BankTransactionReader} built from the parameters set by the setter methods.
+     */
+    public BankTransactionReader build() {
+      return new BankTransactionReader(this);
+    }
   }
 }
@@ -0,0 +1,40 @@
+package expense_tally.aws.csv_reader.configuration;
+
+import expense_tally.exception.StringResolver;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Optional;
+
+/**
+ * The way the bank transaction CSV file is read from Amazon Simple Storage Service.
+ */
+public enum CsvReadMode {
+  /**
+   * The object is downloaded to the local CSV file, which is then mapped into memory and read in chunks by the
+   * {@link expense_tally.aws.csv_reader.parser.MappedCsvTransactionCursor}.
+   */
+  FILE,
+  /**
+   * The object content is parsed in chunks by the {@link expense_tally.aws.csv_reader.parser.StreamCsvTransactionCursor}
+   * while it is being received from S3. Nothing is written to the local disk.
+   */
+  STREAM
+  ;
+
+  /**
+   * Returns the {@link CsvReadMode} with the name <i>value</i>, ignoring case
+   * @param value name of the read mode
+   * @return the {@link CsvReadMode} with the name <i>value</i>, or empty if there is no such read mode
+   */
+  public static Optional<CsvReadMode> resolve(String value) {
+    if (StringUtils.isBlank(value)) {
+      throw new IllegalArgumentException("value cannot be blank:" + StringResolver.resolveNullableString(value));
+    }
+    for (CsvReadMode csvReadMode : values()) {
+      if (csvReadMode.name().equalsIgnoreCase(value.strip())) {
+        return Optional.of(csvReadMode);
+      }
+    }
+    return Optional.empty();
+  }
+}
@@ -3,28 +3,62 @@ package expense_tally.aws.csv_reader.configuration;
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.net.URI;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.StringJoiner;
 
 /**
  *
  */
 public class CsvReaderConfiguration {
+  private static final Logger LOGGER = LogManager.getLogger(CsvReaderConfiguration.class);
   private static final String DEFAULT_CSV_FILE_PATH = URI.create("/tmp/transaction.csv").getPath();
+  private static final int DEFAULT_RECONCILIATION_TOLERANCE_DAYS = 1;
+  private static final int DEFAULT_RECONCILIATION_PARALLELISM = 1;
+  private static final int DEFAULT_RECONCILIATION_CACHE_SIZE = 16;
+  private static final int DEFAULT_OBJECT_PARALLELISM = 4;
 
   private final File csvFile;
+  private final CsvReadMode csvReadMode;
+  private final int reconciliationToleranceDays;
+  private final int reconciliationParallelism;
+  private final URI reconciliationResultLocation;
+  private final int reconciliationCacheSize;
+  private final int objectParallelism;
   private final AuroraDatabaseConfiguration auroraDatabaseConfiguration;
 
   /**
-   * Private constructor for static factory method design pattern
+   * Private constructor for static factory method and Builder design pattern
    * @param csvFile the csv file
+   * @param csvReadMode the way the csv file is read from S3
+   * @param reconciliationToleranceDays number of days before the earliest bank transaction from which the expense
+   *                                    manager transactions are loaded for the reconciliation
+   * @param reconciliationParallelism number of partitions of the bank statement reconciled at the same time
+   * @param reconciliationResultLocation location where the reconciliation results are published, may be null
+   * @param reconciliationCacheSize maximum number of reconciliation results kept by the Lambda container
+   * @param objectParallelism number of bank statements of an S3 event reconciled at the same time
    * @param auroraDatabaseConfiguration database configuration of the Aurora database
    */
-  private CsvReaderConfiguration(File csvFile, AuroraDatabaseConfiguration auroraDatabaseConfiguration) {
+  private CsvReaderConfiguration(File csvFile,
+                                 CsvReadMode csvReadMode,
+                                 int reconciliationToleranceDays,
+                                 int reconciliationParallelism,
+                                 URI reconciliationResultLocation,
+                                 int reconciliationCacheSize,
+                                 int objectParallelism,
+                                 AuroraDatabaseConfiguration auroraDatabaseConfiguration) {
     this.csvFile = Objects.requireNonNull(csvFile);
+    this.csvReadMode = Objects.requireNonNull(csvReadMode);
+    this.reconciliationToleranceDays = reconciliationToleranceDays;
+    this.reconciliationParallelism = reconciliationParallelism;
+    this.reconciliationResultLocation = reconciliationResultLocation;
+    this.reconciliationCacheSize = reconciliationCacheSize;
+    this.objectParallelism = objectParallelism;
     this.auroraDatabaseConfiguration = Objects.requireNonNull(auroraDatabaseConfiguration);
   }
 
@@ -32,19 +66,55 @@ public class CsvReaderConfiguration {
     return csvFile;
   }
 
+  public CsvReadMode getCsvReadMode() {
+    return csvReadMode;
+  }
+
+  public int getReconciliationToleranceDays() {
+    return reconciliationToleranceDays;
+  }
+
+  public int getReconciliationParallelism() {
+    return reconciliationParallelism;
+  }
+
+  /**
+   * Returns the location where the reconciliation results are published
+   * @return the location where the reconciliation results are published, or empty if they are not published
+   */
+  public Optional<URI> getReconciliationResultLocation() {
+    return Optional.ofNullable(reconciliationResultLocation);
+  }
+
+  public int getReconciliationCacheSize() {
+    return reconciliationCacheSize;
+  }
+
+  public int getObjectParallelism() {
+    return objectParallelism;
+  }
+
   public AuroraDatabaseConfiguration getAuroraDatabaseConfiguration() {
     return auroraDatabaseConfiguration;
   }
 
   public static CsvReaderConfiguration create(AuroraDatabaseConfiguration auroraDatabaseConfiguration) {
     File file = new File(DEFAULT_CSV_FILE_PATH);
-    return new CsvReaderConfiguration(file, auroraDatabaseConfiguration);
+    return create(file, CsvReadMode.FILE, auroraDatabaseConfiguration);
   }
 
   public static CsvReaderConfiguration create(String csvFilePath,
                                               AuroraDatabaseConfiguration auroraDatabaseConfiguration) {
     File file = new File(csvFilePath);
-    return new CsvReaderConfiguration(file, auroraDatabaseConfiguration);
+    return create(file, CsvReadMode.FILE, auroraDatabaseConfiguration);
+  }
+
+  public static CsvReaderConfiguration create(File csvFile,
+                                              CsvReadMode csvReadMode,
+                                              AuroraDatabaseConfiguration auroraDatabaseConfiguration) {
+    return new CsvReaderConfiguration(csvFile, csvReadMode, DEFAULT_RECONCILIATION_TOLERANCE_DAYS,
+        DEFAULT_RECONCILIATION_PARALLELISM, null, DEFAULT_RECONCILIATION_CACHE_SIZE, DEFAULT_OBJECT_PARALLELISM,
+        auroraDatabaseConfiguration);
   }
 
   @Override
@@ -61,6 +131,12 @@ public class CsvReaderConfiguration {
 
     return new EqualsBuilder()
         .append(csvFile, that.csvFile)
+        .append(csvReadMode, that.csvReadMode)
+        .append(reconciliationToleranceDays, that.reconciliationToleranceDays)
+        .append(reconciliationParallelism, that.reconciliationParallelism)
+        .append(reconciliationResultLocation, that.reconciliationResultLocation)
+        .append(reconciliationCacheSize, that.reconciliationCacheSize)
+        .append(objectParallelism, that.objectParallelism)
         .append(auroraDatabaseConfiguration, that.auroraDatabaseConfiguration)
         .isEquals();
   }
@@ -69,6 +145,12 @@ public class CsvReaderConfiguration {
   public int hashCode() {
     return new HashCodeBuilder(17, 37)
         .append(csvFile)
+        .append(csvReadMode)
+        .append(reconciliationToleranceDays)
+        .append(reconciliationParallelism)
+        .append(reconciliationResultLocation)
+        .append(reconciliationCacheSize)
+        .append(objectParallelism)
         .append(auroraDatabaseConfiguration)
         .toHashCode();
   }
@@ -77,7 +159,157 @@ public class CsvReaderConfiguration {
   public String toString() {
     return new StringJoiner(", ", CsvReaderConfiguration.class.getSimpleName() + "[", "]")
         .add("csvFile=" + csvFile)
+        .add("csvReadMode=" + csvReadMode)
+        .add("reconciliationToleranceDays=" + reconciliationToleranceDays)
+        .add("reconciliationParallelism=" + reconciliationParallelism)
+        .add("reconciliationResultLocation=" + reconciliationResultLocation)
+        .add("reconciliationCacheSize=" + reconciliationCacheSize)
+        .add("objectParallelism=" + objectParallelism)
         .add("auroraDatabaseConfiguration=" + auroraDatabaseConfiguration)
         .toString();
   }
+
+  /**
+   * {@code CsvReaderConfiguration.Builder} is used for creating a {@code CsvReaderConfiguration} from various
+   * parameters.
+   *
+   * <p>
+   *    {@code AuroraDatabaseConfiguration} is the only mandatory field in the construction of {@code
+   *    CsvReaderConfiguration}. Application default values are used for the fields which are not set.
+   * </p>
+   *
+   * @see CsvReaderConfiguration
+   * @see AuroraDatabaseConfiguration
+   */
+  public static class Builder {
+    private File csvFile;
+    private CsvReadMode csvReadMode;
+    private int reconciliationToleranceDays;
+    private int reconciliationParallelism;
+    private URI reconciliationResultLocation;
+    private int reconciliationCacheSize;
+    private int objectParallelism;
+    private final AuroraDatabaseConfiguration auroraDatabaseConfiguration;
+
+    /**
+     * Default constructor of {@code CsvReaderConfiguration.Builder}
+     * @param auroraDatabaseConfiguration database configuration of the Aurora database
+     */
+    public Builder(AuroraDatabaseConfiguration auroraDatabaseConfiguration) {
+      this.auroraDatabaseConfiguration = Objects.requireNonNull(auroraDatabaseConfiguration);
+      this.csvFile = new File(DEFAULT_CSV_FILE_PATH);
+      this.csvReadMode = CsvReadMode.FILE;
+      this.reconciliationToleranceDays = DEFAULT_RECONCILIATION_TOLERANCE_DAYS;
+      this.reconciliationParallelism = DEFAULT_RECONCILIATION_PARALLELISM;
+      this.reconciliationCacheSize = DEFAULT_RECONCILIATION_CACHE_SIZE;
+      this.objectParallelism = DEFAULT_OBJECT_PARALLELISM;
+    }
+
+    /**
+     * Set the csv file
+     * @param csvFile the csv file
+     * @return this {@code CsvReaderConfiguration.Builder}
+     */
+    public Builder csvFile(File csvFile) {
+      this.csvFile = Objects.requireNonNull(csvFile, "csvFile cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the way the csv file is read from S3
+     * @param csvReadMode the way the csv file is read from S3
+     * @return this {@code CsvReaderConfiguration.Builder}
+     */
+    public Builder csvReadMode(CsvReadMode csvReadMode) {
+      this.csvReadMode = Objects.requireNonNull(csvReadMode, "csvReadMode cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the number of days before the earliest bank transaction from which the expense manager transactions are
+     * loaded for the reconciliation
+     * @param reconciliationToleranceDays number of days before the earliest bank transaction
+     * @return this {@code CsvReaderConfiguration.Builder}
+     */
+    public Builder reconciliationToleranceDays(int reconciliationToleranceDays) {
+      if (reconciliationToleranceDays < 0) {
+        LOGGER.atWarn().log("reconciliationToleranceDays is negative:{}", reconciliationToleranceDays);
+        throw new IllegalArgumentException("Reconciliation tolerance days cannot be negative.");
+      }
+      this.reconciliationToleranceDays = reconciliationToleranceDays;
+      return this;
+    }
+
+    /**
+     * Set the number of partitions of the bank statement reconciled at the same time
+     * @param reconciliationParallelism number of partitions of the bank statement reconciled at the same time
+     * @return this {@code CsvReaderConfiguration.Builder}
+     */
+    public Builder reconciliationParallelism(int reconciliationParallelism) {
+      if (reconciliationParallelism <= 0) {
+        LOGGER.atWarn().log("reconciliationParallelism is non-positive:{}", reconciliationParallelism);
+        throw new IllegalArgumentException("Reconciliation parallelism must be positive.");
+      }
+      this.reconciliationParallelism = reconciliationParallelism;
+      return this;
+    }
+
+    /**
+     * Set the location where the reconciliation results are published. The results are not published if no location
+     * is set.
+     * @param reconciliationResultLocation location where the reconciliation results are published
+     * @return this {@code CsvReaderConfiguration.Builder}
+     */
+    public Builder reconciliationResultLocation(URI reconciliationResultLocation) {
+      this.reconciliationResultLocation = Objects.requireNonNull(reconciliationResultLocation,
+          "reconciliationResultLocation cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the maximum number of reconciliation results kept by the Lambda container. The results are not cached if
+     * the size is 0.
+     * @param reconciliationCacheSize maximum number of reconciliation results kept by the Lambda container
+     * @return this {@code CsvReaderConfiguration.Builder}
+     */
+    public Builder reconciliationCacheSize(int reconciliationCacheSize) {
+      if (reconciliationCacheSize < 0) {
+        LOGGER.atWarn().log("reconciliationCacheSize is negative:{}", reconciliationCacheSize);
+        throw new IllegalArgumentException("Reconciliation cache size cannot be negative.");
+      }
+      this.reconciliationCacheSize = reconciliationCacheSize;
+      return this;
+    }
+
+    /**
+     * Set the number of bank statements of an S3 event reconciled at the same time
+     * @param objectParallelism number of bank statements of an S3 event reconciled at the same time
+     * @return this {@code CsvReaderConfiguration.Builder}
+     */
+    public Builder objectParallelism(int objectParallelism) {
+      if (objectParallelism <= 0) {
+        LOGGER.atWarn().log("objectParallelism is non-positive:{}", objectParallelism);
+        throw new IllegalArgumentException("Object parallelism must be positive.");
+      }
+      this.objectParallelism = objectParallelism;
+      return this;
+    }
+
+    /**
+     * Returns a {@code CsvReaderConfiguration} built from the parameters set by the setter methods.
+     * @return a {@code CsvReaderConfiguration} built from the parameters set by the setter methods.
+     */
+    public CsvReaderConfiguration build() {
+      return new CsvReaderConfiguration(
+          csvFile,
+          csvReadMode,
+          reconciliationToleranceDays,
+          reconciliationParallelism,
+          reconciliationResultLocation,
+          reconciliationCacheSize,
+          objectParallelism,
+          auroraDatabaseConfiguration
+      );
+    }
+  }
 }
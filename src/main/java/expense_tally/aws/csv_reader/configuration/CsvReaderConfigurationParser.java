@@ -5,10 +5,19 @@ import expense_tally.aws.AppStartUpException;
 import expense_tally.aws.aurora.AuroraConfigurationParser;
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import expense_tally.aws.config.SystemProxy;
+import expense_tally.aws.csv_reader.result.ReconciliationResultSinkFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.Optional;
 
 public class CsvReaderConfigurationParser {
+  private static final Logger LOGGER = LogManager.getLogger(CsvReaderConfigurationParser.class);
 
   /**
    * Make implicit constructor private as there is no need to initialise class
@@ -20,9 +29,118 @@ public class CsvReaderConfigurationParser {
     AuroraDatabaseConfiguration auroraDatabaseConfiguration =
         AuroraConfigurationParser.parseSystemEnvironmentVariableConfigurations();
 
+    CsvReaderConfiguration.Builder csvReaderConfigurationBuilder =
+        new CsvReaderConfiguration.Builder(auroraDatabaseConfiguration);
+
     Optional<String> csvFilePath = parseSingleConfiguration(AppConfigEnum.CSV_FILE_PATH.key());
-    return csvFilePath.map(s -> CsvReaderConfiguration.create(s, auroraDatabaseConfiguration))
-        .orElseGet(() -> CsvReaderConfiguration.create(auroraDatabaseConfiguration));
+    if (csvFilePath.isPresent()) {
+      csvReaderConfigurationBuilder = csvReaderConfigurationBuilder.csvFile(new File(csvFilePath.get()));
+    }
+    csvReaderConfigurationBuilder = parseCsvReadMode(csvReaderConfigurationBuilder);
+    csvReaderConfigurationBuilder = parseReconciliationToleranceDays(csvReaderConfigurationBuilder);
+    csvReaderConfigurationBuilder = parseReconciliationParallelism(csvReaderConfigurationBuilder);
+    csvReaderConfigurationBuilder = parseReconciliationResultLocation(csvReaderConfigurationBuilder);
+    csvReaderConfigurationBuilder = parseReconciliationCacheSize(csvReaderConfigurationBuilder);
+    csvReaderConfigurationBuilder = parseObjectParallelism(csvReaderConfigurationBuilder);
+    return csvReaderConfigurationBuilder.build();
+  }
+
+  private static CsvReaderConfiguration.Builder parseCsvReadMode(
+      CsvReaderConfiguration.Builder csvReaderConfigurationBuilder) throws AppStartUpException {
+    Optional<String> csvReadMode = parseSingleConfiguration(AppConfigEnum.CSV_READ_MODE.key());
+    if (csvReadMode.isEmpty() || StringUtils.isBlank(csvReadMode.get())) {
+      return csvReaderConfigurationBuilder;
+    }
+    String csvReadModeString = csvReadMode.get();
+    Optional<CsvReadMode> optionalCsvReadMode = CsvReadMode.resolve(csvReadModeString);
+    if (optionalCsvReadMode.isEmpty()) {
+      LOGGER.atWarn().log("csvReadModeString is not a read mode: {}", csvReadModeString);
+      throw new AppStartUpException(AppConfigEnum.CSV_READ_MODE.key() + " is not a supported read mode.");
+    }
+    return csvReaderConfigurationBuilder.csvReadMode(optionalCsvReadMode.get());
+  }
+
+  private static CsvReaderConfiguration.Builder parseReconciliationToleranceDays(
+      CsvReaderConfiguration.Builder csvReaderConfigurationBuilder) throws AppStartUpException {
+    Optional<String> reconciliationToleranceDays =
+        parseSingleConfiguration(AppConfigEnum.RECONCILIATION_TOLERANCE_DAYS.key());
+    if (reconciliationToleranceDays.isEmpty()) {
+      return csvReaderConfigurationBuilder;
+    }
+    String reconciliationToleranceDaysString = reconciliationToleranceDays.get();
+    if (!NumberUtils.isDigits(reconciliationToleranceDaysString)) {
+      LOGGER.atWarn().log("reconciliationToleranceDaysString is not number: {}", reconciliationToleranceDaysString);
+      throw new AppStartUpException(AppConfigEnum.RECONCILIATION_TOLERANCE_DAYS.key() + " is not numeric.");
+    }
+    return csvReaderConfigurationBuilder.reconciliationToleranceDays(
+        Integer.parseInt(reconciliationToleranceDaysString));
+  }
+
+  private static CsvReaderConfiguration.Builder parseReconciliationParallelism(
+      CsvReaderConfiguration.Builder csvReaderConfigurationBuilder) throws AppStartUpException {
+    Optional<String> reconciliationParallelism =
+        parseSingleConfiguration(AppConfigEnum.RECONCILIATION_PARALLELISM.key());
+    if (reconciliationParallelism.isEmpty()) {
+      return csvReaderConfigurationBuilder;
+    }
+    String reconciliationParallelismString = reconciliationParallelism.get();
+    if (!NumberUtils.isDigits(reconciliationParallelismString)) {
+      LOGGER.atWarn().log("reconciliationParallelismString is not number: {}", reconciliationParallelismString);
+      throw new AppStartUpException(AppConfigEnum.RECONCILIATION_PARALLELISM.key() + " is not numeric.");
+    }
+    return csvReaderConfigurationBuilder.reconciliationParallelism(Integer.parseInt(reconciliationParallelismString));
+  }
+
+  private static CsvReaderConfiguration.Builder parseReconciliationResultLocation(
+      CsvReaderConfiguration.Builder csvReaderConfigurationBuilder) throws AppStartUpException {
+    Optional<String> reconciliationResultLocation =
+        parseSingleConfiguration(AppConfigEnum.RECONCILIATION_RESULT_LOCATION.key());
+    if (reconciliationResultLocation.isEmpty() || StringUtils.isBlank(reconciliationResultLocation.get())) {
+      return csvReaderConfigurationBuilder;
+    }
+    String reconciliationResultLocationString = reconciliationResultLocation.get();
+    URI location;
+    try {
+      location = new URI(reconciliationResultLocationString);
+    } catch (URISyntaxException uriSyntaxException) {
+      LOGGER.atWarn().log("reconciliationResultLocationString is not an URI: {}", reconciliationResultLocationString);
+      throw new AppStartUpException(AppConfigEnum.RECONCILIATION_RESULT_LOCATION.key() + " is not an URI.");
+    }
+    if (!ReconciliationResultSinkFactory.isSupported(location)) {
+      LOGGER.atWarn().log("reconciliationResultLocationString is not a supported location: {}",
+          reconciliationResultLocationString);
+      throw new AppStartUpException(AppConfigEnum.RECONCILIATION_RESULT_LOCATION.key() +
+          " is not a supported location.");
+    }
+    return csvReaderConfigurationBuilder.reconciliationResultLocation(location);
+  }
+
+  private static CsvReaderConfiguration.Builder parseReconciliationCacheSize(
+      CsvReaderConfiguration.Builder csvReaderConfigurationBuilder) throws AppStartUpException {
+    Optional<String> reconciliationCacheSize = parseSingleConfiguration(AppConfigEnum.RECONCILIATION_CACHE_SIZE.key());
+    if (reconciliationCacheSize.isEmpty()) {
+      return csvReaderConfigurationBuilder;
+    }
+    String reconciliationCacheSizeString = reconciliationCacheSize.get();
+    if (!NumberUtils.isDigits(reconciliationCacheSizeString)) {
+      LOGGER.atWarn().log("reconciliationCacheSizeString is not number: {}", reconciliationCacheSizeString);
+      throw new AppStartUpException(AppConfigEnum.RECONCILIATION_CACHE_SIZE.key() + " is not numeric.");
+    }
+    return csvReaderConfigurationBuilder.reconciliationCacheSize(Integer.parseInt(reconciliationCacheSizeString));
+  }
+
+  private static CsvReaderConfiguration.Builder parseObjectParallelism(
+      CsvReaderConfiguration.Builder csvReaderConfigurationBuilder) throws AppStartUpException {
+    Optional<String> objectParallelism = parseSingleConfiguration(AppConfigEnum.OBJECT_PARALLELISM.key());
+    if (objectParallelism.isEmpty()) {
+      return csvReaderConfigurationBuilder;
+    }
+    String objectParallelismString = objectParallelism.get();
+    if (!NumberUtils.isDigits(objectParallelismString)) {
+      LOGGER.atWarn().log("objectParallelismString is not number: {}", objectParallelismString);
+      throw new AppStartUpException(AppConfigEnum.OBJECT_PARALLELISM.key() + " is not numeric.");
+    }
+    return csvReaderConfigurationBuilder.objectParallelism(Integer.parseInt(objectParallelismString));
   }
 
   private static Optional<String> parseSingleConfiguration(String keyName) {
@@ -9,27 +9,62 @@ import expense_tally.aws.AppStartUpException;
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import expense_tally.aws.config.ApplicationErrorCode;
 import expense_tally.aws.csv_reader.BankTransactionReader;
+import expense_tally.aws.csv_reader.configuration.CsvReadMode;
 import expense_tally.aws.csv_reader.configuration.CsvReaderConfiguration;
 import expense_tally.aws.csv_reader.configuration.CsvReaderConfigurationParser;
-import expense_tally.aws.database.SqlSessionFactory;
+import expense_tally.aws.csv_reader.parser.StreamCsvTransactionCursor;
+import expense_tally.aws.csv_reader.reconciliation.PartitionedExpenseReconciler;
+import expense_tally.aws.csv_reader.result.ReconciliationResultCache;
+import expense_tally.aws.csv_reader.result.ReconciliationResultSink;
+import expense_tally.aws.csv_reader.result.ReconciliationResultSinkFactory;
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.aws.database.AuroraSyncGeneration;
+import expense_tally.aws.database.SessionScopedExpenseReader;
+import expense_tally.aws.database.SqlSessionFactoryRegistry;
+import expense_tally.aws.database.SyncGenerationMapper;
+import expense_tally.aws.init.CheckpointPriming;
+import expense_tally.aws.init.Component;
+import expense_tally.aws.init.ComponentInitializer;
+import expense_tally.aws.log.LazyObjectString;
 import expense_tally.aws.log.ObjectToString;
+import expense_tally.aws.metrics.LatencyRecorder;
+import expense_tally.aws.metrics.StageMetrics;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.aws.s3.ChangedS3ObjectProcessor;
+import expense_tally.aws.s3.DatabaseS3EventAnalyzer;
+import expense_tally.aws.s3.S3DownloadConfiguration;
+import expense_tally.aws.s3.S3DownloadConfigurationParser;
 import expense_tally.aws.s3.S3FileRetriever;
 import expense_tally.expense_manager.persistence.ExpenseReadable;
 import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
-import expense_tally.expense_manager.persistence.database.ExpenseManagerTransactionDatabaseProxy;
-import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.crac.Core;
+import org.crac.Resource;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
 
-public class CsvFileChangeS3EventHandler implements RequestHandler<S3Event, Void> {
+public class CsvFileChangeS3EventHandler implements RequestHandler<S3Event, Void>, Resource {
   private static final Logger LOGGER = LogManager.getLogger(CsvFileChangeS3EventHandler.class);
+  private static final String SAMPLE_CSV = "Transaction Date,Reference,Debit Amount,Credit Amount,Transaction Ref1," +
+      "Transaction Ref2,Transaction Ref3\n" +
+      "01 Jan 1970,MST,1.00,,Sample,,\n";
 
   private BankTransactionReader bankTransactionReader;
+  private ChangedS3ObjectProcessor changedS3ObjectProcessor;
   private CsvReaderConfiguration csvReaderConfiguration;
+  private SqlSessionFactory auroraSessionFactory;
+  private final LatencyRecorder latencyRecorder = LatencyRecorder.create();
+  private final StageMetrics stageMetrics = StageMetrics.create("CsvFileChange", latencyRecorder);
 
   public CsvFileChangeS3EventHandler() {
     try {
@@ -47,6 +82,9 @@ public class CsvFileChangeS3EventHandler implements RequestHandler<S3Event, Void
           .log("Unable to initialise class.");
       System.exit(ApplicationErrorCode.UNKNOWN_EXCEPTION.value());
     }
+    // Keep the priming hooks registered for as long as the handler lives
+    Core.getGlobalContext().register(this);
+    latencyRecorder.flushOnShutdown();
   }
 
   private void init() throws AppStartUpException, IOException, SQLException {
@@ -54,45 +92,129 @@ public class CsvFileChangeS3EventHandler implements RequestHandler<S3Event, Void
     LOGGER.atDebug().log("Reading application configuration.");
     csvReaderConfiguration = CsvReaderConfigurationParser.parseSystemEnvironmentVariableConfiguration();
     LOGGER.atDebug().log("Application configuration is loaded. appConfiguration:{}", csvReaderConfiguration);
-    S3FileRetriever s3FileRetriever = assembleS3FileRetriever();
-    ExpenseReadable expenseReadable = assembleExpenseReadable();
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    Component<SqlSessionFactory> auroraSessionFactoryComponent = componentInitializer.initializeConcurrently(
+        "auroraSessionFactory", this::assembleAuroraSessionFactory);
+    AmazonS3 amazonS3 = componentInitializer.initialize("amazonS3", AmazonS3ClientBuilder::defaultClient);
+    S3FileRetriever s3FileRetriever = componentInitializer.initialize("s3FileRetriever",
+        () -> assembleS3FileRetriever(amazonS3));
+    ReconciliationResultSink reconciliationResultSink = componentInitializer.initialize("reconciliationResultSink",
+        () -> assembleReconciliationResultSink(amazonS3));
+    componentInitializer.awaitConcurrentComponents();
+    auroraSessionFactory = auroraSessionFactoryComponent.get();
+    ExpenseReadable expenseReadable = SessionScopedExpenseReader.create(auroraSessionFactory);
     File csvFile = retrieveCsvFile();
-    bankTransactionReader = BankTransactionReader.create(s3FileRetriever, expenseReadable, csvFile);
+    ReconciliationResultCache reconciliationResultCache = ReconciliationResultCache.create(
+        AuroraSyncGeneration.create(auroraSessionFactory), csvReaderConfiguration.getReconciliationCacheSize());
+    bankTransactionReader = new BankTransactionReader.Builder(s3FileRetriever, expenseReadable, csvFile)
+        .csvReadMode(csvReaderConfiguration.getCsvReadMode())
+        .reconciliationToleranceDays(csvReaderConfiguration.getReconciliationToleranceDays())
+        .partitionedExpenseReconciler(
+            PartitionedExpenseReconciler.create(csvReaderConfiguration.getReconciliationParallelism()))
+        .reconciliationResultSink(reconciliationResultSink)
+        .reconciliationResultCache(reconciliationResultCache)
+        .stageMetrics(stageMetrics)
+        .build();
+    changedS3ObjectProcessor = assembleChangedS3ObjectProcessor();
+  }
+
+  /**
+   * Warm up the event handling, the CSV parsing and the database mapper, then close every pooled connection, so that
+   * the snapshot holds the loaded classes but no connection to the database
+   * @param context the context of the checkpoint
+   * @throws Exception if the handler cannot be prepared for the checkpoint
+   */
+  @Override
+  public void beforeCheckpoint(org.crac.Context<? extends Resource> context) throws Exception {
+    LOGGER.atInfo().log("Priming handler before checkpoint.");
+    CheckpointPriming.primeEventHandling();
+    try (InputStream sampleCsvInputStream = new ByteArrayInputStream(SAMPLE_CSV.getBytes(StandardCharsets.UTF_8))) {
+      StreamCsvTransactionCursor.create(sampleCsvInputStream).nextChunk(1);
+    }
+    CheckpointPriming.primeMapper(auroraSessionFactory, AuroraExpenseTransactionMapper.class);
+    CheckpointPriming.primeMapper(auroraSessionFactory, SyncGenerationMapper.class);
+    SqlSessionFactoryRegistry.resetAllConnectionPools();
+  }
+
+  /**
+   * Check the configuration again and reconnect to the database. The components built before the checkpoint, and the
+   * threads of their executors, are reused rather than built again.
+   * @param context the context of the restore
+   * @throws Exception if the configuration cannot be read
+   */
+  @Override
+  public void afterRestore(org.crac.Context<? extends Resource> context) throws Exception {
+    LOGGER.atInfo().log("Reconnecting handler after restore.");
+    CsvReaderConfiguration restoredConfiguration =
+        CsvReaderConfigurationParser.parseSystemEnvironmentVariableConfiguration();
+    if (!csvReaderConfiguration.equals(restoredConfiguration)) {
+      // The environment variables belong to the published version of the function, which the snapshot is taken of
+      LOGGER.atWarn().log("Configuration differs from the checkpoint, and is applied in a new container only. " +
+          "restoredConfiguration:{}", restoredConfiguration);
+    }
+    CheckpointPriming.establishConnection(auroraSessionFactory);
   }
 
   @Override
   public Void handleRequest(S3Event s3Event, Context context) {
+    // Serialised at most once, and only if a message which needs it is logged
+    LazyObjectString s3EventString = ObjectToString.lazyStringOf(s3Event);
     try {
-      bankTransactionReader.reconcile(s3Event);
+      List<ChangedS3Object> changedS3Objects = DatabaseS3EventAnalyzer.extractChangedS3Objects(s3Event);
+      if (changedS3Objects.isEmpty()) {
+        LOGGER.atError().log("Unable to find bank transaction file in S3 event. s3Event:{}", s3EventString);
+      }
+      changedS3ObjectProcessor.process(changedS3Objects, bankTransactionReader::reconcile);
     } catch (Exception exception) {
       LOGGER
           .atError()
           .withThrowable(exception)
-          .log("Unable to handle s3 event. event:{}", ObjectToString.extractStringFromObject(s3Event));
+          .log("Unable to handle s3 event. event:{}", s3EventString);
+    } finally {
+      stageMetrics.flush();
     }
-    LOGGER.atInfo().log("Processed this S3 event: {}", ObjectToString.extractStringFromObject(s3Event));
+    LOGGER.atInfo().log("Processed this S3 event: {}", s3EventString);
     return null;
   }
 
-  private S3FileRetriever assembleS3FileRetriever() {
-    AmazonS3 amazonS3 = AmazonS3ClientBuilder.defaultClient();
-    return S3FileRetriever.create(amazonS3);
+  private S3FileRetriever assembleS3FileRetriever(AmazonS3 amazonS3) throws AppStartUpException {
+    S3DownloadConfiguration s3DownloadConfiguration =
+        S3DownloadConfigurationParser.parseSystemEnvironmentVariableConfigurations();
+    LOGGER.atDebug().log("S3 download configuration is loaded. s3DownloadConfiguration:{}", s3DownloadConfiguration);
+    return S3FileRetriever.create(amazonS3, s3DownloadConfiguration);
+  }
+
+  private ChangedS3ObjectProcessor assembleChangedS3ObjectProcessor() {
+    if (csvReaderConfiguration.getCsvReadMode() == CsvReadMode.FILE) {
+      // Every bank statement is downloaded to the same file
+      LOGGER.atDebug().log("Bank statements are downloaded to a single file, and are reconciled one after another.");
+      return ChangedS3ObjectProcessor.sequential();
+    }
+    return ChangedS3ObjectProcessor.create(csvReaderConfiguration.getObjectParallelism());
+  }
+
+  private ReconciliationResultSink assembleReconciliationResultSink(AmazonS3 amazonS3) {
+    Optional<URI> reconciliationResultLocation = csvReaderConfiguration.getReconciliationResultLocation();
+    if (reconciliationResultLocation.isEmpty()) {
+      LOGGER.atDebug().log("No reconciliation result location is configured. Results are not published.");
+      return ReconciliationResultSink.discarding();
+    }
+    return ReconciliationResultSinkFactory.create(reconciliationResultLocation.get(), amazonS3);
   }
 
   private File retrieveCsvFile() {
     return csvReaderConfiguration.getCsvFile();
   }
 
-  private ExpenseReadable assembleExpenseReadable() throws IOException, SQLException {
+  private SqlSessionFactory assembleAuroraSessionFactory() throws IOException, SQLException {
     AuroraDatabaseConfiguration auroraDatabaseConfiguration = retrieveAuroraDatabaseConfiguration();
     final String AURORA_DATABASE_URL = auroraDatabaseConfiguration.getHostUrl();
     final String EXPENSE_MANAGER_DATABASE_NAME = auroraDatabaseConfiguration.getDatabaseName();
     final String AURORA_USERNAME = auroraDatabaseConfiguration.getUsername();
     final String AURORA_PASSWORD = auroraDatabaseConfiguration.getPassword();
     final int AURORA_CONNECTION_TIMEOUT = auroraDatabaseConfiguration.getConnectionTimeout();
-    SqlSession sqlSession = SqlSessionFactory.constructSqlSession(DatabaseEnvironmentId.MYSQL, AURORA_DATABASE_URL,
+    return SqlSessionFactoryRegistry.retrieveSessionFactory(DatabaseEnvironmentId.MYSQL, AURORA_DATABASE_URL,
         EXPENSE_MANAGER_DATABASE_NAME, AURORA_USERNAME, AURORA_PASSWORD, AURORA_CONNECTION_TIMEOUT);
-    return new ExpenseManagerTransactionDatabaseProxy(sqlSession);
   }
 
   private AuroraDatabaseConfiguration retrieveAuroraDatabaseConfiguration() {
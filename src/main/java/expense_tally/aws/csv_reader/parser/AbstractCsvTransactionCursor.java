@@ -0,0 +1,96 @@
+package expense_tally.aws.csv_reader.parser;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This class walks the lines of a bank statement for a {@link CsvTransactionCursor}. The subclasses define how a line
+ * is read, recognised and parsed from their own buffer.
+ */
+abstract class AbstractCsvTransactionCursor implements CsvTransactionCursor {
+  private static final Logger LOGGER = LogManager.getLogger(AbstractCsvTransactionCursor.class);
+  static final String CSV_HEADER_LINE = "Transaction Date";
+  static final char CSV_DELIMITER = ',';
+
+  private int lineNumber;
+  private boolean isHeaderFound;
+  private boolean isExhausted;
+  private boolean isMissingHeaderReported;
+
+  @Override
+  public final List<AbstractCsvTransaction> nextChunk(int chunkSize) throws IOException {
+    if (chunkSize <= 0) {
+      LOGGER.atWarn().log("chunkSize is non-positive:{}", chunkSize);
+      throw new IllegalArgumentException("Chunk size must be positive.");
+    }
+    List<AbstractCsvTransaction> csvTransactions = new ArrayList<>();
+    while (csvTransactions.size() < chunkSize && !isExhausted) {
+      if (!readLine()) {
+        isExhausted = true;
+        break;
+      }
+      lineNumber++;
+      if (!isHeaderFound) {
+        isHeaderFound = isHeaderLine();
+        continue;
+      }
+      if (isBlankLine()) {
+        continue;
+      }
+      parseLine().ifPresent(csvTransactions::add);
+    }
+    if (isExhausted && !isHeaderFound && !isMissingHeaderReported) {
+      LOGGER.atWarn().log("CSV header line is not found after {} lines.", lineNumber);
+      isMissingHeaderReported = true;
+    }
+    return csvTransactions;
+  }
+
+  /**
+   * Returns the number of lines read so far
+   * @return the number of lines read so far
+   */
+  final int getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Read the next line of the content, without its line terminator
+   * @return true if a line is read, false if the content is exhausted
+   * @throws IOException if the content cannot be read
+   */
+  abstract boolean readLine() throws IOException;
+
+  /**
+   * Returns true if the current line is the header line of the bank statement
+   * @return true if the current line is the header line of the bank statement
+   */
+  abstract boolean isHeaderLine();
+
+  /**
+   * Returns true if the current line only contains white spaces
+   * @return true if the current line only contains white spaces
+   */
+  abstract boolean isBlankLine();
+
+  /**
+   * Parse the current line into a {@link AbstractCsvTransaction}
+   * @return a {@link AbstractCsvTransaction}, or empty if the transaction type is not supported
+   * @throws IllegalArgumentException if the current line does not describe a transaction
+   */
+  abstract Optional<AbstractCsvTransaction> parseTransaction();
+
+  private Optional<AbstractCsvTransaction> parseLine() throws IOException {
+    try {
+      return parseTransaction();
+    } catch (IllegalArgumentException illegalArgumentException) {
+      throw new IOException("Unable to parse CSV line " + lineNumber + ".", illegalArgumentException);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package expense_tally.aws.csv_reader.parser;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@code CsvTransactionCursor} pulls the bank transactions out of a CSV content in chunks of bounded size.
+ * <p>
+ *   Only the transactions of the current chunk are held by the caller. A cursor which parses the content as it is
+ *   read, such as {@link StreamCsvTransactionCursor}, does not grow the memory used to read a bank statement with its
+ *   length. The lines before the header line of the bank statement are skipped.
+ * </p>
+ *
+ * @see StreamCsvTransactionCursor
+ * @see MappedCsvTransactionCursor
+ */
+public interface CsvTransactionCursor {
+  /**
+   * Read the next bank transactions from the content
+   * @param chunkSize maximum number of transactions to be read
+   * @return the next transactions in the order of the content, or an empty list once the content is exhausted
+   * @throws IOException if the content cannot be read, or contains an invalid transaction line
+   */
+  List<AbstractCsvTransaction> nextChunk(int chunkSize) throws IOException;
+}
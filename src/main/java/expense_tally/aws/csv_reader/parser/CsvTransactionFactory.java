@@ -0,0 +1,135 @@
+package expense_tally.aws.csv_reader.parser;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.model.csv.GenericCsvTransaction;
+import expense_tally.model.csv.TransactionType;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * This class converts the fields of a single line of the bank transaction CSV file into a
+ * {@link AbstractCsvTransaction}.
+ * <p>
+ *   The fields are expected in the order of the bank statement: Transaction Date, Reference, Debit Amount, Credit
+ *   Amount, Transaction Ref1, Transaction Ref2 and Transaction Ref3. The trailing reference fields are optional.
+ * </p>
+ */
+public final class CsvTransactionFactory {
+  private static final Logger LOGGER = LogManager.getLogger(CsvTransactionFactory.class);
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.ENGLISH);
+  private static final int MINIMUM_FIELD_COUNT = 4;
+  static final int MAXIMUM_FIELD_COUNT = 7;
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private CsvTransactionFactory() {
+  }
+
+  /**
+   * Creates a {@link AbstractCsvTransaction} based on the <i>fields</i> of a transaction line
+   * @param fields the fields of a transaction line
+   * @return a {@link AbstractCsvTransaction}, or empty if the transaction type is not supported
+   * @throws IllegalArgumentException if the <i>fields</i> do not describe a transaction
+   */
+  public static Optional<AbstractCsvTransaction> create(String[] fields) {
+    return create(fields, (fields == null) ? 0 : fields.length);
+  }
+
+  /**
+   * Creates a {@link AbstractCsvTransaction} based on the first <i>fieldCount</i> <i>fields</i> of a transaction line,
+   * so that the same array can be reused for every line
+   * @param fields the fields of a transaction line, followed by unused elements
+   * @param fieldCount the number of fields of the transaction line in <i>fields</i>
+   * @return a {@link AbstractCsvTransaction}, or empty if the transaction type is not supported
+   * @throws IllegalArgumentException if the <i>fields</i> do not describe a transaction
+   */
+  public static Optional<AbstractCsvTransaction> create(String[] fields, int fieldCount) {
+    if (fields == null || fieldCount > fields.length) {
+      LOGGER.atWarn().log("fields is incomplete:{}, fieldCount:{}", Arrays.toString(fields), fieldCount);
+      throw new IllegalArgumentException("CSV line has too few fields.");
+    }
+    requireFieldCount(fieldCount);
+    TransactionType transactionType = resolveTransactionType(fields[1]);
+    if (transactionType == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(build(parseDate(fields[0]), transactionType, parseAmount(fields[2]),
+        parseAmount(fields[3]), optionalField(fields, fieldCount, 4), optionalField(fields, fieldCount, 5),
+        optionalField(fields, fieldCount, 6)));
+  }
+
+  /*
+   * The steps below are shared with the cursors which parse some of the fields without creating a String
+   */
+
+  static void requireFieldCount(int fieldCount) {
+    if (fieldCount < MINIMUM_FIELD_COUNT) {
+      LOGGER.atWarn().log("fieldCount is too few:{}", fieldCount);
+      throw new IllegalArgumentException("CSV line has too few fields.");
+    }
+  }
+
+  static TransactionType resolveTransactionType(String field) {
+    String reference = unquote(field);
+    TransactionType transactionType = TransactionType.resolve(reference);
+    if (transactionType == null) {
+      LOGGER.atDebug().log("Transaction type is not supported. reference:{}", reference);
+    }
+    return transactionType;
+  }
+
+  static AbstractCsvTransaction build(LocalDate transactionDate,
+                                     TransactionType transactionType,
+                                     double debitAmount,
+                                     double creditAmount,
+                                     String transactionRef1,
+                                     String transactionRef2,
+                                     String transactionRef3) {
+    return new GenericCsvTransaction.Builder(transactionDate, transactionType, debitAmount)
+        .creditAmount(creditAmount)
+        .transactionRef1(transactionRef1)
+        .transactionRef2(transactionRef2)
+        .transactionRef3(transactionRef3)
+        .build();
+  }
+
+  static LocalDate parseDate(String field) {
+    String date = unquote(field);
+    try {
+      return LocalDate.parse(date, DATE_FORMATTER);
+    } catch (DateTimeParseException dateTimeParseException) {
+      LOGGER.atWarn().withThrowable(dateTimeParseException).log("date is invalid:{}", date);
+      throw new IllegalArgumentException("Transaction date is invalid.", dateTimeParseException);
+    }
+  }
+
+  static double parseAmount(String field) {
+    String amount = unquote(field);
+    if (amount.isEmpty()) {
+      return 0;
+    }
+    try {
+      return Double.parseDouble(amount);
+    } catch (NumberFormatException numberFormatException) {
+      LOGGER.atWarn().withThrowable(numberFormatException).log("amount is not numeric:{}", amount);
+      throw new IllegalArgumentException("Transaction amount is not numeric.", numberFormatException);
+    }
+  }
+
+  private static String optionalField(String[] fields, int fieldCount, int index) {
+    return (index < fieldCount) ? unquote(fields[index]) : StringUtils.EMPTY;
+  }
+
+  static String unquote(String field) {
+    return StringUtils.strip(StringUtils.strip(field), "\"").strip();
+  }
+}
@@ -0,0 +1,304 @@
+package expense_tally.aws.csv_reader.parser;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.model.csv.TransactionType;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This class pulls the bank transactions out of a CSV file mapped into memory.
+ * <p>
+ *   The delimiters are scanned directly over the mapped bytes, without decoding the content into characters. The
+ *   transaction date and the amounts are parsed straight from their bytes, the amounts as fixed-point values, and only
+ *   the reference fields kept by the transaction model are decoded into {@link String}. A field which does not have the
+ *   usual form of the bank statement is decoded and parsed by {@link CsvTransactionFactory}, so that both paths accept
+ *   and reject the same content. The file must not be truncated while the cursor is in use.
+ * </p>
+ */
+public final class MappedCsvTransactionCursor extends AbstractCsvTransactionCursor {
+  private static final Logger LOGGER = LogManager.getLogger(MappedCsvTransactionCursor.class);
+  private static final byte[] CSV_HEADER_LINE_BYTES = CSV_HEADER_LINE.getBytes(StandardCharsets.US_ASCII);
+  private static final byte[][] MONTH_ABBREVIATIONS = {
+      bytesOf("Jan"), bytesOf("Feb"), bytesOf("Mar"), bytesOf("Apr"), bytesOf("May"), bytesOf("Jun"),
+      bytesOf("Jul"), bytesOf("Aug"), bytesOf("Sep"), bytesOf("Oct"), bytesOf("Nov"), bytesOf("Dec")
+  };
+  // dd MMM yyyy
+  private static final int DATE_LENGTH = 11;
+  // Every decimal number of up to 15 digits is exact as a double, and so is its quotient by a power of ten
+  private static final int MAXIMUM_AMOUNT_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+  };
+  private static final int INITIAL_FIELD_BUFFER_SIZE = 64;
+
+  private final ByteBuffer content;
+  private final int[] fieldStarts;
+  private final int[] fieldEnds;
+  private byte[] fieldBuffer;
+  private int position;
+  private int lineStart;
+  private int lineEnd;
+  private int valueStart;
+  private int valueEnd;
+
+  private MappedCsvTransactionCursor(ByteBuffer content) {
+    this.content = content;
+    this.fieldStarts = new int[CsvTransactionFactory.MAXIMUM_FIELD_COUNT];
+    this.fieldEnds = new int[CsvTransactionFactory.MAXIMUM_FIELD_COUNT];
+    this.fieldBuffer = new byte[INITIAL_FIELD_BUFFER_SIZE];
+  }
+
+  /**
+   * Creates a new instance of MappedCsvTransactionCursor positioned at the start of <i>csvFile</i>
+   * @param csvFile path of the UTF-8 encoded bank transaction CSV file
+   * @return a new instance of MappedCsvTransactionCursor
+   * @throws IOException if the file cannot be mapped
+   */
+  public static MappedCsvTransactionCursor map(Path csvFile) throws IOException {
+    Objects.requireNonNull(csvFile, "csvFile cannot be null");
+    try (FileChannel fileChannel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+      long size = fileChannel.size();
+      if (size > Integer.MAX_VALUE) {
+        LOGGER.atWarn().log("CSV file is too large to be mapped. csvFile:{}, size:{}", csvFile, size);
+        throw new IOException("CSV file is too large to be mapped.");
+      }
+      // The mapping stays valid after the channel is closed
+      return new MappedCsvTransactionCursor(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  @Override
+  boolean readLine() {
+    int limit = content.limit();
+    if (position >= limit) {
+      return false;
+    }
+    lineStart = position;
+    int index = position;
+    while (index < limit && content.get(index) != '\n') {
+      index++;
+    }
+    lineEnd = index;
+    position = index + 1;
+    if (lineEnd > lineStart && content.get(lineEnd - 1) == '\r') {
+      lineEnd--;
+    }
+    return true;
+  }
+
+  @Override
+  boolean isHeaderLine() {
+    int start = lineStart;
+    while (start < lineEnd && isAsciiWhitespace(content.get(start))) {
+      start++;
+    }
+    if (lineEnd - start < CSV_HEADER_LINE_BYTES.length) {
+      return false;
+    }
+    for (int i = 0; i < CSV_HEADER_LINE_BYTES.length; i++) {
+      if (content.get(start + i) != CSV_HEADER_LINE_BYTES[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  boolean isBlankLine() {
+    for (int i = lineStart; i < lineEnd; i++) {
+      byte value = content.get(i);
+      if (value < 0) {
+        // A white space outside of ASCII
+        return StringUtils.isBlank(decode(lineStart, lineEnd));
+      }
+      if (!isAsciiWhitespace(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  Optional<AbstractCsvTransaction> parseTransaction() {
+    int fieldCount = tokenizeLine();
+    CsvTransactionFactory.requireFieldCount(fieldCount);
+    TransactionType transactionType = CsvTransactionFactory.resolveTransactionType(decodeField(1));
+    if (transactionType == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(CsvTransactionFactory.build(parseDate(), transactionType, parseAmount(2),
+        parseAmount(3), optionalField(fieldCount, 4), optionalField(fieldCount, 5), optionalField(fieldCount, 6)));
+  }
+
+  /**
+   * Record the boundaries of the fields of the current line. The fields after the last one read by
+   * {@link CsvTransactionFactory} are not recorded.
+   * @return the number of fields recorded
+   */
+  private int tokenizeLine() {
+    int fieldCount = 0;
+    int fieldStart = lineStart;
+    for (int i = lineStart; i <= lineEnd && fieldCount < fieldStarts.length; i++) {
+      if (i == lineEnd || content.get(i) == CSV_DELIMITER) {
+        fieldStarts[fieldCount] = fieldStart;
+        fieldEnds[fieldCount] = i;
+        fieldCount++;
+        fieldStart = i + 1;
+      }
+    }
+    return fieldCount;
+  }
+
+  private LocalDate parseDate() {
+    locateValue(0);
+    int start = valueStart;
+    int end = valueEnd;
+    if (end - start == DATE_LENGTH && content.get(start + 2) == ' ' && content.get(start + 6) == ' ') {
+      int dayOfMonth = parseDigits(start, start + 2);
+      int month = parseMonth(start + 3);
+      int year = parseDigits(start + 7, start + 11);
+      if (dayOfMonth >= 1 && month >= 1 && year >= 1 && dayOfMonth <= Month.of(month).length(Year.isLeap(year))) {
+        return LocalDate.of(year, month, dayOfMonth);
+      }
+    }
+    return CsvTransactionFactory.parseDate(decodeField(0));
+  }
+
+  /**
+   * Parse an amount such as {@code 12.50} into an unscaled value and a scale, then divide once. The division by an
+   * exact power of ten is correctly rounded, so the result is the same double as {@link Double#parseDouble(String)}.
+   */
+  private double parseAmount(int fieldIndex) {
+    locateValue(fieldIndex);
+    int start = valueStart;
+    int end = valueEnd;
+    if (start == end) {
+      return 0;
+    }
+    int index = start;
+    boolean isNegative = false;
+    byte sign = content.get(index);
+    if (sign == '-' || sign == '+') {
+      isNegative = (sign == '-');
+      index++;
+    }
+    long unscaledValue = 0;
+    int digitCount = 0;
+    int scale = -1;
+    for (; index < end; index++) {
+      byte value = content.get(index);
+      if (value >= '0' && value <= '9') {
+        unscaledValue = unscaledValue * 10 + (value - '0');
+        digitCount++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (value == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        break;
+      }
+    }
+    if (index < end || digitCount == 0 || digitCount > MAXIMUM_AMOUNT_DIGITS) {
+      return CsvTransactionFactory.parseAmount(decodeField(fieldIndex));
+    }
+    double amount = unscaledValue / POWERS_OF_TEN[Math.max(scale, 0)];
+    return isNegative ? -amount : amount;
+  }
+
+  private String optionalField(int fieldCount, int fieldIndex) {
+    if (fieldIndex >= fieldCount || fieldStarts[fieldIndex] == fieldEnds[fieldIndex]) {
+      return StringUtils.EMPTY;
+    }
+    return CsvTransactionFactory.unquote(decodeField(fieldIndex));
+  }
+
+  private int parseDigits(int start, int end) {
+    int number = 0;
+    for (int i = start; i < end; i++) {
+      byte value = content.get(i);
+      if (value < '0' || value > '9') {
+        return -1;
+      }
+      number = number * 10 + (value - '0');
+    }
+    return number;
+  }
+
+  private int parseMonth(int start) {
+    for (int month = 0; month < MONTH_ABBREVIATIONS.length; month++) {
+      byte[] monthAbbreviation = MONTH_ABBREVIATIONS[month];
+      if (content.get(start) == monthAbbreviation[0] && content.get(start + 1) == monthAbbreviation[1] &&
+          content.get(start + 2) == monthAbbreviation[2]) {
+        return month + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Locate the value of the field, without the surrounding white spaces and quotes stripped by
+   * {@link CsvTransactionFactory#unquote(String)}
+   */
+  private void locateValue(int fieldIndex) {
+    valueStart = fieldStarts[fieldIndex];
+    valueEnd = fieldEnds[fieldIndex];
+    stripWhitespaces();
+    while (valueStart < valueEnd && content.get(valueStart) == '"') {
+      valueStart++;
+    }
+    while (valueEnd > valueStart && content.get(valueEnd - 1) == '"') {
+      valueEnd--;
+    }
+    stripWhitespaces();
+  }
+
+  private void stripWhitespaces() {
+    while (valueStart < valueEnd && isAsciiWhitespace(content.get(valueStart))) {
+      valueStart++;
+    }
+    while (valueEnd > valueStart && isAsciiWhitespace(content.get(valueEnd - 1))) {
+      valueEnd--;
+    }
+  }
+
+  private String decodeField(int fieldIndex) {
+    return decode(fieldStarts[fieldIndex], fieldEnds[fieldIndex]);
+  }
+
+  private String decode(int start, int end) {
+    int length = end - start;
+    if (length > fieldBuffer.length) {
+      fieldBuffer = Arrays.copyOf(fieldBuffer, Math.max(fieldBuffer.length * 2, length));
+    }
+    for (int i = 0; i < length; i++) {
+      fieldBuffer[i] = content.get(start + i);
+    }
+    return new String(fieldBuffer, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns true for the ASCII characters which are white spaces to {@link Character#isWhitespace(char)}
+   */
+  private static boolean isAsciiWhitespace(byte value) {
+    return value == ' ' || (value >= 0x09 && value <= 0x0D) || (value >= 0x1C && value <= 0x1F);
+  }
+
+  private static byte[] bytesOf(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,155 @@
+package expense_tally.aws.csv_reader.parser;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This class pulls the bank transactions out of a CSV content while it is being received.
+ * <p>
+ *   The content is decoded into a reusable line buffer, and the fields of a line are cut directly out of that buffer at
+ *   the delimiters, so that neither a {@link String} of the whole line nor a split array is created for every line.
+ * </p>
+ */
+public final class StreamCsvTransactionCursor extends AbstractCsvTransactionCursor {
+  private static final Logger LOGGER = LogManager.getLogger(StreamCsvTransactionCursor.class);
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+  // Far beyond any line of a bank statement, so that a content without line breaks cannot exhaust the heap
+  private static final int MAXIMUM_LINE_LENGTH = 65536;
+
+  private final Reader reader;
+  private final char[] readBuffer;
+  private final String[] fields;
+  private char[] lineBuffer;
+  private int readPosition;
+  private int readLimit;
+  private int lineLength;
+
+  private StreamCsvTransactionCursor(Reader reader) {
+    this.reader = reader;
+    this.readBuffer = new char[READ_BUFFER_SIZE];
+    this.fields = new String[CsvTransactionFactory.MAXIMUM_FIELD_COUNT];
+    this.lineBuffer = new char[INITIAL_LINE_BUFFER_SIZE];
+  }
+
+  /**
+   * Creates a new instance of StreamCsvTransactionCursor positioned at the start of <i>inputStream</i>. The stream is
+   * not closed by the cursor.
+   * @param inputStream UTF-8 encoded content of the bank transaction CSV file
+   * @return a new instance of StreamCsvTransactionCursor
+   */
+  public static StreamCsvTransactionCursor create(InputStream inputStream) {
+    Objects.requireNonNull(inputStream, "inputStream cannot be null");
+    return new StreamCsvTransactionCursor(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  boolean readLine() throws IOException {
+    lineLength = 0;
+    while (true) {
+      if (readPosition == readLimit && !fillReadBuffer()) {
+        if (lineLength == 0) {
+          return false;
+        }
+        break;
+      }
+      int lineEnd = readPosition;
+      while (lineEnd < readLimit && readBuffer[lineEnd] != '\n') {
+        lineEnd++;
+      }
+      appendToLine(lineEnd - readPosition);
+      if (lineEnd < readLimit) {
+        readPosition = lineEnd + 1;
+        break;
+      }
+      readPosition = readLimit;
+    }
+    if (lineLength > 0 && lineBuffer[lineLength - 1] == '\r') {
+      lineLength--;
+    }
+    return true;
+  }
+
+  @Override
+  boolean isHeaderLine() {
+    int start = 0;
+    while (start < lineLength && Character.isWhitespace(lineBuffer[start])) {
+      start++;
+    }
+    if (lineLength - start < CSV_HEADER_LINE.length()) {
+      return false;
+    }
+    for (int i = 0; i < CSV_HEADER_LINE.length(); i++) {
+      if (lineBuffer[start + i] != CSV_HEADER_LINE.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  boolean isBlankLine() {
+    for (int i = 0; i < lineLength; i++) {
+      if (!Character.isWhitespace(lineBuffer[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  Optional<AbstractCsvTransaction> parseTransaction() {
+    return CsvTransactionFactory.create(fields, tokenizeLine());
+  }
+
+  private boolean fillReadBuffer() throws IOException {
+    int readCount;
+    do {
+      readCount = reader.read(readBuffer, 0, readBuffer.length);
+    } while (readCount == 0);
+    readPosition = 0;
+    readLimit = Math.max(readCount, 0);
+    return readCount > 0;
+  }
+
+  private void appendToLine(int length) throws IOException {
+    int requiredLength = lineLength + length;
+    if (requiredLength > MAXIMUM_LINE_LENGTH) {
+      int lineNumber = getLineNumber() + 1;
+      LOGGER.atWarn().log("CSV line is longer than {} characters. lineNumber:{}", MAXIMUM_LINE_LENGTH, lineNumber);
+      throw new IOException("CSV line " + lineNumber + " is too long.");
+    }
+    if (requiredLength > lineBuffer.length) {
+      lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, requiredLength));
+    }
+    System.arraycopy(readBuffer, readPosition, lineBuffer, lineLength, length);
+    lineLength = requiredLength;
+  }
+
+  /**
+   * Cut the fields of the line buffer into the reusable field array. The fields after the last one read by
+   * {@link CsvTransactionFactory} are not cut.
+   * @return the number of fields cut
+   */
+  private int tokenizeLine() {
+    int fieldCount = 0;
+    int fieldStart = 0;
+    for (int i = 0; i <= lineLength && fieldCount < fields.length; i++) {
+      if (i == lineLength || lineBuffer[i] == CSV_DELIMITER) {
+        fields[fieldCount++] = new String(lineBuffer, fieldStart, i - fieldStart);
+        fieldStart = i + 1;
+      }
+    }
+    return fieldCount;
+  }
+}
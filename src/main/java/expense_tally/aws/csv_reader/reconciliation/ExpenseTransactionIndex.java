@@ -0,0 +1,164 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import expense_tally.model.persistence.transformation.PaymentMethod;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A read-only index of the expense manager transactions by amount and payment method, from which the expense-tally
+ * library is given the transactions it may look up during a reconciliation.
+ * <p>
+ *   The transactions are grouped by the library once, into its table of the transactions by amount and payment method.
+ *   Every group is then keyed by its amount in whole cents and the ordinal of its payment method, packed into a single
+ *   {@code long}, in an open addressing table with linear probing. The table of the library, with a boxed amount and a
+ *   nested map for every amount, is not kept. The index is shared by every partition and every chunk of a bank
+ *   statement reconciled against the same expense manager transactions, and is never modified once built, so it can be
+ *   read by many threads at the same time.
+ * </p>
+ * <p>
+ *   For every reconciliation, {@link #candidatesOf(List)} builds a table of the library form holding only the groups
+ *   whose amount is within the same cent as an amount of the bank transactions. The library only looks up the amounts
+ *   of the bank transactions, and a group is kept under the exact amount and payment method the library gave it, so
+ *   that the library finds the same transactions in it as in its own table of all the transactions.
+ * </p>
+ */
+public final class ExpenseTransactionIndex {
+  private static final double CENTS_PER_UNIT = 100.0;
+  private static final int PAYMENT_METHOD_BITS = 8;
+  private static final PaymentMethod[] PAYMENT_METHODS = PaymentMethod.values();
+  // Kept apart from the ordinal of every payment method, in case the library groups transactions without one
+  private static final int NO_PAYMENT_METHOD = (1 << PAYMENT_METHOD_BITS) - 1;
+  private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  private final long[] keys;
+  private final Entry[] entries;
+  private final int mask;
+  private final int size;
+
+  private ExpenseTransactionIndex(long[] keys, Entry[] entries, int size) {
+    this.keys = keys;
+    this.entries = entries;
+    this.mask = entries.length - 1;
+    this.size = size;
+  }
+
+  /**
+   * Creates an index of <i>expenseManagerTransactions</i>
+   * @param expenseManagerTransactions transactions to be indexed
+   * @return an index of <i>expenseManagerTransactions</i>
+   */
+  public static ExpenseTransactionIndex create(List<ExpenseManagerTransaction> expenseManagerTransactions) {
+    Objects.requireNonNull(expenseManagerTransactions, "expenseManagerTransactions cannot be null");
+    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> expensesByAmountAndPaymentMethod =
+        ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(expenseManagerTransactions);
+    int groupCount = 0;
+    for (Map<PaymentMethod, List<ExpenseManagerTransaction>> expensesByPaymentMethod :
+        expensesByAmountAndPaymentMethod.values()) {
+      groupCount += expensesByPaymentMethod.size();
+    }
+    // At most half full, so that a probe ends at an empty slot within a few steps
+    int capacity = Integer.highestOneBit(Math.max(groupCount, 1)) << 2;
+    long[] keys = new long[capacity];
+    Entry[] entries = new Entry[capacity];
+    expensesByAmountAndPaymentMethod.forEach((amount, expensesByPaymentMethod) ->
+        expensesByPaymentMethod.forEach((paymentMethod, expenses) ->
+            put(keys, entries, new Entry(amount, paymentMethod, Collections.unmodifiableList(expenses)))));
+    return new ExpenseTransactionIndex(keys, entries, expenseManagerTransactions.size());
+  }
+
+  /**
+   * Returns the number of indexed transactions
+   * @return the number of indexed transactions
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a table of the transactions by amount and payment method, to be passed to the library with
+   * <i>csvTransactions</i>. It only holds the transactions of the amounts of <i>csvTransactions</i>, and is built anew
+   * for every call, so that no two reconciliations share it. The transaction lists are read-only.
+   * @param csvTransactions transactions of the bank statement to be reconciled
+   * @return a table of the transactions by amount and payment method
+   */
+  Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> candidatesOf(
+      List<AbstractCsvTransaction> csvTransactions) {
+    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> candidates = new HashMap<>();
+    for (AbstractCsvTransaction csvTransaction : csvTransactions) {
+      addCandidates(candidates, csvTransaction.getDebitAmount());
+      addCandidates(candidates, csvTransaction.getCreditAmount());
+    }
+    return candidates;
+  }
+
+  private void addCandidates(Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> candidates,
+                             double amount) {
+    long cents = toCents(amount);
+    for (int ordinal = 0; ordinal < PAYMENT_METHODS.length; ordinal++) {
+      addCandidates(candidates, toKey(cents, ordinal));
+    }
+    addCandidates(candidates, toKey(cents, NO_PAYMENT_METHOD));
+  }
+
+  private void addCandidates(Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> candidates, long key) {
+    int slot = slotOf(key, mask);
+    Entry entry;
+    while ((entry = entries[slot]) != null && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    for (; entry != null; entry = entry.next) {
+      candidates.computeIfAbsent(entry.amount, amount -> new HashMap<>())
+          .put(entry.paymentMethod, entry.expenseManagerTransactions);
+    }
+  }
+
+  private static void put(long[] keys, Entry[] entries, Entry entry) {
+    long key = toKey(toCents(entry.amount),
+        (entry.paymentMethod == null) ? NO_PAYMENT_METHOD : entry.paymentMethod.ordinal());
+    int mask = entries.length - 1;
+    int slot = slotOf(key, mask);
+    while (entries[slot] != null && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    // Amounts which differ by less than a cent share a slot, and are told apart by the library
+    entry.next = entries[slot];
+    keys[slot] = key;
+    entries[slot] = entry;
+  }
+
+  private static long toCents(double amount) {
+    return Math.round(amount * CENTS_PER_UNIT);
+  }
+
+  private static long toKey(long cents, int paymentMethodOrdinal) {
+    return (cents << PAYMENT_METHOD_BITS) | paymentMethodOrdinal;
+  }
+
+  private static int slotOf(long key, int mask) {
+    return (int) ((key * HASH_MULTIPLIER) >>> Integer.SIZE) & mask;
+  }
+
+  /**
+   * The transactions of an amount and a payment method, as grouped by the library
+   */
+  private static final class Entry {
+    private final Double amount;
+    private final PaymentMethod paymentMethod;
+    private final List<ExpenseManagerTransaction> expenseManagerTransactions;
+    private Entry next;
+
+    private Entry(Double amount, PaymentMethod paymentMethod,
+                  List<ExpenseManagerTransaction> expenseManagerTransactions) {
+      this.amount = amount;
+      this.paymentMethod = paymentMethod;
+      this.expenseManagerTransactions = expenseManagerTransactions;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import expense_tally.reconciliation.ExpenseReconciler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class reconciles the transactions of a bank statement against the expense manager transactions of an
+ * {@link ExpenseTransactionIndex}.
+ * <p>
+ *   The matching is left to {@link ExpenseReconciler#reconcileBankData(List, java.util.Map)} of the expense-tally
+ *   library, which decides which bank transactions are reconciled and which expense matches them. This class only
+ *   looks up the expense manager transactions of the amounts of the bank transactions in the index, and gives the
+ *   library a table of these candidates instead of a table of all the expense manager transactions.
+ * </p>
+ */
+public final class IndexedExpenseReconciler {
+  private static final Logger LOGGER = LogManager.getLogger(IndexedExpenseReconciler.class);
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private IndexedExpenseReconciler() {
+  }
+
+  /**
+   * Returns the transactions in <i>csvTransactions</i> which are not recorded in <i>expenseTransactionIndex</i>
+   * @param csvTransactions transactions of the bank statement
+   * @param expenseTransactionIndex index of the expense manager transactions
+   * @return the discrepant transactions, in the order of the bank statement
+   */
+  public static List<DiscrepantTransaction> reconcile(List<AbstractCsvTransaction> csvTransactions,
+                                                      ExpenseTransactionIndex expenseTransactionIndex) {
+    Objects.requireNonNull(csvTransactions, "csvTransactions cannot be null");
+    Objects.requireNonNull(expenseTransactionIndex, "expenseTransactionIndex cannot be null");
+    List<DiscrepantTransaction> discrepantTransactions = reconcile(csvTransactions, 0, csvTransactions.size(),
+        expenseTransactionIndex);
+    LOGGER.atDebug().log("Bank transactions are reconciled. csvTransactions:{}, discrepantTransactions:{}",
+        csvTransactions.size(), discrepantTransactions.size());
+    return discrepantTransactions;
+  }
+
+  /**
+   * Returns the transactions in <i>csvTransactions</i>, from index <i>fromIndex</i> inclusive to <i>toIndex</i>
+   * exclusive, which are not recorded in <i>expenseTransactionIndex</i>. The library reconciles every bank
+   * transaction on its own, and every range is given a table of its own candidates, so that disjoint ranges of the bank
+   * statement can be reconciled independently.
+   * @param csvTransactions transactions of the bank statement
+   * @param fromIndex index of the first transaction to be reconciled
+   * @param toIndex index after the last transaction to be reconciled
+   * @param expenseTransactionIndex index of the expense manager transactions
+   * @return the discrepant transactions within the range, in the order of the bank statement
+   */
+  static List<DiscrepantTransaction> reconcile(List<AbstractCsvTransaction> csvTransactions,
+                                               int fromIndex,
+                                               int toIndex,
+                                               ExpenseTransactionIndex expenseTransactionIndex) {
+    List<AbstractCsvTransaction> csvTransactionRange = csvTransactions.subList(fromIndex, toIndex);
+    return ExpenseReconciler.reconcileBankData(csvTransactionRange,
+        expenseTransactionIndex.candidatesOf(csvTransactionRange));
+  }
+}
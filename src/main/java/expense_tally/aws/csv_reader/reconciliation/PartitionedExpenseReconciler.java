@@ -0,0 +1,119 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class reconciles a bank statement on a fork-join pool, by splitting its transactions into partitions.
+ * <p>
+ *   The expense-tally library matches every bank transaction on its own, so contiguous partitions of the bank statement
+ *   can be reconciled concurrently. Every partition is given a table of its own by the {@link ExpenseTransactionIndex},
+ *   holding read-only lists of the expense manager transactions, so no partition can change what another one reads.
+ *   The discrepant transactions of the partitions are joined in the order of the partitions, in the order the library
+ *   reports them for the whole bank statement. With a parallelism of 1, or a bank statement not larger than a single
+ *   partition, the reconciliation runs on the calling thread.
+ * </p>
+ */
+public final class PartitionedExpenseReconciler {
+  private static final Logger LOGGER = LogManager.getLogger(PartitionedExpenseReconciler.class);
+  static final int PARTITION_SIZE = 512;
+
+  private final int parallelism;
+  private final ForkJoinPool forkJoinPool;
+
+  private PartitionedExpenseReconciler(int parallelism, ForkJoinPool forkJoinPool) {
+    this.parallelism = parallelism;
+    this.forkJoinPool = forkJoinPool;
+  }
+
+  /**
+   * Creates a new instance of PartitionedExpenseReconciler
+   * @param parallelism number of partitions reconciled at the same time
+   * @return a new instance of PartitionedExpenseReconciler
+   */
+  public static PartitionedExpenseReconciler create(int parallelism) {
+    if (parallelism <= 0) {
+      LOGGER.atWarn().log("parallelism is non-positive:{}", parallelism);
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    // The pool lives as long as the Lambda container. Its worker threads are daemon threads.
+    ForkJoinPool forkJoinPool = (parallelism == 1) ? null : new ForkJoinPool(parallelism);
+    return new PartitionedExpenseReconciler(parallelism, forkJoinPool);
+  }
+
+  /**
+   * Returns the transactions in <i>csvTransactions</i> which are not recorded in <i>expenseTransactionIndex</i>
+   * @param csvTransactions transactions of the bank statement
+   * @param expenseTransactionIndex index of the expense manager transactions
+   * @return the discrepant transactions, in the order of the bank statement
+   */
+  public List<DiscrepantTransaction> reconcile(List<AbstractCsvTransaction> csvTransactions,
+                                               ExpenseTransactionIndex expenseTransactionIndex) {
+    Objects.requireNonNull(csvTransactions, "csvTransactions cannot be null");
+    Objects.requireNonNull(expenseTransactionIndex, "expenseTransactionIndex cannot be null");
+    if (forkJoinPool == null || csvTransactions.size() <= PARTITION_SIZE) {
+      return IndexedExpenseReconciler.reconcile(csvTransactions, expenseTransactionIndex);
+    }
+    // The partitions access the transactions by index
+    List<AbstractCsvTransaction> indexedCsvTransactions = (csvTransactions instanceof RandomAccess) ?
+        csvTransactions : new ArrayList<>(csvTransactions);
+    List<DiscrepantTransaction> discrepantTransactions = forkJoinPool.invoke(
+        new ReconciliationTask(indexedCsvTransactions, 0, indexedCsvTransactions.size(), expenseTransactionIndex));
+    LOGGER.atDebug().log("Bank transactions are reconciled in partitions. csvTransactions:{}, " +
+        "discrepantTransactions:{}, parallelism:{}", csvTransactions.size(), discrepantTransactions.size(),
+        parallelism);
+    return discrepantTransactions;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Reconciles a contiguous range of the bank statement, splitting it in halves until it fits in a partition
+   */
+  private static final class ReconciliationTask extends RecursiveTask<List<DiscrepantTransaction>> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<AbstractCsvTransaction> csvTransactions;
+    private final int fromIndex;
+    private final int toIndex;
+    private final transient ExpenseTransactionIndex expenseTransactionIndex;
+
+    private ReconciliationTask(List<AbstractCsvTransaction> csvTransactions,
+                               int fromIndex,
+                               int toIndex,
+                               ExpenseTransactionIndex expenseTransactionIndex) {
+      this.csvTransactions = csvTransactions;
+      this.fromIndex = fromIndex;
+      this.toIndex = toIndex;
+      this.expenseTransactionIndex = expenseTransactionIndex;
+    }
+
+    @Override
+    protected List<DiscrepantTransaction> compute() {
+      if (toIndex - fromIndex <= PARTITION_SIZE) {
+        return IndexedExpenseReconciler.reconcile(csvTransactions, fromIndex, toIndex, expenseTransactionIndex);
+      }
+      int middleIndex = (fromIndex + toIndex) >>> 1;
+      ReconciliationTask lowerTask = new ReconciliationTask(csvTransactions, fromIndex, middleIndex,
+          expenseTransactionIndex);
+      ReconciliationTask upperTask = new ReconciliationTask(csvTransactions, middleIndex, toIndex,
+          expenseTransactionIndex);
+      lowerTask.fork();
+      List<DiscrepantTransaction> upperDiscrepantTransactions = upperTask.compute();
+      List<DiscrepantTransaction> discrepantTransactions = new ArrayList<>(lowerTask.join());
+      discrepantTransactions.addAll(upperDiscrepantTransactions);
+      return discrepantTransactions;
+    }
+  }
+}
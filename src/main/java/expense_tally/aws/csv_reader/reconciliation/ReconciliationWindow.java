@@ -0,0 +1,96 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * The period of expense manager transactions which may match the transactions of a bank statement.
+ * <p>
+ *   A bank statement covers a short period, usually a month. Only the expenses spent within that period, or shortly
+ *   before its earliest transaction, can be matched by the expense-tally library, so there is no need to load the
+ *   expenses outside of this window. The window starts <i>toleranceDays</i> before the earliest transaction date, and
+ *   ends after the latest transaction date. <i>toleranceDays</i> must not be shorter than the period within which the
+ *   library matches an expense to a bank transaction.
+ * </p>
+ * <p>
+ *   The transaction dates of the bank statement have no time zone, so the window is widened by
+ *   {@value #TIME_ZONE_MARGIN_DAYS} day at both ends, to cover the expenses of those dates in any time zone.
+ * </p>
+ */
+public final class ReconciliationWindow {
+  static final int TIME_ZONE_MARGIN_DAYS = 1;
+
+  private final Instant from;
+  private final Instant to;
+
+  private ReconciliationWindow(Instant from, Instant to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Returns the window which covers every expense that may match <i>csvTransactions</i>
+   * @param csvTransactions transactions of the bank statement
+   * @param toleranceDays number of days before the earliest transaction date to be included in the window
+   * @return the window which covers every expense that may match <i>csvTransactions</i>, or empty if no transaction
+   * is dated
+   */
+  public static Optional<ReconciliationWindow> cover(List<AbstractCsvTransaction> csvTransactions, int toleranceDays) {
+    Objects.requireNonNull(csvTransactions, "csvTransactions cannot be null");
+    if (toleranceDays < 0) {
+      throw new IllegalArgumentException("Tolerance days cannot be negative.");
+    }
+    LocalDate earliestDate = null;
+    LocalDate latestDate = null;
+    for (AbstractCsvTransaction csvTransaction : csvTransactions) {
+      LocalDate transactionDate = csvTransaction.getTransactionDate();
+      if (transactionDate == null) {
+        continue;
+      }
+      if (earliestDate == null || transactionDate.isBefore(earliestDate)) {
+        earliestDate = transactionDate;
+      }
+      if (latestDate == null || transactionDate.isAfter(latestDate)) {
+        latestDate = transactionDate;
+      }
+    }
+    if (earliestDate == null) {
+      return Optional.empty();
+    }
+    Instant from = earliestDate.minusDays(toleranceDays + (long) TIME_ZONE_MARGIN_DAYS).atStartOfDay(ZoneOffset.UTC)
+        .toInstant();
+    Instant to = latestDate.plusDays(1L + TIME_ZONE_MARGIN_DAYS).atStartOfDay(ZoneOffset.UTC).toInstant();
+    return Optional.of(new ReconciliationWindow(from, to));
+  }
+
+  /**
+   * Returns the start of the window, inclusive
+   * @return the start of the window, inclusive
+   */
+  public Instant getFrom() {
+    return from;
+  }
+
+  /**
+   * Returns the end of the window, exclusive
+   * @return the end of the window, exclusive
+   */
+  public Instant getTo() {
+    return to;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ReconciliationWindow.class.getSimpleName() + "[", "]")
+        .add("from=" + from)
+        .add("to=" + to)
+        .toString();
+  }
+}
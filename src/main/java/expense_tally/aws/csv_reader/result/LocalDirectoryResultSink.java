@@ -0,0 +1,69 @@
+package expense_tally.aws.csv_reader.result;
+
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link ReconciliationResultSink} which writes the results as files under a local directory.
+ * <p>
+ *   A result is written to a temporary file first, and then moved over the result file, so that a reader never sees a
+ *   partially written result.
+ * </p>
+ */
+public final class LocalDirectoryResultSink implements ReconciliationResultSink {
+  private static final Logger LOGGER = LogManager.getLogger(LocalDirectoryResultSink.class);
+
+  private final Path directory;
+
+  private LocalDirectoryResultSink(Path directory) {
+    this.directory = Objects.requireNonNull(directory, "directory cannot be null").toAbsolutePath().normalize();
+  }
+
+  /**
+   * Creates a new instance of LocalDirectoryResultSink
+   * @param directory the directory under which the results are written
+   * @return a new instance of LocalDirectoryResultSink
+   */
+  public static LocalDirectoryResultSink create(Path directory) {
+    return new LocalDirectoryResultSink(directory);
+  }
+
+  @Override
+  public void publish(ChangedS3Object csvObject, List<DiscrepantTransaction> discrepantTransactions)
+      throws IOException {
+    Optional<String> resultKey = ReconciliationResultFormat.resultKey(csvObject);
+    if (resultKey.isEmpty()) {
+      LOGGER.atWarn().log("Version of bank statement is unknown. Result is not published. csvObject:{}", csvObject);
+      return;
+    }
+    Path resultFile = directory.resolve(resultKey.get()).normalize();
+    if (!resultFile.startsWith(directory)) {
+      LOGGER.atWarn().log("resultKey is outside of directory:{}", resultKey.get());
+      throw new IOException("Result key resolves outside of the result directory.");
+    }
+    Path resultDirectory = resultFile.getParent();
+    Files.createDirectories(resultDirectory);
+    Path temporaryFile = Files.createTempFile(resultDirectory, "result", ".tmp");
+    try {
+      try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+        ReconciliationResultFormat.writeJsonLines(discrepantTransactions, outputStream);
+      }
+      Files.move(temporaryFile, resultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+    LOGGER.atDebug().log("Reconciliation result is written. resultFile:{}, discrepantTransactions:{}", resultFile,
+        discrepantTransactions.size());
+  }
+}
@@ -0,0 +1,163 @@
+package expense_tally.aws.csv_reader.result;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.database.SyncGeneration;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.StringJoiner;
+
+/**
+ * This class keeps the most recently used reconciliation results of a warm Lambda container.
+ * <p>
+ *   A result only depends on the content of the bank statement and on the expense manager transactions, so it is keyed
+ *   by the version of the bank statement and the {@link SyncGeneration} of the Aurora database. A re-uploaded bank
+ *   statement or a duplicated notification is then answered without downloading, parsing or reconciling again. The
+ *   cache holds at most <i>capacity</i> results, and evicts the least recently used one beyond that.
+ * </p>
+ */
+public final class ReconciliationResultCache {
+  private static final Logger LOGGER = LogManager.getLogger(ReconciliationResultCache.class);
+
+  private final SyncGeneration syncGeneration;
+  private final int capacity;
+  private final Map<Key, List<DiscrepantTransaction>> cachedResults;
+
+  private ReconciliationResultCache(SyncGeneration syncGeneration, int capacity) {
+    this.syncGeneration = Objects.requireNonNull(syncGeneration, "syncGeneration cannot be null");
+    this.capacity = capacity;
+    // Iterated in access order, so that the eldest entry is the least recently used one
+    this.cachedResults = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, List<DiscrepantTransaction>> eldest) {
+        return size() > ReconciliationResultCache.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Creates a new instance of ReconciliationResultCache
+   * @param syncGeneration version stamp of the expense manager transactions
+   * @param capacity maximum number of cached results, 0 to disable the cache
+   * @return a new instance of ReconciliationResultCache
+   */
+  public static ReconciliationResultCache create(SyncGeneration syncGeneration, int capacity) {
+    if (capacity < 0) {
+      LOGGER.atWarn().log("capacity is negative:{}", capacity);
+      throw new IllegalArgumentException("Capacity cannot be negative.");
+    }
+    return new ReconciliationResultCache(syncGeneration, capacity);
+  }
+
+  /**
+   * Returns a ReconciliationResultCache which never caches any result
+   * @return a ReconciliationResultCache which never caches any result
+   */
+  public static ReconciliationResultCache disabled() {
+    return new ReconciliationResultCache(SyncGeneration.untracked(), 0);
+  }
+
+  /**
+   * Returns the key of the result of reconciling <i>csvObject</i> against the current expense manager transactions.
+   * This must be called before the expense manager transactions are read.
+   * @param csvObject the bank statement to be reconciled
+   * @return the key of the result, or empty if the result cannot be cached
+   */
+  public Optional<Key> keyOf(ChangedS3Object csvObject) {
+    if (capacity == 0) {
+      return Optional.empty();
+    }
+    Optional<String> version = ReconciliationResultFormat.versionOf(csvObject);
+    if (version.isEmpty()) {
+      return Optional.empty();
+    }
+    OptionalLong generation = syncGeneration.read();
+    if (generation.isEmpty()) {
+      return Optional.empty();
+    }
+    S3ObjectId s3ObjectId = csvObject.getS3ObjectId();
+    return Optional.of(new Key(s3ObjectId.getBucket(), s3ObjectId.getKey(), version.get(), generation.getAsLong()));
+  }
+
+  /**
+   * Returns the cached result of <i>key</i>
+   * @param key the key of the result
+   * @return the cached result of <i>key</i>, or empty if it is not cached
+   */
+  public synchronized Optional<List<DiscrepantTransaction>> lookup(Key key) {
+    return Optional.ofNullable(cachedResults.get(key));
+  }
+
+  /**
+   * Cache the result of <i>key</i>
+   * @param key the key of the result
+   * @param discrepantTransactions the result
+   */
+  public synchronized void record(Key key, List<DiscrepantTransaction> discrepantTransactions) {
+    cachedResults.put(Objects.requireNonNull(key), List.copyOf(discrepantTransactions));
+  }
+
+  /**
+   * The identity of a reconciliation result
+   */
+  public static final class Key {
+    private final String bucket;
+    private final String key;
+    private final String version;
+    private final long generation;
+
+    private Key(String bucket, String key, String version, long generation) {
+      this.bucket = bucket;
+      this.key = key;
+      this.version = version;
+      this.generation = generation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return new EqualsBuilder()
+          .append(generation, that.generation)
+          .append(bucket, that.bucket)
+          .append(key, that.key)
+          .append(version, that.version)
+          .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+      return new HashCodeBuilder(17, 37)
+          .append(bucket)
+          .append(key)
+          .append(version)
+          .append(generation)
+          .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+      return new StringJoiner(", ", Key.class.getSimpleName() + "[", "]")
+          .add("bucket='" + bucket + "'")
+          .add("key='" + key + "'")
+          .add("version='" + version + "'")
+          .add("generation=" + generation)
+          .toString();
+    }
+  }
+}
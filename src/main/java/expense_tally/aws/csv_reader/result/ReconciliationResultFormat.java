@@ -0,0 +1,99 @@
+package expense_tally.aws.csv_reader.result;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This class defines how a reconciliation result is keyed and written.
+ * <p>
+ *   A result is written as JSON lines, one discrepant transaction per line, so that a consumer can stream it without
+ *   parsing the whole document. An empty result is an empty document, which tells the consumer that the bank
+ *   statement has been reconciled without any discrepancy.
+ * </p>
+ */
+public final class ReconciliationResultFormat {
+  public static final String FILE_EXTENSION = ".jsonl";
+  public static final String CONTENT_TYPE = "application/x-ndjson";
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private ReconciliationResultFormat() {
+  }
+
+  /**
+   * Returns the key of the result of <i>csvObject</i>, in the form of {@code <bucket>/<key>/<version>.jsonl}. The
+   * version is the version ID of the bank statement, or its entity tag in a bucket without versioning.
+   * @param csvObject the reconciled bank statement
+   * @return the key of the result of <i>csvObject</i>, or empty if the version of <i>csvObject</i> is not known
+   */
+  public static Optional<String> resultKey(ChangedS3Object csvObject) {
+    Optional<String> version = versionOf(csvObject);
+    S3ObjectId s3ObjectId = csvObject.getS3ObjectId();
+    return version.map(value -> s3ObjectId.getBucket() + "/" + s3ObjectId.getKey() + "/" + value + FILE_EXTENSION);
+  }
+
+  /**
+   * Returns the version of the bank statement <i>csvObject</i>, which is its version ID, or its entity tag in a bucket
+   * without versioning
+   * @param csvObject the bank statement
+   * @return the version of <i>csvObject</i>, or empty if it is not known
+   */
+  public static Optional<String> versionOf(ChangedS3Object csvObject) {
+    Objects.requireNonNull(csvObject, "csvObject cannot be null");
+    String versionId = csvObject.getS3ObjectId().getVersionId();
+    String version = StringUtils.isNotBlank(versionId) ? versionId : csvObject.getETag();
+    return StringUtils.isBlank(version) ? Optional.empty() : Optional.of(version);
+  }
+
+  /**
+   * Returns <i>discrepantTransactions</i> as JSON lines in UTF-8
+   * @param discrepantTransactions the discrepant transactions
+   * @return <i>discrepantTransactions</i> as JSON lines in UTF-8
+   * @throws IOException if the transactions cannot be serialised
+   */
+  public static byte[] toJsonLines(List<DiscrepantTransaction> discrepantTransactions) throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    writeJsonLines(discrepantTransactions, byteArrayOutputStream);
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * Write <i>discrepantTransactions</i> as JSON lines in UTF-8 to <i>outputStream</i>
+   * @param discrepantTransactions the discrepant transactions
+   * @param outputStream the destination, which is not closed by this method
+   * @throws IOException if the transactions cannot be written
+   */
+  public static void writeJsonLines(List<DiscrepantTransaction> discrepantTransactions, OutputStream outputStream)
+      throws IOException {
+    Objects.requireNonNull(discrepantTransactions, "discrepantTransactions cannot be null");
+    // Every line is terminated explicitly, in place of the default space between root values
+    try (JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(outputStream)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .setRootValueSeparator(null)) {
+      for (DiscrepantTransaction discrepantTransaction : discrepantTransactions) {
+        LocalDate transactionDate = discrepantTransaction.getTransactionDate();
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeStringField("transactionDate",
+            (transactionDate == null) ? null : transactionDate.toString());
+        jsonGenerator.writeNumberField("amount", discrepantTransaction.getAmount());
+        jsonGenerator.writeStringField("description", discrepantTransaction.getDescription());
+        jsonGenerator.writeEndObject();
+        jsonGenerator.writeRaw('\n');
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package expense_tally.aws.csv_reader.result;
+
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination of the reconciliation results, where they are kept for the downstream consumers.
+ * <p>
+ *   A result is keyed by the version of the bank statement it is computed from, see
+ *   {@link ReconciliationResultFormat#resultKey(ChangedS3Object)}, so that a consumer reads the precomputed result
+ *   instead of reconciling the bank statement again.
+ * </p>
+ */
+public interface ReconciliationResultSink {
+  /**
+   * Publish the discrepant transactions found in the bank statement <i>csvObject</i>
+   * @param csvObject the reconciled bank statement
+   * @param discrepantTransactions the discrepant transactions of the bank statement, may be empty
+   * @throws IOException if the result cannot be written
+   */
+  void publish(ChangedS3Object csvObject, List<DiscrepantTransaction> discrepantTransactions) throws IOException;
+
+  /**
+   * Returns a sink which discards every result
+   * @return a sink which discards every result
+   */
+  static ReconciliationResultSink discarding() {
+    return (csvObject, discrepantTransactions) -> {
+    };
+  }
+}
@@ -0,0 +1,64 @@
+package expense_tally.aws.csv_reader.result;
+
+import com.amazonaws.services.s3.AmazonS3;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * This class is a factory that provide the {@link ReconciliationResultSink} of a result location.
+ * <p>
+ *   A location is either a local directory, e.g. {@code file:///tmp/reconciliation/}, or a prefix of an S3 bucket,
+ *   e.g. {@code s3://bucket/reconciliation/}.
+ * </p>
+ */
+public final class ReconciliationResultSinkFactory {
+  private static final Logger LOGGER = LogManager.getLogger(ReconciliationResultSinkFactory.class);
+  private static final String FILE_SCHEME = "file";
+  private static final String S3_SCHEME = "s3";
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private ReconciliationResultSinkFactory() {
+  }
+
+  /**
+   * Returns true if a {@link ReconciliationResultSink} can be created for <i>location</i>
+   * @param location the result location
+   * @return true if a {@link ReconciliationResultSink} can be created for <i>location</i>
+   */
+  public static boolean isSupported(URI location) {
+    if (location == null) {
+      return false;
+    }
+    if (FILE_SCHEME.equals(location.getScheme())) {
+      return StringUtils.isNotBlank(location.getPath());
+    }
+    return S3_SCHEME.equals(location.getScheme()) && StringUtils.isNotBlank(location.getHost());
+  }
+
+  /**
+   * Creates the {@link ReconciliationResultSink} of <i>location</i>
+   * @param location the result location
+   * @param amazonS3 Client to interface with AWS Simple Storage Service, used by an S3 location
+   * @return the {@link ReconciliationResultSink} of <i>location</i>
+   */
+  public static ReconciliationResultSink create(URI location, AmazonS3 amazonS3) {
+    if (!isSupported(location)) {
+      LOGGER.atWarn().log("location is not supported:{}", location);
+      throw new IllegalArgumentException("Reconciliation result location is not supported.");
+    }
+    if (FILE_SCHEME.equals(location.getScheme())) {
+      return LocalDirectoryResultSink.create(Path.of(location));
+    }
+    String prefix = StringUtils.removeStart(location.getPath(), "/");
+    if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+      prefix = prefix + "/";
+    }
+    return S3ResultSink.create(amazonS3, location.getHost(), prefix);
+  }
+}
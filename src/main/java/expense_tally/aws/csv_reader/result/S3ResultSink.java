@@ -0,0 +1,63 @@
+package expense_tally.aws.csv_reader.result;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link ReconciliationResultSink} which uploads the results as objects under a prefix of an S3 bucket.
+ * <p>
+ *   A result is small, so it is serialised in memory and uploaded in a single PUT, which S3 applies atomically.
+ * </p>
+ */
+public final class S3ResultSink implements ReconciliationResultSink {
+  private static final Logger LOGGER = LogManager.getLogger(S3ResultSink.class);
+
+  private final AmazonS3 amazonS3;
+  private final String bucket;
+  private final String prefix;
+
+  private S3ResultSink(AmazonS3 amazonS3, String bucket, String prefix) {
+    this.amazonS3 = Objects.requireNonNull(amazonS3, "amazonS3 cannot be null");
+    this.bucket = Objects.requireNonNull(bucket, "bucket cannot be null");
+    this.prefix = Objects.requireNonNull(prefix, "prefix cannot be null");
+  }
+
+  /**
+   * Creates a new instance of S3ResultSink
+   * @param amazonS3 Client to interface with AWS Simple Storage Service
+   * @param bucket the bucket to which the results are uploaded
+   * @param prefix the prefix of the result keys, may be empty
+   * @return a new instance of S3ResultSink
+   */
+  public static S3ResultSink create(AmazonS3 amazonS3, String bucket, String prefix) {
+    return new S3ResultSink(amazonS3, bucket, prefix);
+  }
+
+  @Override
+  public void publish(ChangedS3Object csvObject, List<DiscrepantTransaction> discrepantTransactions)
+      throws IOException {
+    Optional<String> resultKey = ReconciliationResultFormat.resultKey(csvObject);
+    if (resultKey.isEmpty()) {
+      LOGGER.atWarn().log("Version of bank statement is unknown. Result is not published. csvObject:{}", csvObject);
+      return;
+    }
+    byte[] content = ReconciliationResultFormat.toJsonLines(discrepantTransactions);
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentType(ReconciliationResultFormat.CONTENT_TYPE);
+    objectMetadata.setContentLength(content.length);
+    String key = prefix + resultKey.get();
+    amazonS3.putObject(bucket, key, new ByteArrayInputStream(content), objectMetadata);
+    LOGGER.atDebug().log("Reconciliation result is uploaded. bucket:{}, key:{}, discrepantTransactions:{}", bucket,
+        key, discrepantTransactions.size());
+  }
+}
@@ -0,0 +1,87 @@
+package expense_tally.aws.database;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * MyBatis mapper for the row level changes on the expense manager transaction table in the Aurora database.
+ * <p>
+ *   The expense manager library only exposes a whole table {@code clear()} and a single row {@code add()}. This mapper
+ *   provides the statements needed to apply an incremental change set on the table, to replace the table with a
+ *   staging copy in one atomic rename, and to read only the transactions spent within a period.
+ * </p>
+ * <p>
+ *   The mapper is registered to the configuration built by the expense manager library, so that the enums are bound by
+ *   the same type handlers as the ones of the library, and are stored as the library reads them.
+ * </p>
+ */
+public interface AuroraExpenseTransactionMapper {
+  String TABLE_NAME = "expense_manager_transaction";
+  String STAGING_TABLE_NAME = TABLE_NAME + "_staging";
+  String RETIRED_TABLE_NAME = TABLE_NAME + "_retired";
+  String SWAP_LOCK_NAME = TABLE_NAME + "_swap";
+
+  @Insert("INSERT INTO " + TABLE_NAME + " (id, amount, category, subcategory, payment_method, description, " +
+      "expensed_time, reference_amount) VALUES (#{id}, #{amount}, #{category}, #{subcategory}, #{paymentMethod}, " +
+      "#{description}, #{expendedTime}, #{referenceAmount})")
+  int insert(ExpenseManagerTransaction expenseManagerTransaction);
+
+  @Update("UPDATE " + TABLE_NAME + " SET amount = #{amount}, category = #{category}, subcategory = #{subcategory}, " +
+      "payment_method = #{paymentMethod}, description = #{description}, expensed_time = #{expendedTime}, " +
+      "reference_amount = #{referenceAmount} WHERE id = #{id}")
+  int update(ExpenseManagerTransaction expenseManagerTransaction);
+
+  /**
+   * Select the transactions spent within [<i>from</i>, <i>to</i>). The range is served by the index on
+   * {@code expensed_time}, see {@code database/expense_manager_transaction_expensed_time_index.sql}.
+   */
+  @Select("SELECT id, amount, category, subcategory, payment_method AS paymentMethod, description, " +
+      "expensed_time AS expendedTime, reference_amount AS referenceAmount FROM " + TABLE_NAME +
+      " WHERE expensed_time >= #{from} AND expensed_time < #{to}")
+  List<AuroraExpenseTransactionRow> selectBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+  @Delete("DELETE FROM " + TABLE_NAME + " WHERE id = #{id}")
+  int deleteById(@Param("id") int id);
+
+  /**
+   * Take the named lock which guards the staging and retired tables. The lock is held by the connection of the session
+   * until it is released or the connection is closed.
+   * @param timeoutSeconds number of seconds to wait for the lock held by another session
+   * @return 1 if the lock is taken, 0 if the wait timed out, or null if an error occurred
+   */
+  @Select("SELECT GET_LOCK('" + SWAP_LOCK_NAME + "', #{timeoutSeconds})")
+  Integer acquireSwapLock(@Param("timeoutSeconds") int timeoutSeconds);
+
+  /**
+   * Release the named lock taken by {@link #acquireSwapLock(int)} on the same session
+   * @return 1 if the lock is released, 0 if it is held by another session, or null if it is not held
+   */
+  @Select("SELECT RELEASE_LOCK('" + SWAP_LOCK_NAME + "')")
+  Integer releaseSwapLock();
+
+  @Update("DROP TABLE IF EXISTS " + STAGING_TABLE_NAME + ", " + RETIRED_TABLE_NAME)
+  void dropStagingTables();
+
+  @Update("CREATE TABLE " + STAGING_TABLE_NAME + " LIKE " + TABLE_NAME)
+  void createStagingTable();
+
+  @Insert("INSERT INTO " + STAGING_TABLE_NAME + " (id, amount, category, subcategory, payment_method, description, " +
+      "expensed_time, reference_amount) VALUES (#{id}, #{amount}, #{category}, #{subcategory}, #{paymentMethod}, " +
+      "#{description}, #{expendedTime}, #{referenceAmount})")
+  int insertIntoStaging(ExpenseManagerTransaction expenseManagerTransaction);
+
+  /**
+   * Replace the live table with the staging table. MySQL performs all the renames of a single {@code RENAME TABLE}
+   * statement atomically, so no reader can observe the table to be missing or partially loaded.
+   */
+  @Update("RENAME TABLE " + TABLE_NAME + " TO " + RETIRED_TABLE_NAME + ", " + STAGING_TABLE_NAME + " TO " +
+      TABLE_NAME)
+  void swapStagingTable();
+}
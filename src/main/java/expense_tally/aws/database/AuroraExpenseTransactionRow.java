@@ -0,0 +1,43 @@
+package expense_tally.aws.database;
+
+import expense_tally.model.persistence.transformation.ExpenseCategory;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import expense_tally.model.persistence.transformation.ExpenseSubCategory;
+import expense_tally.model.persistence.transformation.PaymentMethod;
+
+import java.time.Instant;
+
+/**
+ * A row of the expense manager transaction table, as it is selected by {@link AuroraExpenseTransactionMapper}.
+ * <p>
+ *   MyBatis populates the fields of this class directly by their column aliases, as {@link ExpenseManagerTransaction}
+ *   can only be created through its static factory method.
+ * </p>
+ */
+public final class AuroraExpenseTransactionRow {
+  private int id;
+  private double amount;
+  private ExpenseCategory category;
+  private ExpenseSubCategory subcategory;
+  private PaymentMethod paymentMethod;
+  private String description;
+  private Instant expendedTime;
+  private double referenceAmount;
+
+  /**
+   * Private constructor for MyBatis, which instantiates the row by reflection
+   */
+  private AuroraExpenseTransactionRow() {
+  }
+
+  /**
+   * Returns this row as an expense manager transaction
+   * @return this row as an expense manager transaction
+   */
+  public ExpenseManagerTransaction toExpenseManagerTransaction() {
+    ExpenseManagerTransaction expenseManagerTransaction = ExpenseManagerTransaction.create(id, amount, category,
+        subcategory, paymentMethod, description, expendedTime);
+    expenseManagerTransaction.setReferenceAmount(referenceAmount);
+    return expenseManagerTransaction;
+  }
+}
@@ -0,0 +1,65 @@
+package expense_tally.aws.database;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Objects;
+import java.util.OptionalLong;
+
+/**
+ * A {@link SyncGeneration} kept in the Aurora database, through the {@link SyncGenerationMapper}.
+ * <p>
+ *   Each call uses a new session, so that the generation is always read from the database. A generation which cannot
+ *   be read, e.g. because the table has not been created, is reported as unknown instead of failing the caller.
+ * </p>
+ */
+public final class AuroraSyncGeneration implements SyncGeneration {
+  private static final Logger LOGGER = LogManager.getLogger(AuroraSyncGeneration.class);
+
+  private final SqlSessionFactory sqlSessionFactory;
+
+  private AuroraSyncGeneration(SqlSessionFactory sqlSessionFactory) {
+    this.sqlSessionFactory = Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory cannot be null");
+  }
+
+  /**
+   * Creates a new instance of AuroraSyncGeneration
+   * @param sqlSessionFactory factory of the sessions to the Aurora database
+   * @return a new instance of AuroraSyncGeneration
+   */
+  public static AuroraSyncGeneration create(SqlSessionFactory sqlSessionFactory) {
+    return new AuroraSyncGeneration(sqlSessionFactory);
+  }
+
+  @Override
+  public OptionalLong read() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Long generation = expense_tally.aws.database.SqlSessionFactory
+          .retrieveMapper(sqlSession, SyncGenerationMapper.class)
+          .selectGeneration();
+      return OptionalLong.of((generation == null) ? 0L : generation);
+    } catch (PersistenceException persistenceException) {
+      LOGGER.atWarn()
+          .withThrowable(persistenceException)
+          .log("Unable to read synchronisation generation.");
+      return OptionalLong.empty();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * @throws PersistenceException if the generation cannot be advanced
+   */
+  @Override
+  public void advance() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      expense_tally.aws.database.SqlSessionFactory
+          .retrieveMapper(sqlSession, SyncGenerationMapper.class)
+          .advanceGeneration();
+    }
+    LOGGER.atDebug().log("Synchronisation generation is advanced.");
+  }
+}
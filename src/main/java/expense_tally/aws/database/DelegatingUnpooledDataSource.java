@@ -0,0 +1,46 @@
+package expense_tally.aws.database;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * An {@link UnpooledDataSource} which opens its physical connections from another {@link DataSource}.
+ * <p>
+ *   {@link org.apache.ibatis.datasource.pooled.PooledDataSource} can only pool the connections of an
+ *   {@link UnpooledDataSource}, while the expense manager library creates vendor data sources, such as the MySQL and
+ *   SQLite ones. This adapter lets the vendor data sources be pooled without duplicating their connection settings.
+ * </p>
+ */
+final class DelegatingUnpooledDataSource extends UnpooledDataSource {
+  private final DataSource delegate;
+  private final String description;
+
+  /**
+   * Default constructor
+   * @param delegate the data source opening the physical connections
+   * @param description description of the connection, used to tell apart the pools. It must not contain secrets.
+   */
+  DelegatingUnpooledDataSource(DataSource delegate, String description) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.description = Objects.requireNonNull(description, "description cannot be null");
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return delegate.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return delegate.getConnection(username, password);
+  }
+
+  @Override
+  public String getUrl() {
+    return description;
+  }
+}
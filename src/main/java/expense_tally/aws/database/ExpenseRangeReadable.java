@@ -0,0 +1,25 @@
+package expense_tally.aws.database;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A source of expense manager transactions which can be read by the time they are spent, without loading the whole
+ * table.
+ */
+public interface ExpenseRangeReadable {
+  /**
+   * Returns the expense manager transactions spent within the period
+   * @param from start of the period, inclusive
+   * @param to end of the period, exclusive
+   * @return the expense manager transactions spent within the period
+   * @throws IOException if the transactions cannot be read
+   * @throws SQLException if the database cannot be queried
+   */
+  List<ExpenseManagerTransaction> getExpenseManagerTransactionsBetween(Instant from, Instant to)
+      throws IOException, SQLException;
+}
@@ -0,0 +1,25 @@
+package expense_tally.aws.database;
+
+import expense_tally.model.persistence.database.ExpenseReport;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * MyBatis mapper which reads the expense reports of the expense manager database file one row at a time.
+ * <p>
+ *   The expense manager library only returns the whole table as a list. This mapper passes every row to a
+ *   {@link ResultHandler} as soon as it is read, so that MyBatis keeps no list of the rows. The columns are aliased to
+ *   the properties of {@link ExpenseReport}, which is populated by them.
+ * </p>
+ */
+public interface ExpenseReportStreamMapper {
+  String TABLE_NAME = "expense_report";
+
+  @Select("SELECT _id AS id, account, amount, category, subcategory, payment_method AS paymentMethod, description, " +
+      "expensed AS expensedTime, modified AS modificationTime, reference_number AS referenceNumber, status, " +
+      "property AS property1, property2, property3, property4, property5, tax, expense_tag AS expenseTag FROM " +
+      TABLE_NAME + " ORDER BY _id")
+  @ResultType(ExpenseReport.class)
+  void selectAll(ResultHandler<ExpenseReport> resultHandler);
+}
@@ -0,0 +1,21 @@
+package expense_tally.aws.database;
+
+import expense_tally.model.persistence.database.ExpenseReport;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * A source of expense reports which are read one at a time, without loading the whole table.
+ */
+public interface ExpenseReportStreamable {
+  /**
+   * Read every expense report in the order of its ID, and pass each one to <i>resultHandler</i> as soon as it is read.
+   * The reading stops early if <i>resultHandler</i> stops the result context.
+   * @param resultHandler handler of the expense reports
+   * @throws IOException if the expense reports cannot be read
+   * @throws SQLException if the database cannot be queried
+   */
+  void streamExpenseReports(ResultHandler<ExpenseReport> resultHandler) throws IOException, SQLException;
+}
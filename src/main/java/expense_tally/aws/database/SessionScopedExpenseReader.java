@@ -0,0 +1,62 @@
+package expense_tally.aws.database;
+
+import expense_tally.expense_manager.persistence.ExpenseReadable;
+import expense_tally.expense_manager.persistence.database.ExpenseManagerTransactionDatabaseProxy;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An {@link ExpenseReadable} and {@link ExpenseRangeReadable} which reads the expense manager transactions in a new
+ * session on every call.
+ * <p>
+ *   The session is closed after the read, so that its connection returns to the pool of <i>sqlSessionFactory</i>
+ *   between invocations, instead of being held for the lifetime of the Lambda container.
+ * </p>
+ */
+public final class SessionScopedExpenseReader implements ExpenseReadable, ExpenseRangeReadable {
+  private final SqlSessionFactory sqlSessionFactory;
+
+  private SessionScopedExpenseReader(SqlSessionFactory sqlSessionFactory) {
+    this.sqlSessionFactory = Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory cannot be null");
+  }
+
+  /**
+   * Creates a new instance of SessionScopedExpenseReader
+   * @param sqlSessionFactory factory of the sessions to the expense manager database
+   * @return a new instance of SessionScopedExpenseReader
+   */
+  public static SessionScopedExpenseReader create(SqlSessionFactory sqlSessionFactory) {
+    return new SessionScopedExpenseReader(sqlSessionFactory);
+  }
+
+  @Override
+  public List<ExpenseManagerTransaction> getAllExpenseManagerTransaction() throws IOException, SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return new ExpenseManagerTransactionDatabaseProxy(sqlSession).getAllExpenseManagerTransaction();
+    }
+  }
+
+  @Override
+  public List<ExpenseManagerTransaction> getExpenseManagerTransactionsBetween(Instant from, Instant to) {
+    Objects.requireNonNull(from, "from cannot be null");
+    Objects.requireNonNull(to, "to cannot be null");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      AuroraExpenseTransactionMapper auroraExpenseTransactionMapper = expense_tally.aws.database.SqlSessionFactory
+          .retrieveMapper(sqlSession, AuroraExpenseTransactionMapper.class);
+      List<AuroraExpenseTransactionRow> rows = auroraExpenseTransactionMapper.selectBetween(from, to);
+      List<ExpenseManagerTransaction> expenseManagerTransactions = new ArrayList<>(rows.size());
+      for (AuroraExpenseTransactionRow row : rows) {
+        expenseManagerTransactions.add(row.toExpenseManagerTransaction());
+      }
+      return expenseManagerTransactions;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package expense_tally.aws.database;
+
+import expense_tally.aws.AppStartUpException;
+import expense_tally.aws.init.Component;
+import expense_tally.expense_manager.persistence.ExpenseReportReadable;
+import expense_tally.expense_manager.persistence.database.ExpenseReportDatabaseReader;
+import expense_tally.model.persistence.database.ExpenseReport;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An {@link ExpenseReportReadable} and {@link ExpenseReportStreamable} which reads the expense reports in a new session
+ * on every call.
+ * <p>
+ *   The session is closed after the read, so that no connection to the expense manager database file is held
+ *   between invocations, when the file may be replaced by a new download.
+ * </p>
+ */
+public final class SessionScopedExpenseReportReader implements ExpenseReportReadable, ExpenseReportStreamable {
+  private final Component<SqlSessionFactory> sqlSessionFactory;
+
+  private SessionScopedExpenseReportReader(Component<SqlSessionFactory> sqlSessionFactory) {
+    this.sqlSessionFactory = Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory cannot be null");
+  }
+
+  /**
+   * Creates a new instance of SessionScopedExpenseReportReader
+   * @param sqlSessionFactory factory of the sessions to the expense manager database file
+   * @return a new instance of SessionScopedExpenseReportReader
+   */
+  public static SessionScopedExpenseReportReader create(SqlSessionFactory sqlSessionFactory) {
+    Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory cannot be null");
+    return new SessionScopedExpenseReportReader(Component.of(sqlSessionFactory));
+  }
+
+  /**
+   * Creates a new instance of SessionScopedExpenseReportReader, whose session factory is only retrieved on the first
+   * read
+   * @param sqlSessionFactory component of the factory of the sessions to the expense manager database file
+   * @return a new instance of SessionScopedExpenseReportReader
+   */
+  public static SessionScopedExpenseReportReader create(Component<SqlSessionFactory> sqlSessionFactory) {
+    return new SessionScopedExpenseReportReader(sqlSessionFactory);
+  }
+
+  @Override
+  public List<ExpenseReport> getExpenseTransactions() throws IOException, SQLException {
+    try (SqlSession sqlSession = retrieveSqlSessionFactory().openSession()) {
+      return new ExpenseReportDatabaseReader(sqlSession).getExpenseTransactions();
+    }
+  }
+
+  @Override
+  public void streamExpenseReports(ResultHandler<ExpenseReport> resultHandler) throws IOException, SQLException {
+    Objects.requireNonNull(resultHandler, "resultHandler cannot be null");
+    try (SqlSession sqlSession = retrieveSqlSessionFactory().openSession()) {
+      expense_tally.aws.database.SqlSessionFactory.retrieveMapper(sqlSession, ExpenseReportStreamMapper.class)
+          .selectAll(resultHandler);
+    }
+  }
+
+  private SqlSessionFactory retrieveSqlSessionFactory() throws IOException, SQLException {
+    try {
+      return sqlSessionFactory.get();
+    } catch (AppStartUpException appStartUpException) {
+      throw new SQLException("Unable to initialise the expense manager database.", appStartUpException);
+    }
+  }
+}
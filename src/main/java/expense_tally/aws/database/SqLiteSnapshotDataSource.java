@@ -0,0 +1,90 @@
+package expense_tally.aws.database;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.sqlite.SQLiteConfig;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * An {@link UnpooledDataSource} which opens a SQLite database file as a read-only snapshot.
+ * <p>
+ *   The expense manager file is downloaded, read once from start to end, and replaced by the next download. It is
+ *   opened as immutable, so that SQLite neither takes a lock nor checks for changes made by another process, with no
+ *   journal and with the temporary tables in memory. The page cache and the memory map are sized to the file when a
+ *   connection is opened, so that a scan of the file is served from memory after its pages are first read.
+ * </p>
+ * <p>
+ *   As SQLite does not notice the file being replaced, the pooled connections must be closed after every download,
+ *   with {@link SqlSessionFactoryRegistry#resetConnectionPool}.
+ * </p>
+ */
+final class SqLiteSnapshotDataSource extends UnpooledDataSource {
+  private static final Logger LOGGER = LogManager.getLogger(SqLiteSnapshotDataSource.class);
+  private static final long KIBIBYTE = 1024L;
+  // Default page cache size of SQLite, which is kept for a file smaller than it
+  private static final long MINIMUM_CACHE_SIZE_KIBIBYTES = 2000L;
+  private static final long MAXIMUM_CACHE_SIZE_KIBIBYTES = 64L * KIBIBYTE;
+  private static final long MAXIMUM_MMAP_SIZE = 256L * KIBIBYTE * KIBIBYTE;
+
+  private final File databaseFile;
+  private final String url;
+  private final int busyTimeout;
+  private final String description;
+
+  private SqLiteSnapshotDataSource(File databaseFile, int busyTimeout, String description) {
+    this.databaseFile = databaseFile;
+    // A URI filename is needed for the immutable parameter
+    this.url = "jdbc:sqlite:file:" + databaseFile.getAbsoluteFile().toURI().getRawPath() + "?immutable=1";
+    this.busyTimeout = busyTimeout;
+    this.description = description;
+  }
+
+  /**
+   * Creates a new instance of SqLiteSnapshotDataSource
+   * @param databaseFilePath file path of the SQLite database
+   * @param busyTimeout maximum time in milliseconds to wait for the database file
+   * @param description description of the connection, used to tell apart the pools. It must not contain secrets.
+   * @return a new instance of SqLiteSnapshotDataSource
+   */
+  static SqLiteSnapshotDataSource create(String databaseFilePath, int busyTimeout, String description) {
+    Objects.requireNonNull(databaseFilePath, "databaseFilePath cannot be null");
+    Objects.requireNonNull(description, "description cannot be null");
+    return new SqLiteSnapshotDataSource(new File(databaseFilePath), busyTimeout, description);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    // Sized on every connection, as the pool is reset when a file of a different size is downloaded
+    long fileSize = databaseFile.length();
+    SQLiteConfig sqLiteConfig = new SQLiteConfig();
+    sqLiteConfig.setReadOnly(true);
+    sqLiteConfig.setJournalMode(SQLiteConfig.JournalMode.OFF);
+    sqLiteConfig.setTempStore(SQLiteConfig.TempStore.MEMORY);
+    sqLiteConfig.setBusyTimeout(busyTimeout);
+    // A negative cache size is a number of kibibytes instead of pages
+    sqLiteConfig.setCacheSize((int) -cacheSizeKibibytesOf(fileSize));
+    sqLiteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(Math.min(fileSize, MAXIMUM_MMAP_SIZE)));
+    LOGGER.atDebug().log("Opening SQLite snapshot. databaseFile:{}, fileSize:{}", databaseFile, fileSize);
+    return sqLiteConfig.createConnection(url);
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return getConnection();
+  }
+
+  @Override
+  public String getUrl() {
+    return description;
+  }
+
+  private static long cacheSizeKibibytesOf(long fileSize) {
+    long fileSizeKibibytes = (fileSize + KIBIBYTE - 1) / KIBIBYTE;
+    return Math.min(Math.max(fileSizeKibibytes, MINIMUM_CACHE_SIZE_KIBIBYTES), MAXIMUM_CACHE_SIZE_KIBIBYTES);
+  }
+}
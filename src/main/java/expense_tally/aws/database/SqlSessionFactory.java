@@ -6,16 +6,21 @@ import expense_tally.expense_manager.persistence.database.mysql.MySqlConnection;
 import expense_tally.expense_manager.persistence.database.sqlite.SqLiteConnection;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 
 public final class SqlSessionFactory {
   private static final int DEFAULT_SQLITE_CONNECTION_TIMEOUT = 1000;
+  private static final List<Class<?>> MAPPER_CLASSES = List.of(AuroraExpenseTransactionMapper.class,
+      SyncGenerationMapper.class, ExpenseReportStreamMapper.class);
 
   /**
    * Make implicit constructor private as there is no need to initialise class
@@ -77,4 +82,41 @@ public final class SqlSessionFactory {
         .build();
     return databaseSessionBuilder.buildSessionFactory(environment);
   }
+
+  /**
+   * Returns a MyBatis {@link org.apache.ibatis.session.SqlSessionFactory} sharing the configuration of
+   * <i>sqlSession</i>, so that sessions with a different executor type can be opened on the same database.
+   * @param sqlSession an existing session to the database
+   * @return a MyBatis {@link org.apache.ibatis.session.SqlSessionFactory} sharing the configuration of
+   * <i>sqlSession</i>
+   */
+  public static org.apache.ibatis.session.SqlSessionFactory retrieveSessionFactory(SqlSession sqlSession) {
+    return new DefaultSqlSessionFactory(sqlSession.getConfiguration());
+  }
+
+  /**
+   * Returns the mapper of type <i>mapperClass</i> bound to <i>sqlSession</i>. The mapper is registered to the session
+   * configuration when its session factory is built.
+   * @param sqlSession session to the database
+   * @param mapperClass type of the MyBatis mapper
+   * @param <T> type of the MyBatis mapper
+   * @return the mapper of type <i>mapperClass</i> bound to <i>sqlSession</i>
+   * @see #registerMappers(Configuration)
+   */
+  public static <T> T retrieveMapper(SqlSession sqlSession, Class<T> mapperClass) {
+    return sqlSession.getMapper(mapperClass);
+  }
+
+  /**
+   * Register the MyBatis mappers of this project to <i>configuration</i>. This must be done while the session factory
+   * is built, before it is shared, as a MyBatis configuration is not safe to be modified by many threads at once.
+   * @param configuration configuration of the session factory being built
+   */
+  static void registerMappers(Configuration configuration) {
+    for (Class<?> mapperClass : MAPPER_CLASSES) {
+      if (!configuration.hasMapper(mapperClass)) {
+        configuration.addMapper(mapperClass);
+      }
+    }
+  }
 }
@@ -0,0 +1,287 @@
+package expense_tally.aws.database;
+
+import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
+import expense_tally.expense_manager.persistence.database.DatabaseSessionBuilder;
+import expense_tally.expense_manager.persistence.database.mysql.MySqlConnection;
+import expense_tally.expense_manager.persistence.database.sqlite.SqLiteConnection;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps a single MyBatis {@link SqlSessionFactory} per database connection, for the lifetime of the
+ * Lambda container.
+ * <p>
+ *   Building a session factory parses the MyBatis configuration, and every new connection to Aurora costs a TCP and
+ *   TLS handshake. A warm invocation reuses the session factory built by the previous invocation, together with its
+ *   bounded pool of connections. An idle connection is validated with a ping query before it is handed out again,
+ *   so that the connections dropped while the container is frozen are discarded instead of failing the invocation.
+ * </p>
+ * <p>
+ *   Sessions opened from the returned factories must be closed after use, so that their connections return to the
+ *   pool.
+ * </p>
+ */
+public final class SqlSessionFactoryRegistry {
+  private static final Logger LOGGER = LogManager.getLogger(SqlSessionFactoryRegistry.class);
+  private static final int DEFAULT_SQLITE_CONNECTION_TIMEOUT = 1000;
+  private static final int MAXIMUM_ACTIVE_CONNECTIONS = 4;
+  private static final int MAXIMUM_IDLE_CONNECTIONS = 2;
+  private static final String PING_QUERY = "SELECT 1";
+  private static final int PING_CONNECTIONS_NOT_USED_FOR_MILLISECONDS = 30_000;
+  private static final Map<ConnectionKey, PooledSessionFactory> POOLED_SESSION_FACTORIES = new ConcurrentHashMap<>();
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private SqlSessionFactoryRegistry() {
+  }
+
+  /**
+   * Returns the {@link SqlSessionFactory} of the SQLite database file at <i>databaseConnectionPath</i>
+   * @param databaseConnectionPath file path of the SQLite database
+   * @return the {@link SqlSessionFactory} of the SQLite database file
+   * @throws SQLException if database access error occurs
+   * @throws IOException if there is issue to read the myBatis configuration resource
+   */
+  public static SqlSessionFactory retrieveSqLiteSessionFactory(String databaseConnectionPath)
+      throws SQLException, IOException {
+    return retrieveSessionFactory(DatabaseEnvironmentId.SQLITE, databaseConnectionPath, StringUtils.EMPTY,
+        StringUtils.EMPTY, StringUtils.EMPTY, DEFAULT_SQLITE_CONNECTION_TIMEOUT);
+  }
+
+  /**
+   * Returns the {@link SqlSessionFactory} of the SQLite database file at <i>databaseConnectionPath</i>, opened as a
+   * read-only snapshot. The pool must be reset with {@link #resetConnectionPool} whenever the file is replaced.
+   * @param databaseConnectionPath file path of the SQLite database
+   * @return the {@link SqlSessionFactory} of the SQLite database file
+   * @throws SQLException if database access error occurs
+   * @throws IOException if there is issue to read the myBatis configuration resource
+   * @see SqLiteSnapshotDataSource
+   */
+  public static SqlSessionFactory retrieveSqLiteSnapshotSessionFactory(String databaseConnectionPath)
+      throws SQLException, IOException {
+    Objects.requireNonNull(databaseConnectionPath, "databaseConnectionPath cannot be null");
+    ConnectionKey connectionKey = new ConnectionKey(DatabaseEnvironmentId.SQLITE, databaseConnectionPath,
+        StringUtils.EMPTY, StringUtils.EMPTY, StringUtils.EMPTY, DEFAULT_SQLITE_CONNECTION_TIMEOUT, true);
+    return retrieveSessionFactory(connectionKey);
+  }
+
+  /**
+   * Returns the {@link SqlSessionFactory} of the database connection described by the provided parameters. The
+   * session factory is built on the first request, with all the mappers of this project registered, and reused by the
+   * later requests with the same parameters.
+   * @param databaseEnvironmentId environment ID for declaration of a SqlSession environment.
+   * @param databaseConnectionPath path of the database connection, without the protocol.
+   * @param databaseName name of the database to be connected
+   * @param username username to login to database server. This needs to be provided together with password.
+   * @param password password to login to database server. This needs to be provided together with username.
+   * @param connectionTimeout maximum time in milliseconds that this data source can wait while attempting to connect
+   *                          to a database.
+   * @return the {@link SqlSessionFactory} of the database connection
+   * @throws SQLException if database access error occurs
+   * @throws IOException if there is issue to read the myBatis configuration resource
+   */
+  public static SqlSessionFactory retrieveSessionFactory(DatabaseEnvironmentId databaseEnvironmentId,
+                                                         String databaseConnectionPath,
+                                                         String databaseName,
+                                                         String username,
+                                                         String password,
+                                                         int connectionTimeout) throws SQLException, IOException {
+    Objects.requireNonNull(databaseEnvironmentId, "databaseEnvironmentId cannot be null");
+    ConnectionKey connectionKey = new ConnectionKey(databaseEnvironmentId, databaseConnectionPath, databaseName,
+        username, password, connectionTimeout, false);
+    return retrieveSessionFactory(connectionKey);
+  }
+
+  private static SqlSessionFactory retrieveSessionFactory(ConnectionKey connectionKey)
+      throws SQLException, IOException {
+    PooledSessionFactory pooledSessionFactory = POOLED_SESSION_FACTORIES.get(connectionKey);
+    if (pooledSessionFactory != null) {
+      LOGGER.atDebug().log("Reusing session factory. connectionKey:{}", connectionKey);
+      return pooledSessionFactory.sqlSessionFactory;
+    }
+    synchronized (POOLED_SESSION_FACTORIES) {
+      pooledSessionFactory = POOLED_SESSION_FACTORIES.get(connectionKey);
+      if (pooledSessionFactory == null) {
+        LOGGER.atDebug().log("Building session factory. connectionKey:{}", connectionKey);
+        pooledSessionFactory = buildPooledSessionFactory(connectionKey);
+        POOLED_SESSION_FACTORIES.put(connectionKey, pooledSessionFactory);
+      }
+      return pooledSessionFactory.sqlSessionFactory;
+    }
+  }
+
+  /**
+   * Close all the pooled connections to the database at <i>databaseConnectionPath</i>. This is needed when the SQLite
+   * database file has been replaced, as the open connections still read the replaced file. Sessions which still hold
+   * a connection can no longer use it. The session factory remains usable, and opens new connections on demand.
+   * @param databaseEnvironmentId environment ID of the database
+   * @param databaseConnectionPath path of the database connection, without the protocol.
+   */
+  public static void resetConnectionPool(DatabaseEnvironmentId databaseEnvironmentId, String databaseConnectionPath) {
+    POOLED_SESSION_FACTORIES.forEach((connectionKey, pooledSessionFactory) -> {
+      if (connectionKey.databaseEnvironmentId == databaseEnvironmentId &&
+          Objects.equals(connectionKey.databaseConnectionPath, databaseConnectionPath)) {
+        LOGGER.atDebug().log("Resetting connection pool. connectionKey:{}", connectionKey);
+        pooledSessionFactory.pooledDataSource.forceCloseAll();
+      }
+    });
+  }
+
+  /**
+   * Close all the pooled connections to all the databases, while keeping the session factories. This is needed before
+   * a checkpoint of the Lambda container is taken, so that no connection is captured in the snapshot.
+   */
+  public static void resetAllConnectionPools() {
+    POOLED_SESSION_FACTORIES.forEach((connectionKey, pooledSessionFactory) -> {
+      LOGGER.atDebug().log("Resetting connection pool. connectionKey:{}", connectionKey);
+      pooledSessionFactory.pooledDataSource.forceCloseAll();
+    });
+  }
+
+  /**
+   * Close all the pooled connections and forget all the session factories
+   */
+  static void clear() {
+    synchronized (POOLED_SESSION_FACTORIES) {
+      POOLED_SESSION_FACTORIES.values().forEach(pooledSessionFactory ->
+          pooledSessionFactory.pooledDataSource.forceCloseAll());
+      POOLED_SESSION_FACTORIES.clear();
+    }
+  }
+
+  private static PooledSessionFactory buildPooledSessionFactory(ConnectionKey connectionKey)
+      throws SQLException, IOException {
+    UnpooledDataSource unpooledDataSource = connectionKey.isSnapshot ?
+        SqLiteSnapshotDataSource.create(connectionKey.databaseConnectionPath, connectionKey.connectionTimeout,
+            connectionKey.toString()) :
+        new DelegatingUnpooledDataSource(createDataSource(connectionKey), connectionKey.toString());
+    PooledDataSource pooledDataSource = new PooledDataSource(unpooledDataSource);
+    pooledDataSource.setPoolMaximumActiveConnections(MAXIMUM_ACTIVE_CONNECTIONS);
+    pooledDataSource.setPoolMaximumIdleConnections(MAXIMUM_IDLE_CONNECTIONS);
+    pooledDataSource.setPoolPingEnabled(true);
+    pooledDataSource.setPoolPingQuery(PING_QUERY);
+    pooledDataSource.setPoolPingConnectionsNotUsedFor(PING_CONNECTIONS_NOT_USED_FOR_MILLISECONDS);
+    DatabaseSessionBuilder databaseSessionBuilder = DatabaseSessionBuilder.of(new SqlSessionFactoryBuilder());
+    Environment environment = new Environment.Builder(connectionKey.databaseEnvironmentId.name())
+        .dataSource(pooledDataSource)
+        .transactionFactory(new JdbcTransactionFactory())
+        .build();
+    // The session is only needed for its configuration, which has the mappers of the expense manager registered.
+    try (SqlSession sqlSession = databaseSessionBuilder.buildSessionFactory(environment)) {
+      Configuration configuration = sqlSession.getConfiguration();
+      expense_tally.aws.database.SqlSessionFactory.registerMappers(configuration);
+      return new PooledSessionFactory(new DefaultSqlSessionFactory(configuration), pooledDataSource);
+    }
+  }
+
+  private static DataSource createDataSource(ConnectionKey connectionKey) throws SQLException {
+    switch (connectionKey.databaseEnvironmentId) {
+      case MYSQL:
+        return MySqlConnection.createDataSource(connectionKey.databaseConnectionPath, connectionKey.databaseName,
+            connectionKey.username, connectionKey.password, connectionKey.connectionTimeout);
+      case SQLITE:
+        return SqLiteConnection.createDataSource(connectionKey.databaseConnectionPath,
+            connectionKey.connectionTimeout);
+      default:
+        throw new IllegalStateException("Unexpected value: " + connectionKey.databaseEnvironmentId);
+    }
+  }
+
+  private static final class PooledSessionFactory {
+    private final SqlSessionFactory sqlSessionFactory;
+    private final PooledDataSource pooledDataSource;
+
+    private PooledSessionFactory(SqlSessionFactory sqlSessionFactory, PooledDataSource pooledDataSource) {
+      this.sqlSessionFactory = sqlSessionFactory;
+      this.pooledDataSource = pooledDataSource;
+    }
+  }
+
+  private static final class ConnectionKey {
+    private final DatabaseEnvironmentId databaseEnvironmentId;
+    private final String databaseConnectionPath;
+    private final String databaseName;
+    private final String username;
+    private final String password;
+    private final int connectionTimeout;
+    private final boolean isSnapshot;
+
+    private ConnectionKey(DatabaseEnvironmentId databaseEnvironmentId,
+                          String databaseConnectionPath,
+                          String databaseName,
+                          String username,
+                          String password,
+                          int connectionTimeout,
+                          boolean isSnapshot) {
+      this.databaseEnvironmentId = databaseEnvironmentId;
+      this.databaseConnectionPath = databaseConnectionPath;
+      this.databaseName = databaseName;
+      this.username = username;
+      this.password = password;
+      this.connectionTimeout = connectionTimeout;
+      this.isSnapshot = isSnapshot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ConnectionKey that = (ConnectionKey) o;
+      return new EqualsBuilder()
+          .append(connectionTimeout, that.connectionTimeout)
+          .append(databaseEnvironmentId, that.databaseEnvironmentId)
+          .append(databaseConnectionPath, that.databaseConnectionPath)
+          .append(databaseName, that.databaseName)
+          .append(username, that.username)
+          .append(password, that.password)
+          .append(isSnapshot, that.isSnapshot)
+          .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+      return new HashCodeBuilder(17, 37)
+          .append(databaseEnvironmentId)
+          .append(databaseConnectionPath)
+          .append(databaseName)
+          .append(username)
+          .append(password)
+          .append(connectionTimeout)
+          .append(isSnapshot)
+          .toHashCode();
+    }
+
+    /**
+     * The password is left out, as the description is logged and used as the URL of the pooled data source
+     */
+    @Override
+    public String toString() {
+      return databaseEnvironmentId + "://" + username + "@" + databaseConnectionPath + "/" + databaseName +
+          (isSnapshot ? "?snapshot" : StringUtils.EMPTY);
+    }
+  }
+}
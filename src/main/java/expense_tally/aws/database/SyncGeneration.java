@@ -0,0 +1,43 @@
+package expense_tally.aws.database;
+
+import java.util.OptionalLong;
+
+/**
+ * A version stamp of the expense manager transactions in the Aurora database.
+ * <p>
+ *   The generation is advanced after every synchronisation of the table, so that anything derived from the table can
+ *   be reused for as long as the generation is unchanged. A consumer must read the generation <b>before</b> it reads
+ *   the table: a result read after a synchronisation is then at worst stamped with an older generation, which is
+ *   never served again, and never the other way round.
+ * </p>
+ */
+public interface SyncGeneration {
+  /**
+   * Returns the current generation
+   * @return the current generation, or empty if it cannot be determined
+   */
+  OptionalLong read();
+
+  /**
+   * Advance the generation, after the expense manager transactions are changed
+   */
+  void advance();
+
+  /**
+   * Returns a {@code SyncGeneration} which is never known and never advanced
+   * @return a {@code SyncGeneration} which is never known and never advanced
+   */
+  static SyncGeneration untracked() {
+    return new SyncGeneration() {
+      @Override
+      public OptionalLong read() {
+        return OptionalLong.empty();
+      }
+
+      @Override
+      public void advance() {
+        // Nothing is tracked
+      }
+    };
+  }
+}
@@ -0,0 +1,30 @@
+package expense_tally.aws.database;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * MyBatis mapper for the synchronisation generation of the expense manager transaction table in the Aurora database.
+ * <p>
+ *   The table holds a single row, whose generation is advanced every time the expense manager transaction table is
+ *   synchronised. See {@code database/expense_manager_sync_generation.sql}.
+ * </p>
+ */
+public interface SyncGenerationMapper {
+  String TABLE_NAME = "expense_manager_sync_generation";
+
+  /**
+   * Select the current generation
+   * @return the current generation, or null if the table has never been synchronised
+   */
+  @Select("SELECT generation FROM " + TABLE_NAME + " WHERE id = 1")
+  Long selectGeneration();
+
+  /**
+   * Advance the generation by one, creating the row on the first synchronisation
+   * @return the number of affected rows
+   */
+  @Insert("INSERT INTO " + TABLE_NAME + " (id, generation) VALUES (1, 1) " +
+      "ON DUPLICATE KEY UPDATE generation = generation + 1")
+  int advanceGeneration();
+}
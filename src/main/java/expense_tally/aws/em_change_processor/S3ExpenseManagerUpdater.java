@@ -2,13 +2,23 @@ package expense_tally.aws.em_change_processor;
 
 import com.amazonaws.services.lambda.runtime.events.S3Event;
 import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.database.ExpenseReportStreamable;
+import expense_tally.aws.database.SqlSessionFactoryRegistry;
+import expense_tally.aws.database.SyncGeneration;
+import expense_tally.aws.em_change_processor.sync.TransactionDiff;
+import expense_tally.aws.em_change_processor.sync.TransactionPipeline;
+import expense_tally.aws.em_change_processor.sync.TransactionSource;
+import expense_tally.aws.em_change_processor.sync.TransactionSynchronizer;
+import expense_tally.aws.log.LazyObjectString;
 import expense_tally.aws.log.ObjectToString;
+import expense_tally.aws.metrics.Stage;
+import expense_tally.aws.metrics.StageMetrics;
+import expense_tally.aws.s3.ChangedS3Object;
 import expense_tally.aws.s3.DatabaseS3EventAnalyzer;
+import expense_tally.aws.s3.DownloadStatus;
 import expense_tally.aws.s3.S3FileRetriever;
-import expense_tally.expense_manager.persistence.ExpenseReportReadable;
-import expense_tally.expense_manager.persistence.ExpenseUpdatable;
+import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
 import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
-import expense_tally.model.persistence.database.ExpenseReport;
 import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,6 +29,7 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  *
@@ -27,43 +38,58 @@ public class S3ExpenseManagerUpdater {
   private static final Logger LOGGER = LogManager.getLogger(S3ExpenseManagerUpdater.class);
   private static final String NULL_ERROR_MSG_POSTFIX = " cannot be null";
   private final S3FileRetriever s3FileRetriever;
-  private final ExpenseReportReadable expenseReportReadable;
-  private final ExpenseUpdatable expenseUpdatable;
+  private final ExpenseReportStreamable expenseReportStreamable;
+  private final TransactionSynchronizer transactionSynchronizer;
   private final File expenseManagerFile;
+  private final SyncGeneration syncGeneration;
+  private final TransactionPipeline transactionPipeline;
+  private final StageMetrics stageMetrics;
 
   /**
    * Private constructor
    * @param s3FileRetriever s3 file retriever
-   * @param expenseReportReadable expense report readable
-   * @param expenseUpdatable expense updatable
+   * @param expenseReportStreamable streamed reader of the expense reports
+   * @param transactionSynchronizer synchroniser of the remote database
    * @param expenseManagerFile expense manager database file
+   * @param syncGeneration version stamp of the remote database, advanced after every synchronisation
+   * @param transactionPipeline pipeline which reads the expense manager database file ahead of the remote writes
+   * @param stageMetrics recorder of the duration and size of every stage of the update
    */
   private S3ExpenseManagerUpdater(S3FileRetriever s3FileRetriever,
-                                 ExpenseReportReadable expenseReportReadable,
-                                 ExpenseUpdatable expenseUpdatable,
-                                 File expenseManagerFile) {
+                                  ExpenseReportStreamable expenseReportStreamable,
+                                  TransactionSynchronizer transactionSynchronizer,
+                                  File expenseManagerFile,
+                                  SyncGeneration syncGeneration,
+                                  TransactionPipeline transactionPipeline,
+                                  StageMetrics stageMetrics) {
     this.s3FileRetriever = Objects.requireNonNull(s3FileRetriever, "s3FileRetriever" + NULL_ERROR_MSG_POSTFIX);
-    this.expenseReportReadable = Objects.requireNonNull(expenseReportReadable,
-        "expenseReportReadable" + NULL_ERROR_MSG_POSTFIX);
-    this.expenseUpdatable = Objects.requireNonNull(expenseUpdatable, "expenseUpdatable" + NULL_ERROR_MSG_POSTFIX);
+    this.expenseReportStreamable = Objects.requireNonNull(expenseReportStreamable,
+        "expenseReportStreamable" + NULL_ERROR_MSG_POSTFIX);
+    this.transactionSynchronizer = Objects.requireNonNull(transactionSynchronizer,
+        "transactionSynchronizer" + NULL_ERROR_MSG_POSTFIX);
     this.expenseManagerFile = Objects.requireNonNull(expenseManagerFile, "expenseManagerFile" +
         NULL_ERROR_MSG_POSTFIX);
+    this.syncGeneration = Objects.requireNonNull(syncGeneration, "syncGeneration" + NULL_ERROR_MSG_POSTFIX);
+    this.transactionPipeline = Objects.requireNonNull(transactionPipeline,
+        "transactionPipeline" + NULL_ERROR_MSG_POSTFIX);
+    this.stageMetrics = Objects.requireNonNull(stageMetrics, "stageMetrics" + NULL_ERROR_MSG_POSTFIX);
   }
 
   /**
-   * Creates a new instance of S3ExpenseManagerUpdater
+   * Creates a new instance of S3ExpenseManagerUpdater, which does not track the synchronisation generation, reads the
+   * expense manager database file on the calling thread and records no metrics. Use {@link Builder} to set them.
    * @param s3FileRetriever s3 file retriever
-   * @param expenseReportReadable expense report readable
-   * @param expenseUpdatable expense updatable
+   * @param expenseReportStreamable streamed reader of the expense reports
+   * @param transactionSynchronizer synchroniser of the remote database
    * @param expenseManagerFile expense manager database file
    * @return a new instance of S3ExpenseManagerUpdater
    */
   public static S3ExpenseManagerUpdater create(S3FileRetriever s3FileRetriever,
-                                               ExpenseReportReadable expenseReportReadable,
-                                               ExpenseUpdatable expenseUpdatable,
+                                               ExpenseReportStreamable expenseReportStreamable,
+                                               TransactionSynchronizer transactionSynchronizer,
                                                File expenseManagerFile) {
-    return new S3ExpenseManagerUpdater(s3FileRetriever, expenseReportReadable, expenseUpdatable,
-        expenseManagerFile);
+    return new Builder(s3FileRetriever, expenseReportStreamable, transactionSynchronizer, expenseManagerFile)
+        .build();
   }
 
   /**
@@ -75,63 +101,246 @@ public class S3ExpenseManagerUpdater {
   public void updateExpenseManager(S3Event changedEmDatabaseFileNotification) throws IOException, SQLException {
     // Read the S3 Event
     // Extract the file information
-    Optional<S3ObjectId> optionalS3ObjectId = getS3ObjectId(changedEmDatabaseFileNotification);
-    if (optionalS3ObjectId.isEmpty()) {
-      LOGGER.atInfo().log("Unable to extract expenseManagerS3ObjectId. s3Event:{}",
-          ObjectToString.extractStringFromObject(changedEmDatabaseFileNotification));
+    // Serialised at most once, and only if a message which needs it is logged
+    LazyObjectString s3EventString = ObjectToString.lazyStringOf(changedEmDatabaseFileNotification);
+    LOGGER.atDebug().log("Analyzing S3 event. s3Event:{}", s3EventString);
+    Optional<ChangedS3Object> optionalChangedS3Object =
+        DatabaseS3EventAnalyzer.extractChangedS3Object(changedEmDatabaseFileNotification);
+    if (optionalChangedS3Object.isEmpty()) {
+      LOGGER.atInfo().log("Unable to extract expenseManagerS3ObjectId. s3Event:{}", s3EventString);
       return;
     }
-    S3ObjectId expenseManagerS3ObjectId = optionalS3ObjectId.get();
+    updateExpenseManager(optionalChangedS3Object.get());
+  }
+
+  /**
+   * Update the expense manager remote database from the changed expense manager file on S3. Every file is synchronised
+   * into the same remote table, so an updater must not be used by two threads at the same time.
+   * @param expenseManagerS3Object the changed expense manager database file
+   * @throws IOException if there is an error to create and read the database file.
+   * @throws SQLException if there is an error to access the database file.
+   */
+  public void updateExpenseManager(ChangedS3Object expenseManagerS3Object) throws IOException, SQLException {
+    Objects.requireNonNull(expenseManagerS3Object, "expenseManagerS3Object cannot be null");
+    S3ObjectId expenseManagerS3ObjectId = expenseManagerS3Object.getS3ObjectId();
     // Assemble a GetFileRequest
     // Send Request
     // Process response into a file
-    boolean downloadSuccessful = downloadExpenseManagerFile(expenseManagerS3ObjectId);
-    if (!downloadSuccessful) {
-      LOGGER.atWarn().log("Unable to download expense manager file. s3Event:{}, expenseManagerS3ObjectId:{}," +
+    DownloadStatus downloadStatus = downloadExpenseManagerFile(expenseManagerS3Object);
+    if (downloadStatus == DownloadStatus.FAILED) {
+      LOGGER.atWarn().log("Unable to download expense manager file. expenseManagerS3ObjectId:{}," +
               " expenseManagerFile:{}",
-          ObjectToString.extractStringFromObject(changedEmDatabaseFileNotification),
-          ObjectToString.extractStringFromObject(expenseManagerS3ObjectId),
-          ObjectToString.extractStringFromObject(expenseManagerFile));
+          ObjectToString.lazyStringOf(expenseManagerS3ObjectId),
+          ObjectToString.lazyStringOf(expenseManagerFile));
       return;
     }
-    // Read database records
-    List<ExpenseManagerTransaction> expenseManagerTransactions = retrieveTransactionRecords();
-    LOGGER.atDebug().log("Expense Manager Transaction is retrieved. {} expenseManagerTransactions entry.",
-        expenseManagerTransactions.size());
-    // Store into remote Aurora database
-    updateTransactionRecords(expenseManagerTransactions);
+    if (downloadStatus == DownloadStatus.NOT_MODIFIED) {
+      // Duplicated notifications and retries of an already synchronised file need not rewrite the remote database
+      LOGGER.atInfo().log("Expense manager file is not modified since last synchronisation. " +
+              "expenseManagerS3ObjectId:{}", ObjectToString.lazyStringOf(expenseManagerS3ObjectId));
+      return;
+    }
+    // Pooled connections still read the replaced file
+    SqlSessionFactoryRegistry.resetConnectionPool(DatabaseEnvironmentId.SQLITE, expenseManagerFile.getPath());
+    try {
+      // Stream database records into remote Aurora database
+      updateTransactionRecords();
+    } catch (IOException | SQLException | RuntimeException exception) {
+      // Download the file again on retry, so that the synchronisation is not skipped
+      s3FileRetriever.invalidate(expenseManagerFile);
+      throw exception;
+    }
   }
 
-  private Optional<S3ObjectId> getS3ObjectId(S3Event s3Event) {
-    LOGGER.atDebug().log("Analyzing S3 event. s3Event:{}", ObjectToString.extractStringFromObject(s3Event));
-    return DatabaseS3EventAnalyzer.extractChangedS3ObjectId(s3Event);
-  }
   
-  private boolean downloadExpenseManagerFile(S3ObjectId expenseManagerS3ObjectId) throws IOException {
-    LOGGER.atDebug().log("Downloading object from S3. expenseManagerS3ObjectId:{}",
-        ObjectToString.extractStringFromObject(expenseManagerS3ObjectId));
-    return s3FileRetriever.downloadFile(expenseManagerS3ObjectId, expenseManagerFile);
+  private DownloadStatus downloadExpenseManagerFile(ChangedS3Object expenseManagerS3Object) throws IOException {
+    LOGGER.atDebug().log("Downloading object from S3. expenseManagerS3Object:{}", expenseManagerS3Object);
+    DownloadStatus downloadStatus;
+    StageMetrics.Timer timer = stageMetrics.start(Stage.S3_DOWNLOAD);
+    try {
+      downloadStatus = s3FileRetriever.retrieveFile(expenseManagerS3Object, expenseManagerFile);
+    } finally {
+      timer.close();
+    }
+    if (downloadStatus == DownloadStatus.DOWNLOADED) {
+      stageMetrics.addBytes(Stage.S3_DOWNLOAD, expenseManagerFile.length());
+    }
+    return downloadStatus;
   }
 
-  private List<ExpenseManagerTransaction> retrieveTransactionRecords() throws IOException, SQLException {
-    List<ExpenseReport> expenseReports = expenseReportReadable.getExpenseTransactions();
-    return ExpenseTransactionTransformer.mapExpenseReports(expenseReports);
+  /**
+   * Returns a source which reads the expense reports of the downloaded file one at a time, and maps each of them into
+   * expense manager transactions as soon as it is read. The file is read ahead of the remote writes, as far as the
+   * transaction pipeline allows.
+   */
+  private TransactionSource streamTransactionRecords() {
+    return transactionPipeline.readAhead(this::readTransactionRecords);
   }
 
-  private void updateTransactionRecords(List<ExpenseManagerTransaction> expenseManagerTransactions) 
+  /**
+   * Read the expense reports of the downloaded file into <i>transactionConsumer</i>. The time spent by the consumer is
+   * left out of the read, so that the read is told apart from the remote writes when both run on the same thread.
+   */
+  private void readTransactionRecords(Consumer<ExpenseManagerTransaction> transactionConsumer)
       throws IOException, SQLException {
-    if (expenseManagerTransactions.isEmpty()) {
+    long startTime = System.nanoTime();
+    long[] transformNanos = {0L};
+    long[] callbackNanos = {0L};
+    long[] expenseReportCount = {0L};
+    long[] transactionCount = {0L};
+    try {
+      expenseReportStreamable.streamExpenseReports(resultContext -> {
+        long readTime = System.nanoTime();
+        List<ExpenseManagerTransaction> transactions =
+            ExpenseTransactionTransformer.mapExpenseReports(List.of(resultContext.getResultObject()));
+        long transformTime = System.nanoTime();
+        transactions.forEach(transactionConsumer);
+        transformNanos[0] += transformTime - readTime;
+        callbackNanos[0] += System.nanoTime() - readTime;
+        expenseReportCount[0]++;
+        transactionCount[0] += transactions.size();
+      });
+    } finally {
+      stageMetrics.recordTime(Stage.SQLITE_READ, System.nanoTime() - startTime - callbackNanos[0]);
+      stageMetrics.addRows(Stage.SQLITE_READ, expenseReportCount[0]);
+      stageMetrics.recordTime(Stage.TRANSFORM, transformNanos[0]);
+      stageMetrics.addRows(Stage.TRANSFORM, transactionCount[0]);
+    }
+    if (expenseReportCount[0] == 0) {
+      // Thrown before the end of the source is reached, so that the synchroniser applies no change
+      throw new EmptyExpenseManagerFileException();
+    }
+  }
+
+  private void updateTransactionRecords() throws IOException, SQLException {
+    LOGGER.atDebug().log("Synchronising remote database table.");
+    TransactionDiff transactionDiff;
+    StageMetrics.Timer timer = stageMetrics.start(Stage.AURORA_SYNC);
+    try {
+      transactionDiff = transactionSynchronizer.synchronize(streamTransactionRecords());
+    } catch (EmptyExpenseManagerFileException emptyExpenseManagerFileException) {
+      // An empty expense manager file is more likely to be a bad export than a genuine wipe of all transactions
+      LOGGER.atWarn().log("No expense manager transaction is read. Remote database is not updated.");
       return;
+    } catch (IOException | SQLException | RuntimeException exception) {
+      // Part of the changes may have been applied before the failure
+      advanceSyncGenerationAfterFailure(exception);
+      throw exception;
+    } finally {
+      timer.close();
+    }
+    LOGGER.atDebug().log("Remote database table is synchronised. transactionDiff:{}", transactionDiff);
+    stageMetrics.addRows(Stage.AURORA_SYNC, (long) transactionDiff.getInsertionCount() +
+        transactionDiff.getUpdateCount() + transactionDiff.getDeletedIds().size());
+    syncGeneration.advance();
+  }
+
+  private void advanceSyncGenerationAfterFailure(Exception synchronisationException) {
+    try {
+      syncGeneration.advance();
+    } catch (RuntimeException runtimeException) {
+      synchronisationException.addSuppressed(runtimeException);
     }
-    LOGGER.atDebug().log("Clearing remote database table.");
-    expenseUpdatable.clear();
-    LOGGER.atDebug().log("Remote database table is cleared. Inserting new expense manager transactions entries.");
-    for (ExpenseManagerTransaction expenseManagerTransaction : expenseManagerTransactions) {
-      LOGGER.atTrace().log("Inserting entry.expenseManagerTransaction:{}", expenseManagerTransaction);
-      //TODO: Log error if fail
-      expenseUpdatable.add(expenseManagerTransaction);
+  }
+
+  /**
+   * Thrown by the source of the expense manager transactions when the downloaded file has no expense report
+   */
+  private static final class EmptyExpenseManagerFileException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private EmptyExpenseManagerFileException() {
+      super("Expense manager file has no expense report.");
+    }
+  }
+
+  /**
+   * {@code S3ExpenseManagerUpdater.Builder} is used for creating a {@code S3ExpenseManagerUpdater} from various
+   * parameters.
+   *
+   * <p>
+   *    The S3 file retriever, the expense report reader, the transaction synchroniser and the expense manager database
+   *    file are the mandatory fields in the construction of {@code S3ExpenseManagerUpdater}. The synchronisation
+   *    generation is not tracked, the expense manager database file is read on the calling thread, and no metrics are
+   *    recorded unless they are set.
+   * </p>
+   *
+   * @see S3ExpenseManagerUpdater
+   */
+  public static class Builder {
+    private final S3FileRetriever s3FileRetriever;
+    private final ExpenseReportStreamable expenseReportStreamable;
+    private final TransactionSynchronizer transactionSynchronizer;
+    private final File expenseManagerFile;
+    private SyncGeneration syncGeneration;
+    private TransactionPipeline transactionPipeline;
+    private StageMetrics stageMetrics;
+
+    /**
+     * Default constructor of {@code S3ExpenseManagerUpdater.Builder}
+     * @param s3FileRetriever s3 file retriever
+     * @param expenseReportStreamable streamed reader of the expense reports
+     * @param transactionSynchronizer synchroniser of the remote database
+     * @param expenseManagerFile expense manager database file
+     */
+    public Builder(S3FileRetriever s3FileRetriever,
+                   ExpenseReportStreamable expenseReportStreamable,
+                   TransactionSynchronizer transactionSynchronizer,
+                   File expenseManagerFile) {
+      this.s3FileRetriever = s3FileRetriever;
+      this.expenseReportStreamable = expenseReportStreamable;
+      this.transactionSynchronizer = transactionSynchronizer;
+      this.expenseManagerFile = expenseManagerFile;
+      this.syncGeneration = SyncGeneration.untracked();
+      this.transactionPipeline = TransactionPipeline.direct();
+      this.stageMetrics = StageMetrics.disabled();
+    }
+
+    /**
+     * Set the version stamp of the remote database, which is advanced after every synchronisation
+     * @param syncGeneration version stamp of the remote database
+     * @return this {@code S3ExpenseManagerUpdater.Builder}
+     */
+    public Builder syncGeneration(SyncGeneration syncGeneration) {
+      this.syncGeneration = Objects.requireNonNull(syncGeneration, "syncGeneration" + NULL_ERROR_MSG_POSTFIX);
+      return this;
+    }
+
+    /**
+     * Set the pipeline which reads the expense manager database file ahead of the remote writes
+     * @param transactionPipeline pipeline which reads the expense manager database file ahead of the remote writes
+     * @return this {@code S3ExpenseManagerUpdater.Builder}
+     */
+    public Builder transactionPipeline(TransactionPipeline transactionPipeline) {
+      this.transactionPipeline = Objects.requireNonNull(transactionPipeline,
+          "transactionPipeline" + NULL_ERROR_MSG_POSTFIX);
+      return this;
+    }
+
+    /**
+     * Set the recorder of the duration and size of every stage of the update
+     * @param stageMetrics recorder of the duration and size of every stage of the update
+     * @return this {@code S3ExpenseManagerUpdater.Builder}
+     */
+    public Builder stageMetrics(StageMetrics stageMetrics) {
+      this.stageMetrics = Objects.requireNonNull(stageMetrics, "stageMetrics" + NULL_ERROR_MSG_POSTFIX);
+      return this;
+    }
+
+    /**
+     * Returns a {@code S3ExpenseManagerUpdater} built from the parameters set by the setter methods.
+     * @return a {@code S3ExpenseManagerUpdater} built from the parameters set by the setter methods.
+     */
+    public S3ExpenseManagerUpdater build() {
+      return new S3ExpenseManagerUpdater(
+          s3FileRetriever,
+          expenseReportStreamable,
+          transactionSynchronizer,
+          expenseManagerFile,
+          syncGeneration,
+          transactionPipeline,
+          stageMetrics
+      );
     }
-    LOGGER.atDebug().log("Expense manager transactions entries are inserted. expenseManagerTransactions {} entry",
-        expenseManagerTransactions.size());
   }
 }
@@ -22,6 +22,9 @@ public class EmChangeProcessorConfiguration {
   private final String localDbFilePath;
   private final String sourceDbEnvId;
   private final AuroraDatabaseConfiguration auroraDatabaseConfiguration;
+  private final int writeBatchSize;
+  private final RefreshMode refreshMode;
+  private final int readAheadBatches;
 
   /**
    * <b>Implementation detail</b>
@@ -30,13 +33,22 @@ public class EmChangeProcessorConfiguration {
    * @param localDbFilePath intermediate file path to store the expense manager database file
    * @param sourceDbEnvId environment ID of the expense manager database file
    * @param auroraDatabaseConfiguration database configuration of the Aurora database
+   * @param writeBatchSize number of rows written to the Aurora database in a single batch
+   * @param refreshMode the way the Aurora database table is refreshed
+   * @param readAheadBatches number of batches read from the expense manager database file ahead of the Aurora writes
    */
   private EmChangeProcessorConfiguration(String localDbFilePath,
                                         String sourceDbEnvId,
-                                        AuroraDatabaseConfiguration auroraDatabaseConfiguration) {
+                                        AuroraDatabaseConfiguration auroraDatabaseConfiguration,
+                                        int writeBatchSize,
+                                        RefreshMode refreshMode,
+                                        int readAheadBatches) {
     this.localDbFilePath = localDbFilePath;
     this.sourceDbEnvId = sourceDbEnvId;
     this.auroraDatabaseConfiguration = auroraDatabaseConfiguration;
+    this.writeBatchSize = writeBatchSize;
+    this.refreshMode = refreshMode;
+    this.readAheadBatches = readAheadBatches;
   }
 
   /**
@@ -63,6 +75,30 @@ public class EmChangeProcessorConfiguration {
     return auroraDatabaseConfiguration;
   }
 
+  /**
+   * Returns the number of rows written to the Aurora database in a single batch
+   * @return the number of rows written to the Aurora database in a single batch
+   */
+  public int getWriteBatchSize() {
+    return writeBatchSize;
+  }
+
+  /**
+   * Returns the way the Aurora database table is refreshed
+   * @return the way the Aurora database table is refreshed
+   */
+  public RefreshMode getRefreshMode() {
+    return refreshMode;
+  }
+
+  /**
+   * Returns the number of batches read from the expense manager database file ahead of the Aurora writes
+   * @return the number of batches read from the expense manager database file ahead of the Aurora writes
+   */
+  public int getReadAheadBatches() {
+    return readAheadBatches;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -76,6 +112,9 @@ public class EmChangeProcessorConfiguration {
         .append(localDbFilePath, that.localDbFilePath)
         .append(sourceDbEnvId, that.sourceDbEnvId)
         .append(auroraDatabaseConfiguration, that.auroraDatabaseConfiguration)
+        .append(writeBatchSize, that.writeBatchSize)
+        .append(refreshMode, that.refreshMode)
+        .append(readAheadBatches, that.readAheadBatches)
         .isEquals();
   }
 
@@ -85,6 +124,9 @@ public class EmChangeProcessorConfiguration {
         .append(localDbFilePath)
         .append(sourceDbEnvId)
         .append(auroraDatabaseConfiguration)
+        .append(writeBatchSize)
+        .append(refreshMode)
+        .append(readAheadBatches)
         .toHashCode();
   }
 
@@ -94,6 +136,9 @@ public class EmChangeProcessorConfiguration {
         .add("localDbFilePath='" + localDbFilePath + "'")
         .add("sourceDbEnvId='" + sourceDbEnvId + "'")
         .add("auroraDatabaseConfiguration=" + auroraDatabaseConfiguration)
+        .add("writeBatchSize=" + writeBatchSize)
+        .add("refreshMode=" + refreshMode)
+        .add("readAheadBatches=" + readAheadBatches)
         .toString();
   }
 
@@ -116,10 +161,16 @@ public class EmChangeProcessorConfiguration {
   public static class Builder {
     private static final String DEFAULT_LOCAL_DATABASE_FILE_PATH = URI.create("/tmp/expense_manager.db").getPath();
     private static final String DEFAULT_SOURCE_DATABASE_ENVIRONMENT_ID = URI.create("file_sqlite").getPath();
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 500;
+    private static final RefreshMode DEFAULT_REFRESH_MODE = RefreshMode.INCREMENTAL;
+    private static final int DEFAULT_READ_AHEAD_BATCHES = 2;
 
     private String localDbFilePath;
     private String sourceDbEnvId;
     private final AuroraDatabaseConfiguration auroraDatabaseConfiguration;
+    private int writeBatchSize;
+    private RefreshMode refreshMode;
+    private int readAheadBatches;
 
     /**
      * Default constructor of {@code EmChangeProcessorConfiguration.Builder}
@@ -129,6 +180,9 @@ public class EmChangeProcessorConfiguration {
       this.auroraDatabaseConfiguration = Objects.requireNonNull(auroraDatabaseConfiguration);
       this.localDbFilePath = DEFAULT_LOCAL_DATABASE_FILE_PATH;
       this.sourceDbEnvId = DEFAULT_SOURCE_DATABASE_ENVIRONMENT_ID;
+      this.writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+      this.refreshMode = DEFAULT_REFRESH_MODE;
+      this.readAheadBatches = DEFAULT_READ_AHEAD_BATCHES;
     }
 
     /**
@@ -161,6 +215,45 @@ public class EmChangeProcessorConfiguration {
       return this;
     }
 
+    /**
+     * Set the number of rows written to the Aurora database in a single batch
+     * @param writeBatchSize number of rows written to the Aurora database in a single batch
+     * @return this {@code EmChangeProcessorConfiguration.Builder}
+     */
+    public Builder writeBatchSize(int writeBatchSize) {
+      if (writeBatchSize <= 0) {
+        LOGGER.atWarn().log("writeBatchSize is non-positive:{}", writeBatchSize);
+        throw new IllegalArgumentException("Write batch size must be positive.");
+      }
+      this.writeBatchSize = writeBatchSize;
+      return this;
+    }
+
+    /**
+     * Set the way the Aurora database table is refreshed
+     * @param refreshMode the way the Aurora database table is refreshed
+     * @return this {@code EmChangeProcessorConfiguration.Builder}
+     */
+    public Builder refreshMode(RefreshMode refreshMode) {
+      this.refreshMode = Objects.requireNonNull(refreshMode, "refreshMode cannot be null");
+      return this;
+    }
+
+    /**
+     * Set the number of batches read from the expense manager database file ahead of the Aurora writes. The file is
+     * read on the calling thread, after the Aurora writes, if it is zero.
+     * @param readAheadBatches number of batches read from the expense manager database file ahead of the Aurora writes
+     * @return this {@code EmChangeProcessorConfiguration.Builder}
+     */
+    public Builder readAheadBatches(int readAheadBatches) {
+      if (readAheadBatches < 0) {
+        LOGGER.atWarn().log("readAheadBatches is negative:{}", readAheadBatches);
+        throw new IllegalArgumentException("Read ahead batches cannot be negative.");
+      }
+      this.readAheadBatches = readAheadBatches;
+      return this;
+    }
+
     /**
      * Returns a {@code EmChangeProcessorConfiguration} built from the parameters set by the setter methods.
      * @return a {@code EmChangeProcessorConfiguration} built from the parameters set by the setter methods.
@@ -169,7 +262,10 @@ public class EmChangeProcessorConfiguration {
       return new EmChangeProcessorConfiguration(
           localDbFilePath,
           sourceDbEnvId,
-          auroraDatabaseConfiguration
+          auroraDatabaseConfiguration,
+          writeBatchSize,
+          refreshMode,
+          readAheadBatches
       );
     }
   }
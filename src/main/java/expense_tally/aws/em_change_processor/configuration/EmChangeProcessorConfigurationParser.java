@@ -5,10 +5,15 @@ import expense_tally.aws.AppStartUpException;
 import expense_tally.aws.aurora.AuroraConfigurationParser;
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import expense_tally.aws.config.SystemProxy;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.util.Optional;
 
 public class EmChangeProcessorConfigurationParser {
+  private static final Logger LOGGER = LogManager.getLogger(EmChangeProcessorConfigurationParser.class);
 
   /**
    * Make implicit constructor private as there is no need to initialise class
@@ -30,9 +35,55 @@ public class EmChangeProcessorConfigurationParser {
     if (sourceDbEnvId.isPresent()) {
       appConfigurationBuilder = appConfigurationBuilder.sourceDbEnvId(sourceDbEnvId.get());
     }
+    appConfigurationBuilder = parseWriteBatchSize(appConfigurationBuilder);
+    appConfigurationBuilder = parseRefreshMode(appConfigurationBuilder);
+    appConfigurationBuilder = parseReadAheadBatches(appConfigurationBuilder);
     return appConfigurationBuilder.build();
   }
 
+  private static EmChangeProcessorConfiguration.Builder parseWriteBatchSize(
+      EmChangeProcessorConfiguration.Builder appConfigurationBuilder) throws AppStartUpException {
+    Optional<String> writeBatchSize = parseSingleConfiguration(AppConfigEnum.AURORA_WRITE_BATCH_SIZE.key());
+    if (writeBatchSize.isEmpty()) {
+      return appConfigurationBuilder;
+    }
+    String writeBatchSizeString = writeBatchSize.get();
+    if (!NumberUtils.isDigits(writeBatchSizeString)) {
+      LOGGER.atWarn().log("writeBatchSizeString is not number: {}", writeBatchSizeString);
+      throw new AppStartUpException(AppConfigEnum.AURORA_WRITE_BATCH_SIZE.key() + " is not numeric.");
+    }
+    return appConfigurationBuilder.writeBatchSize(Integer.parseInt(writeBatchSizeString));
+  }
+
+  private static EmChangeProcessorConfiguration.Builder parseReadAheadBatches(
+      EmChangeProcessorConfiguration.Builder appConfigurationBuilder) throws AppStartUpException {
+    Optional<String> readAheadBatches = parseSingleConfiguration(AppConfigEnum.AURORA_READ_AHEAD_BATCHES.key());
+    if (readAheadBatches.isEmpty()) {
+      return appConfigurationBuilder;
+    }
+    String readAheadBatchesString = readAheadBatches.get();
+    if (!NumberUtils.isDigits(readAheadBatchesString)) {
+      LOGGER.atWarn().log("readAheadBatchesString is not number: {}", readAheadBatchesString);
+      throw new AppStartUpException(AppConfigEnum.AURORA_READ_AHEAD_BATCHES.key() + " is not numeric.");
+    }
+    return appConfigurationBuilder.readAheadBatches(Integer.parseInt(readAheadBatchesString));
+  }
+
+  private static EmChangeProcessorConfiguration.Builder parseRefreshMode(
+      EmChangeProcessorConfiguration.Builder appConfigurationBuilder) throws AppStartUpException {
+    Optional<String> refreshMode = parseSingleConfiguration(AppConfigEnum.AURORA_REFRESH_MODE.key());
+    if (refreshMode.isEmpty() || StringUtils.isBlank(refreshMode.get())) {
+      return appConfigurationBuilder;
+    }
+    String refreshModeString = refreshMode.get();
+    Optional<RefreshMode> optionalRefreshMode = RefreshMode.resolve(refreshModeString);
+    if (optionalRefreshMode.isEmpty()) {
+      LOGGER.atWarn().log("refreshModeString is not a refresh mode: {}", refreshModeString);
+      throw new AppStartUpException(AppConfigEnum.AURORA_REFRESH_MODE.key() + " is not a supported refresh mode.");
+    }
+    return appConfigurationBuilder.refreshMode(optionalRefreshMode.get());
+  }
+
   private static Optional<String> parseSingleConfiguration(String keyName) {
     String nullableValue = SystemProxy.getEnvironmentVariable(keyName);
     return Optional.ofNullable(nullableValue);
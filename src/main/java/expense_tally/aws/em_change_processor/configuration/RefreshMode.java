@@ -0,0 +1,40 @@
+package expense_tally.aws.em_change_processor.configuration;
+
+import expense_tally.exception.StringResolver;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Optional;
+
+/**
+ * The way the expense manager transaction table in the Aurora database is refreshed from the expense manager database
+ * file.
+ */
+public enum RefreshMode {
+  /**
+   * Only the inserted, updated and deleted rows are written to the live table, in independently committed batches.
+   */
+  INCREMENTAL,
+  /**
+   * All the rows are loaded into a staging table, which then replaces the live table in a single atomic rename.
+   * Readers only ever see the previous or the new content of the table.
+   */
+  ATOMIC_SWAP
+  ;
+
+  /**
+   * Returns the {@link RefreshMode} with the name <i>value</i>, ignoring case
+   * @param value name of the refresh mode
+   * @return the {@link RefreshMode} with the name <i>value</i>, or empty if there is no such refresh mode
+   */
+  public static Optional<RefreshMode> resolve(String value) {
+    if (StringUtils.isBlank(value)) {
+      throw new IllegalArgumentException("value cannot be blank:" + StringResolver.resolveNullableString(value));
+    }
+    for (RefreshMode refreshMode : values()) {
+      if (refreshMode.name().equalsIgnoreCase(value.strip())) {
+        return Optional.of(refreshMode);
+      }
+    }
+    return Optional.empty();
+  }
+}
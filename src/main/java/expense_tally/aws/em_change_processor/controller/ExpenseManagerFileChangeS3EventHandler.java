@@ -8,30 +8,58 @@ import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import expense_tally.aws.AppStartUpException;
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import expense_tally.aws.config.ApplicationErrorCode;
-import expense_tally.aws.database.SqlSessionFactory;
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.aws.database.AuroraSyncGeneration;
+import expense_tally.aws.database.ExpenseReportStreamable;
+import expense_tally.aws.database.SessionScopedExpenseReader;
+import expense_tally.aws.database.SessionScopedExpenseReportReader;
+import expense_tally.aws.database.SqlSessionFactoryRegistry;
+import expense_tally.aws.database.SyncGenerationMapper;
 import expense_tally.aws.em_change_processor.S3ExpenseManagerUpdater;
 import expense_tally.aws.em_change_processor.configuration.EmChangeProcessorConfiguration;
 import expense_tally.aws.em_change_processor.configuration.EmChangeProcessorConfigurationParser;
+import expense_tally.aws.em_change_processor.configuration.RefreshMode;
+import expense_tally.aws.em_change_processor.sync.AtomicSwapTransactionSynchronizer;
+import expense_tally.aws.em_change_processor.sync.BatchTransactionWriter;
+import expense_tally.aws.em_change_processor.sync.IncrementalTransactionSynchronizer;
+import expense_tally.aws.em_change_processor.sync.TransactionPipeline;
+import expense_tally.aws.em_change_processor.sync.TransactionSynchronizer;
+import expense_tally.aws.init.CheckpointPriming;
+import expense_tally.aws.init.Component;
+import expense_tally.aws.init.ComponentInitializer;
+import expense_tally.aws.log.LazyObjectString;
 import expense_tally.aws.log.ObjectToString;
+import expense_tally.aws.metrics.LatencyRecorder;
+import expense_tally.aws.metrics.StageMetrics;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.aws.s3.ChangedS3ObjectProcessor;
+import expense_tally.aws.s3.DatabaseS3EventAnalyzer;
+import expense_tally.aws.s3.S3DownloadConfiguration;
+import expense_tally.aws.s3.S3DownloadConfigurationParser;
 import expense_tally.aws.s3.S3FileRetriever;
-import expense_tally.expense_manager.persistence.ExpenseReportReadable;
-import expense_tally.expense_manager.persistence.ExpenseUpdatable;
+import expense_tally.expense_manager.persistence.ExpenseReadable;
 import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
-import expense_tally.expense_manager.persistence.database.ExpenseManagerTransactionDatabaseProxy;
-import expense_tally.expense_manager.persistence.database.ExpenseReportDatabaseReader;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.crac.Core;
+import org.crac.Resource;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 
-public class ExpenseManagerFileChangeS3EventHandler implements RequestHandler<S3Event, Void> {
+public class ExpenseManagerFileChangeS3EventHandler implements RequestHandler<S3Event, Void>, Resource {
   private static final Logger LOGGER = LogManager.getLogger(ExpenseManagerFileChangeS3EventHandler.class);
   private S3ExpenseManagerUpdater s3ExpenseManagerUpdater;
+  private final ChangedS3ObjectProcessor changedS3ObjectProcessor = ChangedS3ObjectProcessor.sequential();
+  private final LatencyRecorder latencyRecorder = LatencyRecorder.create();
+  private final StageMetrics stageMetrics = StageMetrics.create("ExpenseManagerFileChange", latencyRecorder);
   private EmChangeProcessorConfiguration emChangeProcessorConfiguration;
+  private SqlSessionFactory auroraSessionFactory;
+  private Component<SqlSessionFactory> expenseManagerSessionFactory;
 
   public ExpenseManagerFileChangeS3EventHandler() {
     try {
@@ -49,6 +77,9 @@ public class ExpenseManagerFileChangeS3EventHandler implements RequestHandler<S3
           .log("Unable to initialise class.");
       throw exception;
     }
+    // Keep the priming hooks registered for as long as the handler lives
+    Core.getGlobalContext().register(this);
+    latencyRecorder.flushOnShutdown();
   }
 
   private void init() throws SQLException, AppStartUpException, IOException {
@@ -56,7 +87,53 @@ public class ExpenseManagerFileChangeS3EventHandler implements RequestHandler<S3
     LOGGER.atDebug().log("Reading application configuration.");
     emChangeProcessorConfiguration = EmChangeProcessorConfigurationParser.parseSystemEnvironmentVariableConfiguration();
     LOGGER.atDebug().log("Application configuration is loaded. appConfiguration:{}", emChangeProcessorConfiguration);
-    s3ExpenseManagerUpdater = assembleS3ExpenseManagerUpdater();
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    Component<SqlSessionFactory> auroraSessionFactoryComponent = componentInitializer.initializeConcurrently(
+        "auroraSessionFactory", this::assembleAuroraSessionFactory);
+    // The expense manager file is only read when a new version is downloaded
+    expenseManagerSessionFactory = componentInitializer.initializeOnFirstUse(
+        "expenseManagerSessionFactory", this::assembleExpenseManagerSessionFactory);
+    AmazonS3 amazonS3 = componentInitializer.initialize("amazonS3", this::retrieveAmazonS3);
+    componentInitializer.awaitConcurrentComponents();
+    auroraSessionFactory = auroraSessionFactoryComponent.get();
+    s3ExpenseManagerUpdater = assembleS3ExpenseManagerUpdater(amazonS3, auroraSessionFactory,
+        expenseManagerSessionFactory);
+  }
+
+  /**
+   * Warm up the event handling and the database mappers, then close every pooled connection, so that the snapshot
+   * holds the loaded classes but no connection to the database
+   * @param context the context of the checkpoint
+   * @throws Exception if the handler cannot be prepared for the checkpoint
+   */
+  @Override
+  public void beforeCheckpoint(org.crac.Context<? extends Resource> context) throws Exception {
+    LOGGER.atInfo().log("Priming handler before checkpoint.");
+    CheckpointPriming.primeEventHandling();
+    CheckpointPriming.primeMapper(auroraSessionFactory, AuroraExpenseTransactionMapper.class);
+    CheckpointPriming.primeMapper(auroraSessionFactory, SyncGenerationMapper.class);
+    // Build the session factory of the expense manager file now, rather than in the first restored invocation
+    expenseManagerSessionFactory.get();
+    SqlSessionFactoryRegistry.resetAllConnectionPools();
+  }
+
+  /**
+   * Check the configuration again and reconnect to the database. The components built before the checkpoint, and the
+   * threads of their executors, are reused rather than built again.
+   * @param context the context of the restore
+   * @throws Exception if the configuration cannot be read
+   */
+  @Override
+  public void afterRestore(org.crac.Context<? extends Resource> context) throws Exception {
+    LOGGER.atInfo().log("Reconnecting handler after restore.");
+    EmChangeProcessorConfiguration restoredConfiguration =
+        EmChangeProcessorConfigurationParser.parseSystemEnvironmentVariableConfiguration();
+    if (!emChangeProcessorConfiguration.equals(restoredConfiguration)) {
+      // The environment variables belong to the published version of the function, which the snapshot is taken of
+      LOGGER.atWarn().log("Configuration differs from the checkpoint, and is applied in a new container only. " +
+          "restoredConfiguration:{}", restoredConfiguration);
+    }
+    CheckpointPriming.establishConnection(auroraSessionFactory);
   }
 
   private AmazonS3 retrieveAmazonS3() {
@@ -68,34 +145,59 @@ public class ExpenseManagerFileChangeS3EventHandler implements RequestHandler<S3
     return new File(EXPENSE_MANAGER_FILE_PATH);
   }
 
-  private ExpenseUpdatable assembleExpenseUpdatable() throws AppStartUpException,
-      SQLException, IOException {
+  private SqlSessionFactory assembleAuroraSessionFactory() throws AppStartUpException, SQLException, IOException {
     final String AURORA_DATABASE_URL = retrieveAuroraDatabaseUrl();
     final String EXPENSE_MANAGER_DATABASE_NAME = retrieveExpenseManagerDatabaseName();
     final String AURORA_USERNAME = retrieveAuroraUsername();
     final String AURORA_PASSWORD = retrieveAuroraPassword();
     final int AURORA_CONNECTION_TIMEOUT = retrieveAuroraConnectionTimeout();
-    SqlSession sqlSession = SqlSessionFactory.constructSqlSession(DatabaseEnvironmentId.MYSQL, AURORA_DATABASE_URL,
+    return SqlSessionFactoryRegistry.retrieveSessionFactory(DatabaseEnvironmentId.MYSQL, AURORA_DATABASE_URL,
         EXPENSE_MANAGER_DATABASE_NAME, AURORA_USERNAME, AURORA_PASSWORD, AURORA_CONNECTION_TIMEOUT);
-    return new ExpenseManagerTransactionDatabaseProxy(sqlSession);
   }
 
-  private ExpenseReportReadable assembleExpenseReportReadable()
-      throws AppStartUpException, IOException, SQLException {
-    final String EXPENSE_MANAGER_FILE_PATH = retrieveExpenseManagerFilePath();
-    SqlSession sqlSession = SqlSessionFactory.constructSqLiteSession(EXPENSE_MANAGER_FILE_PATH);
-    return new ExpenseReportDatabaseReader(sqlSession);
+  private TransactionSynchronizer assembleTransactionSynchronizer(SqlSessionFactory auroraSessionFactory) {
+    ExpenseReadable expenseReadable = SessionScopedExpenseReader.create(auroraSessionFactory);
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(auroraSessionFactory,
+        emChangeProcessorConfiguration.getWriteBatchSize(), stageMetrics);
+    RefreshMode refreshMode = emChangeProcessorConfiguration.getRefreshMode();
+    LOGGER.atDebug().log("Assembling transaction synchronizer. refreshMode:{}", refreshMode);
+    switch (refreshMode) {
+      case INCREMENTAL:
+        return IncrementalTransactionSynchronizer.create(expenseReadable, batchTransactionWriter);
+      case ATOMIC_SWAP:
+        return AtomicSwapTransactionSynchronizer.create(expenseReadable, auroraSessionFactory, batchTransactionWriter);
+      default:
+        throw new IllegalStateException("Unexpected value: " + refreshMode);
+    }
+  }
+
+  private SqlSessionFactory assembleExpenseManagerSessionFactory() throws AppStartUpException, IOException,
+      SQLException {
+    // Keyed by the same path as the file, so that the pool is reset when the file is downloaded again
+    File expenseManagerFile = assembleExpenseManagerFile();
+    return SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(expenseManagerFile.getPath());
   }
 
-  private S3ExpenseManagerUpdater assembleS3ExpenseManagerUpdater() throws AppStartUpException, SQLException,
-      IOException {
-    AmazonS3 amazonS3 = retrieveAmazonS3();
-    S3FileRetriever s3FileRetriever = S3FileRetriever.create(amazonS3);
-    ExpenseReportReadable expenseReportReadable = assembleExpenseReportReadable();
-    ExpenseUpdatable expenseUpdatable = assembleExpenseUpdatable();
+  private S3ExpenseManagerUpdater assembleS3ExpenseManagerUpdater(
+      AmazonS3 amazonS3,
+      SqlSessionFactory auroraSessionFactory,
+      Component<SqlSessionFactory> expenseManagerSessionFactory) throws AppStartUpException {
+    S3DownloadConfiguration s3DownloadConfiguration =
+        S3DownloadConfigurationParser.parseSystemEnvironmentVariableConfigurations();
+    LOGGER.atDebug().log("S3 download configuration is loaded. s3DownloadConfiguration:{}", s3DownloadConfiguration);
+    S3FileRetriever s3FileRetriever = S3FileRetriever.create(amazonS3, s3DownloadConfiguration);
+    ExpenseReportStreamable expenseReportStreamable = SessionScopedExpenseReportReader.create(
+        expenseManagerSessionFactory);
+    TransactionSynchronizer transactionSynchronizer = assembleTransactionSynchronizer(auroraSessionFactory);
     File expenseManagerFile = assembleExpenseManagerFile();
-    return S3ExpenseManagerUpdater.create(s3FileRetriever, expenseReportReadable,
-        expenseUpdatable, expenseManagerFile);
+    TransactionPipeline transactionPipeline = TransactionPipeline.create(
+        emChangeProcessorConfiguration.getWriteBatchSize(), emChangeProcessorConfiguration.getReadAheadBatches());
+    return new S3ExpenseManagerUpdater.Builder(s3FileRetriever, expenseReportStreamable, transactionSynchronizer,
+        expenseManagerFile)
+        .syncGeneration(AuroraSyncGeneration.create(auroraSessionFactory))
+        .transactionPipeline(transactionPipeline)
+        .stageMetrics(stageMetrics)
+        .build();
   }
 
   private String retrieveAuroraPassword() {
@@ -141,19 +243,29 @@ public class ExpenseManagerFileChangeS3EventHandler implements RequestHandler<S3
 
   @Override
   public Void handleRequest(S3Event emFileChangeEvent, Context context) {
-    LOGGER.atInfo().log("Received a new S3 event: {}", ObjectToString.extractStringFromObject(emFileChangeEvent));
+    // Serialised at most once, and only if a message which needs it is logged
+    LazyObjectString emFileChangeEventString = ObjectToString.lazyStringOf(emFileChangeEvent);
+    LOGGER.atInfo().log("Received a new S3 event: {}", emFileChangeEventString);
     // Since we have already put a restriction on the SAM template on the database name, there is no need to check
     // for the file name anymore, we can safely assume that all the S3 event is meant what we need to handle.
     try {
-      s3ExpenseManagerUpdater.updateExpenseManager(emFileChangeEvent);
+      // Every expense manager file is synchronised into the same table, so they are processed one after another. Only
+      // the newest version of a file is synchronised.
+      List<ChangedS3Object> changedS3Objects = DatabaseS3EventAnalyzer.extractChangedS3Objects(emFileChangeEvent);
+      if (changedS3Objects.isEmpty()) {
+        LOGGER.atInfo().log("Unable to find expense manager file in S3 event. s3Event:{}", emFileChangeEventString);
+      }
+      changedS3ObjectProcessor.process(changedS3Objects, s3ExpenseManagerUpdater::updateExpenseManager);
     } catch (Exception exception) {
       LOGGER
           .atError()
           .withThrowable(exception)
-          .log("Unable to handle s3 event. event:{}", ObjectToString.extractStringFromObject(emFileChangeEvent));
+          .log("Unable to handle s3 event. event:{}", emFileChangeEventString);
       return null;
+    } finally {
+      stageMetrics.flush();
     }
-    LOGGER.atInfo().log("Processed this S3 event: {}", ObjectToString.extractStringFromObject(emFileChangeEvent));
+    LOGGER.atInfo().log("Processed this S3 event: {}", emFileChangeEventString);
     return null;
   }
 }
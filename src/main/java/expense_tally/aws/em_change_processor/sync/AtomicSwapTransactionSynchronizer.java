@@ -0,0 +1,181 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.expense_manager.persistence.ExpenseReadable;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * This class synchronises the expense manager transactions in the Aurora database with the transactions read from the
+ * expense manager database file by replacing the whole table.
+ * <p>
+ *   All the transactions are loaded into a staging table created like the live table. Once every row is loaded, the
+ *   live table is swapped with the staging table in a single {@code RENAME TABLE} statement. Readers of the live table
+ *   never block on, or observe, a partially loaded table. If the loading fails or the invocation is cut short, the live
+ *   table is left untouched and the staging table is discarded on the next synchronisation.
+ * </p>
+ * <p>
+ *   The staging and retired tables have fixed names, so the drop, load and swap are done under a named database lock.
+ *   An overlapping synchronisation waits for the lock rather than dropping or renaming the staging table in the middle
+ *   of another load.
+ * </p>
+ */
+public class AtomicSwapTransactionSynchronizer implements TransactionSynchronizer {
+  private static final Logger LOGGER = LogManager.getLogger(AtomicSwapTransactionSynchronizer.class);
+  private static final String NULL_ERROR_MSG_POSTFIX = " cannot be null";
+  private static final int SWAP_LOCK_TIMEOUT_SECONDS = 60;
+  private static final int LOCK_TAKEN = 1;
+
+  private final ExpenseReadable expenseReadable;
+  private final SqlSessionFactory sqlSessionFactory;
+  private final BatchTransactionWriter batchTransactionWriter;
+
+  /**
+   * Private constructor
+   * @param expenseReadable reader of the current transactions in the Aurora database
+   * @param sqlSessionFactory factory of the sessions to the Aurora database, used for the table definition statements
+   * @param batchTransactionWriter writer of the transactions to the staging table
+   */
+  private AtomicSwapTransactionSynchronizer(ExpenseReadable expenseReadable,
+                                            SqlSessionFactory sqlSessionFactory,
+                                            BatchTransactionWriter batchTransactionWriter) {
+    this.expenseReadable = Objects.requireNonNull(expenseReadable, "expenseReadable" + NULL_ERROR_MSG_POSTFIX);
+    this.sqlSessionFactory = Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory" + NULL_ERROR_MSG_POSTFIX);
+    this.batchTransactionWriter = Objects.requireNonNull(batchTransactionWriter,
+        "batchTransactionWriter" + NULL_ERROR_MSG_POSTFIX);
+  }
+
+  /**
+   * Creates a new instance of AtomicSwapTransactionSynchronizer
+   * @param expenseReadable reader of the current transactions in the Aurora database
+   * @param sqlSessionFactory factory of the sessions to the Aurora database, used for the table definition statements
+   * @param batchTransactionWriter writer of the transactions to the staging table
+   * @return a new instance of AtomicSwapTransactionSynchronizer
+   */
+  public static AtomicSwapTransactionSynchronizer create(ExpenseReadable expenseReadable,
+                                                         SqlSessionFactory sqlSessionFactory,
+                                                         BatchTransactionWriter batchTransactionWriter) {
+    return new AtomicSwapTransactionSynchronizer(expenseReadable, sqlSessionFactory, batchTransactionWriter);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   *   <i>transactionSource</i> is read twice, once to compare it with the live table and once to load the staging
+   *   table, so that none of its transactions is held in memory.
+   * </p>
+   * @throws BatchWriteException if any transaction cannot be loaded into the staging table. The live table is not
+   * modified.
+   * @throws PersistenceException if the lock on the staging table cannot be taken within
+   * {@value #SWAP_LOCK_TIMEOUT_SECONDS} seconds. The live table is not modified.
+   */
+  @Override
+  public TransactionDiff synchronize(TransactionSource transactionSource) throws IOException, SQLException {
+    Objects.requireNonNull(transactionSource, "transactionSource" + NULL_ERROR_MSG_POSTFIX);
+    List<ExpenseManagerTransaction> currentTransactions = expenseReadable.getAllExpenseManagerTransaction();
+    LOGGER.atDebug().log("Current transactions are retrieved. currentTransactions:{} entry",
+        currentTransactions.size());
+    TransactionDiff.Tracker tracker = TransactionDiff.track(currentTransactions);
+    transactionSource.forEachTransaction(tracker::compare);
+    TransactionDiff transactionDiff = tracker.toTransactionDiff();
+    if (transactionDiff.isEmpty()) {
+      LOGGER.atInfo().log("Remote database is already up to date.");
+      return transactionDiff;
+    }
+    // The lock is held by the connection of this session, which is kept open until the swap is done
+    try (SqlSession lockSession = sqlSessionFactory.openSession(true)) {
+      AuroraExpenseTransactionMapper lockMapper = expense_tally.aws.database.SqlSessionFactory.retrieveMapper(
+          lockSession, AuroraExpenseTransactionMapper.class);
+      acquireSwapLock(lockMapper);
+      try {
+        replaceLiveTable(transactionSource, transactionDiff);
+      } finally {
+        releaseSwapLock(lockMapper);
+      }
+    }
+    LOGGER.atInfo().log("Live table is replaced. transactionDiff:{}", transactionDiff);
+    return transactionDiff;
+  }
+
+  private void replaceLiveTable(TransactionSource transactionSource, TransactionDiff transactionDiff)
+      throws IOException, SQLException {
+    LOGGER.atDebug().log("Preparing staging table. transactionDiff:{}", transactionDiff);
+    executeTableStatement(mapper -> {
+      mapper.dropStagingTables();
+      mapper.createStagingTable();
+    });
+    loadStagingTable(transactionSource);
+    LOGGER.atDebug().log("Swapping staging table with live table.");
+    executeTableStatement(AuroraExpenseTransactionMapper::swapStagingTable);
+    executeTableStatement(AuroraExpenseTransactionMapper::dropStagingTables);
+  }
+
+  private void acquireSwapLock(AuroraExpenseTransactionMapper lockMapper) {
+    LOGGER.atDebug().log("Acquiring staging table lock. lockName:{}", AuroraExpenseTransactionMapper.SWAP_LOCK_NAME);
+    Integer lockResult = lockMapper.acquireSwapLock(SWAP_LOCK_TIMEOUT_SECONDS);
+    if (lockResult == null || lockResult != LOCK_TAKEN) {
+      throw new PersistenceException("Unable to acquire staging table lock within " + SWAP_LOCK_TIMEOUT_SECONDS +
+          " seconds. Live table is not replaced.");
+    }
+  }
+
+  private void releaseSwapLock(AuroraExpenseTransactionMapper lockMapper) {
+    try {
+      lockMapper.releaseSwapLock();
+    } catch (PersistenceException persistenceException) {
+      // A connection which cannot release the lock is most likely dropped, and the database releases the lock with it
+      LOGGER.atWarn()
+          .withThrowable(persistenceException)
+          .log("Unable to release staging table lock.");
+    }
+  }
+
+  private void loadStagingTable(TransactionSource transactionSource) throws IOException, SQLException {
+    BatchWriteResult batchWriteResult;
+    try (BatchTransactionWriter.Transaction transaction = batchTransactionWriter.begin()) {
+      BatchTransactionWriter.RecordStream<ExpenseManagerTransaction> stagingStream =
+          transaction.open("stage", AuroraExpenseTransactionMapper::insertIntoStaging);
+      transactionSource.forEachTransaction(stagingStream::add);
+      batchWriteResult = transaction.commit();
+    }
+    if (!batchWriteResult.hasFailure()) {
+      LOGGER.atDebug().log("Staging table is loaded. writtenCount:{}", batchWriteResult.getWrittenCount());
+      return;
+    }
+    for (BatchWriteResult.ChunkFailure chunkFailure : batchWriteResult.getFailures()) {
+      LOGGER.atError()
+          .withThrowable(chunkFailure.getCause())
+          .log("Batch is not staged. chunkFailure:{}", chunkFailure);
+    }
+    try {
+      executeTableStatement(AuroraExpenseTransactionMapper::dropStagingTables);
+    } catch (PersistenceException persistenceException) {
+      LOGGER.atWarn()
+          .withThrowable(persistenceException)
+          .log("Unable to drop staging table. It will be dropped on the next synchronisation.");
+    }
+    throw new BatchWriteException("Unable to stage " + batchWriteResult.getFailures().size() +
+        " batch(es). Live table is not replaced.", batchWriteResult);
+  }
+
+  /**
+   * Execute table definition statements in an auto-commit session. MySQL commits these statements implicitly.
+   * @param statements the statements to be executed on the mapper
+   */
+  private void executeTableStatement(Consumer<AuroraExpenseTransactionMapper> statements) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      statements.accept(expense_tally.aws.database.SqlSessionFactory.retrieveMapper(sqlSession,
+          AuroraExpenseTransactionMapper.class));
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.aws.metrics.Stage;
+import expense_tally.aws.metrics.StageMetrics;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * This class writes records to the Aurora database in fixed size batches.
+ * <p>
+ *   The records are written in a {@link Transaction}, which holds a single {@link ExecutorType#BATCH} session. The
+ *   statements of a batch are queued on the session and sent to the database as a single JDBC batch, but nothing is
+ *   committed until the transaction is. If any batch fails, the remaining batches are skipped and the whole transaction
+ *   is rolled back, so the Aurora database is never left partly written.
+ * </p>
+ */
+public class BatchTransactionWriter {
+  private static final Logger LOGGER = LogManager.getLogger(BatchTransactionWriter.class);
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final int batchSize;
+  private final StageMetrics stageMetrics;
+
+  /**
+   * Private constructor
+   * @param sqlSessionFactory factory of the sessions to the Aurora database
+   * @param batchSize maximum number of records in a batch
+   * @param stageMetrics recorder of the duration of every written batch, and of the number of committed records
+   */
+  private BatchTransactionWriter(SqlSessionFactory sqlSessionFactory, int batchSize, StageMetrics stageMetrics) {
+    this.sqlSessionFactory = Objects.requireNonNull(sqlSessionFactory, "sqlSessionFactory cannot be null");
+    if (batchSize <= 0) {
+      LOGGER.atWarn().log("batchSize is non-positive:{}", batchSize);
+      throw new IllegalArgumentException("Batch size must be positive.");
+    }
+    this.batchSize = batchSize;
+    this.stageMetrics = Objects.requireNonNull(stageMetrics, "stageMetrics cannot be null");
+  }
+
+  /**
+   * Creates a new instance of BatchTransactionWriter
+   * @param sqlSessionFactory factory of the sessions to the Aurora database
+   * @param batchSize maximum number of records in a batch
+   * @return a new instance of BatchTransactionWriter
+   */
+  public static BatchTransactionWriter create(SqlSessionFactory sqlSessionFactory, int batchSize) {
+    return create(sqlSessionFactory, batchSize, StageMetrics.disabled());
+  }
+
+  /**
+   * Creates a new instance of BatchTransactionWriter, which records every written batch to <i>stageMetrics</i>
+   * @param sqlSessionFactory factory of the sessions to the Aurora database
+   * @param batchSize maximum number of records in a batch
+   * @param stageMetrics recorder of the duration of every written batch, and of the number of committed records
+   * @return a new instance of BatchTransactionWriter
+   */
+  public static BatchTransactionWriter create(SqlSessionFactory sqlSessionFactory,
+                                              int batchSize,
+                                              StageMetrics stageMetrics) {
+    return new BatchTransactionWriter(sqlSessionFactory, batchSize, stageMetrics);
+  }
+
+  /**
+   * Write <i>records</i> to the Aurora database in batches, in a transaction of their own
+   * @param operation name of the operation, used for reporting
+   * @param records records to be written
+   * @param statement the mapper statement which writes a single record
+   * @param <T> type of the record
+   * @return the outcome of the transaction
+   */
+  public <T> BatchWriteResult write(String operation,
+                                    List<T> records,
+                                    BiConsumer<AuroraExpenseTransactionMapper, T> statement) {
+    try (Transaction transaction = begin()) {
+      RecordStream<T> recordStream = transaction.open(operation, statement);
+      records.forEach(recordStream::add);
+      return transaction.commit();
+    }
+  }
+
+  /**
+   * Begin a transaction, in which the records of one or more operations are written and then committed together
+   * @return a new transaction, which must be closed
+   */
+  public Transaction begin() {
+    return new Transaction();
+  }
+
+  /**
+   * A transaction on the Aurora database. The records added to its {@link RecordStream}s are sent to the database a
+   * batch at a time, and are only committed by {@link #commit()}. Closing the transaction before it is committed rolls
+   * back every record written in it.
+   */
+  public final class Transaction implements AutoCloseable {
+    private final List<RecordStream<?>> recordStreams = new ArrayList<>();
+    private final List<BatchWriteResult.ChunkFailure> failures = new ArrayList<>();
+    private SqlSession batchSession;
+    private AuroraExpenseTransactionMapper mapper;
+    private int flushedCount;
+    private boolean isEnded;
+
+    private Transaction() {
+    }
+
+    /**
+     * Open a stream which writes the records added to it in batches. Only the records of the current batch are held
+     * by the database session, so the records need not be collected before they are written.
+     * @param operation name of the operation, used for reporting
+     * @param statement the mapper statement which writes a single record
+     * @param <T> type of the record
+     * @return a stream of records, which is finished when the transaction is committed
+     */
+    public <T> RecordStream<T> open(String operation, BiConsumer<AuroraExpenseTransactionMapper, T> statement) {
+      Objects.requireNonNull(operation, "operation cannot be null");
+      Objects.requireNonNull(statement, "statement cannot be null");
+      verifyNotEnded();
+      RecordStream<T> recordStream = new RecordStream<>(this, operation, statement);
+      recordStreams.add(recordStream);
+      return recordStream;
+    }
+
+    /**
+     * Write the last batch of every stream, and commit the transaction. If any batch has failed, the transaction is
+     * rolled back instead.
+     * @return the outcome of the transaction, in which no record is written if any batch has failed
+     */
+    public BatchWriteResult commit() {
+      verifyNotEnded();
+      recordStreams.forEach(RecordStream::writeLastChunk);
+      isEnded = true;
+      if (batchSession == null) {
+        // No session is opened for a transaction without records
+        return BatchWriteResult.of(0, failures);
+      }
+      if (!failures.isEmpty()) {
+        batchSession.rollback(true);
+        LOGGER.atDebug().log("Transaction is rolled back. flushedCount:{}, failedChunks:{}", flushedCount,
+            failures.size());
+        return BatchWriteResult.of(0, failures);
+      }
+      StageMetrics.Timer timer = stageMetrics.start(Stage.AURORA_WRITE);
+      try {
+        batchSession.commit();
+      } finally {
+        timer.close();
+      }
+      stageMetrics.addRows(Stage.AURORA_WRITE, flushedCount);
+      LOGGER.atDebug().log("Transaction is committed. writtenCount:{}", flushedCount);
+      return BatchWriteResult.of(flushedCount, failures);
+    }
+
+    @Override
+    public void close() {
+      if (batchSession != null) {
+        // An uncommitted session is rolled back when it is closed
+        batchSession.close();
+        batchSession = null;
+      }
+      isEnded = true;
+    }
+
+    private void verifyNotEnded() {
+      if (isEnded) {
+        throw new IllegalStateException("Transaction is ended.");
+      }
+    }
+
+    private AuroraExpenseTransactionMapper retrieveMapper() {
+      if (batchSession == null) {
+        batchSession = sqlSessionFactory.openSession(ExecutorType.BATCH, false);
+        mapper = expense_tally.aws.database.SqlSessionFactory.retrieveMapper(batchSession,
+            AuroraExpenseTransactionMapper.class);
+      }
+      return mapper;
+    }
+  }
+
+  /**
+   * A stream of records written to the Aurora database in batches, within a {@link Transaction}. A batch is sent to
+   * the database as soon as it is full, and the last batch when the transaction is committed.
+   * @param <T> type of the record
+   */
+  public final class RecordStream<T> {
+    private final Transaction transaction;
+    private final String operation;
+    private final BiConsumer<AuroraExpenseTransactionMapper, T> statement;
+    private int recordCount;
+    private int chunkRecordCount;
+    private PersistenceException chunkException;
+
+    private RecordStream(Transaction transaction,
+                         String operation,
+                         BiConsumer<AuroraExpenseTransactionMapper, T> statement) {
+      this.transaction = transaction;
+      this.operation = operation;
+      this.statement = statement;
+    }
+
+    /**
+     * Queue <i>record</i> in the current batch, and write the batch if it is full. Nothing is written once a batch of
+     * the transaction has failed, as the transaction is rolled back.
+     * @param record record to be written
+     */
+    public void add(T record) {
+      if (transaction.isEnded) {
+        throw new IllegalStateException("Transaction is ended.");
+      }
+      AuroraExpenseTransactionMapper mapper = transaction.retrieveMapper();
+      recordCount++;
+      chunkRecordCount++;
+      if (chunkException == null && transaction.failures.isEmpty()) {
+        try {
+          statement.accept(mapper, record);
+        } catch (PersistenceException persistenceException) {
+          // The rest of the batch is skipped, as the whole batch is reported as failed
+          chunkException = persistenceException;
+        }
+      }
+      if (chunkRecordCount == batchSize) {
+        writeChunk();
+      }
+    }
+
+    private void writeLastChunk() {
+      if (chunkRecordCount > 0) {
+        writeChunk();
+      }
+    }
+
+    private void writeChunk() {
+      int firstRecordIndex = recordCount - chunkRecordCount;
+      int chunkIndex = firstRecordIndex / batchSize;
+      try {
+        if (!transaction.failures.isEmpty()) {
+          LOGGER.atTrace().log("Batch is skipped. operation:{}, chunkIndex:{}", operation, chunkIndex);
+          return;
+        }
+        if (chunkException != null) {
+          throw chunkException;
+        }
+        List<BatchResult> batchResults;
+        StageMetrics.Timer timer = stageMetrics.start(Stage.AURORA_WRITE);
+        try {
+          batchResults = transaction.batchSession.flushStatements();
+        } finally {
+          timer.close();
+        }
+        transaction.flushedCount += chunkRecordCount;
+        LOGGER.atTrace().log("Batch is flushed. operation:{}, chunkIndex:{}, batchResults:{}", operation,
+            chunkIndex, batchResults.size());
+      } catch (PersistenceException persistenceException) {
+        LOGGER.atWarn()
+            .withThrowable(persistenceException)
+            .log("Unable to write batch. operation:{}, chunkIndex:{}, firstRecordIndex:{}, recordCount:{}",
+                operation, chunkIndex, firstRecordIndex, chunkRecordCount);
+        transaction.failures.add(new BatchWriteResult.ChunkFailure(operation, chunkIndex, firstRecordIndex,
+            chunkRecordCount, persistenceException));
+      } finally {
+        chunkRecordCount = 0;
+        chunkException = null;
+      }
+    }
+  }
+}
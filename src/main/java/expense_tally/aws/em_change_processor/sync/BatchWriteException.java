@@ -0,0 +1,21 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+
+/**
+ * Thrown when one or more batches cannot be written to the Aurora database.
+ */
+public class BatchWriteException extends PersistenceException {
+  private static final long serialVersionUID = 1L;
+
+  private final transient BatchWriteResult batchWriteResult;
+
+  public BatchWriteException(String message, BatchWriteResult batchWriteResult) {
+    super(message);
+    this.batchWriteResult = batchWriteResult;
+  }
+
+  public BatchWriteResult getBatchWriteResult() {
+    return batchWriteResult;
+  }
+}
@@ -0,0 +1,101 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The outcome of writing records to the Aurora database in batches.
+ * <p>
+ *   The batches of a transaction are committed together, so a failed batch rolls back the batches that are already
+ *   written. The failed batch is reported as a {@link ChunkFailure}.
+ * </p>
+ */
+public final class BatchWriteResult {
+  private final int writtenCount;
+  private final List<ChunkFailure> failures;
+
+  private BatchWriteResult(int writtenCount, List<ChunkFailure> failures) {
+    this.writtenCount = writtenCount;
+    this.failures = Collections.unmodifiableList(failures);
+  }
+
+  static BatchWriteResult of(int writtenCount, List<ChunkFailure> failures) {
+    return new BatchWriteResult(writtenCount, new ArrayList<>(failures));
+  }
+
+  /**
+   * Returns the number of committed records, which is zero if the transaction is rolled back
+   * @return the number of committed records
+   */
+  public int getWrittenCount() {
+    return writtenCount;
+  }
+
+  public List<ChunkFailure> getFailures() {
+    return failures;
+  }
+
+  public boolean hasFailure() {
+    return !failures.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", BatchWriteResult.class.getSimpleName() + "[", "]")
+        .add("writtenCount=" + writtenCount)
+        .add("failures=" + failures)
+        .toString();
+  }
+
+  /**
+   * A batch of records that cannot be written to the Aurora database
+   */
+  public static final class ChunkFailure {
+    private final String operation;
+    private final int chunkIndex;
+    private final int firstRecordIndex;
+    private final int recordCount;
+    private final RuntimeException cause;
+
+    ChunkFailure(String operation, int chunkIndex, int firstRecordIndex, int recordCount, RuntimeException cause) {
+      this.operation = operation;
+      this.chunkIndex = chunkIndex;
+      this.firstRecordIndex = firstRecordIndex;
+      this.recordCount = recordCount;
+      this.cause = cause;
+    }
+
+    public String getOperation() {
+      return operation;
+    }
+
+    public int getChunkIndex() {
+      return chunkIndex;
+    }
+
+    public int getFirstRecordIndex() {
+      return firstRecordIndex;
+    }
+
+    public int getRecordCount() {
+      return recordCount;
+    }
+
+    public RuntimeException getCause() {
+      return cause;
+    }
+
+    @Override
+    public String toString() {
+      return new StringJoiner(", ", ChunkFailure.class.getSimpleName() + "[", "]")
+          .add("operation='" + operation + "'")
+          .add("chunkIndex=" + chunkIndex)
+          .add("firstRecordIndex=" + firstRecordIndex)
+          .add("recordCount=" + recordCount)
+          .add("cause=" + cause.getMessage())
+          .toString();
+    }
+  }
+}
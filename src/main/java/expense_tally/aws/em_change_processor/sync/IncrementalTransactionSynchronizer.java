@@ -0,0 +1,113 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.expense_manager.persistence.ExpenseReadable;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class synchronises the expense manager transactions in the Aurora database with the transactions read from the
+ * expense manager database file.
+ * <p>
+ *   Instead of clearing the table and inserting every transaction again, only the inserted, updated and deleted
+ *   transactions are written, in batches through the {@link BatchTransactionWriter}. The source transactions are
+ *   compared and written as they are read, so only the current transactions are held in memory. All the changes are
+ *   committed in a single transaction, so the table is never observed to be empty or partly synchronised. If a batch
+ *   fails, the whole synchronisation is rolled back; the next synchronisation computes the difference again.
+ * </p>
+ */
+public class IncrementalTransactionSynchronizer implements TransactionSynchronizer {
+  private static final Logger LOGGER = LogManager.getLogger(IncrementalTransactionSynchronizer.class);
+  private static final String NULL_ERROR_MSG_POSTFIX = " cannot be null";
+
+  private final ExpenseReadable expenseReadable;
+  private final BatchTransactionWriter batchTransactionWriter;
+
+  /**
+   * Private constructor
+   * @param expenseReadable reader of the current transactions in the Aurora database
+   * @param batchTransactionWriter writer of the changes to the Aurora database
+   */
+  private IncrementalTransactionSynchronizer(ExpenseReadable expenseReadable,
+                                             BatchTransactionWriter batchTransactionWriter) {
+    this.expenseReadable = Objects.requireNonNull(expenseReadable, "expenseReadable" + NULL_ERROR_MSG_POSTFIX);
+    this.batchTransactionWriter = Objects.requireNonNull(batchTransactionWriter,
+        "batchTransactionWriter" + NULL_ERROR_MSG_POSTFIX);
+  }
+
+  /**
+   * Creates a new instance of IncrementalTransactionSynchronizer
+   * @param expenseReadable reader of the current transactions in the Aurora database
+   * @param batchTransactionWriter writer of the changes to the Aurora database
+   * @return a new instance of IncrementalTransactionSynchronizer
+   */
+  public static IncrementalTransactionSynchronizer create(ExpenseReadable expenseReadable,
+                                                          BatchTransactionWriter batchTransactionWriter) {
+    return new IncrementalTransactionSynchronizer(expenseReadable, batchTransactionWriter);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   *   Each source transaction is compared with the current transaction of the same ID as soon as it is read, and
+   *   written if it is inserted or updated. The deleted transactions are only known once the source is read to the end,
+   *   and are deleted last.
+   * </p>
+   * @throws BatchWriteException if any batch of changes cannot be applied. The other batches are still applied.
+   */
+  @Override
+  public TransactionDiff synchronize(TransactionSource transactionSource) throws IOException, SQLException {
+    Objects.requireNonNull(transactionSource, "transactionSource" + NULL_ERROR_MSG_POSTFIX);
+    List<ExpenseManagerTransaction> currentTransactions = expenseReadable.getAllExpenseManagerTransaction();
+    LOGGER.atDebug().log("Current transactions are retrieved. currentTransactions:{} entry",
+        currentTransactions.size());
+    TransactionDiff.Tracker tracker = TransactionDiff.track(currentTransactions);
+    TransactionDiff transactionDiff;
+    BatchWriteResult batchWriteResult;
+    try (BatchTransactionWriter.Transaction transaction = batchTransactionWriter.begin()) {
+      BatchTransactionWriter.RecordStream<ExpenseManagerTransaction> updateStream =
+          transaction.open("update", AuroraExpenseTransactionMapper::update);
+      BatchTransactionWriter.RecordStream<ExpenseManagerTransaction> insertStream =
+          transaction.open("insert", AuroraExpenseTransactionMapper::insert);
+      transactionSource.forEachTransaction(sourceTransaction -> {
+        TransactionDiff.Change change = tracker.compare(sourceTransaction);
+        if (change == TransactionDiff.Change.INSERTION) {
+          insertStream.add(sourceTransaction);
+        } else if (change == TransactionDiff.Change.UPDATE) {
+          updateStream.add(sourceTransaction);
+        }
+      });
+      transactionDiff = tracker.toTransactionDiff();
+      if (transactionDiff.isEmpty()) {
+        LOGGER.atInfo().log("Remote database is already up to date.");
+        return transactionDiff;
+      }
+      LOGGER.atDebug().log("Deleting transactions. transactionDiff:{}", transactionDiff);
+      BatchTransactionWriter.RecordStream<Integer> deleteStream =
+          transaction.open("delete", AuroraExpenseTransactionMapper::deleteById);
+      transactionDiff.getDeletedIds().forEach(deleteStream::add);
+      batchWriteResult = transaction.commit();
+    }
+    verifyChanges(batchWriteResult);
+    LOGGER.atInfo().log("Changes are applied. transactionDiff:{}", transactionDiff);
+    return transactionDiff;
+  }
+
+  private void verifyChanges(BatchWriteResult batchWriteResult) {
+    if (batchWriteResult.hasFailure()) {
+      for (BatchWriteResult.ChunkFailure chunkFailure : batchWriteResult.getFailures()) {
+        LOGGER.atError()
+            .withThrowable(chunkFailure.getCause())
+            .log("Batch is not applied. chunkFailure:{}", chunkFailure);
+      }
+      throw new BatchWriteException("Unable to apply " + batchWriteResult.getFailures().size() +
+          " batch(es). No change is applied.", batchWriteResult);
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * The set of changes needed to bring the target expense manager transactions in line with the source transactions.
+ * <p>
+ *   A diff built by {@link #between(Collection, Collection)} keeps the inserted and updated transactions. A diff built
+ *   by a {@link Tracker} only counts them, as the source transactions are not collected, and refuses to return them.
+ * </p>
+ * <p>
+ *   Transactions are identified by their expense manager ID, which is stable across exports of the expense manager
+ *   database file. Their content is compared as the Aurora database stores it, so that a transaction read back from
+ *   the table is not taken for a changed one: the amounts are compared in cents, and the expended times in whole
+ *   seconds, as the {@code DATETIME} column rounds the fraction of a second.
+ * </p>
+ */
+public final class TransactionDiff {
+  private final List<ExpenseManagerTransaction> insertions;
+  private final List<ExpenseManagerTransaction> updates;
+  private final List<Integer> deletedIds;
+  private final int insertionCount;
+  private final int updateCount;
+
+  /**
+   * Private constructor for static factory method design pattern
+   * @param insertions transactions that exist only in the source, or null if they are not kept
+   * @param updates transactions that exist in both, but differ in content, or null if they are not kept
+   * @param deletedIds ID of the transactions that exist only in the target
+   * @param insertionCount number of transactions that exist only in the source
+   * @param updateCount number of transactions that exist in both, but differ in content
+   */
+  private TransactionDiff(List<ExpenseManagerTransaction> insertions,
+                          List<ExpenseManagerTransaction> updates,
+                          List<Integer> deletedIds,
+                          int insertionCount,
+                          int updateCount) {
+    this.insertions = (insertions == null) ? null : Collections.unmodifiableList(insertions);
+    this.updates = (updates == null) ? null : Collections.unmodifiableList(updates);
+    this.deletedIds = Collections.unmodifiableList(deletedIds);
+    this.insertionCount = insertionCount;
+    this.updateCount = updateCount;
+  }
+
+  /**
+   * Returns the changes needed to turn <i>targetTransactions</i> into <i>sourceTransactions</i>
+   * @param sourceTransactions the expected state of the transactions
+   * @param targetTransactions the current state of the transactions
+   * @return the changes needed to turn <i>targetTransactions</i> into <i>sourceTransactions</i>
+   */
+  public static TransactionDiff between(Collection<ExpenseManagerTransaction> sourceTransactions,
+                                        Collection<ExpenseManagerTransaction> targetTransactions) {
+    Objects.requireNonNull(sourceTransactions, "sourceTransactions cannot be null");
+    Tracker tracker = track(targetTransactions);
+    List<ExpenseManagerTransaction> insertions = new ArrayList<>();
+    List<ExpenseManagerTransaction> updates = new ArrayList<>();
+    for (ExpenseManagerTransaction sourceTransaction : sourceTransactions) {
+      Change change = tracker.compare(sourceTransaction);
+      if (change == Change.INSERTION) {
+        insertions.add(sourceTransaction);
+      } else if (change == Change.UPDATE) {
+        updates.add(sourceTransaction);
+      }
+    }
+    return new TransactionDiff(insertions, updates, tracker.remainingIds(), insertions.size(), updates.size());
+  }
+
+  /**
+   * Returns a tracker which compares the source transactions with <i>targetTransactions</i> one at a time, so that the
+   * source transactions need not be collected. The tracked changes only keep the ID of the deleted transactions.
+   * @param targetTransactions the current state of the transactions
+   * @return a tracker of the changes needed to turn <i>targetTransactions</i> into the source transactions
+   */
+  public static Tracker track(Collection<ExpenseManagerTransaction> targetTransactions) {
+    Objects.requireNonNull(targetTransactions, "targetTransactions cannot be null");
+    return new Tracker(targetTransactions);
+  }
+
+  /**
+   * Returns the transactions that exist only in the source
+   * @return the transactions that exist only in the source
+   * @throws IllegalStateException if the changes are tracked by a {@link Tracker}, see {@link #getInsertionCount()}
+   */
+  public List<ExpenseManagerTransaction> getInsertions() {
+    if (insertions == null) {
+      throw new IllegalStateException("Insertions are only counted by a tracker.");
+    }
+    return insertions;
+  }
+
+  /**
+   * Returns the transactions that exist in both, but differ in content
+   * @return the transactions that exist in both, but differ in content
+   * @throws IllegalStateException if the changes are tracked by a {@link Tracker}, see {@link #getUpdateCount()}
+   */
+  public List<ExpenseManagerTransaction> getUpdates() {
+    if (updates == null) {
+      throw new IllegalStateException("Updates are only counted by a tracker.");
+    }
+    return updates;
+  }
+
+  public List<Integer> getDeletedIds() {
+    return deletedIds;
+  }
+
+  public int getInsertionCount() {
+    return insertionCount;
+  }
+
+  public int getUpdateCount() {
+    return updateCount;
+  }
+
+  /**
+   * Returns true if there is no change needed
+   * @return true if there is no change needed
+   */
+  public boolean isEmpty() {
+    return insertionCount == 0 && updateCount == 0 && deletedIds.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", TransactionDiff.class.getSimpleName() + "[", "]")
+        .add("insertions=" + insertionCount)
+        .add("updates=" + updateCount)
+        .add("deletedIds=" + deletedIds.size())
+        .toString();
+  }
+
+  /**
+   * The change needed on the target for a single source transaction
+   */
+  public enum Change {
+    INSERTION,
+    UPDATE,
+    NONE
+  }
+
+  /**
+   * Compares the source transactions with the target transactions one at a time. Transactions are identified by their
+   * ID, so a source transaction is compared with the target transaction of the same ID.
+   */
+  public static final class Tracker {
+    private final Map<Integer, ExpenseManagerTransaction> targetTransactionsById = new LinkedHashMap<>();
+    private int insertionCount;
+    private int updateCount;
+
+    private Tracker(Collection<ExpenseManagerTransaction> targetTransactions) {
+      for (ExpenseManagerTransaction targetTransaction : targetTransactions) {
+        targetTransactionsById.put(targetTransaction.getId(), targetTransaction);
+      }
+    }
+
+    /**
+     * Compare <i>sourceTransaction</i> with the target transaction of the same ID
+     * @param sourceTransaction the expected state of a transaction
+     * @return the change needed on the target for <i>sourceTransaction</i>
+     */
+    public Change compare(ExpenseManagerTransaction sourceTransaction) {
+      Objects.requireNonNull(sourceTransaction, "sourceTransaction cannot be null");
+      ExpenseManagerTransaction targetTransaction = targetTransactionsById.remove(sourceTransaction.getId());
+      if (targetTransaction == null) {
+        insertionCount++;
+        return Change.INSERTION;
+      }
+      if (!hasSameContent(sourceTransaction, targetTransaction)) {
+        updateCount++;
+        return Change.UPDATE;
+      }
+      return Change.NONE;
+    }
+
+    private static boolean hasSameContent(ExpenseManagerTransaction sourceTransaction,
+                                          ExpenseManagerTransaction targetTransaction) {
+      return toCents(sourceTransaction.getAmount()) == toCents(targetTransaction.getAmount()) &&
+          toCents(sourceTransaction.getReferenceAmount()) == toCents(targetTransaction.getReferenceAmount()) &&
+          sourceTransaction.getCategory() == targetTransaction.getCategory() &&
+          sourceTransaction.getSubcategory() == targetTransaction.getSubcategory() &&
+          sourceTransaction.getPaymentMethod() == targetTransaction.getPaymentMethod() &&
+          Objects.equals(sourceTransaction.getDescription(), targetTransaction.getDescription()) &&
+          Objects.equals(roundToSeconds(sourceTransaction.getExpendedTime()),
+              roundToSeconds(targetTransaction.getExpendedTime()));
+    }
+
+    private static long toCents(double amount) {
+      return Math.round(amount * 100);
+    }
+
+    private static Instant roundToSeconds(Instant instant) {
+      return (instant == null) ? null : instant.plusMillis(500).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Returns the ID of the target transactions which are not compared with any source transaction so far
+     * @return the ID of the target transactions which are not compared with any source transaction so far
+     */
+    public List<Integer> remainingIds() {
+      return new ArrayList<>(targetTransactionsById.keySet());
+    }
+
+    /**
+     * Returns the changes tracked so far, in which the target transactions not compared with any source transaction
+     * are deleted. The inserted and updated transactions are only counted.
+     * @return the changes tracked so far
+     */
+    public TransactionDiff toTransactionDiff() {
+      return new TransactionDiff(null, null, remainingIds(), insertionCount, updateCount);
+    }
+  }
+}
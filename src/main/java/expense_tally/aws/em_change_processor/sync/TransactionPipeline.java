@@ -0,0 +1,228 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * This class reads a {@link TransactionSource} on a thread of its own, ahead of the consumer of its transactions.
+ * <p>
+ *   The transactions are handed over in batches through a bounded queue. While the consumer writes a batch to the
+ *   Aurora database, the next batches are read from the expense manager database file and mapped, so that the
+ *   synchronisation takes about as long as the slower of the two instead of their sum. Once <i>readAheadBatches</i>
+ *   batches are waiting, the reading blocks until the consumer takes one, so no more than
+ *   <i>readAheadBatches</i> + 2 batches are held in memory.
+ * </p>
+ */
+public final class TransactionPipeline {
+  private static final Logger LOGGER = LogManager.getLogger(TransactionPipeline.class);
+  private static final long READER_KEEP_ALIVE_SECONDS = 10L;
+  // The expense manager files are synchronised one after another, so a second reader only covers a cancelled one
+  private static final int MAXIMUM_READER_THREADS = 2;
+  // Marks the end of the source. It is compared by identity, and no batch read from the source is empty.
+  private static final List<ExpenseManagerTransaction> END_OF_SOURCE = new ArrayList<>(0);
+
+  private final ExecutorService executorService;
+  private final int batchSize;
+  private final int readAheadBatches;
+
+  private TransactionPipeline(ExecutorService executorService, int batchSize, int readAheadBatches) {
+    this.executorService = executorService;
+    this.batchSize = batchSize;
+    this.readAheadBatches = readAheadBatches;
+  }
+
+  /**
+   * Creates a new instance of TransactionPipeline, which reads up to <i>readAheadBatches</i> batches ahead of the
+   * consumer on its own threads, of which at most {@value #MAXIMUM_READER_THREADS} run at a time
+   * @param batchSize number of transactions handed over to the consumer at a time
+   * @param readAheadBatches maximum number of batches read ahead of the consumer. The source is read on the calling
+   *                         thread if it is zero.
+   * @return a new instance of TransactionPipeline
+   */
+  public static TransactionPipeline create(int batchSize, int readAheadBatches) {
+    if (readAheadBatches == 0) {
+      return direct();
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    // A reader beyond the maximum waits for a thread, instead of starting one more
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(MAXIMUM_READER_THREADS, MAXIMUM_READER_THREADS,
+        READER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "transaction-reader-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    // An idle reader ends, so that none is left in a frozen or checkpointed container
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    return create(threadPoolExecutor, batchSize, readAheadBatches);
+  }
+
+  /**
+   * Creates a new instance of TransactionPipeline, which reads the source on <i>executorService</i>
+   * @param executorService executor of the reading of the sources
+   * @param batchSize number of transactions handed over to the consumer at a time
+   * @param readAheadBatches maximum number of batches read ahead of the consumer
+   * @return a new instance of TransactionPipeline
+   */
+  public static TransactionPipeline create(ExecutorService executorService, int batchSize, int readAheadBatches) {
+    Objects.requireNonNull(executorService, "executorService cannot be null");
+    if (batchSize <= 0) {
+      LOGGER.atWarn().log("batchSize is non-positive:{}", batchSize);
+      throw new IllegalArgumentException("Batch size must be positive.");
+    }
+    if (readAheadBatches <= 0) {
+      LOGGER.atWarn().log("readAheadBatches is non-positive:{}", readAheadBatches);
+      throw new IllegalArgumentException("Read ahead batches must be positive.");
+    }
+    return new TransactionPipeline(executorService, batchSize, readAheadBatches);
+  }
+
+  /**
+   * Creates a new instance of TransactionPipeline, which leaves the source to be read on the thread of the consumer
+   * @return a new instance of TransactionPipeline
+   */
+  public static TransactionPipeline direct() {
+    return new TransactionPipeline(null, 0, 0);
+  }
+
+  public int getReadAheadBatches() {
+    return readAheadBatches;
+  }
+
+  /**
+   * Returns a source which reads <i>transactionSource</i> ahead of its consumer
+   * @param transactionSource the source to be read ahead
+   * @return a source which reads <i>transactionSource</i> ahead of its consumer, or <i>transactionSource</i> itself if
+   * this pipeline is direct
+   */
+  public TransactionSource readAhead(TransactionSource transactionSource) {
+    Objects.requireNonNull(transactionSource, "transactionSource cannot be null");
+    if (executorService == null) {
+      return transactionSource;
+    }
+    return transactionConsumer -> forEachTransaction(transactionSource, transactionConsumer);
+  }
+
+  private void forEachTransaction(TransactionSource transactionSource,
+                                  Consumer<ExpenseManagerTransaction> transactionConsumer)
+      throws IOException, SQLException {
+    BlockingQueue<List<ExpenseManagerTransaction>> batches = new ArrayBlockingQueue<>(readAheadBatches);
+    Future<Void> reader = executorService.submit(() -> {
+      read(transactionSource, batches);
+      return null;
+    });
+    try {
+      List<ExpenseManagerTransaction> batch = takeBatch(batches);
+      while (batch != END_OF_SOURCE) {
+        batch.forEach(transactionConsumer);
+        batch = takeBatch(batches);
+      }
+      awaitReader(reader);
+    } finally {
+      // Stops the reader blocked on a full queue when the consumer fails
+      reader.cancel(true);
+    }
+  }
+
+  private void read(TransactionSource transactionSource, BlockingQueue<List<ExpenseManagerTransaction>> batches)
+      throws IOException, SQLException {
+    try {
+      BatchingConsumer batchingConsumer = new BatchingConsumer(batches);
+      transactionSource.forEachTransaction(batchingConsumer);
+      batchingConsumer.flush();
+    } finally {
+      // A failure is reported through the future once the consumer reaches the end
+      putBatch(batches, END_OF_SOURCE);
+    }
+  }
+
+  private static void putBatch(BlockingQueue<List<ExpenseManagerTransaction>> batches,
+                               List<ExpenseManagerTransaction> batch) {
+    try {
+      batches.put(batch);
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Reading of transactions is cancelled.");
+    }
+  }
+
+  private static List<ExpenseManagerTransaction> takeBatch(BlockingQueue<List<ExpenseManagerTransaction>> batches)
+      throws IOException {
+    try {
+      return batches.take();
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Reading of transactions is interrupted.", interruptedException);
+    }
+  }
+
+  private static void awaitReader(Future<Void> reader) throws IOException, SQLException {
+    try {
+      reader.get();
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Reading of transactions is interrupted.", interruptedException);
+    } catch (ExecutionException executionException) {
+      Throwable cause = executionException.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Unable to read transactions.", cause);
+    }
+  }
+
+  /**
+   * Collects the transactions into batches, and puts every full batch into the queue
+   */
+  private final class BatchingConsumer implements Consumer<ExpenseManagerTransaction> {
+    private final BlockingQueue<List<ExpenseManagerTransaction>> batches;
+    private List<ExpenseManagerTransaction> batch;
+
+    private BatchingConsumer(BlockingQueue<List<ExpenseManagerTransaction>> batches) {
+      this.batches = batches;
+      this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void accept(ExpenseManagerTransaction transaction) {
+      batch.add(transaction);
+      if (batch.size() == batchSize) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (batch.isEmpty()) {
+        return;
+      }
+      putBatch(batches, batch);
+      batch = new ArrayList<>(batchSize);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A source of the expense manager transactions read from the expense manager database file, which passes the
+ * transactions on one at a time instead of returning all of them at once.
+ * <p>
+ *   A source may be read more than once, and yields the same transactions every time.
+ * </p>
+ */
+@FunctionalInterface
+public interface TransactionSource {
+  /**
+   * Read every transaction of this source, and pass each one to <i>transactionConsumer</i> as soon as it is read
+   * @param transactionConsumer consumer of the transactions
+   * @throws IOException if the transactions cannot be read
+   * @throws SQLException if the expense manager database file cannot be queried
+   */
+  void forEachTransaction(Consumer<ExpenseManagerTransaction> transactionConsumer) throws IOException, SQLException;
+
+  /**
+   * Returns a source of the transactions already read into <i>transactions</i>
+   * @param transactions transactions of the source
+   * @return a source of <i>transactions</i>
+   */
+  static TransactionSource of(List<ExpenseManagerTransaction> transactions) {
+    Objects.requireNonNull(transactions, "transactions cannot be null");
+    return transactions::forEach;
+  }
+}
@@ -0,0 +1,35 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Synchronises the expense manager transactions in the Aurora database with the transactions read from the expense
+ * manager database file.
+ */
+public interface TransactionSynchronizer {
+  /**
+   * Synchronise the Aurora database with <i>sourceTransactions</i>
+   * @param sourceTransactions the full list of transactions read from the expense manager database file
+   * @return the changes applied on the Aurora database
+   * @throws IOException if there is an error to read the Aurora database
+   * @throws SQLException if there is an error to access the Aurora database
+   */
+  default TransactionDiff synchronize(List<ExpenseManagerTransaction> sourceTransactions)
+      throws IOException, SQLException {
+    return synchronize(TransactionSource.of(sourceTransactions));
+  }
+
+  /**
+   * Synchronise the Aurora database with the transactions of <i>transactionSource</i>, which are written as they are
+   * read rather than collected first
+   * @param transactionSource source of the full set of transactions read from the expense manager database file
+   * @return the changes applied on the Aurora database
+   * @throws IOException if there is an error to read the source or the Aurora database
+   * @throws SQLException if there is an error to access the source or the Aurora database
+   */
+  TransactionDiff synchronize(TransactionSource transactionSource) throws IOException, SQLException;
+}
@@ -0,0 +1,98 @@
+package expense_tally.aws.init;
+
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification;
+import expense_tally.aws.database.SqlSessionFactory;
+import expense_tally.aws.log.ObjectToString;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.aws.s3.DatabaseS3EventAnalyzer;
+import expense_tally.aws.s3.S3FileRequestFactory;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * This class warms up the code paths shared by the handlers before a checkpoint of the Lambda container is taken, and
+ * reconnects them after the container is restored from the checkpoint.
+ * <p>
+ *   The classes loaded and the methods compiled before the checkpoint are part of the snapshot, so that a restored
+ *   container does not pay for them again. Nothing which is bound to the container that takes the checkpoint, such as
+ *   a JDBC connection or an open file, may be captured.
+ * </p>
+ */
+public final class CheckpointPriming {
+  private static final Logger LOGGER = LogManager.getLogger(CheckpointPriming.class);
+  private static final String SAMPLE_BUCKET = "checkpoint-priming-bucket";
+  private static final String SAMPLE_KEY = "checkpoint-priming-key";
+
+  /**
+   * Make implicit constructor private as there is no need to initialise class
+   */
+  private CheckpointPriming() {
+  }
+
+  /**
+   * Run a sample S3 event through the Jackson serialisation, the event analysis and the S3 request creation, and log
+   * at every level, so that their classes are loaded and initialised
+   */
+  public static void primeEventHandling() {
+    S3Event sampleS3Event = createSampleS3Event();
+    // Serialised eagerly, as the trace level is usually disabled
+    String sampleS3EventString = ObjectToString.extractStringFromObject(sampleS3Event);
+    LOGGER.atTrace().log("Priming trace logging. sampleS3Event:{}", sampleS3EventString);
+    LOGGER.atDebug().log("Priming debug logging.");
+    LOGGER.atInfo().log("Priming info logging.");
+    DatabaseS3EventAnalyzer.extractChangedS3Objects(sampleS3Event).stream()
+        .map(ChangedS3Object::getS3ObjectId)
+        .map(S3FileRequestFactory::createRequest)
+        .forEach(getObjectRequest -> LOGGER.atDebug().log("Sample S3 request is created. getObjectRequest:{}",
+            ObjectToString.lazyStringOf(getObjectRequest)));
+  }
+
+  /**
+   * Create the proxy of <i>mapperClass</i>, which is registered to the configuration of <i>sqlSessionFactory</i>,
+   * without opening any connection
+   * @param sqlSessionFactory factory of the sessions to the database
+   * @param mapperClass type of the MyBatis mapper
+   */
+  public static void primeMapper(org.apache.ibatis.session.SqlSessionFactory sqlSessionFactory,
+                                 Class<?> mapperClass) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      SqlSessionFactory.retrieveMapper(sqlSession, mapperClass);
+    }
+    LOGGER.atDebug().log("Mapper is primed. mapperClass:{}", mapperClass.getSimpleName());
+  }
+
+  /**
+   * Open, validate and return a connection to the pool of <i>sqlSessionFactory</i>, so that the first invocation after
+   * a restore finds a connection ready. A failure is logged only, as the connection is opened again on first use.
+   * @param sqlSessionFactory factory of the sessions to the database
+   */
+  public static void establishConnection(org.apache.ibatis.session.SqlSessionFactory sqlSessionFactory) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Connection connection = sqlSession.getConnection();
+      LOGGER.atDebug().log("Connection is established. valid:{}", connection.isValid(1));
+    } catch (SQLException | RuntimeException exception) {
+      LOGGER.atWarn().withThrowable(exception).log("Unable to establish connection after restore.");
+    }
+  }
+
+  private static S3Event createSampleS3Event() {
+    S3EventNotification.UserIdentityEntity userIdentityEntity =
+        new S3EventNotification.UserIdentityEntity("checkpoint-priming");
+    S3EventNotification.S3BucketEntity s3BucketEntity = new S3EventNotification.S3BucketEntity(SAMPLE_BUCKET,
+        userIdentityEntity, "arn:aws:s3:::" + SAMPLE_BUCKET);
+    S3EventNotification.S3ObjectEntity s3ObjectEntity = new S3EventNotification.S3ObjectEntity(SAMPLE_KEY, 1L,
+        "checkpoint-priming-etag", "checkpoint-priming-version", "checkpoint-priming-sequencer");
+    S3EventNotification.S3Entity s3Entity = new S3EventNotification.S3Entity("checkpoint-priming", s3BucketEntity,
+        s3ObjectEntity, "1.0");
+    S3EventNotification.S3EventNotificationRecord s3EventNotificationRecord =
+        new S3EventNotification.S3EventNotificationRecord("us-east-1", "ObjectCreated:Put", "aws:s3",
+            "1970-01-01T00:00:00.000Z", "2.1", null, null, s3Entity, userIdentityEntity);
+    return new S3Event(Collections.singletonList(s3EventNotificationRecord));
+  }
+}
@@ -0,0 +1,35 @@
+package expense_tally.aws.init;
+
+import expense_tally.aws.AppStartUpException;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * A component of the application, such as a client or a session factory, which may still be initialising.
+ * <p>
+ *   The same interface is used to describe how a component is built, and to retrieve the component once it is built.
+ * </p>
+ * @param <T> type of the component
+ */
+@FunctionalInterface
+public interface Component<T> {
+  /**
+   * Returns the component, waiting for or performing its initialisation if it is not yet complete
+   * @return the component
+   * @throws AppStartUpException if the component cannot be initialised
+   * @throws IOException if there is an I/O error during the initialisation
+   * @throws SQLException if database access error occurs during the initialisation
+   */
+  T get() throws AppStartUpException, IOException, SQLException;
+
+  /**
+   * Returns a {@link Component} which is already initialised
+   * @param component the initialised component
+   * @param <T> type of the component
+   * @return a {@link Component} which is already initialised
+   */
+  static <T> Component<T> of(T component) {
+    return () -> component;
+  }
+}
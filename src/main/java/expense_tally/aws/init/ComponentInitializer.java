@@ -0,0 +1,219 @@
+package expense_tally.aws.init;
+
+import expense_tally.aws.AppStartUpException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class initialises the components of a handler, and records how long each of them takes.
+ * <p>
+ *   The components which are independent of each other, such as the S3 client and the MyBatis session factories, are
+ *   built concurrently, so that the cold start takes as long as the slowest component instead of the sum of all of
+ *   them. The calling thread builds a component of its own instead of idling. The components which are not needed on
+ *   every code path are only built on their first use.
+ * </p>
+ */
+public final class ComponentInitializer {
+  private static final Logger LOGGER = LogManager.getLogger(ComponentInitializer.class);
+
+  private final ExecutorService executorService;
+  private final Map<String, Duration> initTimings;
+  private final List<ConcurrentComponent<?>> concurrentComponents;
+
+  private ComponentInitializer(ExecutorService executorService) {
+    this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+    this.initTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+    this.concurrentComponents = new ArrayList<>();
+  }
+
+  /**
+   * Creates a new instance of ComponentInitializer, which builds the concurrent components on its own threads
+   * @return a new instance of ComponentInitializer
+   */
+  public static ComponentInitializer create() {
+    AtomicInteger threadCount = new AtomicInteger();
+    return create(Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "component-init-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * Creates a new instance of ComponentInitializer, which builds the concurrent components on <i>executorService</i>
+   * @param executorService executor of the component builders
+   * @return a new instance of ComponentInitializer
+   */
+  public static ComponentInitializer create(ExecutorService executorService) {
+    return new ComponentInitializer(executorService);
+  }
+
+  /**
+   * Start building the component <i>name</i> in the background
+   * @param name name of the component, used in the init timings
+   * @param builder builder of the component
+   * @param <T> type of the component
+   * @return the component, which waits for the build to complete on {@link Component#get()}
+   */
+  public <T> Component<T> initializeConcurrently(String name, Component<T> builder) {
+    Objects.requireNonNull(name, "name cannot be null");
+    Objects.requireNonNull(builder, "builder cannot be null");
+    LOGGER.atDebug().log("Initialising component concurrently. name:{}", name);
+    ConcurrentComponent<T> concurrentComponent = new ConcurrentComponent<>(name,
+        executorService.submit(() -> build(name, builder)));
+    synchronized (concurrentComponents) {
+      concurrentComponents.add(concurrentComponent);
+    }
+    return concurrentComponent;
+  }
+
+  /**
+   * Build the component <i>name</i> on the calling thread now, while the concurrent components are being built in the
+   * background
+   * @param name name of the component, used in the init timings
+   * @param builder builder of the component
+   * @param <T> type of the component
+   * @return the built component
+   * @throws AppStartUpException if the component cannot be initialised
+   * @throws IOException if there is an I/O error during the initialisation
+   * @throws SQLException if database access error occurs during the initialisation
+   */
+  public <T> T initialize(String name, Component<T> builder) throws AppStartUpException, IOException, SQLException {
+    Objects.requireNonNull(name, "name cannot be null");
+    Objects.requireNonNull(builder, "builder cannot be null");
+    return build(name, builder);
+  }
+
+  /**
+   * Defer building the component <i>name</i> until it is first used. The build runs on the thread using the
+   * component. A failed build is attempted again on the next use.
+   * @param name name of the component, used in the init timings
+   * @param builder builder of the component
+   * @param <T> type of the component
+   * @return the component, which is built on the first {@link Component#get()}
+   */
+  public <T> Component<T> initializeOnFirstUse(String name, Component<T> builder) {
+    Objects.requireNonNull(name, "name cannot be null");
+    Objects.requireNonNull(builder, "builder cannot be null");
+    return new LazyComponent<>(name, builder);
+  }
+
+  /**
+   * Wait until all the concurrent components are built. No more concurrent component can be initialised afterward.
+   * @throws AppStartUpException if any of the components cannot be initialised
+   * @throws IOException if there is an I/O error during the initialisation of a component
+   * @throws SQLException if database access error occurs during the initialisation of a component
+   */
+  public void awaitConcurrentComponents() throws AppStartUpException, IOException, SQLException {
+    List<ConcurrentComponent<?>> pendingComponents;
+    synchronized (concurrentComponents) {
+      pendingComponents = new ArrayList<>(concurrentComponents);
+    }
+    try {
+      for (ConcurrentComponent<?> pendingComponent : pendingComponents) {
+        pendingComponent.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    LOGGER.atInfo().log("Concurrent components are initialised. initTimings:{}", getInitTimings());
+  }
+
+  /**
+   * Returns how long each built component took to initialise, in the order they complete
+   * @return how long each built component took to initialise
+   */
+  public Map<String, Duration> getInitTimings() {
+    synchronized (initTimings) {
+      return Collections.unmodifiableMap(new LinkedHashMap<>(initTimings));
+    }
+  }
+
+  private <T> T build(String name, Component<T> builder) throws AppStartUpException, IOException, SQLException {
+    long startTime = System.nanoTime();
+    T component = builder.get();
+    Duration initTiming = Duration.ofNanos(System.nanoTime() - startTime);
+    initTimings.put(name, initTiming);
+    LOGGER.atInfo().log("Component is initialised. name:{}, durationMs:{}", name, initTiming.toMillis());
+    return component;
+  }
+
+  private static final class ConcurrentComponent<T> implements Component<T> {
+    private final String name;
+    private final Future<T> future;
+
+    private ConcurrentComponent(String name, Future<T> future) {
+      this.name = name;
+      this.future = future;
+    }
+
+    @Override
+    public T get() throws AppStartUpException, IOException, SQLException {
+      try {
+        return future.get();
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        throw new AppStartUpException("Initialisation of " + name + " is interrupted.", interruptedException);
+      } catch (ExecutionException executionException) {
+        Throwable cause = executionException.getCause();
+        if (cause instanceof AppStartUpException) {
+          throw (AppStartUpException) cause;
+        }
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        if (cause instanceof SQLException) {
+          throw (SQLException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new AppStartUpException("Unable to initialise " + name + ".", cause);
+      }
+    }
+  }
+
+  private final class LazyComponent<T> implements Component<T> {
+    private final String name;
+    private final Component<T> builder;
+    private volatile T component;
+
+    private LazyComponent(String name, Component<T> builder) {
+      this.name = name;
+      this.builder = builder;
+    }
+
+    @Override
+    public T get() throws AppStartUpException, IOException, SQLException {
+      T initialisedComponent = component;
+      if (initialisedComponent != null) {
+        return initialisedComponent;
+      }
+      synchronized (this) {
+        if (component == null) {
+          LOGGER.atDebug().log("Initialising component on first use. name:{}", name);
+          component = build(name, builder);
+        }
+        return component;
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package expense_tally.aws.log;
+
+/**
+ * A log message parameter which serialises an object only when the message is formatted.
+ * <p>
+ *   Log4j formats a parameter by calling its {@link #toString()} only if the level of the message is enabled, so a
+ *   disabled message costs nothing beyond this small wrapper. The serialised string is kept once rendered, so the same
+ *   instance may be passed to several messages without serialising the object again.
+ * </p>
+ */
+public final class LazyObjectString {
+  private final Object object;
+  // Strings are immutable, so a racing render at worst serialises the object twice
+  private String renderedString;
+
+  private LazyObjectString(Object object) {
+    this.object = object;
+  }
+
+  /**
+   * Creates a new instance of LazyObjectString
+   * @param object the object to be serialised, may be null
+   * @return a new instance of LazyObjectString
+   */
+  public static LazyObjectString of(Object object) {
+    return new LazyObjectString(object);
+  }
+
+  @Override
+  public String toString() {
+    String result = renderedString;
+    if (result == null) {
+      result = ObjectToString.extractStringFromObject(object);
+      renderedString = result;
+    }
+    return result;
+  }
+}
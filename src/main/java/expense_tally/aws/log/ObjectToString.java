@@ -1,14 +1,31 @@
 package expense_tally.aws.log;
 
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.fasterxml.jackson.annotation.JsonIncludeProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class serialises objects into JSON for logging.
+ * <p>
+ *   The {@link ObjectMapper} is configured once, as registering a module invalidates the serializers that Jackson has
+ *   cached. An {@link ObjectWriter} is kept for every serialised type, so that its serializer is looked up only on the
+ *   first call. Both are immutable and thread-safe. The S3 event and object metadata are trimmed to the fields which
+ *   identify the object.
+ * </p>
+ */
 public class ObjectToString {
-  private static final ObjectMapper objectMapper = new ObjectMapper();
   private static final Logger LOGGER = LogManager.getLogger(ObjectToString.class);
+  private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+  private static final Map<Class<?>, ObjectWriter> OBJECT_WRITERS = new ConcurrentHashMap<>();
 
   /**
    * Make implicit constructor private as there is no need to initialise class
@@ -16,10 +33,33 @@ public class ObjectToString {
   private ObjectToString() {
   }
 
+  private static ObjectMapper createObjectMapper() {
+    return new ObjectMapper()
+        .registerModule(new JodaModule())
+        .addMixIn(S3EventNotification.S3EventNotificationRecord.class, S3EventNotificationRecordMixIn.class)
+        .addMixIn(S3EventNotification.S3Entity.class, S3EntityMixIn.class)
+        .addMixIn(S3EventNotification.S3BucketEntity.class, S3BucketEntityMixIn.class)
+        .addMixIn(S3EventNotification.S3ObjectEntity.class, S3ObjectEntityMixIn.class)
+        .addMixIn(ObjectMetadata.class, ObjectMetadataMixIn.class);
+  }
+
+  /**
+   * Returns a log message parameter which serialises <i>object</i> only if the message is logged. Prefer this over
+   * {@link #extractStringFromObject(Object)} when the result is only used in a log message.
+   * @param object the object to be serialised, may be null
+   * @return a log message parameter which serialises <i>object</i> at most once
+   */
+  public static LazyObjectString lazyStringOf(Object object) {
+    return LazyObjectString.of(object);
+  }
+
   public static String extractStringFromObject(Object object) {
-    objectMapper.registerModule(new JodaModule());
+    if (object == null) {
+      return "null";
+    }
     try {
-      return objectMapper.writeValueAsString(object);
+      return OBJECT_WRITERS.computeIfAbsent(object.getClass(), OBJECT_MAPPER::writerFor)
+          .writeValueAsString(object);
     } catch (JsonProcessingException jsonProcessingException) {
       LOGGER
           .atWarn()
@@ -32,4 +72,24 @@ public class ObjectToString {
   private static String getObjectClassName(Object object) {
     return (object == null) ? "NULL" : object.getClass().getCanonicalName();
   }
+
+  @JsonIncludeProperties({"awsRegion", "eventName", "eventTime", "s3"})
+  private abstract static class S3EventNotificationRecordMixIn {
+  }
+
+  @JsonIncludeProperties({"bucket", "object"})
+  private abstract static class S3EntityMixIn {
+  }
+
+  @JsonIncludeProperties({"name"})
+  private abstract static class S3BucketEntityMixIn {
+  }
+
+  @JsonIncludeProperties({"key", "sizeAsLong", "eTag", "versionId"})
+  private abstract static class S3ObjectEntityMixIn {
+  }
+
+  @JsonIncludeProperties({"contentLength", "etag", "versionId", "lastModified"})
+  private abstract static class ObjectMetadataMixIn {
+  }
 }
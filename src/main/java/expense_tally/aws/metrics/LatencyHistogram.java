@@ -0,0 +1,112 @@
+package expense_tally.aws.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, which tells apart values that differ by more than 2%.
+ * <p>
+ *   The values are counted in log-linear buckets, in the same way as HdrHistogram: values below 128 have a bucket each,
+ *   and every following power of two is split into 64 buckets of equal width. The buckets are a fixed array of
+ *   counters, so that {@link #record(long)} neither takes a lock nor allocates, and may be called from any thread.
+ *   A percentile read while values are recorded may miss the latest of them.
+ * </p>
+ */
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+  // Enough buckets for every positive long
+  private static final int BUCKET_COUNT = SUB_BUCKET_HALF_COUNT * (Long.SIZE - SUB_BUCKET_BITS + 1);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong maxValue = new AtomicLong();
+
+  private LatencyHistogram() {
+  }
+
+  /**
+   * Creates a new instance of LatencyHistogram
+   * @return a new instance of LatencyHistogram
+   */
+  static LatencyHistogram create() {
+    return new LatencyHistogram();
+  }
+
+  /**
+   * Counts <i>value</i> in the histogram. A negative value is counted as zero.
+   * @param value the value to be counted, in nanoseconds
+   */
+  void record(long value) {
+    long nonNegativeValue = Math.max(value, 0L);
+    counts.incrementAndGet(bucketIndexOf(nonNegativeValue));
+    long currentMaxValue = maxValue.get();
+    while (nonNegativeValue > currentMaxValue && !maxValue.compareAndSet(currentMaxValue, nonNegativeValue)) {
+      currentMaxValue = maxValue.get();
+    }
+  }
+
+  /**
+   * Returns the number of values counted in the histogram
+   * @return the number of values counted in the histogram
+   */
+  long getTotalCount() {
+    long totalCount = 0L;
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      totalCount += counts.get(index);
+    }
+    return totalCount;
+  }
+
+  /**
+   * Returns the largest value counted in the histogram
+   * @return the largest value counted in the histogram, or zero if it is empty
+   */
+  long getMax() {
+    return maxValue.get();
+  }
+
+  /**
+   * Returns the value at or below which <i>percentile</i> percent of the counted values are
+   * @param percentile the percentile, from 0 to 100
+   * @return the highest value of the bucket of the percentile, which is within 2% of the exact value, or zero if the
+   * histogram is empty
+   */
+  long getValueAtPercentile(double percentile) {
+    if (percentile < 0.0 || percentile > 100.0) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+    }
+    long totalCount = getTotalCount();
+    if (totalCount == 0L) {
+      return 0L;
+    }
+    long targetCount = Math.max(1L, (long) Math.ceil(percentile / 100.0 * totalCount));
+    long cumulativeCount = 0L;
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      cumulativeCount += counts.get(index);
+      if (cumulativeCount >= targetCount) {
+        return Math.min(highestValueOf(index), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  static int bucketIndexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int magnitude = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return magnitude * SUB_BUCKET_HALF_COUNT + (int) (value >>> magnitude);
+  }
+
+  static long highestValueOf(int bucketIndex) {
+    if (bucketIndex < SUB_BUCKET_COUNT) {
+      return bucketIndex;
+    }
+    int magnitude = bucketIndex / SUB_BUCKET_HALF_COUNT - 1;
+    long subBucket = bucketIndex - (long) magnitude * SUB_BUCKET_HALF_COUNT;
+    long highestValue = ((subBucket + 1) << magnitude) - 1;
+    // The last bucket ends beyond the largest long
+    return highestValue < 0 ? Long.MAX_VALUE : highestValue;
+  }
+}
@@ -0,0 +1,137 @@
+package expense_tally.aws.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps a {@link LatencyHistogram} of every {@link Stage}, over all the invocations of a warm container.
+ * <p>
+ *   A single invocation shows how long its own stages take, but not how often a stage is slow. The histograms are
+ *   never reset, so the percentiles cover every invocation since the container is started. They are written to the
+ *   log at most once every <i>flushInterval</i>, at the end of an invocation, as a frozen container runs no timer. They
+ *   may also be written when the container shuts down.
+ * </p>
+ */
+public final class LatencyRecorder {
+  private static final Logger LOGGER = LogManager.getLogger(LatencyRecorder.class);
+  private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMinutes(5);
+  private static final double NANOS_PER_MILLISECOND = 1_000_000.0;
+  private static final Stage[] STAGES = Stage.values();
+
+  private final LatencyHistogram[] stageHistograms;
+  private final long flushIntervalNanos;
+  private final AtomicLong nextFlushTime;
+
+  private LatencyRecorder(LatencyHistogram[] stageHistograms, long flushIntervalNanos) {
+    this.stageHistograms = stageHistograms;
+    this.flushIntervalNanos = flushIntervalNanos;
+    this.nextFlushTime = new AtomicLong(System.nanoTime() + flushIntervalNanos);
+  }
+
+  /**
+   * Creates a new instance of LatencyRecorder, which writes the percentiles every 5 minutes
+   * @return a new instance of LatencyRecorder
+   */
+  public static LatencyRecorder create() {
+    return create(DEFAULT_FLUSH_INTERVAL);
+  }
+
+  /**
+   * Creates a new instance of LatencyRecorder, which writes the percentiles every <i>flushInterval</i>
+   * @param flushInterval minimum time between two writes of the percentiles
+   * @return a new instance of LatencyRecorder
+   */
+  public static LatencyRecorder create(Duration flushInterval) {
+    Objects.requireNonNull(flushInterval, "flushInterval cannot be null");
+    if (flushInterval.isNegative() || flushInterval.isZero()) {
+      LOGGER.atWarn().log("flushInterval is non-positive:{}", flushInterval);
+      throw new IllegalArgumentException("Flush interval must be positive.");
+    }
+    LatencyHistogram[] stageHistograms = new LatencyHistogram[STAGES.length];
+    for (int index = 0; index < stageHistograms.length; index++) {
+      stageHistograms[index] = LatencyHistogram.create();
+    }
+    return new LatencyRecorder(stageHistograms, flushInterval.toNanos());
+  }
+
+  /**
+   * Creates a new instance of LatencyRecorder, which records and writes nothing
+   * @return a new instance of LatencyRecorder
+   */
+  public static LatencyRecorder disabled() {
+    return new LatencyRecorder(null, Long.MAX_VALUE);
+  }
+
+  /**
+   * Counts a run of <i>stage</i> which took <i>durationNanos</i> nanoseconds. It neither takes a lock nor allocates.
+   * @param stage the timed stage
+   * @param durationNanos elapsed time of the stage in nanoseconds
+   */
+  public void record(Stage stage, long durationNanos) {
+    if (stageHistograms != null) {
+      stageHistograms[stage.ordinal()].record(durationNanos);
+    }
+  }
+
+  /**
+   * Writes the percentiles to the log if <i>flushInterval</i> has passed since they were last written
+   */
+  public void flushIfDue() {
+    if (stageHistograms == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    long dueTime = nextFlushTime.get();
+    // Only one of the racing threads writes the percentiles
+    if (now - dueTime >= 0 && nextFlushTime.compareAndSet(dueTime, now + flushIntervalNanos)) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes the 50th, 90th and 99th percentiles and the maximum of every recorded stage to the log
+   */
+  public void flush() {
+    if (stageHistograms == null) {
+      return;
+    }
+    for (Stage stage : STAGES) {
+      LatencyHistogram latencyHistogram = stageHistograms[stage.ordinal()];
+      long totalCount = latencyHistogram.getTotalCount();
+      if (totalCount == 0L) {
+        continue;
+      }
+      LOGGER.atInfo().log("Stage latency percentiles. stage:{}, count:{}, p50Ms:{}, p90Ms:{}, p99Ms:{}, maxMs:{}",
+          stage.metricName(), totalCount, toMilliseconds(latencyHistogram.getValueAtPercentile(50.0)),
+          toMilliseconds(latencyHistogram.getValueAtPercentile(90.0)),
+          toMilliseconds(latencyHistogram.getValueAtPercentile(99.0)), toMilliseconds(latencyHistogram.getMax()));
+    }
+  }
+
+  /**
+   * Writes the percentiles to the log when the JVM shuts down
+   */
+  public void flushOnShutdown() {
+    if (stageHistograms == null) {
+      return;
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "latency-recorder-shutdown"));
+  }
+
+  /**
+   * Returns the number of runs of <i>stage</i> which are counted
+   * @param stage the timed stage
+   * @return the number of runs of <i>stage</i> which are counted
+   */
+  long getCount(Stage stage) {
+    return stageHistograms == null ? 0L : stageHistograms[stage.ordinal()].getTotalCount();
+  }
+
+  private static double toMilliseconds(long nanos) {
+    return nanos / NANOS_PER_MILLISECOND;
+  }
+}
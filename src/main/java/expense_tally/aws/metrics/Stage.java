@@ -0,0 +1,53 @@
+package expense_tally.aws.metrics;
+
+/**
+ * A stage of the handling of an S3 event, which is timed and counted by {@link StageMetrics}
+ */
+public enum Stage {
+  /**
+   * Download of an S3 object into a local file, including the creation of the file
+   */
+  S3_DOWNLOAD("S3Download"),
+  /**
+   * Read of the expense reports from the downloaded expense manager database file
+   */
+  SQLITE_READ("SqliteRead"),
+  /**
+   * Mapping of the expense reports into expense manager transactions
+   */
+  TRANSFORM("Transform"),
+  /**
+   * Synchronisation of the Aurora database with the expense manager transactions, which overlaps with their read
+   */
+  AURORA_SYNC("AuroraSync"),
+  /**
+   * Flush and commit of a single batch of records to the Aurora database
+   */
+  AURORA_WRITE("AuroraWrite"),
+  /**
+   * Parsing of the bank transactions from a CSV file, or from an S3 object stream, whose download it then includes
+   */
+  CSV_PARSE("CsvParse"),
+  /**
+   * Fetch of the expense manager transactions from the Aurora database
+   */
+  DB_FETCH("DbFetch"),
+  /**
+   * Reconciliation of the bank transactions against the expense manager transactions
+   */
+  RECONCILE("Reconcile");
+
+  private final String metricName;
+
+  Stage(String metricName) {
+    this.metricName = metricName;
+  }
+
+  /**
+   * Returns the prefix of the names of the metrics of this stage
+   * @return the prefix of the names of the metrics of this stage
+   */
+  public String metricName() {
+    return metricName;
+  }
+}
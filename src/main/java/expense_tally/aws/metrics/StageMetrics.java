@@ -0,0 +1,229 @@
+package expense_tally.aws.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class times the stages of the handling of an S3 event, and counts the rows and bytes that each of them
+ * processes.
+ * <p>
+ *   The metrics are summed over an invocation, and {@link #flush()} writes them as a single CloudWatch Embedded Metric
+ *   Format line to the log, from which CloudWatch extracts the metrics without a call to its API. Every metric has the
+ *   dimension <i>Handler</i>, so that the stages of the two handlers are told apart. The stages may be recorded from
+ *   several threads at the same time. Stages which overlap, such as the read of the expense manager database file and
+ *   the synchronisation of the Aurora database, add up to more than the duration of the invocation.
+ * </p>
+ * <p>
+ *   Every recorded duration is also counted by a {@link LatencyRecorder}, which keeps their distribution over all the
+ *   invocations of the container.
+ * </p>
+ */
+public final class StageMetrics {
+  private static final Logger LOGGER = LogManager.getLogger(StageMetrics.class);
+  // Written with a layout of the bare message, as CloudWatch only extracts the metrics of a line which is a JSON object
+  private static final Logger EMF_LOGGER = LogManager.getLogger("expense_tally.aws.metrics.emf");
+  private static final ObjectWriter OBJECT_WRITER = new ObjectMapper().writer();
+  private static final String NAMESPACE = "ExpenseTally";
+  private static final String HANDLER_DIMENSION = "Handler";
+  private static final double NANOS_PER_MILLISECOND = 1_000_000.0;
+  private static final Stage[] STAGES = Stage.values();
+
+  private final String handlerName;
+  private final boolean enabled;
+  private final LatencyRecorder latencyRecorder;
+  private final LongAdder[] stageNanos = createAdders();
+  private final LongAdder[] stageSamples = createAdders();
+  private final LongAdder[] stageRows = createAdders();
+  private final LongAdder[] stageBytes = createAdders();
+
+  private StageMetrics(String handlerName, boolean enabled, LatencyRecorder latencyRecorder) {
+    this.handlerName = handlerName;
+    this.enabled = enabled;
+    this.latencyRecorder = latencyRecorder;
+  }
+
+  /**
+   * Creates a new instance of StageMetrics
+   * @param handlerName name of the handler, which is the value of the <i>Handler</i> dimension
+   * @return a new instance of StageMetrics
+   */
+  public static StageMetrics create(String handlerName) {
+    return create(handlerName, LatencyRecorder.disabled());
+  }
+
+  /**
+   * Creates a new instance of StageMetrics, which also counts every recorded duration in <i>latencyRecorder</i>
+   * @param handlerName name of the handler, which is the value of the <i>Handler</i> dimension
+   * @param latencyRecorder recorder of the distribution of the durations over all the invocations
+   * @return a new instance of StageMetrics
+   */
+  public static StageMetrics create(String handlerName, LatencyRecorder latencyRecorder) {
+    Objects.requireNonNull(handlerName, "handlerName cannot be null");
+    Objects.requireNonNull(latencyRecorder, "latencyRecorder cannot be null");
+    return new StageMetrics(handlerName, true, latencyRecorder);
+  }
+
+  /**
+   * Creates a new instance of StageMetrics, which records and writes nothing
+   * @return a new instance of StageMetrics
+   */
+  public static StageMetrics disabled() {
+    return new StageMetrics("", false, LatencyRecorder.disabled());
+  }
+
+  private static LongAdder[] createAdders() {
+    LongAdder[] adders = new LongAdder[STAGES.length];
+    for (int index = 0; index < adders.length; index++) {
+      adders[index] = new LongAdder();
+    }
+    return adders;
+  }
+
+  /**
+   * Starts to time <i>stage</i>, until the returned timer is closed
+   * @param stage the stage to be timed
+   * @return a timer, which records the elapsed time of <i>stage</i> when it is closed
+   */
+  public Timer start(Stage stage) {
+    Objects.requireNonNull(stage, "stage cannot be null");
+    return new Timer(stage, System.nanoTime());
+  }
+
+  /**
+   * Records that <i>stage</i> took <i>durationNanos</i> nanoseconds
+   * @param stage the timed stage
+   * @param durationNanos elapsed time of the stage in nanoseconds
+   */
+  public void recordTime(Stage stage, long durationNanos) {
+    Objects.requireNonNull(stage, "stage cannot be null");
+    if (!enabled) {
+      return;
+    }
+    stageNanos[stage.ordinal()].add(durationNanos);
+    stageSamples[stage.ordinal()].increment();
+    latencyRecorder.record(stage, durationNanos);
+  }
+
+  /**
+   * Counts <i>rows</i> more rows processed by <i>stage</i>
+   * @param stage the stage which processed the rows
+   * @param rows number of rows processed
+   */
+  public void addRows(Stage stage, long rows) {
+    Objects.requireNonNull(stage, "stage cannot be null");
+    if (enabled) {
+      stageRows[stage.ordinal()].add(rows);
+    }
+  }
+
+  /**
+   * Counts <i>bytes</i> more bytes processed by <i>stage</i>
+   * @param stage the stage which processed the bytes
+   * @param bytes number of bytes processed
+   */
+  public void addBytes(Stage stage, long bytes) {
+    Objects.requireNonNull(stage, "stage cannot be null");
+    if (enabled) {
+      stageBytes[stage.ordinal()].add(bytes);
+    }
+  }
+
+  /**
+   * Writes the metrics recorded since the last flush to the log, and starts recording anew. Nothing is written if no
+   * metric is recorded. The percentiles of the latency recorder are written as well once they are due.
+   */
+  public void flush() {
+    drain(System.currentTimeMillis()).ifPresent(emfLine -> EMF_LOGGER.atInfo().log("{}", emfLine));
+    latencyRecorder.flushIfDue();
+  }
+
+  /**
+   * Returns the metrics recorded since the last drain as an Embedded Metric Format line, and starts recording anew
+   * @param timestamp time of the metrics in milliseconds since the epoch
+   * @return the Embedded Metric Format line, or empty if no metric is recorded
+   */
+  Optional<String> drain(long timestamp) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    List<Map<String, String>> metricDefinitions = new ArrayList<>();
+    Map<String, Object> metricValues = new LinkedHashMap<>();
+    for (Stage stage : STAGES) {
+      int index = stage.ordinal();
+      long nanos = stageNanos[index].sumThenReset();
+      if (stageSamples[index].sumThenReset() > 0) {
+        addMetric(metricDefinitions, metricValues, stage.metricName() + "Time", "Milliseconds",
+            nanos / NANOS_PER_MILLISECOND);
+      }
+      long rows = stageRows[index].sumThenReset();
+      if (rows > 0) {
+        addMetric(metricDefinitions, metricValues, stage.metricName() + "Rows", "Count", rows);
+      }
+      long bytes = stageBytes[index].sumThenReset();
+      if (bytes > 0) {
+        addMetric(metricDefinitions, metricValues, stage.metricName() + "Bytes", "Bytes", bytes);
+      }
+    }
+    if (metricDefinitions.isEmpty()) {
+      return Optional.empty();
+    }
+    Map<String, Object> cloudWatchMetric = new LinkedHashMap<>();
+    cloudWatchMetric.put("Namespace", NAMESPACE);
+    cloudWatchMetric.put("Dimensions", List.of(List.of(HANDLER_DIMENSION)));
+    cloudWatchMetric.put("Metrics", metricDefinitions);
+    Map<String, Object> metadata = new LinkedHashMap<>();
+    metadata.put("Timestamp", timestamp);
+    metadata.put("CloudWatchMetrics", List.of(cloudWatchMetric));
+    Map<String, Object> emfDocument = new LinkedHashMap<>();
+    emfDocument.put("_aws", metadata);
+    emfDocument.put(HANDLER_DIMENSION, handlerName);
+    emfDocument.putAll(metricValues);
+    try {
+      return Optional.of(OBJECT_WRITER.writeValueAsString(emfDocument));
+    } catch (JsonProcessingException jsonProcessingException) {
+      LOGGER
+          .atWarn()
+          .withThrowable(jsonProcessingException)
+          .log("Unable to write stage metrics. handlerName:{}", handlerName);
+      return Optional.empty();
+    }
+  }
+
+  private static void addMetric(List<Map<String, String>> metricDefinitions, Map<String, Object> metricValues,
+                                String name, String unit, Object value) {
+    Map<String, String> metricDefinition = new LinkedHashMap<>();
+    metricDefinition.put("Name", name);
+    metricDefinition.put("Unit", unit);
+    metricDefinitions.add(metricDefinition);
+    metricValues.put(name, value);
+  }
+
+  /**
+   * A {@code Timer} records the elapsed time of a stage when it is closed
+   */
+  public final class Timer implements AutoCloseable {
+    private final Stage stage;
+    private final long startNanos;
+
+    private Timer(Stage stage, long startNanos) {
+      this.stage = stage;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public void close() {
+      recordTime(stage, System.nanoTime() - startNanos);
+    }
+  }
+}
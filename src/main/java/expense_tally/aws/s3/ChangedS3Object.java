@@ -0,0 +1,98 @@
+package expense_tally.aws.s3;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * An S3 object reported to be changed by an S3 event notification.
+ * <p>
+ *   Besides the identity of the object, the notification carries the size and the ETag of the new content. These allow
+ *   a download to be planned, and an unchanged object to be recognised, without an extra request to S3.
+ * </p>
+ */
+public final class ChangedS3Object {
+  /**
+   * Size of an object which is not reported in the notification
+   */
+  public static final long UNKNOWN_SIZE = -1L;
+
+  private final S3ObjectId s3ObjectId;
+  private final long size;
+  private final String eTag;
+
+  private ChangedS3Object(S3ObjectId s3ObjectId, long size, String eTag) {
+    this.s3ObjectId = Objects.requireNonNull(s3ObjectId, "s3ObjectId cannot be null");
+    this.size = size;
+    this.eTag = eTag;
+  }
+
+  /**
+   * Creates a new instance of ChangedS3Object
+   * @param s3ObjectId identifier of the changed object
+   * @param size size of the changed object in bytes, or {@link #UNKNOWN_SIZE}
+   * @param eTag entity tag of the changed object, may be null
+   * @return a new instance of ChangedS3Object
+   */
+  public static ChangedS3Object create(S3ObjectId s3ObjectId, long size, String eTag) {
+    return new ChangedS3Object(s3ObjectId, size, eTag);
+  }
+
+  /**
+   * Creates a new instance of ChangedS3Object whose size and entity tag are unknown
+   * @param s3ObjectId identifier of the changed object
+   * @return a new instance of ChangedS3Object
+   */
+  public static ChangedS3Object create(S3ObjectId s3ObjectId) {
+    return new ChangedS3Object(s3ObjectId, UNKNOWN_SIZE, null);
+  }
+
+  public S3ObjectId getS3ObjectId() {
+    return s3ObjectId;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public String getETag() {
+    return eTag;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ChangedS3Object that = (ChangedS3Object) o;
+    return new EqualsBuilder()
+        .append(size, that.size)
+        .append(s3ObjectId, that.s3ObjectId)
+        .append(eTag, that.eTag)
+        .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+        .append(s3ObjectId)
+        .append(size)
+        .append(eTag)
+        .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ChangedS3Object.class.getSimpleName() + "[", "]")
+        .add("s3ObjectId=" + s3ObjectId)
+        .add("size=" + size)
+        .add("eTag='" + eTag + "'")
+        .toString();
+  }
+}
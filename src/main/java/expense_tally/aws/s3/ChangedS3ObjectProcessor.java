@@ -0,0 +1,181 @@
+package expense_tally.aws.s3;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class processes the objects reported by an S3 event on a bounded number of threads.
+ * <p>
+ *   The objects are independent of each other, so a slow download of one object does not hold back the others. The
+ *   calling thread processes an object of its own instead of idling, so at most <i>parallelism</i> objects are
+ *   processed at the same time. Every object is attempted even when another one fails.
+ * </p>
+ */
+public final class ChangedS3ObjectProcessor {
+  private static final Logger LOGGER = LogManager.getLogger(ChangedS3ObjectProcessor.class);
+  private static final long WORKER_KEEP_ALIVE_SECONDS = 10L;
+
+  private final ExecutorService executorService;
+  private final int parallelism;
+
+  private ChangedS3ObjectProcessor(ExecutorService executorService, int parallelism) {
+    this.executorService = executorService;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Creates a new instance of ChangedS3ObjectProcessor, which processes up to <i>parallelism</i> objects at the same
+   * time on its own threads
+   * @param parallelism maximum number of objects processed at the same time
+   * @return a new instance of ChangedS3ObjectProcessor
+   */
+  public static ChangedS3ObjectProcessor create(int parallelism) {
+    if (parallelism <= 0) {
+      LOGGER.atWarn().log("parallelism is non-positive:{}", parallelism);
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    if (parallelism == 1) {
+      return sequential();
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    // The calling thread is one of the workers. Idle workers end, so that none is left in a frozen or checkpointed
+    // container.
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(parallelism - 1, parallelism - 1,
+        WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "s3-object-worker-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    return new ChangedS3ObjectProcessor(threadPoolExecutor, parallelism);
+  }
+
+  /**
+   * Creates a new instance of ChangedS3ObjectProcessor, which processes the objects on <i>executorService</i> and the
+   * calling thread
+   * @param executorService executor of all but one of the objects processed at the same time
+   * @param parallelism maximum number of objects processed at the same time
+   * @return a new instance of ChangedS3ObjectProcessor
+   */
+  public static ChangedS3ObjectProcessor create(ExecutorService executorService, int parallelism) {
+    Objects.requireNonNull(executorService, "executorService cannot be null");
+    if (parallelism <= 0) {
+      LOGGER.atWarn().log("parallelism is non-positive:{}", parallelism);
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    return new ChangedS3ObjectProcessor(executorService, parallelism);
+  }
+
+  /**
+   * Creates a new instance of ChangedS3ObjectProcessor, which processes the objects one after another on the calling
+   * thread
+   * @return a new instance of ChangedS3ObjectProcessor
+   */
+  public static ChangedS3ObjectProcessor sequential() {
+    return new ChangedS3ObjectProcessor(null, 1);
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Process every object of <i>changedS3Objects</i> with <i>task</i>, and wait until all of them are processed
+   * @param changedS3Objects objects to be processed
+   * @param task task processing a single object
+   * @throws IOException if an object fails with an I/O error. The failures of the other objects are suppressed.
+   * @throws SQLException if an object fails with a database access error. The failures of the other objects are
+   *                      suppressed.
+   */
+  public void process(List<ChangedS3Object> changedS3Objects, Task task) throws IOException, SQLException {
+    Objects.requireNonNull(changedS3Objects, "changedS3Objects cannot be null");
+    Objects.requireNonNull(task, "task cannot be null");
+    List<Exception> failures = new ArrayList<>();
+    if (executorService == null || changedS3Objects.size() <= 1) {
+      changedS3Objects.forEach(changedS3Object -> processSafely(changedS3Object, task).ifPresent(failures::add));
+    } else {
+      List<Future<Optional<Exception>>> futures = new ArrayList<>(changedS3Objects.size() - 1);
+      for (ChangedS3Object changedS3Object : changedS3Objects.subList(1, changedS3Objects.size())) {
+        futures.add(executorService.submit(() -> processSafely(changedS3Object, task)));
+      }
+      processSafely(changedS3Objects.get(0), task).ifPresent(failures::add);
+      for (Future<Optional<Exception>> future : futures) {
+        awaitFailure(future).ifPresent(failures::add);
+      }
+    }
+    if (failures.isEmpty()) {
+      return;
+    }
+    LOGGER.atWarn().log("Unable to process all S3 objects. changedS3Objects:{}, failures:{}",
+        changedS3Objects.size(), failures.size());
+    throwFailures(failures);
+  }
+
+  private Optional<Exception> processSafely(ChangedS3Object changedS3Object, Task task) {
+    try {
+      task.process(changedS3Object);
+      return Optional.empty();
+    } catch (IOException | SQLException | RuntimeException exception) {
+      LOGGER
+          .atError()
+          .withThrowable(exception)
+          .log("Unable to process S3 object. changedS3Object:{}", changedS3Object);
+      return Optional.of(exception);
+    }
+  }
+
+  private Optional<Exception> awaitFailure(Future<Optional<Exception>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      return Optional.of(new IOException("Processing of S3 object is interrupted.", interruptedException));
+    } catch (ExecutionException executionException) {
+      Throwable cause = executionException.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      return Optional.of(new IllegalStateException("Unable to process S3 object.", cause));
+    }
+  }
+
+  private void throwFailures(List<Exception> failures) throws IOException, SQLException {
+    Exception firstFailure = failures.get(0);
+    failures.subList(1, failures.size()).forEach(firstFailure::addSuppressed);
+    if (firstFailure instanceof IOException) {
+      throw (IOException) firstFailure;
+    }
+    if (firstFailure instanceof SQLException) {
+      throw (SQLException) firstFailure;
+    }
+    throw (RuntimeException) firstFailure;
+  }
+
+  /**
+   * A {@code Task} processes a single object reported by an S3 event
+   */
+  @FunctionalInterface
+  public interface Task {
+    /**
+     * Process <i>changedS3Object</i>
+     * @param changedS3Object the object to be processed
+     * @throws IOException if there is an I/O error while processing the object
+     * @throws SQLException if database access error occurs while processing the object
+     */
+    void process(ChangedS3Object changedS3Object) throws IOException, SQLException;
+  }
+}
@@ -10,7 +10,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -32,6 +35,59 @@ public class DatabaseS3EventAnalyzer {
    * @throws S3IllegalStatusException if the information inside the s3Event is in an illegal state
    */
   public static Optional<S3ObjectId> extractChangedS3ObjectId(S3Event s3Event) {
+    return extractChangedS3Object(s3Event).map(ChangedS3Object::getS3ObjectId);
+  }
+
+  /**
+   * Returns a {@link ChangedS3Object} for every object reported in <i>s3Event</i>, in the order in which the objects
+   * first appear in the event.
+   * <p>
+   *   A single event may carry several notifications of the same object. Only the newest version of an object is
+   *   returned, as told by the sequencer of the notifications. Without a sequencer, the later notification wins.
+   * </p>
+   * @param s3Event s3 put object event
+   * @return the newest version of every changed object in <i>s3Event</i>, which may be empty
+   * @throws S3IllegalStatusException if the information inside the s3Event is in an illegal state
+   */
+  public static List<ChangedS3Object> extractChangedS3Objects(S3Event s3Event) {
+    if (s3Event == null) {
+      LOGGER.atError().log("s3Event is null.");
+      throw new IllegalArgumentException("S3 Event cannot be null.");
+    }
+    List<S3EventNotificationRecord> s3EventNotificationRecords = s3Event.getRecords();
+    if (s3EventNotificationRecords == null || s3EventNotificationRecords.isEmpty()) {
+      LOGGER.atInfo().log("There are no S3EventNotificationRecord.");
+      return List.of();
+    }
+    // Keyed by bucket and object key, so that the versions of the same object replace each other
+    Map<String, SequencedS3Object> newestS3Objects = new LinkedHashMap<>();
+    for (S3EventNotificationRecord s3EventNotificationRecord : s3EventNotificationRecords) {
+      Optional<ChangedS3Object> optionalChangedS3Object = extractChangedS3Object(s3EventNotificationRecord);
+      if (optionalChangedS3Object.isEmpty()) {
+        continue;
+      }
+      ChangedS3Object changedS3Object = optionalChangedS3Object.get();
+      S3ObjectId s3ObjectId = changedS3Object.getS3ObjectId();
+      SequencedS3Object sequencedS3Object = new SequencedS3Object(changedS3Object,
+          extractSequencer(s3EventNotificationRecord));
+      newestS3Objects.merge(s3ObjectId.getBucket() + "/" + s3ObjectId.getKey(), sequencedS3Object,
+          DatabaseS3EventAnalyzer::newerOf);
+    }
+    List<ChangedS3Object> changedS3Objects = new ArrayList<>(newestS3Objects.size());
+    newestS3Objects.values().forEach(sequencedS3Object -> changedS3Objects.add(sequencedS3Object.changedS3Object));
+    LOGGER.atDebug().log("Changed S3 objects are extracted. records:{}, changedS3Objects:{}",
+        s3EventNotificationRecords.size(), changedS3Objects.size());
+    return changedS3Objects;
+  }
+
+  /**
+   * Returns constructed {@link ChangedS3Object} from <i>s3Event</i>, which includes the size and ETag of the new
+   * content when they are reported. Otherwise, returns empty Optional.
+   * @param s3Event s3 put object event
+   * @return constructed {@link ChangedS3Object} from <i>s3Event</i>. Otherwise, returns empty Optional.
+   * @throws S3IllegalStatusException if the information inside the s3Event is in an illegal state
+   */
+  public static Optional<ChangedS3Object> extractChangedS3Object(S3Event s3Event) {
     if (s3Event == null) {
       LOGGER.atError().log("s3Event is null.");
       throw new IllegalArgumentException("S3 Event cannot be null.");
@@ -46,16 +102,17 @@ public class DatabaseS3EventAnalyzer {
       return Optional.empty();
     }
     if (s3EventNotificationRecords.size() > 1) {
-      LOGGER.atInfo().log("There are more than 1 S3EventNotificationRecord. size:{}",
+      LOGGER.atInfo().log("There are more than 1 S3EventNotificationRecord, only the first is read. size:{}",
           s3EventNotificationRecords.size());
     }
     // We only read the first record because the AWS template has defined to read PUT object reject for the database
     // file explicitly.
     S3EventNotificationRecord firstRecord = s3EventNotificationRecords.get(0);
-    return extractS3ObjectId(firstRecord);
+    return extractChangedS3Object(firstRecord);
   }
 
-  private static Optional<S3ObjectId> extractS3ObjectId(S3EventNotificationRecord s3EventNotificationRecord) {
+  private static Optional<ChangedS3Object> extractChangedS3Object(
+      S3EventNotificationRecord s3EventNotificationRecord) {
     S3Entity s3Entity = s3EventNotificationRecord.getS3();
     if (s3Entity == null) {
       LOGGER.atDebug().log("s3Entity is null.");
@@ -69,7 +126,31 @@ public class DatabaseS3EventAnalyzer {
     String s3ObjectKey = s3ObjectEntity.getKey();
     String s3ObjectVersionId = s3ObjectEntity.getVersionId();
     String s3BucketName = extractS3BucketName(s3Entity);
-    return createS3ObjectId(s3ObjectKey, s3ObjectVersionId, s3BucketName);
+    Long s3ObjectSize = s3ObjectEntity.getSizeAsLong();
+    long size = (s3ObjectSize == null) ? ChangedS3Object.UNKNOWN_SIZE : s3ObjectSize;
+    String eTag = StringUtils.trimToNull(s3ObjectEntity.geteTag());
+    return createS3ObjectId(s3ObjectKey, s3ObjectVersionId, s3BucketName)
+        .map(s3ObjectId -> ChangedS3Object.create(s3ObjectId, size, eTag));
+  }
+
+  private static String extractSequencer(S3EventNotificationRecord s3EventNotificationRecord) {
+    S3Entity s3Entity = s3EventNotificationRecord.getS3();
+    S3EventNotification.S3ObjectEntity s3ObjectEntity = s3Entity.getObject();
+    return StringUtils.trimToNull(s3ObjectEntity.getSequencer());
+  }
+
+  /**
+   * Returns the newer of two notifications of the same object. The sequencers are hexadecimal values which only
+   * compare after they are padded to the same length.
+   */
+  private static SequencedS3Object newerOf(SequencedS3Object current, SequencedS3Object candidate) {
+    if (current.sequencer == null || candidate.sequencer == null) {
+      return candidate;
+    }
+    int length = Math.max(current.sequencer.length(), candidate.sequencer.length());
+    String currentSequencer = StringUtils.leftPad(current.sequencer, length, '0');
+    String candidateSequencer = StringUtils.leftPad(candidate.sequencer, length, '0');
+    return (candidateSequencer.compareToIgnoreCase(currentSequencer) >= 0) ? candidate : current;
   }
 
   private static String extractS3BucketName(S3Entity s3Entity) {
@@ -85,7 +166,7 @@ public class DatabaseS3EventAnalyzer {
     LOGGER.atDebug().log("Creating s3ObjectId. bucketName:{}, key:{}, versionId:{}",
         StringResolver.resolveNullableString(bucketName),
         StringResolver.resolveNullableString(key),
-        StringResolver.resolveNullableString(bucketName));
+        StringResolver.resolveNullableString(versionId));
     boolean isKeyBlank = StringUtils.isBlank(key);
     boolean isBucketNameBlank = StringUtils.isBlank(bucketName);
     if (isKeyBlank && isBucketNameBlank) {
@@ -96,8 +177,18 @@ public class DatabaseS3EventAnalyzer {
           StringResolver.resolveNullableString(bucketName));
       throw new S3IllegalStatusException("S3 bucket name and object key need to be present or absent together.");
     }
-    String trimmedVersionId = (StringUtils.isBlank(versionId) ? versionId : null);
+    String trimmedVersionId = (StringUtils.isBlank(versionId) ? null : versionId.strip());
     S3ObjectId s3ObjectId = new S3ObjectId(bucketName, key, trimmedVersionId);
     return Optional.of(s3ObjectId);
   }
+
+  private static final class SequencedS3Object {
+    private final ChangedS3Object changedS3Object;
+    private final String sequencer;
+
+    private SequencedS3Object(ChangedS3Object changedS3Object, String sequencer) {
+      this.changedS3Object = changedS3Object;
+      this.sequencer = sequencer;
+    }
+  }
 }
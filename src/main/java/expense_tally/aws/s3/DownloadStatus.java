@@ -0,0 +1,19 @@
+package expense_tally.aws.s3;
+
+/**
+ * The outcome of retrieving an S3 object into a local file
+ */
+public enum DownloadStatus {
+  /**
+   * A new version of the object is written to the local file
+   */
+  DOWNLOADED,
+  /**
+   * The local file already holds the current version of the object. Nothing is downloaded.
+   */
+  NOT_MODIFIED,
+  /**
+   * The object cannot be downloaded. The local file should not be used.
+   */
+  FAILED
+}
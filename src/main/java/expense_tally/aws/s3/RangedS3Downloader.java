@@ -0,0 +1,250 @@
+package expense_tally.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectId;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class downloads a large S3 object as several byte ranges at the same time.
+ * <p>
+ *   The destination file is first extended to the size of the object. Every range is then fetched with its own
+ *   ranged GET, and written at its own offset through positional {@link FileChannel} writes, so that the ranges need no
+ *   coordination with each other. All the ranges are pinned to the same version of the object, either by its version
+ *   ID or by an {@code If-Match} on its ETag, so that a concurrent upload cannot produce a mixed file.
+ * </p>
+ */
+public final class RangedS3Downloader {
+  private static final Logger LOGGER = LogManager.getLogger(RangedS3Downloader.class);
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  private static final long WORKER_KEEP_ALIVE_SECONDS = 10L;
+
+  private final AmazonS3 amazonS3;
+  private final ExecutorService executorService;
+  private final long threshold;
+  private final long partSize;
+
+  private RangedS3Downloader(AmazonS3 amazonS3, ExecutorService executorService, long threshold, long partSize) {
+    this.amazonS3 = Objects.requireNonNull(amazonS3);
+    this.executorService = Objects.requireNonNull(executorService);
+    this.threshold = threshold;
+    this.partSize = partSize;
+  }
+
+  /**
+   * Create a new instance of <i>RangedS3Downloader</i> based on <i>s3DownloadConfiguration</i>
+   * @param amazonS3 Client to interface with AWS Simple Storage Service
+   * @param s3DownloadConfiguration configuration of the ranged download
+   * @return a new instance of <i>RangedS3Downloader</i>
+   */
+  public static RangedS3Downloader create(AmazonS3 amazonS3, S3DownloadConfiguration s3DownloadConfiguration) {
+    return create(amazonS3, createExecutorService(s3DownloadConfiguration.getRangedDownloadConcurrency()),
+        s3DownloadConfiguration);
+  }
+
+  /**
+   * Create a new instance of <i>RangedS3Downloader</i> which downloads the ranges on <i>executorService</i>
+   * @param amazonS3 Client to interface with AWS Simple Storage Service
+   * @param executorService executor of the ranged GET requests
+   * @param s3DownloadConfiguration configuration of the ranged download
+   * @return a new instance of <i>RangedS3Downloader</i>
+   */
+  public static RangedS3Downloader create(AmazonS3 amazonS3,
+                                          ExecutorService executorService,
+                                          S3DownloadConfiguration s3DownloadConfiguration) {
+    return new RangedS3Downloader(amazonS3, executorService, s3DownloadConfiguration.getRangedDownloadThreshold(),
+        s3DownloadConfiguration.getRangedDownloadPartSize());
+  }
+
+  private static ExecutorService createExecutorService(int concurrency) {
+    AtomicInteger threadCount = new AtomicInteger();
+    // The pool lives as long as the Lambda container and must not keep the JVM alive. Idle workers end, so that none
+    // is left in a frozen or checkpointed container.
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(concurrency, concurrency,
+        WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "s3-ranged-download-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    return threadPoolExecutor;
+  }
+
+  /**
+   * Returns true if an object of <i>objectSize</i> bytes should be downloaded in ranges
+   * @param objectSize size of the object in bytes, or {@link ChangedS3Object#UNKNOWN_SIZE}
+   * @return true if an object of <i>objectSize</i> bytes should be downloaded in ranges
+   */
+  public boolean isApplicable(long objectSize) {
+    return objectSize >= threshold && objectSize > partSize;
+  }
+
+  /**
+   * Download the object specified by <i>changedS3Object</i> onto <i>destinationFile</i> in concurrent ranges
+   * @param changedS3Object the object to be downloaded, with its size known
+   * @param destinationFile the file path to be stored, include the file name.
+   * @return the metadata of the downloaded object, or null if the object no longer matches <i>changedS3Object</i>
+   * @throws IOException if cannot write to <i>destinationFile</i>, or the download is interrupted
+   * @throws com.amazonaws.SdkClientException if the application has issue with the S3 client
+   * @throws com.amazonaws.AmazonServiceException if there is problem with Amazon S3 service
+   */
+  public ObjectMetadata download(ChangedS3Object changedS3Object, File destinationFile) throws IOException {
+    long objectSize = changedS3Object.getSize();
+    if (objectSize <= 0) {
+      LOGGER.atWarn().log("objectSize is non-positive:{}", objectSize);
+      throw new IllegalArgumentException("Object size must be known for a ranged download.");
+    }
+    S3ObjectId s3ObjectId = changedS3Object.getS3ObjectId();
+    List<ByteRange> byteRanges = planByteRanges(objectSize);
+    LOGGER.atDebug().log("Downloading object in ranges. changedS3Object:{}, parts:{}", changedS3Object,
+        byteRanges.size());
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(destinationFile, "rw")) {
+      randomAccessFile.setLength(objectSize);
+      FileChannel fileChannel = randomAccessFile.getChannel();
+      String eTag = changedS3Object.getETag();
+      ObjectMetadata firstPartMetadata = null;
+      if (StringUtils.isBlank(s3ObjectId.getVersionId()) && StringUtils.isBlank(eTag)) {
+        // Nothing pins the version yet. The first part decides which version the other parts must match.
+        firstPartMetadata = downloadByteRange(s3ObjectId, null, byteRanges.get(0), fileChannel);
+        if (firstPartMetadata == null) {
+          return null;
+        }
+        eTag = firstPartMetadata.getETag();
+        byteRanges = byteRanges.subList(1, byteRanges.size());
+      }
+      List<ObjectMetadata> partMetadata = downloadByteRanges(s3ObjectId, eTag, byteRanges, fileChannel);
+      if (partMetadata.contains(null)) {
+        LOGGER.atWarn().log("Object no longer matches the notification. changedS3Object:{}", changedS3Object);
+        return null;
+      }
+      ObjectMetadata objectMetadata = (firstPartMetadata != null) ? firstPartMetadata.clone() :
+          partMetadata.get(0).clone();
+      objectMetadata.setContentLength(objectSize);
+      return objectMetadata;
+    }
+  }
+
+  private List<ByteRange> planByteRanges(long objectSize) {
+    List<ByteRange> byteRanges = new ArrayList<>();
+    for (long start = 0; start < objectSize; start += partSize) {
+      byteRanges.add(new ByteRange(start, Math.min(start + partSize, objectSize) - 1));
+    }
+    return byteRanges;
+  }
+
+  private List<ObjectMetadata> downloadByteRanges(S3ObjectId s3ObjectId,
+                                                  String eTag,
+                                                  List<ByteRange> byteRanges,
+                                                  FileChannel fileChannel) throws IOException {
+    List<Future<ObjectMetadata>> futures = new ArrayList<>(byteRanges.size());
+    for (ByteRange byteRange : byteRanges) {
+      futures.add(executorService.submit(() -> downloadByteRange(s3ObjectId, eTag, byteRange, fileChannel)));
+    }
+    List<ObjectMetadata> partMetadata = new ArrayList<>(futures.size());
+    try {
+      for (Future<ObjectMetadata> future : futures) {
+        partMetadata.add(future.get());
+      }
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      cancel(futures);
+      InterruptedIOException interruptedIOException = new InterruptedIOException("Ranged download is interrupted.");
+      interruptedIOException.initCause(interruptedException);
+      throw interruptedIOException;
+    } catch (ExecutionException executionException) {
+      cancel(futures);
+      Throwable cause = executionException.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException("Unable to download byte range.", cause);
+    }
+    return partMetadata;
+  }
+
+  private ObjectMetadata downloadByteRange(S3ObjectId s3ObjectId,
+                                           String eTag,
+                                           ByteRange byteRange,
+                                           FileChannel fileChannel) throws IOException {
+    GetObjectRequest getObjectRequest = S3FileRequestFactory.createRequest(s3ObjectId)
+        .withRange(byteRange.start, byteRange.end);
+    if (StringUtils.isNotBlank(eTag)) {
+      getObjectRequest = getObjectRequest.withMatchingETagConstraint(eTag);
+    }
+    S3Object s3Object = amazonS3.getObject(getObjectRequest);
+    if (s3Object == null) {
+      LOGGER.atDebug().log("Byte range does not match ETag. byteRange:{}, eTag:{}", byteRange, eTag);
+      return null;
+    }
+    try (s3Object; S3ObjectInputStream s3ObjectInputStream = s3Object.getObjectContent()) {
+      long position = byteRange.start;
+      byte[] buffer = new byte[COPY_BUFFER_SIZE];
+      int readCount;
+      while ((readCount = s3ObjectInputStream.read(buffer)) != -1) {
+        if (position + readCount > byteRange.end + 1) {
+          s3ObjectInputStream.abort();
+          throw new IOException("S3 returns more bytes than requested. byteRange:" + byteRange);
+        }
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, readCount);
+        while (byteBuffer.hasRemaining()) {
+          position += fileChannel.write(byteBuffer, position);
+        }
+      }
+      if (position != byteRange.end + 1) {
+        throw new IOException("S3 returns fewer bytes than requested. byteRange:" + byteRange + ", received:" +
+            (position - byteRange.start));
+      }
+      LOGGER.atTrace().log("Byte range is downloaded. byteRange:{}", byteRange);
+      return s3Object.getObjectMetadata();
+    }
+  }
+
+  private void cancel(List<Future<ObjectMetadata>> futures) {
+    for (Future<ObjectMetadata> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * An inclusive range of bytes of the object
+   */
+  private static final class ByteRange {
+    private final long start;
+    private final long end;
+
+    private ByteRange(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public String toString() {
+      return "bytes=" + start + "-" + end;
+    }
+  }
+}
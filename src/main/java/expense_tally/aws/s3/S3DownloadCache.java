@@ -0,0 +1,140 @@
+package expense_tally.aws.s3;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class remembers which version of an S3 object has been downloaded to a local file.
+ * <p>
+ *   A warm Lambda container keeps its {@code /tmp} directory between invocations, so the object downloaded by a
+ *   previous invocation can be reused when S3 still holds the same version. The entry of a local file is recorded
+ *   only after a complete download, and must be evicted whenever the file can no longer be trusted.
+ * </p>
+ */
+public final class S3DownloadCache {
+  private final Map<File, CachedS3Object> cachedS3Objects;
+
+  private S3DownloadCache() {
+    this.cachedS3Objects = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Creates an empty S3DownloadCache
+   * @return an empty S3DownloadCache
+   */
+  public static S3DownloadCache create() {
+    return new S3DownloadCache();
+  }
+
+  /**
+   * Returns the S3 object which was last downloaded to <i>localFile</i>
+   * @param localFile the downloaded file
+   * @return the S3 object which was last downloaded to <i>localFile</i>, or empty if nothing is recorded
+   */
+  public Optional<CachedS3Object> lookup(File localFile) {
+    return Optional.ofNullable(cachedS3Objects.get(localFile));
+  }
+
+  /**
+   * Record that the S3 object has been completely downloaded to <i>localFile</i>
+   * @param localFile the downloaded file
+   * @param cachedS3Object the downloaded S3 object
+   */
+  public void record(File localFile, CachedS3Object cachedS3Object) {
+    cachedS3Objects.put(Objects.requireNonNull(localFile), Objects.requireNonNull(cachedS3Object));
+  }
+
+  /**
+   * Forget the S3 object downloaded to <i>localFile</i>, so that the next download fetches it again
+   * @param localFile the downloaded file
+   */
+  public void evict(File localFile) {
+    cachedS3Objects.remove(localFile);
+  }
+
+  /**
+   * The identity of an S3 object downloaded to a local file
+   */
+  public static final class CachedS3Object {
+    private final String bucket;
+    private final String key;
+    private final String versionId;
+    private final String eTag;
+    private final long contentLength;
+
+    /**
+     * Default constructor
+     * @param s3ObjectId the identifier of the downloaded S3 object
+     * @param versionId version ID returned by S3, may be null if the bucket is not versioned
+     * @param eTag entity tag returned by S3
+     * @param contentLength size of the downloaded object in bytes
+     */
+    public CachedS3Object(S3ObjectId s3ObjectId, String versionId, String eTag, long contentLength) {
+      this.bucket = s3ObjectId.getBucket();
+      this.key = s3ObjectId.getKey();
+      this.versionId = versionId;
+      this.eTag = eTag;
+      this.contentLength = contentLength;
+    }
+
+    /**
+     * Returns true if this is the same bucket and key as <i>s3ObjectId</i>, regardless of the version
+     * @param s3ObjectId another S3 object identifier
+     * @return true if this is the same bucket and key as <i>s3ObjectId</i>
+     */
+    public boolean isSameObject(S3ObjectId s3ObjectId) {
+      return Objects.equals(bucket, s3ObjectId.getBucket()) && Objects.equals(key, s3ObjectId.getKey());
+    }
+
+    /**
+     * Returns true if <i>s3ObjectId</i> requests exactly this version of the object. S3 object versions are
+     * immutable, so there is no need to contact S3 again.
+     * @param s3ObjectId another S3 object identifier
+     * @return true if <i>s3ObjectId</i> requests exactly this version of the object
+     */
+    public boolean isSameVersion(S3ObjectId s3ObjectId) {
+      return isSameObject(s3ObjectId) && StringUtils.isNotBlank(versionId) &&
+          versionId.equals(s3ObjectId.getVersionId());
+    }
+
+    /**
+     * Returns true if the downloaded object has the entity tag <i>eTag</i>. Objects with the same entity tag have the
+     * same content.
+     * @param eTag an entity tag, may be null
+     * @return true if the downloaded object has the entity tag <i>eTag</i>
+     */
+    public boolean hasETag(String eTag) {
+      return StringUtils.isNotBlank(eTag) && eTag.equals(this.eTag);
+    }
+
+    public String getVersionId() {
+      return versionId;
+    }
+
+    public String getETag() {
+      return eTag;
+    }
+
+    public long getContentLength() {
+      return contentLength;
+    }
+
+    @Override
+    public String toString() {
+      return new StringJoiner(", ", CachedS3Object.class.getSimpleName() + "[", "]")
+          .add("bucket='" + bucket + "'")
+          .add("key='" + key + "'")
+          .add("versionId='" + versionId + "'")
+          .add("eTag='" + eTag + "'")
+          .add("contentLength=" + contentLength)
+          .toString();
+    }
+  }
+}
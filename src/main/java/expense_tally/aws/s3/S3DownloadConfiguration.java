@@ -0,0 +1,130 @@
+package expense_tally.aws.s3;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.StringJoiner;
+
+/**
+ * The configuration of how objects are downloaded from S3, shared by all the Lambda functions.
+ * <p>
+ *   Objects of at least {@link #getRangedDownloadThreshold()} bytes are split into parts of
+ *   {@link #getRangedDownloadPartSize()} bytes, and up to {@link #getRangedDownloadConcurrency()} parts are downloaded
+ *   at the same time.
+ * </p>
+ * @see S3DownloadConfigurationEnum
+ */
+public class S3DownloadConfiguration {
+  private static final Logger LOGGER = LogManager.getLogger(S3DownloadConfiguration.class);
+
+  private final long rangedDownloadThreshold;
+  private final long rangedDownloadPartSize;
+  private final int rangedDownloadConcurrency;
+
+  private S3DownloadConfiguration(long rangedDownloadThreshold,
+                                  long rangedDownloadPartSize,
+                                  int rangedDownloadConcurrency) {
+    this.rangedDownloadThreshold = rangedDownloadThreshold;
+    this.rangedDownloadPartSize = rangedDownloadPartSize;
+    this.rangedDownloadConcurrency = rangedDownloadConcurrency;
+  }
+
+  public long getRangedDownloadThreshold() {
+    return rangedDownloadThreshold;
+  }
+
+  public long getRangedDownloadPartSize() {
+    return rangedDownloadPartSize;
+  }
+
+  public int getRangedDownloadConcurrency() {
+    return rangedDownloadConcurrency;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    S3DownloadConfiguration that = (S3DownloadConfiguration) o;
+    return new EqualsBuilder()
+        .append(rangedDownloadThreshold, that.rangedDownloadThreshold)
+        .append(rangedDownloadPartSize, that.rangedDownloadPartSize)
+        .append(rangedDownloadConcurrency, that.rangedDownloadConcurrency)
+        .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+        .append(rangedDownloadThreshold)
+        .append(rangedDownloadPartSize)
+        .append(rangedDownloadConcurrency)
+        .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", S3DownloadConfiguration.class.getSimpleName() + "[", "]")
+        .add("rangedDownloadThreshold=" + rangedDownloadThreshold)
+        .add("rangedDownloadPartSize=" + rangedDownloadPartSize)
+        .add("rangedDownloadConcurrency=" + rangedDownloadConcurrency)
+        .toString();
+  }
+
+  public static class Builder {
+    private static final long DEFAULT_RANGED_DOWNLOAD_THRESHOLD = 16L * 1024 * 1024;
+    private static final long DEFAULT_RANGED_DOWNLOAD_PART_SIZE = 8L * 1024 * 1024;
+    private static final int DEFAULT_RANGED_DOWNLOAD_CONCURRENCY = 4;
+
+    private long rangedDownloadThreshold;
+    private long rangedDownloadPartSize;
+    private int rangedDownloadConcurrency;
+
+    public Builder() {
+      this.rangedDownloadThreshold = DEFAULT_RANGED_DOWNLOAD_THRESHOLD;
+      this.rangedDownloadPartSize = DEFAULT_RANGED_DOWNLOAD_PART_SIZE;
+      this.rangedDownloadConcurrency = DEFAULT_RANGED_DOWNLOAD_CONCURRENCY;
+    }
+
+    public Builder rangedDownloadThreshold(long rangedDownloadThreshold) {
+      if (rangedDownloadThreshold <= 0) {
+        LOGGER.atWarn().log("rangedDownloadThreshold is non-positive:{}", rangedDownloadThreshold);
+        throw new IllegalArgumentException("Ranged download threshold must be positive.");
+      }
+      this.rangedDownloadThreshold = rangedDownloadThreshold;
+      return this;
+    }
+
+    public Builder rangedDownloadPartSize(long rangedDownloadPartSize) {
+      if (rangedDownloadPartSize <= 0) {
+        LOGGER.atWarn().log("rangedDownloadPartSize is non-positive:{}", rangedDownloadPartSize);
+        throw new IllegalArgumentException("Ranged download part size must be positive.");
+      }
+      this.rangedDownloadPartSize = rangedDownloadPartSize;
+      return this;
+    }
+
+    public Builder rangedDownloadConcurrency(int rangedDownloadConcurrency) {
+      if (rangedDownloadConcurrency <= 0) {
+        LOGGER.atWarn().log("rangedDownloadConcurrency is non-positive:{}", rangedDownloadConcurrency);
+        throw new IllegalArgumentException("Ranged download concurrency must be positive.");
+      }
+      this.rangedDownloadConcurrency = rangedDownloadConcurrency;
+      return this;
+    }
+
+    public S3DownloadConfiguration build() {
+      return new S3DownloadConfiguration(
+          rangedDownloadThreshold,
+          rangedDownloadPartSize,
+          rangedDownloadConcurrency
+      );
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package expense_tally.aws.s3;
+
+import expense_tally.exception.StringResolver;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Optional;
+
+public enum S3DownloadConfigurationEnum {
+  RANGED_DOWNLOAD_THRESHOLD("s3_ranged_download_threshold_bytes"),
+  RANGED_DOWNLOAD_PART_SIZE("s3_ranged_download_part_size_bytes"),
+  RANGED_DOWNLOAD_CONCURRENCY("s3_ranged_download_concurrency")
+  ;
+
+  private String key;
+
+  S3DownloadConfigurationEnum(String key) {
+    if (StringUtils.isBlank(key)) {
+      throw new IllegalArgumentException("key cannot be blank:" + StringResolver.resolveNullableString(key));
+    }
+    this.key = key;
+  }
+
+  public String key() {
+    return key;
+  }
+
+  public static Optional<S3DownloadConfigurationEnum> resolve(String key) {
+    if (StringUtils.isBlank(key)) {
+      throw new IllegalArgumentException("key cannot be blank:" + StringResolver.resolveNullableString(key));
+    }
+    for (S3DownloadConfigurationEnum s3DownloadConfigurationEnum : values()) {
+      if (key.equals(s3DownloadConfigurationEnum.key)) {
+        return Optional.of(s3DownloadConfigurationEnum);
+      }
+    }
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,72 @@
+package expense_tally.aws.s3;
+
+import expense_tally.aws.AppStartUpException;
+import expense_tally.aws.config.SystemProxy;
+import expense_tally.aws.s3.S3DownloadConfiguration.Builder;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Optional;
+
+/**
+ * This class is used to parse all possible sources of configuration for downloading objects from S3.
+ * <p>
+ *   The different configurable options is stated in the {@link S3DownloadConfigurationEnum}. All of them are optional.
+ * </p>
+ * @see S3DownloadConfigurationEnum
+ */
+public class S3DownloadConfigurationParser {
+  private static final Logger LOGGER = LogManager.getLogger(S3DownloadConfigurationParser.class);
+
+  /**
+   * Default constructor. Made private to disallow object initialisation.
+   */
+  private S3DownloadConfigurationParser() {
+  }
+
+  /**
+   * Parses all the S3 download configuration through system environment variables.
+   * @return a {@link S3DownloadConfiguration} containing all the S3 download configuration
+   * @throws AppStartUpException if provided configuration is of wrong data type
+   */
+  public static S3DownloadConfiguration parseSystemEnvironmentVariableConfigurations() throws AppStartUpException {
+    Builder s3DownloadConfigBuilder = new Builder();
+    Optional<Long> rangedDownloadThreshold =
+        parseNumericConfiguration(S3DownloadConfigurationEnum.RANGED_DOWNLOAD_THRESHOLD);
+    if (rangedDownloadThreshold.isPresent()) {
+      s3DownloadConfigBuilder = s3DownloadConfigBuilder.rangedDownloadThreshold(rangedDownloadThreshold.get());
+    }
+    Optional<Long> rangedDownloadPartSize =
+        parseNumericConfiguration(S3DownloadConfigurationEnum.RANGED_DOWNLOAD_PART_SIZE);
+    if (rangedDownloadPartSize.isPresent()) {
+      s3DownloadConfigBuilder = s3DownloadConfigBuilder.rangedDownloadPartSize(rangedDownloadPartSize.get());
+    }
+    Optional<Long> rangedDownloadConcurrency =
+        parseNumericConfiguration(S3DownloadConfigurationEnum.RANGED_DOWNLOAD_CONCURRENCY);
+    if (rangedDownloadConcurrency.isPresent()) {
+      s3DownloadConfigBuilder = s3DownloadConfigBuilder.rangedDownloadConcurrency(
+          Math.toIntExact(rangedDownloadConcurrency.get()));
+    }
+    return s3DownloadConfigBuilder.build();
+  }
+
+  private static Optional<String> parseSingleConfiguration(String keyName) {
+    String nullableValue = SystemProxy.getEnvironmentVariable(keyName);
+    return Optional.ofNullable(nullableValue);
+  }
+
+  private static Optional<Long> parseNumericConfiguration(S3DownloadConfigurationEnum s3DownloadConfigurationEnum)
+      throws AppStartUpException {
+    Optional<String> configuration = parseSingleConfiguration(s3DownloadConfigurationEnum.key());
+    if (configuration.isEmpty()) {
+      return Optional.empty();
+    }
+    String configurationString = configuration.get();
+    if (!NumberUtils.isDigits(configurationString)) {
+      LOGGER.atWarn().log("configurationString is not number: {}", configurationString);
+      throw new AppStartUpException(s3DownloadConfigurationEnum.key() + " is not numeric.");
+    }
+    return Optional.of(Long.parseLong(configurationString));
+  }
+}
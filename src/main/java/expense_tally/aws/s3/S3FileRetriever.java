@@ -3,8 +3,10 @@ package expense_tally.aws.s3;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectId;
 import expense_tally.aws.log.ObjectToString;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -13,6 +15,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * This class assists to download the Expense Manager file from Amazon Simple Storage Service.
@@ -20,13 +23,19 @@ import java.util.Objects;
 public final class S3FileRetriever {
   private static final Logger LOGGER = LogManager.getLogger(S3FileRetriever.class);
   private final AmazonS3 amazonS3;
+  private final S3DownloadCache s3DownloadCache;
+  private final RangedS3Downloader rangedS3Downloader;
 
   /**
    * Default constructor
    * @param amazonS3 Client to interface with AWS Simple Storage Service
+   * @param s3DownloadCache record of the S3 objects already downloaded to the local files
+   * @param rangedS3Downloader downloader of the large S3 objects
    */
-  private S3FileRetriever(AmazonS3 amazonS3) {
+  private S3FileRetriever(AmazonS3 amazonS3, S3DownloadCache s3DownloadCache, RangedS3Downloader rangedS3Downloader) {
     this.amazonS3 = Objects.requireNonNull(amazonS3);
+    this.s3DownloadCache = Objects.requireNonNull(s3DownloadCache);
+    this.rangedS3Downloader = Objects.requireNonNull(rangedS3Downloader);
   }
 
   /**
@@ -35,27 +44,171 @@ public final class S3FileRetriever {
    * @return a new instance of <i>S3ExpnsMngrFileRetriever</i> based on <i>amazonS3</i>
    */
   public static S3FileRetriever create(AmazonS3 amazonS3) {
-    return new S3FileRetriever(amazonS3);
+    return create(amazonS3, new S3DownloadConfiguration.Builder().build());
+  }
+
+  /**
+   * Create a new instance of <i>S3ExpnsMngrFileRetriever</i> based on <i>amazonS3</i> and
+   * <i>s3DownloadConfiguration</i>
+   * @param amazonS3 Client to interface with AWS Simple Storage Service
+   * @param s3DownloadConfiguration configuration of how objects are downloaded
+   * @return a new instance of <i>S3ExpnsMngrFileRetriever</i> based on <i>amazonS3</i>
+   */
+  public static S3FileRetriever create(AmazonS3 amazonS3, S3DownloadConfiguration s3DownloadConfiguration) {
+    Objects.requireNonNull(amazonS3);
+    return new S3FileRetriever(amazonS3, S3DownloadCache.create(),
+        RangedS3Downloader.create(amazonS3, s3DownloadConfiguration));
   }
 
   /**
    * Download the file specified by <i>s3ObjectId</i> onto the <i>destinationFilePath</i>
    * @param s3ObjectId An S3 object identifier of the downloading file
    * @param destinationFile the file path to be stored, include the file name.
+   * @return true if <i>destinationFile</i> holds the requested object, whether it is downloaded now or earlier.
    * @throws IllegalArgumentException if the <i>s3ObjectId</i> is null.
    * @throws IOException if cannot write to <i>destinationFile</i>
    * @throws com.amazonaws.SdkClientException if the application has issue with the S3 client
    * @throws com.amazonaws.AmazonServiceException if there is problem with Amazon S3 service
+   * @see #retrieveFile(S3ObjectId, File)
    */
   public boolean downloadFile(S3ObjectId s3ObjectId, File destinationFile) throws IOException {
+    return retrieveFile(s3ObjectId, destinationFile) != DownloadStatus.FAILED;
+  }
+
+  /**
+   * Retrieve the file specified by <i>s3ObjectId</i> onto the <i>destinationFilePath</i>, unless the file already
+   * holds the same version of the object.
+   * <p>
+   *   If the exact version has been downloaded to <i>destinationFile</i> before, S3 is not contacted at all. If the
+   *   same key has been downloaded before, a conditional GET with {@code If-None-Match} is sent, so that the object is
+   *   only transferred when its ETag has changed. Otherwise, the file is recreated and the whole object downloaded.
+   * </p>
+   * @param s3ObjectId An S3 object identifier of the downloading file
+   * @param destinationFile the file path to be stored, include the file name.
+   * @return the outcome of the retrieval
+   * @throws IllegalArgumentException if the <i>s3ObjectId</i> is null.
+   * @throws IOException if cannot write to <i>destinationFile</i>
+   * @throws com.amazonaws.SdkClientException if the application has issue with the S3 client
+   * @throws com.amazonaws.AmazonServiceException if there is problem with Amazon S3 service
+   */
+  public DownloadStatus retrieveFile(S3ObjectId s3ObjectId, File destinationFile) throws IOException {
     if (s3ObjectId == null) {
       LOGGER.atWarn().log("s3ObjectId is null");
       throw new IllegalArgumentException("S3 Object ID cannot be null.");
     }
-    createFile(destinationFile);
+    return retrieveFile(ChangedS3Object.create(s3ObjectId), destinationFile);
+  }
+
+  /**
+   * Retrieve the file specified by <i>changedS3Object</i> onto the <i>destinationFilePath</i>, unless the file already
+   * holds the same version of the object.
+   * <p>
+   *   Besides the behaviour of {@link #retrieveFile(S3ObjectId, File)}, the ETag reported in the notification is
+   *   compared with the downloaded one without contacting S3, and an object of known size above the ranged download
+   *   threshold is downloaded as concurrent byte ranges.
+   * </p>
+   * @param changedS3Object the S3 object reported by the notification
+   * @param destinationFile the file path to be stored, include the file name.
+   * @return the outcome of the retrieval
+   * @throws IllegalArgumentException if the <i>changedS3Object</i> is null.
+   * @throws IOException if cannot write to <i>destinationFile</i>
+   * @throws com.amazonaws.SdkClientException if the application has issue with the S3 client
+   * @throws com.amazonaws.AmazonServiceException if there is problem with Amazon S3 service
+   */
+  public DownloadStatus retrieveFile(ChangedS3Object changedS3Object, File destinationFile) throws IOException {
+    if (changedS3Object == null) {
+      LOGGER.atWarn().log("changedS3Object is null");
+      throw new IllegalArgumentException("S3 Object ID cannot be null.");
+    }
+    S3ObjectId s3ObjectId = changedS3Object.getS3ObjectId();
+    boolean isRangedDownload = rangedS3Downloader.isApplicable(changedS3Object.getSize());
+    Optional<S3DownloadCache.CachedS3Object> optionalCachedS3Object = findCachedS3Object(s3ObjectId,
+        destinationFile);
+    if (optionalCachedS3Object.isPresent()) {
+      S3DownloadCache.CachedS3Object cachedS3Object = optionalCachedS3Object.get();
+      if (cachedS3Object.isSameVersion(s3ObjectId) || cachedS3Object.hasETag(changedS3Object.getETag())) {
+        LOGGER.atInfo().log("Requested version is already downloaded. cachedS3Object:{}", cachedS3Object);
+        return DownloadStatus.NOT_MODIFIED;
+      }
+      if (!isRangedDownload) {
+        return retrieveModifiedFile(s3ObjectId, destinationFile, cachedS3Object);
+      }
+    }
+    s3DownloadCache.evict(destinationFile);
+    ObjectMetadata objectMetadata;
+    if (isRangedDownload) {
+      objectMetadata = sendRangedS3Requests(changedS3Object, destinationFile);
+    } else {
+      createFile(destinationFile);
+      GetObjectRequest getObjectRequest = createS3Request(s3ObjectId);
+      objectMetadata = sendS3Request(getObjectRequest, destinationFile);
+    }
+    return analyzeResponse(s3ObjectId, destinationFile, objectMetadata);
+  }
+
+  /**
+   * Open the content of the object specified by <i>changedS3Object</i> for reading, without storing it on the local
+   * disk.
+   * <p>
+   *   If the notification reports an ETag, the request is conditional on it, so that the content read is the content
+   *   which is notified. The caller must close the returned {@link S3Object} to release the HTTP connection.
+   * </p>
+   * @param changedS3Object the S3 object reported by the notification
+   * @return the S3 object with its content stream, or empty if the object no longer matches <i>changedS3Object</i>
+   * @throws IllegalArgumentException if the <i>changedS3Object</i> is null.
+   * @throws com.amazonaws.SdkClientException if the application has issue with the S3 client
+   * @throws com.amazonaws.AmazonServiceException if there is problem with Amazon S3 service
+   */
+  public Optional<S3Object> openObjectStream(ChangedS3Object changedS3Object) {
+    if (changedS3Object == null) {
+      LOGGER.atWarn().log("changedS3Object is null");
+      throw new IllegalArgumentException("S3 Object ID cannot be null.");
+    }
+    GetObjectRequest getObjectRequest = createS3Request(changedS3Object.getS3ObjectId());
+    if (StringUtils.isNotBlank(changedS3Object.getETag())) {
+      getObjectRequest = getObjectRequest.withMatchingETagConstraint(changedS3Object.getETag());
+    }
+    LOGGER.atInfo().log("Opening S3 object stream. getObjectRequest:{}",
+        ObjectToString.lazyStringOf(getObjectRequest));
+    S3Object s3Object = amazonS3.getObject(getObjectRequest);
+    if (s3Object == null) {
+      LOGGER.atWarn().log("S3 object no longer matches the notification. changedS3Object:{}", changedS3Object);
+    }
+    return Optional.ofNullable(s3Object);
+  }
+
+  /**
+   * Forget the object downloaded to <i>destinationFile</i>, so that the next retrieval downloads it again. This is
+   * needed when the content of the file has not been fully processed.
+   * @param destinationFile the downloaded file
+   */
+  public void invalidate(File destinationFile) {
+    LOGGER.atDebug().log("Invalidating cached download. destinationFile:{}", destinationFile);
+    s3DownloadCache.evict(destinationFile);
+  }
+
+  private Optional<S3DownloadCache.CachedS3Object> findCachedS3Object(S3ObjectId s3ObjectId, File destinationFile) {
+    return s3DownloadCache.lookup(destinationFile)
+        .filter(cachedS3Object -> cachedS3Object.isSameObject(s3ObjectId))
+        // The file may have been removed or truncated since it is downloaded
+        .filter(cachedS3Object -> destinationFile.isFile() &&
+            destinationFile.length() == cachedS3Object.getContentLength());
+  }
+
+  private DownloadStatus retrieveModifiedFile(S3ObjectId s3ObjectId,
+                                              File destinationFile,
+                                              S3DownloadCache.CachedS3Object cachedS3Object) {
     GetObjectRequest getObjectRequest = createS3Request(s3ObjectId);
+    if (StringUtils.isNotBlank(cachedS3Object.getETag())) {
+      getObjectRequest = getObjectRequest.withNonmatchingETagConstraint(cachedS3Object.getETag());
+    }
+    // The file is overwritten only if S3 returns a new content, so it is not deleted beforehand.
     ObjectMetadata objectMetadata = sendS3Request(getObjectRequest, destinationFile);
-    return analyzeResponse(objectMetadata);
+    if (objectMetadata == null) {
+      LOGGER.atInfo().log("S3 object is not modified since last download. cachedS3Object:{}", cachedS3Object);
+      return DownloadStatus.NOT_MODIFIED;
+    }
+    return analyzeResponse(s3ObjectId, destinationFile, objectMetadata);
   }
 
   private void createFile(File destinationFile) throws IOException {
@@ -82,18 +235,35 @@ public final class S3FileRetriever {
 
   private ObjectMetadata sendS3Request(GetObjectRequest getObjectRequest, File destinationFile) {
     LOGGER.atInfo().log("Sending S3 Request. expenseManagerS3Request:{}, expenseManagerFile:{}",
-        ObjectToString.extractStringFromObject(getObjectRequest),
-        ObjectToString.extractStringFromObject(destinationFile));
-    return amazonS3.getObject(getObjectRequest, destinationFile);
+        ObjectToString.lazyStringOf(getObjectRequest),
+        ObjectToString.lazyStringOf(destinationFile));
+    try {
+      return amazonS3.getObject(getObjectRequest, destinationFile);
+    } catch (RuntimeException runtimeException) {
+      // The file may have been partially overwritten
+      s3DownloadCache.evict(destinationFile);
+      throw runtimeException;
+    }
+  }
+
+  private ObjectMetadata sendRangedS3Requests(ChangedS3Object changedS3Object, File destinationFile)
+      throws IOException {
+    LOGGER.atInfo().log("Sending ranged S3 Requests. changedS3Object:{}, expenseManagerFile:{}", changedS3Object,
+        ObjectToString.lazyStringOf(destinationFile));
+    // The file is preallocated and overwritten in place, so it is not deleted beforehand.
+    return rangedS3Downloader.download(changedS3Object, destinationFile);
   }
 
-  private boolean analyzeResponse(ObjectMetadata objectMetadata) {
+  private DownloadStatus analyzeResponse(S3ObjectId s3ObjectId, File destinationFile, ObjectMetadata objectMetadata) {
     if (objectMetadata == null) {
       LOGGER.atWarn().log("Unable to copy database file from S3.");
-      return false;
+      s3DownloadCache.evict(destinationFile);
+      return DownloadStatus.FAILED;
     }
     LOGGER.atDebug().log("S3 request sent. objectMetadata:{}",
-        ObjectToString.extractStringFromObject(objectMetadata));
-    return true;
+        ObjectToString.lazyStringOf(objectMetadata));
+    s3DownloadCache.record(destinationFile, new S3DownloadCache.CachedS3Object(s3ObjectId,
+        objectMetadata.getVersionId(), objectMetadata.getETag(), objectMetadata.getContentLength()));
+    return DownloadStatus.DOWNLOADED;
   }
 }
@@ -0,0 +1,216 @@
+package expense_tally.aws.csv_reader;
+
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.csv_reader.configuration.CsvReadMode;
+import expense_tally.aws.csv_reader.result.ReconciliationResultCache;
+import expense_tally.aws.csv_reader.result.ReconciliationResultSink;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.aws.s3.DownloadStatus;
+import expense_tally.aws.s3.S3FileRetriever;
+import expense_tally.expense_manager.persistence.ExpenseReadable;
+import expense_tally.model.csv.TransactionType;
+import expense_tally.model.persistence.transformation.ExpenseCategory;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import expense_tally.model.persistence.transformation.ExpenseSubCategory;
+import expense_tally.model.persistence.transformation.PaymentMethod;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class BankTransactionReaderTest {
+  private static final String TEST_CSV = "Account Details For:,POSB Savings 123-45678-9\n" +
+      "Statement as at:,03 Dec 2020\n" +
+      "\n" +
+      "Transaction Date,Reference,Debit Amount,Credit Amount,Transaction Ref1,Transaction Ref2,Transaction Ref3\n" +
+      "01 Dec 2020,MST,12.50,,BUS/MRT 123,SI NG 30NOV,5264-7110-0000-0000\n" +
+      "02 Dec 2020,MST,3.20,,BUS/MRT 456,SI NG 01DEC,5264-7110-0000-0000\n" +
+      "02 Dec 2020,ITR,,100.00,SALARY,,\n";
+
+  @Mock
+  private S3FileRetriever mockS3FileRetriever;
+
+  @Mock
+  private ExpenseReadable mockExpenseReadable;
+
+  @Mock
+  private ReconciliationResultSink mockReconciliationResultSink;
+
+  @Mock
+  private ReconciliationResultCache mockReconciliationResultCache;
+
+  @TempDir
+  Path tempDirectory;
+
+  private File csvFile;
+  private ChangedS3Object testChangedS3Object;
+
+  @BeforeEach
+  void setUp() {
+    csvFile = tempDirectory.resolve("bank_statement.csv").toFile();
+    testChangedS3Object = ChangedS3Object.create(new S3ObjectId("testBucket", "bank_statement.csv"));
+  }
+
+  @Test
+  void create_positive() {
+    assertThat(BankTransactionReader.create(mockS3FileRetriever, mockExpenseReadable, csvFile))
+        .isNotNull()
+        .hasFieldOrPropertyWithValue("s3FileRetriever", mockS3FileRetriever)
+        .hasFieldOrPropertyWithValue("expenseReadable", mockExpenseReadable)
+        .hasFieldOrPropertyWithValue("csvFile", csvFile)
+        .hasFieldOrPropertyWithValue("csvReadMode", CsvReadMode.FILE);
+  }
+
+  @Test
+  void builder_positive() {
+    assertThat(new BankTransactionReader.Builder(mockS3FileRetriever, mockExpenseReadable, csvFile)
+        .csvReadMode(CsvReadMode.STREAM)
+        .reconciliationToleranceDays(7)
+        .reconciliationResultSink(mockReconciliationResultSink)
+        .reconciliationResultCache(mockReconciliationResultCache)
+        .build())
+        .isNotNull()
+        .hasFieldOrPropertyWithValue("csvReadMode", CsvReadMode.STREAM)
+        .hasFieldOrPropertyWithValue("reconciliationToleranceDays", 7)
+        .hasFieldOrPropertyWithValue("reconciliationResultSink", mockReconciliationResultSink)
+        .hasFieldOrPropertyWithValue("reconciliationResultCache", mockReconciliationResultCache);
+  }
+
+  @Test
+  void builder_csvReadModeIsNull() {
+    BankTransactionReader.Builder builder = new BankTransactionReader.Builder(mockS3FileRetriever,
+        mockExpenseReadable, csvFile);
+    assertThatThrownBy(() -> builder.csvReadMode(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("csvReadMode cannot be null");
+  }
+
+  @Test
+  void builder_reconciliationToleranceDaysIsNegative() {
+    BankTransactionReader.Builder builder = new BankTransactionReader.Builder(mockS3FileRetriever,
+        mockExpenseReadable, csvFile);
+    assertThatThrownBy(() -> builder.reconciliationToleranceDays(-1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Reconciliation tolerance days cannot be negative.");
+  }
+
+  @Test
+  void builder_reconciliationResultCacheIsNull() {
+    BankTransactionReader.Builder builder = new BankTransactionReader.Builder(mockS3FileRetriever,
+        mockExpenseReadable, csvFile);
+    assertThatThrownBy(() -> builder.reconciliationResultCache(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("reconciliationResultCache cannot be null");
+  }
+
+  @Test
+  void reconcile_cachedResultSkipsDownload() throws IOException, SQLException {
+    ReconciliationResultCache.Key mockKey = Mockito.mock(ReconciliationResultCache.Key.class);
+    List<DiscrepantTransaction> cachedDiscrepantTransactions = List.of(Mockito.mock(DiscrepantTransaction.class));
+    Mockito.when(mockReconciliationResultCache.keyOf(testChangedS3Object)).thenReturn(Optional.of(mockKey));
+    Mockito.when(mockReconciliationResultCache.lookup(mockKey)).thenReturn(Optional.of(cachedDiscrepantTransactions));
+    BankTransactionReader bankTransactionReader = createBankTransactionReader(CsvReadMode.FILE);
+    assertThat(bankTransactionReader.reconcile(testChangedS3Object))
+        .isSameAs(cachedDiscrepantTransactions);
+    Mockito.verifyNoInteractions(mockS3FileRetriever, mockExpenseReadable, mockReconciliationResultSink);
+    Mockito.verify(mockReconciliationResultCache, Mockito.never())
+        .record(Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  void reconcile_cacheKeyIsTakenBeforeExpensesAreRead() throws IOException, SQLException {
+    ReconciliationResultCache.Key mockKey = Mockito.mock(ReconciliationResultCache.Key.class);
+    Mockito.when(mockReconciliationResultCache.keyOf(testChangedS3Object)).thenReturn(Optional.of(mockKey));
+    Mockito.when(mockReconciliationResultCache.lookup(mockKey)).thenReturn(Optional.empty());
+    stubDownload();
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(createExpenses());
+    BankTransactionReader bankTransactionReader = createBankTransactionReader(CsvReadMode.FILE);
+    List<DiscrepantTransaction> discrepantTransactions = bankTransactionReader.reconcile(testChangedS3Object);
+    assertThat(discrepantTransactions)
+        .isNotEmpty();
+    InOrder inOrder = Mockito.inOrder(mockReconciliationResultCache, mockExpenseReadable,
+        mockReconciliationResultSink);
+    inOrder.verify(mockReconciliationResultCache).keyOf(testChangedS3Object);
+    inOrder.verify(mockExpenseReadable).getAllExpenseManagerTransaction();
+    inOrder.verify(mockReconciliationResultSink).publish(testChangedS3Object, discrepantTransactions);
+    inOrder.verify(mockReconciliationResultCache).record(mockKey, discrepantTransactions);
+  }
+
+  @Test
+  void reconcile_downloadFailedPublishesNothing() throws IOException, SQLException {
+    Mockito.when(mockReconciliationResultCache.keyOf(testChangedS3Object)).thenReturn(Optional.empty());
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, csvFile)).thenReturn(DownloadStatus.FAILED);
+    BankTransactionReader bankTransactionReader = createBankTransactionReader(CsvReadMode.FILE);
+    assertThat(bankTransactionReader.reconcile(testChangedS3Object))
+        .isEmpty();
+    Mockito.verifyNoInteractions(mockExpenseReadable, mockReconciliationResultSink);
+    Mockito.verify(mockReconciliationResultCache, Mockito.never())
+        .record(Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  void reconcile_streamModeHasSameResultAsFileMode() throws IOException, SQLException {
+    Mockito.when(mockReconciliationResultCache.keyOf(testChangedS3Object)).thenReturn(Optional.empty());
+    stubDownload();
+    S3Object testS3Object = new S3Object();
+    testS3Object.setObjectContent(new ByteArrayInputStream(TEST_CSV.getBytes(StandardCharsets.UTF_8)));
+    Mockito.when(mockS3FileRetriever.openObjectStream(testChangedS3Object)).thenReturn(Optional.of(testS3Object));
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(createExpenses());
+    List<DiscrepantTransaction> fileDiscrepantTransactions = createBankTransactionReader(CsvReadMode.FILE)
+        .reconcile(testChangedS3Object);
+    assertThat(createBankTransactionReader(CsvReadMode.STREAM).reconcile(testChangedS3Object))
+        .isNotEmpty()
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(fileDiscrepantTransactions);
+  }
+
+  private BankTransactionReader createBankTransactionReader(CsvReadMode csvReadMode) {
+    return new BankTransactionReader.Builder(mockS3FileRetriever, mockExpenseReadable, csvFile)
+        .csvReadMode(csvReadMode)
+        .reconciliationResultSink(mockReconciliationResultSink)
+        .reconciliationResultCache(mockReconciliationResultCache)
+        .build();
+  }
+
+  /**
+   * Stub the download of the bank statement, which writes {@link #TEST_CSV} to the csv file as S3 would
+   */
+  private void stubDownload() throws IOException {
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, csvFile))
+        .thenAnswer(invocation -> {
+          Files.writeString(csvFile.toPath(), TEST_CSV);
+          return DownloadStatus.DOWNLOADED;
+        });
+  }
+
+  /**
+   * Create the expense manager transactions, of which only the first bank transaction has a match
+   */
+  private List<ExpenseManagerTransaction> createExpenses() {
+    return List.of(ExpenseManagerTransaction.create(1, 12.5, ExpenseCategory.values()[0],
+        ExpenseSubCategory.values()[0], PaymentMethod.resolve(TransactionType.MASTERCARD), "Lunch",
+        LocalDate.of(2020, 12, 1).atTime(12, 0).atZone(ZoneId.of("Asia/Singapore")).toInstant()));
+  }
+}
@@ -2,14 +2,15 @@ package expense_tally.aws.csv_reader.configuration;
 
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
+import java.net.URI;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -22,15 +23,26 @@ class CsvReaderConfigurationTest {
   @Mock
   private AuroraDatabaseConfiguration mockAuroraDatabaseConfiguration;
 
-  @InjectMocks
   private CsvReaderConfiguration testCsvReaderConfiguration;
 
+  @BeforeEach
+  void setUp() {
+    testCsvReaderConfiguration = CsvReaderConfiguration.create(mockCsvFile, CsvReadMode.FILE,
+        mockAuroraDatabaseConfiguration);
+  }
+
   @Test
   void getCsvFile() {
     assertThat(testCsvReaderConfiguration.getCsvFile())
         .isEqualTo(mockCsvFile);
   }
 
+  @Test
+  void getCsvReadMode() {
+    assertThat(testCsvReaderConfiguration.getCsvReadMode())
+        .isEqualTo(CsvReadMode.FILE);
+  }
+
   @Test
   void getAuroraDatabaseConfiguration() {
     assertThat(testCsvReaderConfiguration.getAuroraDatabaseConfiguration())
@@ -85,6 +97,92 @@ class CsvReaderConfigurationTest {
         .isInstanceOf(NullPointerException.class);
   }
 
+  @Test
+  void create_csvReadMode() {
+    assertThat(CsvReaderConfiguration.create(mockCsvFile, CsvReadMode.STREAM, mockAuroraDatabaseConfiguration))
+        .isNotNull()
+        .extracting(CsvReaderConfiguration::getCsvReadMode)
+        .isEqualTo(CsvReadMode.STREAM);
+  }
+
+  @Test
+  void create_csvReadModeIsNull() {
+    assertThatThrownBy(() -> CsvReaderConfiguration.create(mockCsvFile, null, mockAuroraDatabaseConfiguration))
+        .isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  void builder_defaultValues() {
+    assertThat(new CsvReaderConfiguration.Builder(mockAuroraDatabaseConfiguration).build())
+        .isEqualTo(CsvReaderConfiguration.create(mockAuroraDatabaseConfiguration));
+  }
+
+  @Test
+  void builder_positive() {
+    assertThat(new CsvReaderConfiguration.Builder(mockAuroraDatabaseConfiguration)
+        .csvFile(mockCsvFile)
+        .csvReadMode(CsvReadMode.STREAM)
+        .reconciliationToleranceDays(7)
+        .reconciliationParallelism(4)
+        .reconciliationResultLocation(URI.create("s3://testBucket/results/"))
+        .reconciliationCacheSize(0)
+        .objectParallelism(2)
+        .build())
+        .isNotNull()
+        .satisfies(csvReaderConfiguration -> {
+          assertThat(csvReaderConfiguration.getCsvFile()).isEqualTo(mockCsvFile);
+          assertThat(csvReaderConfiguration.getCsvReadMode()).isEqualTo(CsvReadMode.STREAM);
+          assertThat(csvReaderConfiguration.getReconciliationToleranceDays()).isEqualTo(7);
+          assertThat(csvReaderConfiguration.getReconciliationParallelism()).isEqualTo(4);
+          assertThat(csvReaderConfiguration.getReconciliationResultLocation())
+              .hasValue(URI.create("s3://testBucket/results/"));
+          assertThat(csvReaderConfiguration.getReconciliationCacheSize()).isZero();
+          assertThat(csvReaderConfiguration.getObjectParallelism()).isEqualTo(2);
+        });
+  }
+
+  @Test
+  void builder_reconciliationToleranceDaysIsNegative() {
+    var testBuilder = new CsvReaderConfiguration.Builder(mockAuroraDatabaseConfiguration);
+    assertThatThrownBy(() -> testBuilder.reconciliationToleranceDays(-1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Reconciliation tolerance days cannot be negative.");
+  }
+
+  @Test
+  void builder_reconciliationParallelismIsZero() {
+    var testBuilder = new CsvReaderConfiguration.Builder(mockAuroraDatabaseConfiguration);
+    assertThatThrownBy(() -> testBuilder.reconciliationParallelism(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Reconciliation parallelism must be positive.");
+  }
+
+  @Test
+  void builder_reconciliationCacheSizeIsNegative() {
+    var testBuilder = new CsvReaderConfiguration.Builder(mockAuroraDatabaseConfiguration);
+    assertThatThrownBy(() -> testBuilder.reconciliationCacheSize(-1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Reconciliation cache size cannot be negative.");
+  }
+
+  @Test
+  void builder_objectParallelismIsZero() {
+    var testBuilder = new CsvReaderConfiguration.Builder(mockAuroraDatabaseConfiguration);
+    assertThatThrownBy(() -> testBuilder.objectParallelism(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Object parallelism must be positive.");
+  }
+
+  @Test
+  void testEquals_differentCsvReadMode() {
+    var testCsvReaderConfiguration = CsvReaderConfiguration.create(mockCsvFile, CsvReadMode.FILE,
+        mockAuroraDatabaseConfiguration);
+    var expectedCsvReaderConfiguration = CsvReaderConfiguration.create(mockCsvFile, CsvReadMode.STREAM,
+        mockAuroraDatabaseConfiguration);
+    assertThat(testCsvReaderConfiguration.equals(expectedCsvReaderConfiguration))
+        .isFalse();
+  }
+
   @Test
   void testEquals_sameObject() {
     var testCsvReaderConfiguration = CsvReaderConfiguration.create(mockAuroraDatabaseConfiguration);
@@ -125,7 +223,9 @@ class CsvReaderConfigurationTest {
   void testToString() {
     var testCsvReaderConfiguration = CsvReaderConfiguration.create(mockAuroraDatabaseConfiguration);
     assertThat(testCsvReaderConfiguration.toString())
-      .hasToString("CsvReaderConfiguration[csvFile=/tmp/transaction.csv, " +
+      .hasToString("CsvReaderConfiguration[csvFile=/tmp/transaction.csv, csvReadMode=FILE, " +
+          "reconciliationToleranceDays=1, reconciliationParallelism=1, reconciliationResultLocation=null, " +
+          "reconciliationCacheSize=16, objectParallelism=4, " +
           "auroraDatabaseConfiguration=mockAuroraDatabaseConfiguration]");
   }
 }
\ No newline at end of file
@@ -2,10 +2,11 @@ package expense_tally.aws.csv_reader.configuration;
 
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import expense_tally.aws.em_change_processor.configuration.EmChangeProcessorConfiguration;
+import expense_tally.aws.em_change_processor.configuration.RefreshMode;
 import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -18,9 +19,15 @@ class EmChangeProcessorConfigurationTest {
   @Mock
   private AuroraDatabaseConfiguration mockAuroraDatabaseConfiguration;
 
-  @InjectMocks
   private EmChangeProcessorConfiguration testEmChangeProcessorConfiguration;
 
+  @BeforeEach
+  void setUp() {
+    testEmChangeProcessorConfiguration = new EmChangeProcessorConfiguration
+        .Builder(mockAuroraDatabaseConfiguration)
+        .build();
+  }
+
   @Test
   void getLocalDbFilePath() {
     var localTestEmChangeProcessorConfiguration = new EmChangeProcessorConfiguration
@@ -184,6 +191,60 @@ class EmChangeProcessorConfigurationTest {
         .hasMessage("Source database environment ID cannot be null or blank.");
   }
 
+  @Test
+  void writeBatchSize_positive() {
+    var testEmChangeProcessorConfigurationBuilder = new EmChangeProcessorConfiguration
+        .Builder(mockAuroraDatabaseConfiguration);
+    assertThat(testEmChangeProcessorConfigurationBuilder.writeBatchSize(100))
+        .isNotNull()
+        .isEqualTo(testEmChangeProcessorConfigurationBuilder);
+  }
+
+  @Test
+  void writeBatchSize_zero() {
+    var testEmChangeProcessorConfigurationBuilder = new EmChangeProcessorConfiguration
+        .Builder(mockAuroraDatabaseConfiguration);
+    assertThatThrownBy(() -> testEmChangeProcessorConfigurationBuilder.writeBatchSize(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Write batch size must be positive.");
+  }
+
+  @Test
+  void refreshMode_positive() {
+    var testEmChangeProcessorConfigurationBuilder = new EmChangeProcessorConfiguration
+        .Builder(mockAuroraDatabaseConfiguration);
+    assertThat(testEmChangeProcessorConfigurationBuilder.refreshMode(RefreshMode.ATOMIC_SWAP))
+        .isNotNull()
+        .isEqualTo(testEmChangeProcessorConfigurationBuilder);
+  }
+
+  @Test
+  void refreshMode_null() {
+    var testEmChangeProcessorConfigurationBuilder = new EmChangeProcessorConfiguration
+        .Builder(mockAuroraDatabaseConfiguration);
+    assertThatThrownBy(() -> testEmChangeProcessorConfigurationBuilder.refreshMode(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("refreshMode cannot be null");
+  }
+
+  @Test
+  void readAheadBatches_zero() {
+    var testEmChangeProcessorConfigurationBuilder = new EmChangeProcessorConfiguration
+        .Builder(mockAuroraDatabaseConfiguration);
+    assertThat(testEmChangeProcessorConfigurationBuilder.readAheadBatches(0))
+        .isNotNull()
+        .isEqualTo(testEmChangeProcessorConfigurationBuilder);
+  }
+
+  @Test
+  void readAheadBatches_negative() {
+    var testEmChangeProcessorConfigurationBuilder = new EmChangeProcessorConfiguration
+        .Builder(mockAuroraDatabaseConfiguration);
+    assertThatThrownBy(() -> testEmChangeProcessorConfigurationBuilder.readAheadBatches(-1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Read ahead batches cannot be negative.");
+  }
+
   @Test
   void build_withAllDefault() {
     assertThat(new EmChangeProcessorConfiguration.Builder(mockAuroraDatabaseConfiguration).build())
@@ -191,12 +252,18 @@ class EmChangeProcessorConfigurationTest {
         .extracting(
             EmChangeProcessorConfiguration::getAuroraDatabaseConfiguration,
             EmChangeProcessorConfiguration::getLocalDbFilePath,
-            EmChangeProcessorConfiguration::getSourceDbEnvId
+            EmChangeProcessorConfiguration::getSourceDbEnvId,
+            EmChangeProcessorConfiguration::getWriteBatchSize,
+            EmChangeProcessorConfiguration::getRefreshMode,
+            EmChangeProcessorConfiguration::getReadAheadBatches
         )
         .containsExactly(
             mockAuroraDatabaseConfiguration,
             "/tmp/expense_manager.db",
-            "file_sqlite"
+            "file_sqlite",
+            500,
+            RefreshMode.INCREMENTAL,
+            2
         );
   }
 
@@ -206,17 +273,26 @@ class EmChangeProcessorConfigurationTest {
         .Builder(mockAuroraDatabaseConfiguration)
         .localDbFilePath("/local/db/file/path")
         .sourceDbEnvId("/source/db/env/id")
+        .writeBatchSize(100)
+        .refreshMode(RefreshMode.ATOMIC_SWAP)
+        .readAheadBatches(0)
         .build())
         .isNotNull()
         .extracting(
             EmChangeProcessorConfiguration::getAuroraDatabaseConfiguration,
             EmChangeProcessorConfiguration::getLocalDbFilePath,
-            EmChangeProcessorConfiguration::getSourceDbEnvId
+            EmChangeProcessorConfiguration::getSourceDbEnvId,
+            EmChangeProcessorConfiguration::getWriteBatchSize,
+            EmChangeProcessorConfiguration::getRefreshMode,
+            EmChangeProcessorConfiguration::getReadAheadBatches
         )
         .containsExactly(
             mockAuroraDatabaseConfiguration,
             "/local/db/file/path",
-            "/source/db/env/id"
+            "/source/db/env/id",
+            100,
+            RefreshMode.ATOMIC_SWAP,
+            0
         );
   }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+package expense_tally.aws.csv_reader.parser;
+
+import expense_tally.csv.parser.CsvParser;
+import expense_tally.model.csv.AbstractCsvTransaction;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MappedCsvTransactionCursorTest {
+  private static final String TEST_PREAMBLE = "Account Details For:,POSB Savings 123-45678-9\n" +
+      "\n" +
+      "Transaction Date,Reference,Debit Amount,Credit Amount,Transaction Ref1,Transaction Ref2,Transaction Ref3\n";
+
+  @TempDir
+  Path tempDirectory;
+
+  @Test
+  void nextChunk_sameTransactionsAsStreamCursor() throws IOException {
+    String testCsv = TEST_PREAMBLE +
+        "01 Dec 2020,MST, 12.50,,BUS/MRT 123,SI NG 30NOV,5264\n" +
+        "\"02 Dec 2020\",\"POS\",\" 0.1 \",,\"NETS QR\"\r\n" +
+        "   \n" +
+        "29 Feb 2020,MST,.5,100.,Caf\u00e9\n" +
+        "03 Dec 2020,MST,1e2,-0.00\n" +
+        "04 Dec 2020,MST,12345678901234567.25,+3\n" +
+        "05 Dec 2020,UNKNOWN,not an amount,,\n" +
+        "06 Dec 2020,MST,99999.99,,,,,extra field";
+    assertThat(map(testCsv).nextChunk(100))
+        .extracting(AbstractCsvTransaction::getTransactionDate, AbstractCsvTransaction::getTransactionType,
+            AbstractCsvTransaction::getDebitAmount, AbstractCsvTransaction::getCreditAmount,
+            AbstractCsvTransaction::getTransactionRef1)
+        .hasSize(6)
+        .containsExactly(readByStreamCursor(testCsv).stream()
+            .map(csvTransaction -> tuple(csvTransaction.getTransactionDate(), csvTransaction.getTransactionType(),
+                csvTransaction.getDebitAmount(), csvTransaction.getCreditAmount(),
+                csvTransaction.getTransactionRef1()))
+            .toArray(Tuple[]::new));
+  }
+
+  @Test
+  void nextChunk_sameTransactionsAsLibrary() throws IOException {
+    String testCsv = TEST_PREAMBLE +
+        "\n" +
+        "01 Dec 2020,MST, 12.50,,BUS/MRT 123,SI NG 30NOV,5264-7110-0000-0000\r\n" +
+        "01 Dec 2020,POS,3.20,,NETS QR,,\n" +
+        "02 Dec 2020,UNKNOWN,7.00,,,,\n" +
+        "\n" +
+        "02 Dec 2020,ITR,,100.00,SALARY,,\n" +
+        "03 Dec 2020,MST,0.30,,BUS/MRT 456,SI NG 02DEC,5264-7110-0000-0000\n";
+    MappedCsvTransactionCursor mappedCsvTransactionCursor = map(testCsv);
+    List<AbstractCsvTransaction> expectedCsvTransactions =
+        CsvParser.parseCsvFile(tempDirectory.resolve("transaction.csv").toString());
+    List<AbstractCsvTransaction> csvTransactions = new ArrayList<>();
+    List<AbstractCsvTransaction> csvTransactionChunk;
+    while (!(csvTransactionChunk = mappedCsvTransactionCursor.nextChunk(2)).isEmpty()) {
+      csvTransactions.addAll(csvTransactionChunk);
+    }
+    assertThat(csvTransactions)
+        .isNotEmpty()
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(expectedCsvTransactions);
+  }
+
+  @Test
+  void nextChunk_amountsAreExact() throws IOException {
+    String testCsv = TEST_PREAMBLE +
+        "01 Dec 2020,MST,0.1,0.07\n" +
+        "01 Dec 2020,MST,1234.56,-19.99\n";
+    assertThat(map(testCsv).nextChunk(10))
+        .extracting(AbstractCsvTransaction::getDebitAmount, AbstractCsvTransaction::getCreditAmount)
+        .containsExactly(tuple(0.1, 0.07), tuple(1234.56, -19.99));
+  }
+
+  @Test
+  void nextChunk_dateIsParsedFromBytes() throws IOException {
+    String testCsv = TEST_PREAMBLE +
+        "31 Dec 2020,MST,1.00,\n" +
+        "29 Feb 2024,MST,1.00,\n";
+    assertThat(map(testCsv).nextChunk(10))
+        .extracting(AbstractCsvTransaction::getTransactionDate)
+        .containsExactly(LocalDate.of(2020, 12, 31), LocalDate.of(2024, 2, 29));
+  }
+
+  @Test
+  void nextChunk_invalidDate() throws IOException {
+    String testCsv = TEST_PREAMBLE +
+        "01 DEC 2020,MST,1.00,\n";
+    MappedCsvTransactionCursor mappedCsvTransactionCursor = map(testCsv);
+    assertThatThrownBy(() -> mappedCsvTransactionCursor.nextChunk(10))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Unable to parse CSV line 4.")
+        .hasRootCauseInstanceOf(DateTimeParseException.class);
+  }
+
+  @Test
+  void nextChunk_invalidAmount() throws IOException {
+    String testCsv = TEST_PREAMBLE +
+        "01 Dec 2020,MST,1.0.0,\n";
+    MappedCsvTransactionCursor mappedCsvTransactionCursor = map(testCsv);
+    assertThatThrownBy(() -> mappedCsvTransactionCursor.nextChunk(10))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Unable to parse CSV line 4.")
+        .hasRootCauseInstanceOf(NumberFormatException.class);
+  }
+
+  @Test
+  void nextChunk_tooFewFields() throws IOException {
+    String testCsv = TEST_PREAMBLE +
+        "01 Dec 2020,MST\n";
+    MappedCsvTransactionCursor mappedCsvTransactionCursor = map(testCsv);
+    assertThatThrownBy(() -> mappedCsvTransactionCursor.nextChunk(10))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Unable to parse CSV line 4.");
+  }
+
+  @Test
+  void nextChunk_emptyFile() throws IOException {
+    assertThat(map("").nextChunk(10))
+        .isEmpty();
+  }
+
+  @Test
+  void map_null() {
+    assertThatThrownBy(() -> MappedCsvTransactionCursor.map(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("csvFile cannot be null");
+  }
+
+  private MappedCsvTransactionCursor map(String content) throws IOException {
+    Path csvFile = tempDirectory.resolve("transaction.csv");
+    Files.writeString(csvFile, content, StandardCharsets.UTF_8);
+    return MappedCsvTransactionCursor.map(csvFile);
+  }
+
+  private List<AbstractCsvTransaction> readByStreamCursor(String content) throws IOException {
+    return StreamCsvTransactionCursor.create(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))
+        .nextChunk(100);
+  }
+}
@@ -0,0 +1,197 @@
+package expense_tally.aws.csv_reader.parser;
+
+import expense_tally.csv.parser.CsvParser;
+import expense_tally.model.csv.AbstractCsvTransaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamCsvTransactionCursorTest {
+  private static final String TEST_HEADER =
+      "Transaction Date,Reference,Debit Amount,Credit Amount,Transaction Ref1,Transaction Ref2,Transaction Ref3\n";
+  private static final String TEST_PREAMBLE = "Account Details For:,POSB Savings 123-45678-9\n" +
+      "Statement as at:,03 Dec 2020\n" +
+      "\n";
+
+  @TempDir
+  Path tempDirectory;
+
+  @Test
+  void nextChunk_chunksAreBounded() throws IOException {
+    String testCsv = TEST_HEADER +
+        "01 Dec 2020,MST,1.00,,,,\n" +
+        "02 Dec 2020,MST,2.00,,,,\n" +
+        "03 Dec 2020,MST,3.00,,,,\n";
+    StreamCsvTransactionCursor csvTransactionCursor = StreamCsvTransactionCursor.create(toInputStream(testCsv));
+    assertThat(csvTransactionCursor.nextChunk(2))
+        .extracting(AbstractCsvTransaction::getDebitAmount)
+        .containsExactly(1.0, 2.0);
+    assertThat(csvTransactionCursor.nextChunk(2))
+        .extracting(AbstractCsvTransaction::getDebitAmount)
+        .containsExactly(3.0);
+    assertThat(csvTransactionCursor.nextChunk(2))
+        .isEmpty();
+  }
+
+  @Test
+  void nextChunk_carriageReturnAndLastLineWithoutLineBreak() throws IOException {
+    String testCsv = TEST_HEADER.replace("\n", "\r\n") +
+        "01 Dec 2020,MST,1.00,,BUS/MRT 123\r\n" +
+        "02 Dec 2020,MST,2.00,,BUS/MRT 456";
+    assertThat(StreamCsvTransactionCursor.create(toInputStream(testCsv)).nextChunk(10))
+        .hasSize(2)
+        .satisfies(csvTransactions -> {
+          assertThat(csvTransactions.get(0).getTransactionRef1()).isEqualTo("BUS/MRT 123");
+          assertThat(csvTransactions.get(1).getTransactionDate()).isEqualTo(LocalDate.of(2020, 12, 2));
+          assertThat(csvTransactions.get(1).getTransactionRef1()).isEqualTo("BUS/MRT 456");
+        });
+  }
+
+  @Test
+  void nextChunk_lineSpansReadBuffers() throws IOException {
+    StringBuilder testCsv = new StringBuilder(TEST_HEADER);
+    String longReference = "R".repeat(10000);
+    testCsv.append("01 Dec 2020,MST,1.00,,").append(longReference).append(",,\n");
+    assertThat(StreamCsvTransactionCursor.create(toInputStream(testCsv.toString())).nextChunk(10))
+        .singleElement()
+        .satisfies(csvTransaction -> assertThat(csvTransaction.getTransactionRef1()).isEqualTo(longReference));
+  }
+
+  @Test
+  void nextChunk_lineIsTooLong() {
+    String testCsv = TEST_HEADER +
+        "01 Dec 2020,MST,1.00,," + "R".repeat(70000) + "\n";
+    StreamCsvTransactionCursor csvTransactionCursor = StreamCsvTransactionCursor.create(toInputStream(testCsv));
+    assertThatThrownBy(() -> csvTransactionCursor.nextChunk(10))
+        .isInstanceOf(IOException.class)
+        .hasMessage("CSV line 2 is too long.");
+  }
+
+  @Test
+  void nextChunk_fieldsAreNotCarriedOverToNextLine() throws IOException {
+    String testCsv = TEST_HEADER +
+        "01 Dec 2020,MST,1.00,,BUS/MRT 123,SI NG 30NOV,5264\n" +
+        "02 Dec 2020,MST,2.00,\n";
+    assertThat(StreamCsvTransactionCursor.create(toInputStream(testCsv)).nextChunk(10))
+        .hasSize(2)
+        .last()
+        .satisfies(csvTransaction -> assertThat(csvTransaction.getTransactionRef1()).isEmpty());
+  }
+
+  @Test
+  void nextChunk_sameTransactionsAsLibrary() throws IOException {
+    String testCsv = TEST_PREAMBLE + TEST_HEADER +
+        "\n" +
+        "01 Dec 2020,MST, 12.50,,BUS/MRT 123,SI NG 30NOV,5264-7110-0000-0000\n" +
+        "01 Dec 2020,POS,3.20,,NETS QR,,\n" +
+        "02 Dec 2020,UNKNOWN,7.00,,,,\n" +
+        "\n" +
+        "02 Dec 2020,ITR,,100.00,SALARY,,\n" +
+        "03 Dec 2020,MST,0.30,,BUS/MRT 456,SI NG 02DEC,5264-7110-0000-0000\n";
+    assertSameTransactionsAsLibrary(testCsv);
+  }
+
+  @Test
+  void nextChunk_sameTransactionsAsLibraryWithCarriageReturn() throws IOException {
+    String testCsv = (TEST_PREAMBLE + TEST_HEADER).replace("\n", "\r\n") +
+        "01 Dec 2020,MST,1.00,,BUS/MRT 123,SI NG 30NOV,5264-7110-0000-0000\r\n" +
+        "02 Dec 2020,POS,2.00,,NETS QR,,\r\n";
+    assertSameTransactionsAsLibrary(testCsv);
+  }
+
+  @Test
+  void nextChunk_unsupportedTransactionTypeIsSkipped() throws IOException {
+    String testCsv = TEST_PREAMBLE + TEST_HEADER +
+        "01 Dec 2020,UNKNOWN,12.50,,,,\n";
+    assertThat(StreamCsvTransactionCursor.create(toInputStream(testCsv)).nextChunk(10))
+        .isEmpty();
+  }
+
+  @Test
+  void nextChunk_noHeaderLine() throws IOException {
+    String testCsv = "01 Dec 2020,MST,12.50,,,,\n";
+    assertThat(StreamCsvTransactionCursor.create(toInputStream(testCsv)).nextChunk(10))
+        .isEmpty();
+  }
+
+  @Test
+  void nextChunk_invalidDate() {
+    String testCsv = TEST_PREAMBLE + TEST_HEADER +
+        "2020-12-01,MST,12.50,,,,\n";
+    StreamCsvTransactionCursor csvTransactionCursor = StreamCsvTransactionCursor.create(toInputStream(testCsv));
+    assertThatThrownBy(() -> csvTransactionCursor.nextChunk(10))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Unable to parse CSV line 5.")
+        .hasCauseInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void nextChunk_invalidAmount() {
+    String testCsv = TEST_PREAMBLE + TEST_HEADER +
+        "01 Dec 2020,MST,twelve,,,,\n";
+    StreamCsvTransactionCursor csvTransactionCursor = StreamCsvTransactionCursor.create(toInputStream(testCsv));
+    assertThatThrownBy(() -> csvTransactionCursor.nextChunk(10))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Unable to parse CSV line 5.");
+  }
+
+  @Test
+  void nextChunk_tooFewFields() {
+    String testCsv = TEST_PREAMBLE + TEST_HEADER +
+        "01 Dec 2020,MST\n";
+    StreamCsvTransactionCursor csvTransactionCursor = StreamCsvTransactionCursor.create(toInputStream(testCsv));
+    assertThatThrownBy(() -> csvTransactionCursor.nextChunk(10))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Unable to parse CSV line 5.");
+  }
+
+  @Test
+  void nextChunk_chunkSizeIsZero() {
+    StreamCsvTransactionCursor csvTransactionCursor = StreamCsvTransactionCursor.create(toInputStream(TEST_HEADER));
+    assertThatThrownBy(() -> csvTransactionCursor.nextChunk(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Chunk size must be positive.");
+  }
+
+  @Test
+  void create_null() {
+    assertThatThrownBy(() -> StreamCsvTransactionCursor.create(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("inputStream cannot be null");
+  }
+
+  /**
+   * Assert that <i>csvContent</i> is read into the same transactions as {@link CsvParser#parseCsvFile(String)} of the
+   * expense-tally library
+   */
+  private void assertSameTransactionsAsLibrary(String csvContent) throws IOException {
+    Path csvFile = Files.writeString(tempDirectory.resolve("bank_statement.csv"), csvContent);
+    List<AbstractCsvTransaction> expectedCsvTransactions = CsvParser.parseCsvFile(csvFile.toString());
+    StreamCsvTransactionCursor csvTransactionCursor = StreamCsvTransactionCursor.create(toInputStream(csvContent));
+    List<AbstractCsvTransaction> csvTransactions = new ArrayList<>();
+    List<AbstractCsvTransaction> csvTransactionChunk;
+    while (!(csvTransactionChunk = csvTransactionCursor.nextChunk(2)).isEmpty()) {
+      csvTransactions.addAll(csvTransactionChunk);
+    }
+    assertThat(csvTransactions)
+        .isNotEmpty()
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(expectedCsvTransactions);
+  }
+
+  private InputStream toInputStream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,147 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.model.csv.GenericCsvTransaction;
+import expense_tally.model.csv.TransactionType;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import expense_tally.model.persistence.transformation.PaymentMethod;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExpenseTransactionIndexTest {
+  private static final LocalDate TEST_DATE = LocalDate.of(2020, 12, 1);
+
+  @Test
+  void create_tableIsBuiltByLibrary() {
+    List<ExpenseManagerTransaction> testTransactions = List.of(Mockito.mock(ExpenseManagerTransaction.class),
+        Mockito.mock(ExpenseManagerTransaction.class));
+    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> testTable =
+        Map.of(12.5, Map.of(PaymentMethod.DEBIT_CARD, testTransactions));
+    try (MockedStatic<ExpenseTransactionTransformer> mockExpenseTransactionTransformer =
+             Mockito.mockStatic(ExpenseTransactionTransformer.class)) {
+      mockExpenseTransactionTransformer.when(() ->
+              ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(testTransactions))
+          .thenReturn(testTable);
+      ExpenseTransactionIndex expenseTransactionIndex = ExpenseTransactionIndex.create(testTransactions);
+      assertThat(expenseTransactionIndex.candidatesOf(List.of(debit(12.5))))
+          .isEqualTo(testTable);
+      assertThat(expenseTransactionIndex.size())
+          .isEqualTo(2);
+      mockExpenseTransactionTransformer.verify(() ->
+          ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(Mockito.any()));
+    }
+  }
+
+  @Test
+  void candidatesOf_onlyAmountsOfBankTransactions() {
+    PaymentMethod[] paymentMethods = PaymentMethod.values();
+    List<ExpenseManagerTransaction> testTransactions = List.of(expense(12.5, paymentMethods[0]),
+        expense(12.5, paymentMethods[paymentMethods.length - 1]), expense(100, paymentMethods[0]),
+        expense(13, paymentMethods[0]));
+    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> libraryTable =
+        ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(testTransactions);
+    AbstractCsvTransaction testCreditTransaction = new GenericCsvTransaction.Builder(TEST_DATE,
+        TransactionType.FUNDS_TRANSFER_I, 0)
+        .creditAmount(100)
+        .build();
+    assertThat(ExpenseTransactionIndex.create(testTransactions).candidatesOf(List.of(debit(12.5),
+        testCreditTransaction)))
+        .containsOnlyKeys(12.5, 100.0)
+        .containsEntry(12.5, libraryTable.get(12.5))
+        .containsEntry(100.0, libraryTable.get(100.0));
+  }
+
+  @Test
+  void candidatesOf_amountsWithinSameCentAreKeptApart() {
+    double testNearAmount = 12.5 + 1e-9;
+    ExpenseManagerTransaction testTransaction = expense(12.5, PaymentMethod.DEBIT_CARD);
+    ExpenseManagerTransaction testNearTransaction = expense(testNearAmount, PaymentMethod.DEBIT_CARD);
+    assertThat(ExpenseTransactionIndex.create(List.of(testTransaction, testNearTransaction))
+        .candidatesOf(List.of(debit(12.5))))
+        .containsOnlyKeys(12.5, testNearAmount)
+        .containsEntry(12.5, Map.of(PaymentMethod.DEBIT_CARD, List.of(testTransaction)))
+        .containsEntry(testNearAmount, Map.of(PaymentMethod.DEBIT_CARD, List.of(testNearTransaction)));
+  }
+
+  @Test
+  void candidatesOf_sameAsLibraryTableForManyAmounts() {
+    List<ExpenseManagerTransaction> testTransactions = new ArrayList<>();
+    List<AbstractCsvTransaction> testCsvTransactions = new ArrayList<>();
+    PaymentMethod[] paymentMethods = PaymentMethod.values();
+    for (int cents = 1; cents <= 2000; cents++) {
+      double amount = cents / 100.0;
+      testTransactions.add(expense(amount, paymentMethods[cents % paymentMethods.length]));
+      testCsvTransactions.add(debit(amount));
+    }
+    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> libraryTable =
+        ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(testTransactions);
+    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> candidates =
+        ExpenseTransactionIndex.create(testTransactions).candidatesOf(testCsvTransactions);
+    assertThat(candidates)
+        .isEqualTo(new HashMap<>(libraryTable));
+  }
+
+  @Test
+  void candidatesOf_tableIsBuiltForEveryCall() {
+    ExpenseTransactionIndex expenseTransactionIndex = ExpenseTransactionIndex.create(
+        List.of(expense(12.5, PaymentMethod.DEBIT_CARD)));
+    List<AbstractCsvTransaction> testCsvTransactions = List.of(debit(12.5));
+    Map<Double, Map<PaymentMethod, List<ExpenseManagerTransaction>>> candidates =
+        expenseTransactionIndex.candidatesOf(testCsvTransactions);
+    candidates.clear();
+    assertThat(expenseTransactionIndex.candidatesOf(testCsvTransactions))
+        .containsOnlyKeys(12.5);
+  }
+
+  @Test
+  void candidatesOf_transactionListsAreReadOnly() {
+    ExpenseTransactionIndex expenseTransactionIndex = ExpenseTransactionIndex.create(
+        List.of(expense(12.5, PaymentMethod.DEBIT_CARD)));
+    List<ExpenseManagerTransaction> candidateTransactions = expenseTransactionIndex
+        .candidatesOf(List.of(debit(12.5)))
+        .get(12.5)
+        .get(PaymentMethod.DEBIT_CARD);
+    assertThatThrownBy(candidateTransactions::clear)
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  void create_empty() {
+    ExpenseTransactionIndex expenseTransactionIndex = ExpenseTransactionIndex.create(Collections.emptyList());
+    assertThat(expenseTransactionIndex.size())
+        .isZero();
+    assertThat(expenseTransactionIndex.candidatesOf(List.of(debit(12.5))))
+        .isEmpty();
+  }
+
+  @Test
+  void create_null() {
+    assertThatThrownBy(() -> ExpenseTransactionIndex.create(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("expenseManagerTransactions cannot be null");
+  }
+
+  private AbstractCsvTransaction debit(double amount) {
+    return new GenericCsvTransaction.Builder(TEST_DATE, TransactionType.MASTERCARD, amount)
+        .build();
+  }
+
+  private ExpenseManagerTransaction expense(double amount, PaymentMethod paymentMethod) {
+    ExpenseManagerTransaction mockTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    Mockito.lenient().when(mockTransaction.getAmount()).thenReturn(amount);
+    Mockito.lenient().when(mockTransaction.getPaymentMethod()).thenReturn(paymentMethod);
+    return mockTransaction;
+  }
+}
@@ -0,0 +1,145 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.model.csv.GenericCsvTransaction;
+import expense_tally.model.csv.TransactionType;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import expense_tally.model.persistence.transformation.PaymentMethod;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import expense_tally.reconciliation.ExpenseReconciler;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexedExpenseReconcilerTest {
+  private static final LocalDate TEST_DATE = LocalDate.of(2020, 12, 1);
+
+  @Test
+  void reconcile_expenseOnTransactionDate() {
+    assertSameAsLibrary(debit(TEST_DATE, 12.5), expense(TEST_DATE, 12.5));
+  }
+
+  @Test
+  void reconcile_expenseOnPreviousDate() {
+    assertSameAsLibrary(debit(TEST_DATE, 12.5), expense(TEST_DATE.minusDays(1), 12.5));
+  }
+
+  @Test
+  void reconcile_expenseIsTooEarly() {
+    assertSameAsLibrary(debit(TEST_DATE, 12.5), expense(TEST_DATE.minusDays(2), 12.5));
+  }
+
+  @Test
+  void reconcile_expenseIsAfterTransactionDate() {
+    assertSameAsLibrary(debit(TEST_DATE, 12.5), expense(TEST_DATE.plusDays(1), 12.5));
+  }
+
+  @Test
+  void reconcile_differentAmount() {
+    assertSameAsLibrary(debit(TEST_DATE, 12.5), expense(TEST_DATE, 12.51));
+  }
+
+  @Test
+  void reconcile_credit() {
+    AbstractCsvTransaction testCreditTransaction = new GenericCsvTransaction.Builder(TEST_DATE,
+        TransactionType.FUNDS_TRANSFER_I, 0)
+        .creditAmount(100)
+        .build();
+    assertSameAsLibrary(testCreditTransaction, expense(TEST_DATE, 100));
+  }
+
+  @Test
+  void reconcile_rangeIsPassedToLibrary() {
+    List<AbstractCsvTransaction> testCsvTransactions = List.of(debit(TEST_DATE, 1), debit(TEST_DATE, 2),
+        debit(TEST_DATE, 3));
+    ExpenseTransactionIndex expenseTransactionIndex = ExpenseTransactionIndex.create(Collections.emptyList());
+    DiscrepantTransaction mockDiscrepantTransaction = Mockito.mock(DiscrepantTransaction.class);
+    try (MockedStatic<ExpenseReconciler> mockExpenseReconciler = Mockito.mockStatic(ExpenseReconciler.class)) {
+      mockExpenseReconciler.when(() -> ExpenseReconciler.reconcileBankData(
+              Mockito.eq(testCsvTransactions.subList(1, 3)), Mockito.anyMap()))
+          .thenReturn(List.of(mockDiscrepantTransaction));
+      assertThat(IndexedExpenseReconciler.reconcile(testCsvTransactions, 1, 3, expenseTransactionIndex))
+          .containsExactly(mockDiscrepantTransaction);
+    }
+  }
+
+  @Test
+  void reconcile_sameAsLibraryForManyTransactions() {
+    List<AbstractCsvTransaction> testCsvTransactions = new ArrayList<>();
+    List<ExpenseManagerTransaction> testExpenseManagerTransactions = new ArrayList<>();
+    for (int index = 0; index < 600; index++) {
+      LocalDate transactionDate = TEST_DATE.plusDays(index % 30);
+      double amount = (index % 97 + 1) / 4.0;
+      testCsvTransactions.add(debit(transactionDate, amount));
+      if (index % 3 != 0) {
+        // Every third bank transaction has no expense, and some expenses are out of the reconciliation window
+        testExpenseManagerTransactions.add(expense(transactionDate.minusDays(index % 4), amount));
+      }
+    }
+    assertSameAsLibrary(testCsvTransactions, testExpenseManagerTransactions);
+  }
+
+  @Test
+  void reconcile_rangesHaveSameResultAsWholeStatement() {
+    List<AbstractCsvTransaction> testCsvTransactions = new ArrayList<>();
+    List<ExpenseManagerTransaction> testExpenseManagerTransactions = new ArrayList<>();
+    for (int index = 0; index < 100; index++) {
+      testCsvTransactions.add(debit(TEST_DATE, index + 1));
+      if (index % 2 == 0) {
+        testExpenseManagerTransactions.add(expense(TEST_DATE, index + 1));
+      }
+    }
+    ExpenseTransactionIndex expenseTransactionIndex = ExpenseTransactionIndex.create(testExpenseManagerTransactions);
+    List<DiscrepantTransaction> rangeDiscrepantTransactions = new ArrayList<>(
+        IndexedExpenseReconciler.reconcile(testCsvTransactions, 0, 40, expenseTransactionIndex));
+    rangeDiscrepantTransactions.addAll(
+        IndexedExpenseReconciler.reconcile(testCsvTransactions, 40, 100, expenseTransactionIndex));
+    assertThat(rangeDiscrepantTransactions)
+        .hasSize(50)
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(IndexedExpenseReconciler.reconcile(testCsvTransactions,
+            expenseTransactionIndex));
+  }
+
+  private void assertSameAsLibrary(AbstractCsvTransaction csvTransaction,
+                                   ExpenseManagerTransaction expenseManagerTransaction) {
+    assertSameAsLibrary(Collections.singletonList(csvTransaction),
+        Collections.singletonList(expenseManagerTransaction));
+  }
+
+  private void assertSameAsLibrary(List<AbstractCsvTransaction> testCsvTransactions,
+                                   List<ExpenseManagerTransaction> testExpenseManagerTransactions) {
+    // Reconciled as the expense-tally library reconciles the same transactions on its own
+    List<DiscrepantTransaction> expectedDiscrepantTransactions = ExpenseReconciler.reconcileBankData(
+        testCsvTransactions,
+        ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(testExpenseManagerTransactions));
+    assertThat(IndexedExpenseReconciler.reconcile(testCsvTransactions,
+        ExpenseTransactionIndex.create(testExpenseManagerTransactions)))
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(expectedDiscrepantTransactions);
+  }
+
+  private AbstractCsvTransaction debit(LocalDate transactionDate, double amount) {
+    return new GenericCsvTransaction.Builder(transactionDate, TransactionType.MASTERCARD, amount)
+        .build();
+  }
+
+  private ExpenseManagerTransaction expense(LocalDate expenseDate, double amount) {
+    ExpenseManagerTransaction mockTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    Mockito.lenient().when(mockTransaction.getAmount()).thenReturn(amount);
+    Mockito.lenient().when(mockTransaction.getPaymentMethod())
+        .thenReturn(PaymentMethod.resolve(TransactionType.MASTERCARD));
+    Mockito.lenient().when(mockTransaction.getExpendedTime())
+        .thenReturn(expenseDate.atTime(12, 0).atZone(ZoneId.of("Asia/Singapore")).toInstant());
+    return mockTransaction;
+  }
+}
@@ -0,0 +1,108 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.model.csv.GenericCsvTransaction;
+import expense_tally.model.csv.TransactionType;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import expense_tally.model.persistence.transformation.PaymentMethod;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import expense_tally.reconciliation.ExpenseReconciler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionedExpenseReconcilerTest {
+  private static final LocalDate TEST_DATE = LocalDate.of(2020, 12, 1);
+  private static final int TEST_SIZE = PartitionedExpenseReconciler.PARTITION_SIZE * 5 + 17;
+
+  private List<AbstractCsvTransaction> testCsvTransactions;
+  private List<ExpenseManagerTransaction> testExpenseManagerTransactions;
+  private ExpenseTransactionIndex testExpenseTransactionIndex;
+
+  @BeforeEach
+  void setUp() {
+    Random random = new Random(TEST_SIZE);
+    testCsvTransactions = new ArrayList<>(TEST_SIZE);
+    testExpenseManagerTransactions = new ArrayList<>();
+    for (int i = 0; i < TEST_SIZE; i++) {
+      LocalDate transactionDate = TEST_DATE.plusDays(random.nextInt(30));
+      double amount = (random.nextInt(10000) + 1) / 100.0;
+      testCsvTransactions.add(new GenericCsvTransaction.Builder(transactionDate, TransactionType.MASTERCARD, amount)
+          .build());
+      // Record about half of the bank transactions as expenses
+      if (random.nextBoolean()) {
+        testExpenseManagerTransactions.add(expense(transactionDate, amount));
+      }
+    }
+    testExpenseTransactionIndex = ExpenseTransactionIndex.create(testExpenseManagerTransactions);
+  }
+
+  @Test
+  void reconcile_sameResultAsLibrary() {
+    // The library reconciles the whole bank statement at once
+    List<DiscrepantTransaction> expectedDiscrepantTransactions = ExpenseReconciler.reconcileBankData(
+        testCsvTransactions,
+        ExpenseTransactionTransformer.convertToTableOfAmountAndPaymentMethod(testExpenseManagerTransactions));
+    assertThat(PartitionedExpenseReconciler.create(4).reconcile(testCsvTransactions, testExpenseTransactionIndex))
+        .isNotEmpty()
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(expectedDiscrepantTransactions);
+  }
+
+  @Test
+  void reconcile_sameResultAsSequential() {
+    List<DiscrepantTransaction> expectedDiscrepantTransactions =
+        IndexedExpenseReconciler.reconcile(testCsvTransactions, testExpenseTransactionIndex);
+    assertThat(PartitionedExpenseReconciler.create(4).reconcile(testCsvTransactions, testExpenseTransactionIndex))
+        .isNotEmpty()
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(expectedDiscrepantTransactions);
+  }
+
+  @Test
+  void reconcile_sequentialAccessList() {
+    List<DiscrepantTransaction> expectedDiscrepantTransactions =
+        IndexedExpenseReconciler.reconcile(testCsvTransactions, testExpenseTransactionIndex);
+    assertThat(PartitionedExpenseReconciler.create(2).reconcile(new LinkedList<>(testCsvTransactions),
+        testExpenseTransactionIndex))
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(expectedDiscrepantTransactions);
+  }
+
+  @Test
+  void reconcile_singleThread() {
+    List<DiscrepantTransaction> expectedDiscrepantTransactions =
+        IndexedExpenseReconciler.reconcile(testCsvTransactions, testExpenseTransactionIndex);
+    assertThat(PartitionedExpenseReconciler.create(1).reconcile(testCsvTransactions, testExpenseTransactionIndex))
+        .usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(expectedDiscrepantTransactions);
+  }
+
+  @Test
+  void create_nonPositiveParallelism() {
+    assertThatThrownBy(() -> PartitionedExpenseReconciler.create(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Parallelism must be positive.");
+  }
+
+  private ExpenseManagerTransaction expense(LocalDate expenseDate, double amount) {
+    ExpenseManagerTransaction mockTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    Mockito.when(mockTransaction.getAmount()).thenReturn(amount);
+    Mockito.when(mockTransaction.getPaymentMethod())
+        .thenReturn(PaymentMethod.resolve(TransactionType.MASTERCARD));
+    Mockito.lenient().when(mockTransaction.getExpendedTime())
+        .thenReturn(expenseDate.atTime(12, 0).atZone(ZoneId.of("Asia/Singapore")).toInstant());
+    return mockTransaction;
+  }
+}
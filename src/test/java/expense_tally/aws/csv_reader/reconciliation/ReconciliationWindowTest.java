@@ -0,0 +1,65 @@
+package expense_tally.aws.csv_reader.reconciliation;
+
+import expense_tally.model.csv.AbstractCsvTransaction;
+import expense_tally.model.csv.GenericCsvTransaction;
+import expense_tally.model.csv.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReconciliationWindowTest {
+  @Test
+  void cover_spansEarliestToLatestTransaction() {
+    List<AbstractCsvTransaction> testCsvTransactions = List.of(
+        debit(LocalDate.of(2020, 12, 15)),
+        debit(LocalDate.of(2020, 12, 1)),
+        debit(LocalDate.of(2020, 12, 31)));
+    assertThat(ReconciliationWindow.cover(testCsvTransactions, 3))
+        .hasValueSatisfying(reconciliationWindow -> {
+          assertThat(reconciliationWindow.getFrom()).isEqualTo(startOf(LocalDate.of(2020, 11, 27)));
+          assertThat(reconciliationWindow.getTo()).isEqualTo(startOf(LocalDate.of(2021, 1, 2)));
+        });
+  }
+
+  @Test
+  void cover_coversTransactionDatesInEveryTimeZone() {
+    LocalDate testDate = LocalDate.of(2020, 12, 1);
+    assertThat(ReconciliationWindow.cover(List.of(debit(testDate)), 0))
+        .hasValueSatisfying(reconciliationWindow -> {
+          assertThat(reconciliationWindow.getFrom())
+              .isBeforeOrEqualTo(testDate.atStartOfDay(ZoneOffset.MAX).toInstant());
+          assertThat(reconciliationWindow.getTo())
+              .isAfterOrEqualTo(testDate.plusDays(1).atStartOfDay(ZoneOffset.MIN).toInstant());
+        });
+  }
+
+  @Test
+  void cover_noTransaction() {
+    assertThat(ReconciliationWindow.cover(Collections.emptyList(), 1))
+        .isEmpty();
+  }
+
+  @Test
+  void cover_negativeTolerance() {
+    List<AbstractCsvTransaction> testCsvTransactions = List.of(debit(LocalDate.of(2020, 12, 1)));
+    assertThatThrownBy(() -> ReconciliationWindow.cover(testCsvTransactions, -1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Tolerance days cannot be negative.");
+  }
+
+  private AbstractCsvTransaction debit(LocalDate transactionDate) {
+    return new GenericCsvTransaction.Builder(transactionDate, TransactionType.MASTERCARD, 10)
+        .build();
+  }
+
+  private Instant startOf(LocalDate date) {
+    return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+}
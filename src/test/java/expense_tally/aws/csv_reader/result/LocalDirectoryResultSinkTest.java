@@ -0,0 +1,67 @@
+package expense_tally.aws.csv_reader.result;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalDirectoryResultSinkTest {
+  @TempDir
+  Path tempDirectory;
+
+  @Test
+  void publish_resultIsKeyedByVersion() throws IOException {
+    DiscrepantTransaction mockDiscrepantTransaction = Mockito.mock(DiscrepantTransaction.class);
+    Mockito.when(mockDiscrepantTransaction.getTransactionDate()).thenReturn(LocalDate.of(2020, 12, 1));
+    Mockito.when(mockDiscrepantTransaction.getAmount()).thenReturn(12.5);
+    ChangedS3Object testCsvObject = ChangedS3Object.create(new S3ObjectId("testBucket", "12.csv", "testVersion"),
+        100, "testETag");
+    LocalDirectoryResultSink.create(tempDirectory).publish(testCsvObject, List.of(mockDiscrepantTransaction));
+    assertThat(tempDirectory.resolve("testBucket/12.csv/testVersion.jsonl"))
+        .hasContent("{\"transactionDate\":\"2020-12-01\",\"amount\":12.5,\"description\":null}");
+    assertThat(tempDirectory.resolve("testBucket/12.csv"))
+        .isDirectoryContaining(path -> path.getFileName().toString().equals("testVersion.jsonl"))
+        .isDirectoryNotContaining(path -> path.getFileName().toString().endsWith(".tmp"));
+  }
+
+  @Test
+  void publish_resultIsReplaced() throws IOException {
+    ChangedS3Object testCsvObject = ChangedS3Object.create(new S3ObjectId("testBucket", "12.csv"), 100, "testETag");
+    Path resultFile = tempDirectory.resolve("testBucket/12.csv/testETag.jsonl");
+    Files.createDirectories(resultFile.getParent());
+    Files.writeString(resultFile, "stale");
+    LocalDirectoryResultSink.create(tempDirectory).publish(testCsvObject, Collections.emptyList());
+    assertThat(resultFile)
+        .isEmptyFile();
+  }
+
+  @Test
+  void publish_unknownVersion() throws IOException {
+    ChangedS3Object testCsvObject = ChangedS3Object.create(new S3ObjectId("testBucket", "12.csv"));
+    LocalDirectoryResultSink.create(tempDirectory).publish(testCsvObject, Collections.emptyList());
+    assertThat(tempDirectory)
+        .isEmptyDirectory();
+  }
+
+  @Test
+  void publish_keyOutsideOfDirectory() {
+    ChangedS3Object testCsvObject = ChangedS3Object.create(new S3ObjectId("testBucket", "../../escape.csv"), 100,
+        "testETag");
+    LocalDirectoryResultSink testLocalDirectoryResultSink = LocalDirectoryResultSink.create(tempDirectory);
+    assertThatThrownBy(() -> testLocalDirectoryResultSink.publish(testCsvObject, Collections.emptyList()))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Result key resolves outside of the result directory.");
+  }
+}
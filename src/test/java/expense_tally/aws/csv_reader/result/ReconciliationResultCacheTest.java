@@ -0,0 +1,123 @@
+package expense_tally.aws.csv_reader.result;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.database.SyncGeneration;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class ReconciliationResultCacheTest {
+  @Mock
+  private SyncGeneration mockSyncGeneration;
+
+  @Test
+  void create_capacityIsNegative() {
+    assertThatThrownBy(() -> ReconciliationResultCache.create(mockSyncGeneration, -1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Capacity cannot be negative.");
+  }
+
+  @Test
+  void create_syncGenerationIsNull() {
+    assertThatThrownBy(() -> ReconciliationResultCache.create(null, 1))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("syncGeneration cannot be null");
+  }
+
+  @Test
+  void lookup_sameVersionAndGeneration() {
+    Mockito.when(mockSyncGeneration.read()).thenReturn(OptionalLong.of(3));
+    ReconciliationResultCache reconciliationResultCache = ReconciliationResultCache.create(mockSyncGeneration, 2);
+    List<DiscrepantTransaction> discrepantTransactions = new ArrayList<>();
+    discrepantTransactions.add(Mockito.mock(DiscrepantTransaction.class));
+    ReconciliationResultCache.Key key = reconciliationResultCache.keyOf(csvObject("1.csv", "testETag")).orElseThrow();
+    reconciliationResultCache.record(key, discrepantTransactions);
+    // The cached result is not affected by a later change of the recorded list
+    discrepantTransactions.clear();
+    assertThat(reconciliationResultCache.keyOf(csvObject("1.csv", "testETag")))
+        .hasValue(key)
+        .flatMap(reconciliationResultCache::lookup)
+        .hasValueSatisfying(cachedResult -> assertThat(cachedResult).hasSize(1));
+  }
+
+  @Test
+  void lookup_newGeneration() {
+    Mockito.when(mockSyncGeneration.read()).thenReturn(OptionalLong.of(3), OptionalLong.of(4));
+    ReconciliationResultCache reconciliationResultCache = ReconciliationResultCache.create(mockSyncGeneration, 2);
+    ReconciliationResultCache.Key key = reconciliationResultCache.keyOf(csvObject("1.csv", "testETag")).orElseThrow();
+    reconciliationResultCache.record(key, List.of());
+    assertThat(reconciliationResultCache.keyOf(csvObject("1.csv", "testETag")))
+        .isPresent()
+        .flatMap(reconciliationResultCache::lookup)
+        .isEmpty();
+  }
+
+  @Test
+  void lookup_newVersion() {
+    Mockito.when(mockSyncGeneration.read()).thenReturn(OptionalLong.of(3));
+    ReconciliationResultCache reconciliationResultCache = ReconciliationResultCache.create(mockSyncGeneration, 2);
+    ReconciliationResultCache.Key key = reconciliationResultCache.keyOf(csvObject("1.csv", "testETag")).orElseThrow();
+    reconciliationResultCache.record(key, List.of());
+    assertThat(reconciliationResultCache.keyOf(csvObject("1.csv", "newETag")))
+        .isPresent()
+        .flatMap(reconciliationResultCache::lookup)
+        .isEmpty();
+  }
+
+  @Test
+  void record_leastRecentlyUsedResultIsEvicted() {
+    Mockito.when(mockSyncGeneration.read()).thenReturn(OptionalLong.of(3));
+    ReconciliationResultCache reconciliationResultCache = ReconciliationResultCache.create(mockSyncGeneration, 2);
+    ReconciliationResultCache.Key firstKey =
+        reconciliationResultCache.keyOf(csvObject("1.csv", "testETag")).orElseThrow();
+    ReconciliationResultCache.Key secondKey =
+        reconciliationResultCache.keyOf(csvObject("2.csv", "testETag")).orElseThrow();
+    ReconciliationResultCache.Key thirdKey =
+        reconciliationResultCache.keyOf(csvObject("3.csv", "testETag")).orElseThrow();
+    reconciliationResultCache.record(firstKey, List.of());
+    reconciliationResultCache.record(secondKey, List.of());
+    reconciliationResultCache.lookup(firstKey);
+    reconciliationResultCache.record(thirdKey, List.of());
+    assertThat(reconciliationResultCache.lookup(firstKey)).isPresent();
+    assertThat(reconciliationResultCache.lookup(secondKey)).isEmpty();
+    assertThat(reconciliationResultCache.lookup(thirdKey)).isPresent();
+  }
+
+  @Test
+  void keyOf_unknownVersion() {
+    ReconciliationResultCache reconciliationResultCache = ReconciliationResultCache.create(mockSyncGeneration, 2);
+    assertThat(reconciliationResultCache.keyOf(ChangedS3Object.create(new S3ObjectId("testBucket", "1.csv"))))
+        .isEmpty();
+    Mockito.verifyNoInteractions(mockSyncGeneration);
+  }
+
+  @Test
+  void keyOf_unknownGeneration() {
+    Mockito.when(mockSyncGeneration.read()).thenReturn(OptionalLong.empty());
+    ReconciliationResultCache reconciliationResultCache = ReconciliationResultCache.create(mockSyncGeneration, 2);
+    assertThat(reconciliationResultCache.keyOf(csvObject("1.csv", "testETag")))
+        .isEmpty();
+  }
+
+  @Test
+  void keyOf_disabled() {
+    assertThat(ReconciliationResultCache.disabled().keyOf(csvObject("1.csv", "testETag")))
+        .isEmpty();
+  }
+
+  private ChangedS3Object csvObject(String key, String eTag) {
+    return ChangedS3Object.create(new S3ObjectId("testBucket", key), 100, eTag);
+  }
+}
@@ -0,0 +1,63 @@
+package expense_tally.aws.csv_reader.result;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.s3.ChangedS3Object;
+import expense_tally.reconciliation.DiscrepantTransaction;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconciliationResultFormatTest {
+  @Test
+  void resultKey_versionId() {
+    ChangedS3Object testCsvObject = ChangedS3Object.create(new S3ObjectId("testBucket", "2020/12.csv", "testVersion"),
+        100, "testETag");
+    assertThat(ReconciliationResultFormat.resultKey(testCsvObject))
+        .hasValue("testBucket/2020/12.csv/testVersion.jsonl");
+  }
+
+  @Test
+  void resultKey_eTagWithoutVersioning() {
+    ChangedS3Object testCsvObject = ChangedS3Object.create(new S3ObjectId("testBucket", "12.csv"), 100, "testETag");
+    assertThat(ReconciliationResultFormat.resultKey(testCsvObject))
+        .hasValue("testBucket/12.csv/testETag.jsonl");
+  }
+
+  @Test
+  void resultKey_unknownVersion() {
+    ChangedS3Object testCsvObject = ChangedS3Object.create(new S3ObjectId("testBucket", "12.csv"));
+    assertThat(ReconciliationResultFormat.resultKey(testCsvObject))
+        .isEmpty();
+  }
+
+  @Test
+  void toJsonLines() throws IOException {
+    List<DiscrepantTransaction> testDiscrepantTransactions = List.of(
+        discrepantTransaction(LocalDate.of(2020, 12, 1), 12.5, "NTUC FAIRPRICE"),
+        discrepantTransaction(LocalDate.of(2020, 12, 2), 3, "Line \"two\""));
+    assertThat(new String(ReconciliationResultFormat.toJsonLines(testDiscrepantTransactions), StandardCharsets.UTF_8))
+        .isEqualTo("{\"transactionDate\":\"2020-12-01\",\"amount\":12.5,\"description\":\"NTUC FAIRPRICE\"}\n" +
+            "{\"transactionDate\":\"2020-12-02\",\"amount\":3.0,\"description\":\"Line \\\"two\\\"\"}\n");
+  }
+
+  @Test
+  void toJsonLines_noDiscrepancy() throws IOException {
+    assertThat(ReconciliationResultFormat.toJsonLines(Collections.emptyList()))
+        .isEmpty();
+  }
+
+  private DiscrepantTransaction discrepantTransaction(LocalDate transactionDate, double amount, String description) {
+    DiscrepantTransaction mockDiscrepantTransaction = Mockito.mock(DiscrepantTransaction.class);
+    Mockito.when(mockDiscrepantTransaction.getTransactionDate()).thenReturn(transactionDate);
+    Mockito.when(mockDiscrepantTransaction.getAmount()).thenReturn(amount);
+    Mockito.when(mockDiscrepantTransaction.getDescription()).thenReturn(description);
+    return mockDiscrepantTransaction;
+  }
+}
@@ -0,0 +1,157 @@
+package expense_tally.aws.database;
+
+import expense_tally.aws.em_change_processor.sync.TransactionDiff;
+import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
+import expense_tally.expense_manager.persistence.database.DatabaseSessionBuilder;
+import expense_tally.model.persistence.transformation.ExpenseCategory;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import expense_tally.model.persistence.transformation.ExpenseSubCategory;
+import expense_tally.model.persistence.transformation.PaymentMethod;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuroraExpenseTransactionMapperTest {
+  private static final Instant EXPENDED_TIME = Instant.parse("2021-03-04T05:06:07.891Z");
+
+  private UnpooledDataSource unpooledDataSource;
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws SQLException, IOException {
+    unpooledDataSource = new UnpooledDataSource("org.h2.Driver",
+        "jdbc:h2:mem:aurora_mapper;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    try (Connection connection = unpooledDataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      // The amount keeps two decimals and the time whole seconds, as the columns of the Aurora table do
+      statement.executeUpdate("CREATE TABLE " + AuroraExpenseTransactionMapper.TABLE_NAME + " (id INT PRIMARY KEY, " +
+          "amount DECIMAL(10, 2), category VARCHAR(64), subcategory VARCHAR(64), payment_method VARCHAR(64), " +
+          "description VARCHAR(255), expensed_time DATETIME(0), reference_amount DECIMAL(10, 2))");
+    }
+    // Built by the expense manager library, as the session factory of the Aurora database is
+    Environment environment = new Environment.Builder(DatabaseEnvironmentId.MYSQL.name())
+        .dataSource(unpooledDataSource)
+        .transactionFactory(new JdbcTransactionFactory())
+        .build();
+    try (SqlSession sqlSession = DatabaseSessionBuilder.of(new SqlSessionFactoryBuilder())
+        .buildSessionFactory(environment)) {
+      expense_tally.aws.database.SqlSessionFactory.registerMappers(sqlSession.getConfiguration());
+      sqlSessionFactory = new DefaultSqlSessionFactory(sqlSession.getConfiguration());
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws SQLException {
+    try (Connection connection = unpooledDataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate("DROP ALL OBJECTS");
+    }
+  }
+
+  @Test
+  void insert_readBackIsUnchanged() {
+    ExpenseManagerTransaction testTransaction = createTransaction("Lunch", 0.1 + 0.2);
+    write(testTransaction, false);
+    List<ExpenseManagerTransaction> readTransactions = readBetween();
+    assertThat(readTransactions)
+        .hasSize(1)
+        .first()
+        .satisfies(readTransaction -> {
+          assertThat(readTransaction.getId()).isEqualTo(1);
+          assertThat(readTransaction.getAmount()).isEqualTo(0.3);
+          assertThat(readTransaction.getCategory()).isEqualTo(testTransaction.getCategory());
+          assertThat(readTransaction.getSubcategory()).isEqualTo(testTransaction.getSubcategory());
+          assertThat(readTransaction.getPaymentMethod()).isEqualTo(PaymentMethod.DEBIT_CARD);
+          assertThat(readTransaction.getDescription()).isEqualTo("Lunch");
+          assertThat(readTransaction.getExpendedTime()).isEqualTo(Instant.parse("2021-03-04T05:06:08Z"));
+          assertThat(readTransaction.getReferenceAmount()).isEqualTo(0.45);
+        });
+    assertThat(TransactionDiff.track(readTransactions).compare(testTransaction))
+        .isEqualTo(TransactionDiff.Change.NONE);
+  }
+
+  @Test
+  void update_readBackIsUnchanged() {
+    ExpenseManagerTransaction originalTransaction = createTransaction("Lunch", 12.5);
+    ExpenseManagerTransaction changedTransaction = createTransaction("Dinner", 12.5);
+    write(originalTransaction, false);
+    write(changedTransaction, true);
+    List<ExpenseManagerTransaction> readTransactions = readBetween();
+    assertThat(TransactionDiff.track(readTransactions).compare(changedTransaction))
+        .isEqualTo(TransactionDiff.Change.NONE);
+    assertThat(TransactionDiff.track(readTransactions).compare(originalTransaction))
+        .isEqualTo(TransactionDiff.Change.UPDATE);
+  }
+
+  @Test
+  void update_changedReferenceAmountIsReadBack() {
+    ExpenseManagerTransaction originalTransaction = createTransaction("Lunch", 12.5);
+    ExpenseManagerTransaction changedTransaction = createTransaction("Lunch", 12.5);
+    changedTransaction.setReferenceAmount(9.1);
+    write(originalTransaction, false);
+    write(changedTransaction, true);
+    List<ExpenseManagerTransaction> readTransactions = readBetween();
+    assertThat(readTransactions)
+        .singleElement()
+        .extracting(ExpenseManagerTransaction::getReferenceAmount)
+        .isEqualTo(9.1);
+    assertThat(TransactionDiff.track(readTransactions).compare(changedTransaction))
+        .isEqualTo(TransactionDiff.Change.NONE);
+    assertThat(TransactionDiff.track(readTransactions).compare(originalTransaction))
+        .isEqualTo(TransactionDiff.Change.UPDATE);
+  }
+
+  @Test
+  void insert_readBackByLibraryIsUnchanged() throws SQLException, IOException {
+    ExpenseManagerTransaction testTransaction = createTransaction("Lunch", 0.1 + 0.2);
+    write(testTransaction, false);
+    // The incremental synchronisation compares with the transactions read by the expense manager library
+    List<ExpenseManagerTransaction> readTransactions = SessionScopedExpenseReader.create(sqlSessionFactory)
+        .getAllExpenseManagerTransaction();
+    assertThat(TransactionDiff.track(readTransactions).compare(testTransaction))
+        .isEqualTo(TransactionDiff.Change.NONE);
+  }
+
+  private ExpenseManagerTransaction createTransaction(String description, double amount) {
+    ExpenseManagerTransaction expenseManagerTransaction = ExpenseManagerTransaction.create(1, amount,
+        ExpenseCategory.values()[0], ExpenseSubCategory.values()[0], PaymentMethod.DEBIT_CARD, description,
+        EXPENDED_TIME);
+    expenseManagerTransaction.setReferenceAmount(0.45);
+    return expenseManagerTransaction;
+  }
+
+  private void write(ExpenseManagerTransaction expenseManagerTransaction, boolean isUpdate) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      AuroraExpenseTransactionMapper auroraExpenseTransactionMapper = expense_tally.aws.database.SqlSessionFactory
+          .retrieveMapper(sqlSession, AuroraExpenseTransactionMapper.class);
+      if (isUpdate) {
+        auroraExpenseTransactionMapper.update(expenseManagerTransaction);
+      } else {
+        auroraExpenseTransactionMapper.insert(expenseManagerTransaction);
+      }
+      sqlSession.commit();
+    }
+  }
+
+  private List<ExpenseManagerTransaction> readBetween() {
+    return SessionScopedExpenseReader.create(sqlSessionFactory)
+        .getExpenseManagerTransactionsBetween(Instant.parse("2021-03-04T00:00:00Z"),
+            Instant.parse("2021-03-05T00:00:00Z"));
+  }
+}
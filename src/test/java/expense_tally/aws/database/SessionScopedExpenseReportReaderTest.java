@@ -0,0 +1,87 @@
+package expense_tally.aws.database;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionScopedExpenseReportReaderTest {
+  @TempDir
+  Path tempDirectory;
+
+  @AfterEach
+  void tearDown() {
+    SqlSessionFactoryRegistry.clear();
+  }
+
+  @Test
+  void streamExpenseReports_everyRowIsHandled() throws IOException, SQLException {
+    SessionScopedExpenseReportReader sessionScopedExpenseReportReader = createReader(3);
+    List<Integer> resultCounts = new ArrayList<>();
+    sessionScopedExpenseReportReader.streamExpenseReports(resultContext ->
+        resultCounts.add(resultContext.getResultCount()));
+    assertThat(resultCounts)
+        .containsExactly(1, 2, 3);
+  }
+
+  @Test
+  void streamExpenseReports_stopped() throws IOException, SQLException {
+    SessionScopedExpenseReportReader sessionScopedExpenseReportReader = createReader(3);
+    List<Integer> resultCounts = new ArrayList<>();
+    sessionScopedExpenseReportReader.streamExpenseReports(resultContext -> {
+      resultCounts.add(resultContext.getResultCount());
+      resultContext.stop();
+    });
+    assertThat(resultCounts)
+        .containsExactly(1);
+  }
+
+  @Test
+  void streamExpenseReports_emptyTable() throws IOException, SQLException {
+    SessionScopedExpenseReportReader sessionScopedExpenseReportReader = createReader(0);
+    List<Integer> resultCounts = new ArrayList<>();
+    sessionScopedExpenseReportReader.streamExpenseReports(resultContext ->
+        resultCounts.add(resultContext.getResultCount()));
+    assertThat(resultCounts)
+        .isEmpty();
+  }
+
+  @Test
+  void streamExpenseReports_nullResultHandler() throws IOException, SQLException {
+    SessionScopedExpenseReportReader sessionScopedExpenseReportReader = createReader(0);
+    assertThatThrownBy(() -> sessionScopedExpenseReportReader.streamExpenseReports(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("resultHandler cannot be null");
+  }
+
+  private SessionScopedExpenseReportReader createReader(int rows) throws IOException, SQLException {
+    Path databasePath = tempDirectory.resolve("expense_manager.db");
+    try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate("CREATE TABLE " + ExpenseReportStreamMapper.TABLE_NAME + " (_id INTEGER PRIMARY KEY, " +
+          "account TEXT, amount TEXT, category TEXT, subcategory TEXT, payment_method TEXT, description TEXT, " +
+          "expensed INTEGER, modified INTEGER, reference_number TEXT, status TEXT, property TEXT, property2 TEXT, " +
+          "property3 TEXT, property4 TEXT, property5 TEXT, tax TEXT, expense_tag TEXT)");
+      // Inserted in the reverse order of the ID
+      for (int id = rows; id >= 1; id--) {
+        statement.executeUpdate("INSERT INTO " + ExpenseReportStreamMapper.TABLE_NAME + " (_id, account, amount, " +
+            "category, expensed) VALUES (" + id + ", 'Personal Expenses', '1.50', 'Food', 1606780800000)");
+      }
+    }
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(databasePath.toString());
+    return SessionScopedExpenseReportReader.create(sqlSessionFactory);
+  }
+}
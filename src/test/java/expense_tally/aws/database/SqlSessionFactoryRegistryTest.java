@@ -0,0 +1,184 @@
+package expense_tally.aws.database;
+
+import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlSessionFactoryRegistryTest {
+  @TempDir
+  Path tempDirectory;
+
+  @AfterEach
+  void tearDown() {
+    SqlSessionFactoryRegistry.clear();
+  }
+
+  @Test
+  void retrieveSqLiteSessionFactory_sameDatabaseIsReused() throws SQLException, IOException {
+    String testDatabasePath = tempDirectory.resolve("test.db").toString();
+    SqlSessionFactory sqlSessionFactory = SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(testDatabasePath);
+    assertThat(SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(testDatabasePath))
+        .isSameAs(sqlSessionFactory);
+  }
+
+  @Test
+  void retrieveSqLiteSessionFactory_differentDatabase() throws SQLException, IOException {
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(tempDirectory.resolve("test.db").toString());
+    assertThat(SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(tempDirectory.resolve("other.db").toString()))
+        .isNotSameAs(sqlSessionFactory);
+  }
+
+  @Test
+  void retrieveSessionFactory_connectionIsPooled() throws SQLException, IOException {
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(tempDirectory.resolve("test.db").toString());
+    Connection firstConnection = retrieveRealConnection(sqlSessionFactory);
+    assertThat(retrieveRealConnection(sqlSessionFactory))
+        .isSameAs(firstConnection);
+  }
+
+  @Test
+  void retrieveSessionFactory_mappersAreRegistered() throws SQLException, IOException {
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(tempDirectory.resolve("test.db").toString());
+    assertThat(sqlSessionFactory.getConfiguration().getMapperRegistry().getMappers())
+        .contains(AuroraExpenseTransactionMapper.class, SyncGenerationMapper.class, ExpenseReportStreamMapper.class);
+  }
+
+  @Test
+  void resetConnectionPool_connectionIsReopened() throws SQLException, IOException {
+    String testDatabasePath = tempDirectory.resolve("test.db").toString();
+    SqlSessionFactory sqlSessionFactory = SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(testDatabasePath);
+    Connection firstConnection = retrieveRealConnection(sqlSessionFactory);
+    SqlSessionFactoryRegistry.resetConnectionPool(DatabaseEnvironmentId.SQLITE, testDatabasePath);
+    assertThat(firstConnection.isClosed())
+        .isTrue();
+    assertThat(retrieveRealConnection(sqlSessionFactory))
+        .isNotSameAs(firstConnection);
+  }
+
+  @Test
+  void resetConnectionPool_otherDatabaseIsKept() throws SQLException, IOException {
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(tempDirectory.resolve("test.db").toString());
+    Connection firstConnection = retrieveRealConnection(sqlSessionFactory);
+    SqlSessionFactoryRegistry.resetConnectionPool(DatabaseEnvironmentId.SQLITE,
+        tempDirectory.resolve("other.db").toString());
+    assertThat(retrieveRealConnection(sqlSessionFactory))
+        .isSameAs(firstConnection);
+  }
+
+  @Test
+  void retrieveSqLiteSnapshotSessionFactory_snapshotIsSeparateFromWritableDatabase() throws SQLException, IOException {
+    String testDatabasePath = createDatabase(tempDirectory.resolve("test.db"));
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(testDatabasePath);
+    assertThat(SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(testDatabasePath))
+        .isSameAs(sqlSessionFactory)
+        .isNotSameAs(SqlSessionFactoryRegistry.retrieveSqLiteSessionFactory(testDatabasePath));
+  }
+
+  @Test
+  void retrieveSqLiteSnapshotSessionFactory_readOnlyWithoutJournal() throws SQLException, IOException {
+    String testDatabasePath = createDatabase(tempDirectory.resolve("test.db"));
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(testDatabasePath);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Statement statement = sqlSession.getConnection().createStatement()) {
+      assertThat(queryPragma(statement, "journal_mode")).isEqualToIgnoringCase("off");
+      // MEMORY
+      assertThat(queryPragma(statement, "temp_store")).isEqualTo("2");
+      // The default page cache of 2000 KiB is kept for a small file
+      assertThat(queryPragma(statement, "cache_size")).isEqualTo("-2000");
+      try (ResultSet resultSet = statement.executeQuery("SELECT amount FROM expense")) {
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getDouble(1)).isEqualTo(1.5);
+      }
+      assertThatThrownBy(() -> statement.executeUpdate("INSERT INTO expense VALUES (2.5)"))
+          .isInstanceOf(SQLException.class);
+    }
+  }
+
+  @Test
+  void resetConnectionPool_snapshotOfReplacedFileIsRead() throws SQLException, IOException {
+    Path testDatabase = tempDirectory.resolve("test.db");
+    String testDatabasePath = createDatabase(testDatabase);
+    SqlSessionFactory sqlSessionFactory =
+        SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(testDatabasePath);
+    assertThat(countExpenses(sqlSessionFactory)).isEqualTo(1);
+    Path replacingDatabase = tempDirectory.resolve("replacing.db");
+    createDatabase(replacingDatabase);
+    executeUpdate(replacingDatabase, "INSERT INTO expense VALUES (2.5)");
+    Files.move(replacingDatabase, testDatabase, StandardCopyOption.REPLACE_EXISTING);
+    SqlSessionFactoryRegistry.resetConnectionPool(DatabaseEnvironmentId.SQLITE, testDatabasePath);
+    assertThat(countExpenses(sqlSessionFactory)).isEqualTo(2);
+  }
+
+  @Test
+  void retrieveSqLiteSnapshotSessionFactory_null() {
+    assertThatThrownBy(() -> SqlSessionFactoryRegistry.retrieveSqLiteSnapshotSessionFactory(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("databaseConnectionPath cannot be null");
+  }
+
+  @Test
+  void retrieveSessionFactory_databaseEnvironmentIdIsNull() {
+    assertThatThrownBy(() -> SqlSessionFactoryRegistry.retrieveSessionFactory(null, "testPath", "testDatabase",
+        "testUsername", "testPassword", 100))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("databaseEnvironmentId cannot be null");
+  }
+
+  private Connection retrieveRealConnection(SqlSessionFactory sqlSessionFactory) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return PooledDataSource.unwrapConnection(sqlSession.getConnection());
+    }
+  }
+
+  private String createDatabase(Path databasePath) throws SQLException {
+    executeUpdate(databasePath, "CREATE TABLE expense (amount REAL)");
+    executeUpdate(databasePath, "INSERT INTO expense VALUES (1.5)");
+    return databasePath.toString();
+  }
+
+  private void executeUpdate(Path databasePath, String sql) throws SQLException {
+    try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+         Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    }
+  }
+
+  private String queryPragma(Statement statement, String pragma) throws SQLException {
+    try (ResultSet resultSet = statement.executeQuery("PRAGMA " + pragma)) {
+      assertThat(resultSet.next()).isTrue();
+      return resultSet.getString(1);
+    }
+  }
+
+  private int countExpenses(SqlSessionFactory sqlSessionFactory) throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Statement statement = sqlSession.getConnection().createStatement();
+         ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM expense")) {
+      assertThat(resultSet.next()).isTrue();
+      return resultSet.getInt(1);
+    }
+  }
+}
@@ -1,28 +1,43 @@
 package expense_tally.aws.em_change_processor;
 
-import com.amazonaws.SdkClientException;
 import com.amazonaws.services.lambda.runtime.events.S3Event;
 import com.amazonaws.services.s3.model.S3ObjectId;
+import expense_tally.aws.database.ExpenseReportStreamable;
+import expense_tally.aws.database.SqlSessionFactoryRegistry;
+import expense_tally.aws.database.SyncGeneration;
+import expense_tally.aws.em_change_processor.sync.TransactionDiff;
+import expense_tally.aws.em_change_processor.sync.TransactionPipeline;
+import expense_tally.aws.em_change_processor.sync.TransactionSource;
+import expense_tally.aws.em_change_processor.sync.TransactionSynchronizer;
+import expense_tally.aws.metrics.Stage;
+import expense_tally.aws.metrics.StageMetrics;
+import expense_tally.aws.s3.ChangedS3Object;
 import expense_tally.aws.s3.DatabaseS3EventAnalyzer;
+import expense_tally.aws.s3.DownloadStatus;
 import expense_tally.aws.s3.S3FileRetriever;
 import expense_tally.aws.s3.S3IllegalStatusException;
-import expense_tally.expense_manager.persistence.ExpenseReportReadable;
-import expense_tally.expense_manager.persistence.ExpenseUpdatable;
+import expense_tally.expense_manager.persistence.database.DatabaseEnvironmentId;
 import expense_tally.expense_manager.transformation.ExpenseTransactionTransformer;
 import expense_tally.model.persistence.database.ExpenseReport;
 import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
 import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -37,81 +52,161 @@ class S3ExpenseManagerUpdaterTest {
   private S3FileRetriever mockS3FileRetriever;
 
   @Mock
-  private ExpenseReportReadable mockExpenseReportReadable;
+  private ExpenseReportStreamable mockExpenseReportStreamable;
 
   @Mock
-  private ExpenseUpdatable mockExpenseUpdatable;
+  private TransactionSynchronizer mockTransactionSynchronizer;
 
   @Mock
   private File mockExpenseManagerFile;
 
+  @Mock
+  private SyncGeneration mockSyncGeneration;
+
+  @Spy
+  private TransactionPipeline transactionPipeline = TransactionPipeline.direct();
+
+  @Mock
+  private StageMetrics mockStageMetrics;
+
+  @Mock
+  private StageMetrics.Timer mockTimer;
+
   @InjectMocks
   private S3ExpenseManagerUpdater s3ExpenseManagerUpdater;
 
+  @BeforeEach
+  void setUp() {
+    // Not every test reaches a timed stage
+    Mockito.lenient().when(mockStageMetrics.start(Mockito.any(Stage.class))).thenReturn(mockTimer);
+  }
+
   @Test
   void create_positive() {
-    assertThat(S3ExpenseManagerUpdater.create(mockS3FileRetriever, mockExpenseReportReadable, mockExpenseUpdatable,
-        mockExpenseManagerFile))
+    assertThat(S3ExpenseManagerUpdater.create(mockS3FileRetriever, mockExpenseReportStreamable,
+        mockTransactionSynchronizer, mockExpenseManagerFile))
         .isNotNull()
         .hasFieldOrPropertyWithValue("s3FileRetriever", mockS3FileRetriever)
-        .hasFieldOrPropertyWithValue("expenseReportReadable", mockExpenseReportReadable)
-        .hasFieldOrPropertyWithValue("expenseUpdatable", mockExpenseUpdatable)
+        .hasFieldOrPropertyWithValue("expenseReportStreamable", mockExpenseReportStreamable)
+        .hasFieldOrPropertyWithValue("transactionSynchronizer", mockTransactionSynchronizer)
         .hasFieldOrPropertyWithValue("expenseManagerFile", mockExpenseManagerFile);
   }
 
   @Test
   void create_s3FileRetrieverIsNull() {
-    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(null, mockExpenseReportReadable, mockExpenseUpdatable,
-        mockExpenseManagerFile))
+    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(null, mockExpenseReportStreamable,
+        mockTransactionSynchronizer, mockExpenseManagerFile))
         .isInstanceOf(NullPointerException.class)
         .hasMessage("s3FileRetriever cannot be null");
   }
 
   @Test
-  void create_expenseReportReadableIsNull() {
-    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(mockS3FileRetriever, null, mockExpenseUpdatable,
+  void create_expenseReportStreamableIsNull() {
+    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(mockS3FileRetriever, null, mockTransactionSynchronizer,
         mockExpenseManagerFile))
         .isInstanceOf(NullPointerException.class)
-        .hasMessage("expenseReportReadable cannot be null");
+        .hasMessage("expenseReportStreamable cannot be null");
   }
 
   @Test
-  void create_expenseUpdatableIsNull() {
-    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(mockS3FileRetriever, mockExpenseReportReadable, null,
+  void create_transactionSynchronizerIsNull() {
+    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(mockS3FileRetriever, mockExpenseReportStreamable, null,
         mockExpenseManagerFile))
         .isInstanceOf(NullPointerException.class)
-        .hasMessage("expenseUpdatable cannot be null");
+        .hasMessage("transactionSynchronizer cannot be null");
   }
 
   @Test
   void create_expenseManagerFileIsNull() {
-    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(mockS3FileRetriever, mockExpenseReportReadable,
-        mockExpenseUpdatable,null))
+    assertThatThrownBy(() -> S3ExpenseManagerUpdater.create(mockS3FileRetriever, mockExpenseReportStreamable,
+        mockTransactionSynchronizer,null))
         .isInstanceOf(NullPointerException.class)
         .hasMessage("expenseManagerFile cannot be null");
   }
 
+  @Test
+  void builder_positive() {
+    assertThat(new S3ExpenseManagerUpdater.Builder(mockS3FileRetriever, mockExpenseReportStreamable,
+        mockTransactionSynchronizer, mockExpenseManagerFile)
+        .syncGeneration(mockSyncGeneration)
+        .transactionPipeline(transactionPipeline)
+        .stageMetrics(mockStageMetrics)
+        .build())
+        .isNotNull()
+        .hasFieldOrPropertyWithValue("s3FileRetriever", mockS3FileRetriever)
+        .hasFieldOrPropertyWithValue("expenseReportStreamable", mockExpenseReportStreamable)
+        .hasFieldOrPropertyWithValue("transactionSynchronizer", mockTransactionSynchronizer)
+        .hasFieldOrPropertyWithValue("expenseManagerFile", mockExpenseManagerFile)
+        .hasFieldOrPropertyWithValue("syncGeneration", mockSyncGeneration)
+        .hasFieldOrPropertyWithValue("transactionPipeline", transactionPipeline)
+        .hasFieldOrPropertyWithValue("stageMetrics", mockStageMetrics);
+  }
+
+  @Test
+  void builder_s3FileRetrieverIsNull() {
+    S3ExpenseManagerUpdater.Builder builder = new S3ExpenseManagerUpdater.Builder(null, mockExpenseReportStreamable,
+        mockTransactionSynchronizer, mockExpenseManagerFile);
+    assertThatThrownBy(builder::build)
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("s3FileRetriever cannot be null");
+  }
+
+  @Test
+  void builder_syncGenerationIsNull() {
+    S3ExpenseManagerUpdater.Builder builder = new S3ExpenseManagerUpdater.Builder(mockS3FileRetriever,
+        mockExpenseReportStreamable, mockTransactionSynchronizer, mockExpenseManagerFile);
+    assertThatThrownBy(() -> builder.syncGeneration(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("syncGeneration cannot be null");
+  }
+
+  @Test
+  void builder_transactionPipelineIsNull() {
+    S3ExpenseManagerUpdater.Builder builder = new S3ExpenseManagerUpdater.Builder(mockS3FileRetriever,
+        mockExpenseReportStreamable, mockTransactionSynchronizer, mockExpenseManagerFile);
+    assertThatThrownBy(() -> builder.transactionPipeline(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("transactionPipeline cannot be null");
+  }
+
+  @Test
+  void builder_stageMetricsIsNull() {
+    S3ExpenseManagerUpdater.Builder builder = new S3ExpenseManagerUpdater.Builder(mockS3FileRetriever,
+        mockExpenseReportStreamable, mockTransactionSynchronizer, mockExpenseManagerFile);
+    assertThatThrownBy(() -> builder.stageMetrics(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("stageMetrics cannot be null");
+  }
+
   @Test
   void updateExpenseManager_positive() throws IOException, SQLException {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
     S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.of(mockS3ObjectId);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
 
-    Mockito.when(mockS3FileRetriever.downloadFile(mockS3ObjectId, mockExpenseManagerFile)).thenReturn(true);
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
     ExpenseReport mockExpenseReport = Mockito.mock(ExpenseReport.class);
     List<ExpenseReport> mockExpenseReports = Collections.singletonList(mockExpenseReport);
-    Mockito.when(mockExpenseReportReadable.getExpenseTransactions()).thenReturn(mockExpenseReports);
+    prepareExpenseReports(mockExpenseReports);
     ExpenseManagerTransaction mockExpenseManagerTransaction = Mockito.mock(ExpenseManagerTransaction.class);
     List<ExpenseManagerTransaction> mockExpenseManagerTransactions =
         Collections.singletonList(mockExpenseManagerTransaction);
+    TransactionDiff transactionDiff = TransactionDiff.between(mockExpenseManagerTransactions, Collections.emptyList());
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          readSource(invocation);
+          return transactionDiff;
+        });
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     MockedStatic<ExpenseTransactionTransformer> mockExpenseTransactionTransformer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       mockExpenseTransactionTransformer = Mockito.mockStatic(ExpenseTransactionTransformer.class);
       mockExpenseTransactionTransformer.when(() -> ExpenseTransactionTransformer.mapExpenseReports(mockExpenseReports))
           .thenReturn(mockExpenseManagerTransactions);
@@ -128,7 +223,7 @@ class S3ExpenseManagerUpdaterTest {
 
   @Test
   void updateExpenseManager_nullEvent() {
-    assertThatThrownBy(() -> s3ExpenseManagerUpdater.updateExpenseManager(null))
+    assertThatThrownBy(() -> s3ExpenseManagerUpdater.updateExpenseManager((S3Event) null))
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessage("S3 Event cannot be null.");
   }
@@ -137,14 +232,14 @@ class S3ExpenseManagerUpdaterTest {
   void updateExpenseManager_extractEmptyS3ObjectId() throws IOException, SQLException {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.empty();
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.empty();
 
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification);
     } finally {
       if (mockDatabaseS3EventAnalyzer != null) {
@@ -160,7 +255,7 @@ class S3ExpenseManagerUpdaterTest {
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
           .thenThrow(new S3IllegalStatusException("test npe"));
       assertThatThrownBy(() -> s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification))
           .isInstanceOf(S3IllegalStatusException.class);
@@ -176,16 +271,17 @@ class S3ExpenseManagerUpdaterTest {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
     S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.of(mockS3ObjectId);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
 
-    Mockito.when(mockS3FileRetriever.downloadFile(mockS3ObjectId, mockExpenseManagerFile))
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
         .thenThrow(new IOException("test ioException"));
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       assertThatThrownBy(() -> s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification))
           .isInstanceOf(IOException.class)
           .hasMessage("test ioException");
@@ -201,15 +297,17 @@ class S3ExpenseManagerUpdaterTest {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
     S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.of(mockS3ObjectId);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
 
-    Mockito.when(mockS3FileRetriever.downloadFile(mockS3ObjectId, mockExpenseManagerFile)).thenReturn(false);
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.FAILED);
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification);
     } finally {
       if (mockDatabaseS3EventAnalyzer != null) {
@@ -223,53 +321,72 @@ class S3ExpenseManagerUpdaterTest {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
     S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.of(mockS3ObjectId);
-
-    Mockito.when(mockS3FileRetriever.downloadFile(mockS3ObjectId, mockExpenseManagerFile)).thenReturn(true);
-    Mockito.when(mockExpenseReportReadable.getExpenseTransactions()).thenReturn(Collections.emptyList());
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
+
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
+    prepareExpenseReports(Collections.emptyList());
+    List<ExpenseManagerTransaction> synchronisedTransactions = new ArrayList<>();
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          invocation.<TransactionSource>getArgument(0).forEachTransaction(synchronisedTransactions::add);
+          return TransactionDiff.between(Collections.emptyList(), Collections.emptyList());
+        });
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification);
     } finally {
       if (mockDatabaseS3EventAnalyzer != null) {
         mockDatabaseS3EventAnalyzer.close();
       }
     }
-    Mockito.verifyNoInteractions(mockExpenseUpdatable);
+    assertThat(synchronisedTransactions)
+        .isEmpty();
+    // The file is read once, and the synchronisation is abandoned at its end
+    Mockito.verify(mockExpenseReportStreamable).streamExpenseReports(Mockito.any());
+    Mockito.verifyNoInteractions(mockSyncGeneration);
+    Mockito.verify(mockS3FileRetriever, Mockito.never()).invalidate(mockExpenseManagerFile);
   }
 
   @Test
-  void updateExpenseManager_clearDbError() throws IOException, SQLException {
+  void updateExpenseManager_synchronizeDbError() throws IOException, SQLException {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
     S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.of(mockS3ObjectId);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
 
-    Mockito.when(mockS3FileRetriever.downloadFile(mockS3ObjectId, mockExpenseManagerFile)).thenReturn(true);
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
     ExpenseReport mockExpenseReport = Mockito.mock(ExpenseReport.class);
     List<ExpenseReport> mockExpenseReports = Collections.singletonList(mockExpenseReport);
-    Mockito.when(mockExpenseReportReadable.getExpenseTransactions()).thenReturn(mockExpenseReports);
+    prepareExpenseReports(mockExpenseReports);
     ExpenseManagerTransaction mockExpenseManagerTransaction = Mockito.mock(ExpenseManagerTransaction.class);
     List<ExpenseManagerTransaction> mockExpenseManagerTransactions =
         Collections.singletonList(mockExpenseManagerTransaction);
-    Mockito.when(mockExpenseUpdatable.clear()).thenThrow(new SdkClientException("Cannot connect to S3."));
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          readSource(invocation);
+          throw new PersistenceException("Cannot connect to database.");
+        });
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     MockedStatic<ExpenseTransactionTransformer> mockExpenseTransactionTransformer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       mockExpenseTransactionTransformer = Mockito.mockStatic(ExpenseTransactionTransformer.class);
       mockExpenseTransactionTransformer.when(() -> ExpenseTransactionTransformer.mapExpenseReports(mockExpenseReports))
           .thenReturn(mockExpenseManagerTransactions);
       assertThatThrownBy(() -> s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification))
-          .isInstanceOf(SdkClientException.class)
-          .hasMessage("Cannot connect to S3.");
+          .isInstanceOf(PersistenceException.class)
+          .hasMessage("Cannot connect to database.");
     } finally {
       if (mockDatabaseS3EventAnalyzer != null) {
         mockDatabaseS3EventAnalyzer.close();
@@ -278,30 +395,102 @@ class S3ExpenseManagerUpdaterTest {
         mockExpenseTransactionTransformer.close();
       }
     }
+    Mockito.verify(mockS3FileRetriever).invalidate(mockExpenseManagerFile);
   }
 
   @Test
-  void updateExpenseManager_expenseManagerTransactionInsertionFails() throws IOException, SQLException {
+  void updateExpenseManager_notModified() throws IOException, SQLException {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
     S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.of(mockS3ObjectId);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
+
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.NOT_MODIFIED);
+    MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
+    try {
+      mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
+      mockDatabaseS3EventAnalyzer.when(() ->
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
+      s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification);
+    } finally {
+      if (mockDatabaseS3EventAnalyzer != null) {
+        mockDatabaseS3EventAnalyzer.close();
+      }
+    }
+    Mockito.verifyNoInteractions(mockExpenseReportStreamable, mockTransactionSynchronizer);
+  }
+
+  @Test
+  void updateExpenseManager_sqLiteConnectionPoolIsReset() throws IOException, SQLException {
+    S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
+
+    S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
+
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
+    Mockito.when(mockExpenseManagerFile.getPath()).thenReturn("/tmp/expense_manager.db");
+    prepareExpenseReports(Collections.emptyList());
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          readSource(invocation);
+          return TransactionDiff.between(Collections.emptyList(), Collections.emptyList());
+        });
+    MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
+    MockedStatic<SqlSessionFactoryRegistry> mockSqlSessionFactoryRegistry = null;
+    try {
+      mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
+      mockDatabaseS3EventAnalyzer.when(() ->
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
+      mockSqlSessionFactoryRegistry = Mockito.mockStatic(SqlSessionFactoryRegistry.class);
+      s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification);
+      mockSqlSessionFactoryRegistry.verify(() ->
+          SqlSessionFactoryRegistry.resetConnectionPool(DatabaseEnvironmentId.SQLITE, "/tmp/expense_manager.db"));
+    } finally {
+      if (mockDatabaseS3EventAnalyzer != null) {
+        mockDatabaseS3EventAnalyzer.close();
+      }
+      if (mockSqlSessionFactoryRegistry != null) {
+        mockSqlSessionFactoryRegistry.close();
+      }
+    }
+  }
+
+  @Test
+  void updateExpenseManager_onlyChangesAreSynchronised() throws IOException, SQLException {
+    S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
-    Mockito.when(mockS3FileRetriever.downloadFile(mockS3ObjectId, mockExpenseManagerFile)).thenReturn(true);
+    S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
+
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
     ExpenseReport mockExpenseReport = Mockito.mock(ExpenseReport.class);
     List<ExpenseReport> mockExpenseReports = Collections.singletonList(mockExpenseReport);
-    Mockito.when(mockExpenseReportReadable.getExpenseTransactions()).thenReturn(mockExpenseReports);
+    prepareExpenseReports(mockExpenseReports);
     ExpenseManagerTransaction mockExpenseManagerTransaction = Mockito.mock(ExpenseManagerTransaction.class);
     List<ExpenseManagerTransaction> mockExpenseManagerTransactions =
         Collections.singletonList(mockExpenseManagerTransaction);
-    Mockito.when(mockExpenseUpdatable.add(mockExpenseManagerTransaction)).thenReturn(false);
+    TransactionDiff transactionDiff = TransactionDiff.between(mockExpenseManagerTransactions, Collections.emptyList());
+    List<ExpenseManagerTransaction> synchronisedTransactions = new ArrayList<>();
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          invocation.<TransactionSource>getArgument(0).forEachTransaction(synchronisedTransactions::add);
+          return transactionDiff;
+        });
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     MockedStatic<ExpenseTransactionTransformer> mockExpenseTransactionTransformer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       mockExpenseTransactionTransformer = Mockito.mockStatic(ExpenseTransactionTransformer.class);
       mockExpenseTransactionTransformer.when(() -> ExpenseTransactionTransformer.mapExpenseReports(mockExpenseReports))
           .thenReturn(mockExpenseManagerTransactions);
@@ -314,31 +503,93 @@ class S3ExpenseManagerUpdaterTest {
         mockExpenseTransactionTransformer.close();
       }
     }
+    assertThat(synchronisedTransactions)
+        .containsExactlyElementsOf(mockExpenseManagerTransactions);
+    Mockito.verify(mockSyncGeneration).advance();
   }
 
   @Test
-  void updateExpenseManager_expenseManagerTransactionInsertionError() throws IOException, SQLException {
+  void updateExpenseManager_stagesAreRecorded() throws IOException, SQLException {
     S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
 
     S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
-    Optional<S3ObjectId> mockOptionalS3ObjectId = Optional.of(mockS3ObjectId);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
 
-    Mockito.when(mockS3FileRetriever.downloadFile(mockS3ObjectId, mockExpenseManagerFile)).thenReturn(true);
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
+    Mockito.when(mockExpenseManagerFile.length()).thenReturn(2048L);
     ExpenseReport mockExpenseReport = Mockito.mock(ExpenseReport.class);
     List<ExpenseReport> mockExpenseReports = Collections.singletonList(mockExpenseReport);
-    Mockito.when(mockExpenseReportReadable.getExpenseTransactions()).thenReturn(mockExpenseReports);
+    prepareExpenseReports(mockExpenseReports);
     ExpenseManagerTransaction mockExpenseManagerTransaction = Mockito.mock(ExpenseManagerTransaction.class);
     List<ExpenseManagerTransaction> mockExpenseManagerTransactions =
         Collections.singletonList(mockExpenseManagerTransaction);
-    Mockito.when(mockExpenseUpdatable.add(mockExpenseManagerTransaction)).thenThrow(new PersistenceException("Cannot " +
-        "add."));
+    TransactionDiff transactionDiff = TransactionDiff.between(mockExpenseManagerTransactions, Collections.emptyList());
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          invocation.<TransactionSource>getArgument(0).forEachTransaction(transaction -> {
+          });
+          return transactionDiff;
+        });
     MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
     MockedStatic<ExpenseTransactionTransformer> mockExpenseTransactionTransformer = null;
     try {
       mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
       mockDatabaseS3EventAnalyzer.when(() ->
-          DatabaseS3EventAnalyzer.extractChangedS3ObjectId(mockChangedEmDbFileNotification))
-          .thenReturn(mockOptionalS3ObjectId);
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
+      mockExpenseTransactionTransformer = Mockito.mockStatic(ExpenseTransactionTransformer.class);
+      mockExpenseTransactionTransformer.when(() -> ExpenseTransactionTransformer.mapExpenseReports(mockExpenseReports))
+          .thenReturn(mockExpenseManagerTransactions);
+      s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification);
+    } finally {
+      if (mockDatabaseS3EventAnalyzer != null) {
+        mockDatabaseS3EventAnalyzer.close();
+      }
+      if (mockExpenseTransactionTransformer != null) {
+        mockExpenseTransactionTransformer.close();
+      }
+    }
+    Mockito.verify(mockStageMetrics).start(Stage.S3_DOWNLOAD);
+    Mockito.verify(mockStageMetrics).addBytes(Stage.S3_DOWNLOAD, 2048L);
+    Mockito.verify(mockStageMetrics).recordTime(Mockito.eq(Stage.SQLITE_READ), Mockito.anyLong());
+    Mockito.verify(mockStageMetrics).addRows(Stage.SQLITE_READ, 1L);
+    Mockito.verify(mockStageMetrics).recordTime(Mockito.eq(Stage.TRANSFORM), Mockito.anyLong());
+    Mockito.verify(mockStageMetrics).addRows(Stage.TRANSFORM, 1L);
+    Mockito.verify(mockStageMetrics).start(Stage.AURORA_SYNC);
+    Mockito.verify(mockStageMetrics).addRows(Stage.AURORA_SYNC, 1L);
+    Mockito.verify(mockTimer, Mockito.times(2)).close();
+  }
+
+  @Test
+  void updateExpenseManager_expenseManagerTransactionSynchronisationError() throws IOException, SQLException {
+    S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
+
+    S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
+
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
+    ExpenseReport mockExpenseReport = Mockito.mock(ExpenseReport.class);
+    List<ExpenseReport> mockExpenseReports = Collections.singletonList(mockExpenseReport);
+    prepareExpenseReports(mockExpenseReports);
+    ExpenseManagerTransaction mockExpenseManagerTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    List<ExpenseManagerTransaction> mockExpenseManagerTransactions =
+        Collections.singletonList(mockExpenseManagerTransaction);
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          readSource(invocation);
+          throw new PersistenceException("Cannot add.");
+        });
+    MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
+    MockedStatic<ExpenseTransactionTransformer> mockExpenseTransactionTransformer = null;
+    try {
+      mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
+      mockDatabaseS3EventAnalyzer.when(() ->
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
       mockExpenseTransactionTransformer = Mockito.mockStatic(ExpenseTransactionTransformer.class);
       mockExpenseTransactionTransformer.when(() -> ExpenseTransactionTransformer.mapExpenseReports(mockExpenseReports))
           .thenReturn(mockExpenseManagerTransactions);
@@ -353,5 +604,81 @@ class S3ExpenseManagerUpdaterTest {
         mockExpenseTransactionTransformer.close();
       }
     }
+    // Part of the changes may have been applied before the failure
+    Mockito.verify(mockSyncGeneration).advance();
+  }
+
+  @Test
+  void updateExpenseManager_syncGenerationAdvanceError() throws IOException, SQLException {
+    S3Event mockChangedEmDbFileNotification = Mockito.mock(S3Event.class);
+
+    S3ObjectId mockS3ObjectId = Mockito.mock(S3ObjectId.class);
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(mockS3ObjectId);
+    Optional<ChangedS3Object> optionalChangedS3Object = Optional.of(testChangedS3Object);
+
+    Mockito.when(mockS3FileRetriever.retrieveFile(testChangedS3Object, mockExpenseManagerFile))
+        .thenReturn(DownloadStatus.DOWNLOADED);
+    ExpenseReport mockExpenseReport = Mockito.mock(ExpenseReport.class);
+    List<ExpenseReport> mockExpenseReports = Collections.singletonList(mockExpenseReport);
+    prepareExpenseReports(mockExpenseReports);
+    ExpenseManagerTransaction mockExpenseManagerTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    List<ExpenseManagerTransaction> mockExpenseManagerTransactions =
+        Collections.singletonList(mockExpenseManagerTransaction);
+    Mockito.when(mockTransactionSynchronizer.synchronize(Mockito.any(TransactionSource.class)))
+        .thenAnswer(invocation -> {
+          readSource(invocation);
+          throw new PersistenceException("Cannot add.");
+        });
+    Mockito.doThrow(new PersistenceException("Cannot advance.")).when(mockSyncGeneration).advance();
+    MockedStatic<DatabaseS3EventAnalyzer> mockDatabaseS3EventAnalyzer = null;
+    MockedStatic<ExpenseTransactionTransformer> mockExpenseTransactionTransformer = null;
+    try {
+      mockDatabaseS3EventAnalyzer = Mockito.mockStatic(DatabaseS3EventAnalyzer.class);
+      mockDatabaseS3EventAnalyzer.when(() ->
+          DatabaseS3EventAnalyzer.extractChangedS3Object(mockChangedEmDbFileNotification))
+          .thenReturn(optionalChangedS3Object);
+      mockExpenseTransactionTransformer = Mockito.mockStatic(ExpenseTransactionTransformer.class);
+      mockExpenseTransactionTransformer.when(() -> ExpenseTransactionTransformer.mapExpenseReports(mockExpenseReports))
+          .thenReturn(mockExpenseManagerTransactions);
+      assertThatThrownBy(() -> s3ExpenseManagerUpdater.updateExpenseManager(mockChangedEmDbFileNotification))
+          .isInstanceOf(PersistenceException.class)
+          .hasMessage("Cannot add.")
+          .satisfies(exception -> assertThat(exception.getSuppressed())
+              .hasSize(1)
+              .allSatisfy(suppressed -> assertThat(suppressed).hasMessage("Cannot advance.")));
+    } finally {
+      if (mockDatabaseS3EventAnalyzer != null) {
+        mockDatabaseS3EventAnalyzer.close();
+      }
+      if (mockExpenseTransactionTransformer != null) {
+        mockExpenseTransactionTransformer.close();
+      }
+    }
+  }
+
+  /**
+   * Read the whole source passed to the stubbed transaction synchroniser, as the synchronisers do
+   */
+  private void readSource(InvocationOnMock invocation) throws IOException, SQLException {
+    invocation.<TransactionSource>getArgument(0).forEachTransaction(transaction -> {
+    });
+  }
+
+  /**
+   * Stub the expense manager database file to contain <i>expenseReports</i>
+   */
+  private void prepareExpenseReports(List<ExpenseReport> expenseReports) throws IOException, SQLException {
+    Mockito.doAnswer(invocation -> {
+      ResultHandler<ExpenseReport> resultHandler = invocation.getArgument(0);
+      DefaultResultContext<ExpenseReport> resultContext = new DefaultResultContext<>();
+      for (ExpenseReport expenseReport : expenseReports) {
+        resultContext.nextResultObject(expenseReport);
+        resultHandler.handleResult(resultContext);
+        if (resultContext.isStopped()) {
+          break;
+        }
+      }
+      return null;
+    }).when(mockExpenseReportStreamable).streamExpenseReports(Mockito.any());
   }
-}
\ No newline at end of file
+}
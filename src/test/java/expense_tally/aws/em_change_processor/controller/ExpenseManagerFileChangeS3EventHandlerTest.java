@@ -2,28 +2,32 @@ package expense_tally.aws.em_change_processor.controller;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import expense_tally.aws.aurora.AuroraDatabaseConfiguration;
 import expense_tally.aws.em_change_processor.S3ExpenseManagerUpdater;
 import expense_tally.aws.em_change_processor.configuration.EmChangeProcessorConfiguration;
 import expense_tally.aws.em_change_processor.configuration.EmChangeProcessorConfigurationParser;
-import expense_tally.aws.s3.S3FileRetriever;
-import expense_tally.expense_manager.persistence.ExpenseReportReadable;
-import expense_tally.expense_manager.persistence.ExpenseUpdatable;
+import expense_tally.aws.em_change_processor.configuration.RefreshMode;
+import expense_tally.aws.s3.ChangedS3Object;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
 
 @ExtendWith(MockitoExtension.class)
 class ExpenseManagerFileChangeS3EventHandlerTest {
@@ -46,20 +50,21 @@ class ExpenseManagerFileChangeS3EventHandlerTest {
     MockedStatic<EmChangeProcessorConfigurationParser> mockConfigurationParser = null;
     MockedStatic<AmazonS3ClientBuilder> mockAmazonS3ClientBuilder = null;
     Mockito.when(mockEmChangeProcessorConfiguration.getLocalDbFilePath()).thenReturn("testDbpath");
+    Mockito.when(mockEmChangeProcessorConfiguration.getWriteBatchSize()).thenReturn(500);
+    Mockito.when(mockEmChangeProcessorConfiguration.getRefreshMode()).thenReturn(RefreshMode.INCREMENTAL);
     Mockito.when(mockEmChangeProcessorConfiguration.getAuroraDatabaseConfiguration()).thenReturn(mockAuroraDatabaseConfiguration);
     Mockito.when(mockAuroraDatabaseConfiguration.getHostUrl()).thenReturn("testHost");
     Mockito.when(mockAuroraDatabaseConfiguration.getDatabaseName()).thenReturn("testDb");
-    MockedStatic<S3ExpenseManagerUpdater> mockS3ExpenseManagerUpdaterStatic = null;
+    MockedConstruction<S3ExpenseManagerUpdater.Builder> mockS3ExpenseManagerUpdaterBuilder = null;
     try {
       mockConfigurationParser = Mockito.mockStatic(EmChangeProcessorConfigurationParser.class);
       mockConfigurationParser.when(EmChangeProcessorConfigurationParser::parseSystemEnvironmentVariableConfiguration)
           .thenReturn(mockEmChangeProcessorConfiguration);
       mockAmazonS3ClientBuilder = Mockito.mockStatic(AmazonS3ClientBuilder.class);
       mockAmazonS3ClientBuilder.when(AmazonS3ClientBuilder::defaultClient).thenReturn(mockAmazonS3);
-      mockS3ExpenseManagerUpdaterStatic = Mockito.mockStatic(S3ExpenseManagerUpdater.class);
-      mockS3ExpenseManagerUpdaterStatic.when(() -> S3ExpenseManagerUpdater.create(Mockito.any(S3FileRetriever.class),
-          Mockito.any(ExpenseReportReadable.class), Mockito.any(ExpenseUpdatable.class), Mockito.any(File.class)))
-          .thenReturn(mockS3ExpenseManagerUpdater);
+      mockS3ExpenseManagerUpdaterBuilder = Mockito.mockConstruction(S3ExpenseManagerUpdater.Builder.class,
+          Mockito.withSettings().defaultAnswer(Mockito.RETURNS_SELF),
+          (mockBuilder, context) -> Mockito.when(mockBuilder.build()).thenReturn(mockS3ExpenseManagerUpdater));
       expenseManagerFileChangeS3EventHandler = new ExpenseManagerFileChangeS3EventHandler();
 
     } finally {
@@ -69,8 +74,8 @@ class ExpenseManagerFileChangeS3EventHandlerTest {
       if (mockAmazonS3ClientBuilder != null) {
         mockAmazonS3ClientBuilder.close();
       }
-      if (mockS3ExpenseManagerUpdaterStatic != null) {
-        mockS3ExpenseManagerUpdaterStatic.close();
+      if (mockS3ExpenseManagerUpdaterBuilder != null) {
+        mockS3ExpenseManagerUpdaterBuilder.close();
       }
     }
   }
@@ -80,6 +85,8 @@ class ExpenseManagerFileChangeS3EventHandlerTest {
     MockedStatic<EmChangeProcessorConfigurationParser> mockConfigurationParser = null;
     MockedStatic<AmazonS3ClientBuilder> mockAmazonS3ClientBuilder = null;
     Mockito.when(mockEmChangeProcessorConfiguration.getLocalDbFilePath()).thenReturn("testDbpath");
+    Mockito.when(mockEmChangeProcessorConfiguration.getWriteBatchSize()).thenReturn(500);
+    Mockito.when(mockEmChangeProcessorConfiguration.getRefreshMode()).thenReturn(RefreshMode.INCREMENTAL);
     Mockito.when(mockEmChangeProcessorConfiguration.getAuroraDatabaseConfiguration()).thenReturn(mockAuroraDatabaseConfiguration);
     Mockito.when(mockAuroraDatabaseConfiguration.getHostUrl()).thenReturn("testHost");
     Mockito.when(mockAuroraDatabaseConfiguration.getDatabaseName()).thenReturn("testDb");
@@ -112,12 +119,68 @@ class ExpenseManagerFileChangeS3EventHandlerTest {
 
   @Test
   void handleRequest_exception() throws IOException, SQLException {
-    S3Event mockEmFileChangeEvent = Mockito.mock(S3Event.class);
+    S3Event testEmFileChangeEvent = createS3Event("expense_manager.db");
     Context mockContext = Mockito.mock(Context.class);
     Mockito.doThrow(new IOException("test IOException"))
-        .when(mockS3ExpenseManagerUpdater).updateExpenseManager(mockEmFileChangeEvent);
-    assertThat(expenseManagerFileChangeS3EventHandler.handleRequest(mockEmFileChangeEvent, mockContext))
+        .when(mockS3ExpenseManagerUpdater).updateExpenseManager(Mockito.any(ChangedS3Object.class));
+    assertThat(expenseManagerFileChangeS3EventHandler.handleRequest(testEmFileChangeEvent, mockContext))
+        .isNull();
+    Mockito.verify(mockS3ExpenseManagerUpdater).updateExpenseManager(changedS3ObjectOf("expense_manager.db"));
+  }
+
+  @Test
+  void handleRequest_everyObjectIsUpdatedInOrder() throws IOException, SQLException {
+    S3Event testEmFileChangeEvent = createS3Event("first.db", "second.db");
+    Context mockContext = Mockito.mock(Context.class);
+    Mockito.doThrow(new IOException("test IOException"))
+        .when(mockS3ExpenseManagerUpdater).updateExpenseManager(changedS3ObjectOf("first.db"));
+    assertThat(expenseManagerFileChangeS3EventHandler.handleRequest(testEmFileChangeEvent, mockContext))
+        .isNull();
+    InOrder inOrder = Mockito.inOrder(mockS3ExpenseManagerUpdater);
+    inOrder.verify(mockS3ExpenseManagerUpdater).updateExpenseManager(changedS3ObjectOf("first.db"));
+    inOrder.verify(mockS3ExpenseManagerUpdater).updateExpenseManager(changedS3ObjectOf("second.db"));
+  }
+
+  @Test
+  void beforeCheckpoint_success() {
+    assertThatCode(() -> expenseManagerFileChangeS3EventHandler.beforeCheckpoint(null))
+        .doesNotThrowAnyException();
+  }
+
+  @Test
+  void afterRestore_componentsAreReused() throws Exception {
+    try (MockedStatic<EmChangeProcessorConfigurationParser> mockConfigurationParser =
+             Mockito.mockStatic(EmChangeProcessorConfigurationParser.class);
+         MockedConstruction<S3ExpenseManagerUpdater.Builder> mockS3ExpenseManagerUpdaterBuilder =
+             Mockito.mockConstruction(S3ExpenseManagerUpdater.Builder.class)) {
+      mockConfigurationParser.when(EmChangeProcessorConfigurationParser::parseSystemEnvironmentVariableConfiguration)
+          .thenReturn(mockEmChangeProcessorConfiguration);
+      expenseManagerFileChangeS3EventHandler.afterRestore(null);
+      mockConfigurationParser.verify(EmChangeProcessorConfigurationParser::parseSystemEnvironmentVariableConfiguration);
+      assertThat(mockS3ExpenseManagerUpdaterBuilder.constructed())
+          .isEmpty();
+    }
+    S3Event testEmFileChangeEvent = createS3Event("expense_manager.db");
+    Context mockContext = Mockito.mock(Context.class);
+    assertThat(expenseManagerFileChangeS3EventHandler.handleRequest(testEmFileChangeEvent, mockContext))
         .isNull();
-    Mockito.verify(mockS3ExpenseManagerUpdater, Mockito.atMostOnce()).updateExpenseManager(mockEmFileChangeEvent);
+    Mockito.verify(mockS3ExpenseManagerUpdater).updateExpenseManager(changedS3ObjectOf("expense_manager.db"));
+  }
+
+  private S3Event createS3Event(String... keys) {
+    List<S3EventNotification.S3EventNotificationRecord> testRecords = new ArrayList<>();
+    for (String key : keys) {
+      S3EventNotification.S3EventNotificationRecord mockRecord =
+          Mockito.mock(S3EventNotification.S3EventNotificationRecord.class);
+      Mockito.when(mockRecord.getS3()).thenReturn(new S3EventNotification.S3Entity("testConfigurationId",
+          new S3EventNotification.S3BucketEntity("testBucket", null, null),
+          new S3EventNotification.S3ObjectEntity(key, 1024L, "testETag", null, null), "1.0"));
+      testRecords.add(mockRecord);
+    }
+    return new S3Event(testRecords);
+  }
+
+  private ChangedS3Object changedS3ObjectOf(String key) {
+    return Mockito.argThat(changedS3Object -> key.equals(changedS3Object.getS3ObjectId().getKey()));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,200 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.expense_manager.persistence.ExpenseReadable;
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class AtomicSwapTransactionSynchronizerTest {
+  @Mock
+  private ExpenseReadable mockExpenseReadable;
+
+  @Mock
+  private SqlSessionFactory mockSqlSessionFactory;
+
+  @Mock
+  private SqlSession mockSqlSession;
+
+  @Mock
+  private AuroraExpenseTransactionMapper mockMapper;
+
+  @Mock
+  private BatchTransactionWriter mockBatchTransactionWriter;
+
+  @Mock
+  private BatchTransactionWriter.Transaction mockWriteTransaction;
+
+  @Mock
+  private BatchTransactionWriter.RecordStream<ExpenseManagerTransaction> mockRecordStream;
+
+  @Test
+  void create_sqlSessionFactoryIsNull() {
+    assertThatThrownBy(() -> AtomicSwapTransactionSynchronizer.create(mockExpenseReadable, null,
+        mockBatchTransactionWriter))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("sqlSessionFactory cannot be null");
+  }
+
+  @Test
+  void synchronize_upToDate() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> transactions = List.of(mockTransaction(1));
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(transactions);
+    AtomicSwapTransactionSynchronizer atomicSwapTransactionSynchronizer = AtomicSwapTransactionSynchronizer.create(
+        mockExpenseReadable, mockSqlSessionFactory, mockBatchTransactionWriter);
+    assertThat(atomicSwapTransactionSynchronizer.synchronize(transactions).isEmpty())
+        .isTrue();
+    Mockito.verifyNoInteractions(mockSqlSessionFactory, mockBatchTransactionWriter);
+  }
+
+  @Test
+  void synchronize_stagingTableIsSwapped() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> sourceTransactions = List.of(mockTransaction(1), mockTransaction(2));
+    List<ExpenseManagerTransaction> currentTransactions = List.of(mockTransaction(3));
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(currentTransactions);
+    prepareTableSession();
+    prepareStagingStream();
+    Mockito.when(mockWriteTransaction.commit()).thenReturn(BatchWriteResult.of(2, List.of()));
+    AtomicSwapTransactionSynchronizer atomicSwapTransactionSynchronizer = AtomicSwapTransactionSynchronizer.create(
+        mockExpenseReadable, mockSqlSessionFactory, mockBatchTransactionWriter);
+    assertThat(atomicSwapTransactionSynchronizer.synchronize(sourceTransactions))
+        .satisfies(transactionDiff -> {
+          assertThat(transactionDiff.getInsertionCount()).isEqualTo(2);
+          assertThat(transactionDiff.getDeletedIds()).containsExactly(3);
+        });
+    InOrder inOrder = Mockito.inOrder(mockMapper, mockRecordStream, mockWriteTransaction);
+    inOrder.verify(mockMapper).acquireSwapLock(60);
+    inOrder.verify(mockMapper).dropStagingTables();
+    inOrder.verify(mockMapper).createStagingTable();
+    inOrder.verify(mockRecordStream).add(sourceTransactions.get(0));
+    inOrder.verify(mockRecordStream).add(sourceTransactions.get(1));
+    inOrder.verify(mockWriteTransaction).commit();
+    inOrder.verify(mockWriteTransaction).close();
+    inOrder.verify(mockMapper).swapStagingTable();
+    inOrder.verify(mockMapper).dropStagingTables();
+    inOrder.verify(mockMapper).releaseSwapLock();
+  }
+
+  @Test
+  void synchronize_stagingFailureKeepsLiveTable() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> sourceTransactions = List.of(mockTransaction(1));
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(List.of());
+    prepareTableSession();
+    BatchWriteResult.ChunkFailure chunkFailure = new BatchWriteResult.ChunkFailure("stage", 0, 0, 1,
+        new PersistenceException("Cannot insert."));
+    prepareStagingStream();
+    Mockito.when(mockWriteTransaction.commit()).thenReturn(BatchWriteResult.of(0, List.of(chunkFailure)));
+    AtomicSwapTransactionSynchronizer atomicSwapTransactionSynchronizer = AtomicSwapTransactionSynchronizer.create(
+        mockExpenseReadable, mockSqlSessionFactory, mockBatchTransactionWriter);
+    assertThatThrownBy(() -> atomicSwapTransactionSynchronizer.synchronize(sourceTransactions))
+        .isInstanceOf(BatchWriteException.class)
+        .hasMessage("Unable to stage 1 batch(es). Live table is not replaced.");
+    Mockito.verify(mockMapper, Mockito.never()).swapStagingTable();
+    Mockito.verify(mockMapper, Mockito.times(2)).dropStagingTables();
+    Mockito.verify(mockMapper).releaseSwapLock();
+  }
+
+  @Test
+  void synchronize_lockIsHeldByAnotherInvocation() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> sourceTransactions = List.of(mockTransaction(1));
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(List.of());
+    prepareTableSession(0);
+    AtomicSwapTransactionSynchronizer atomicSwapTransactionSynchronizer = AtomicSwapTransactionSynchronizer.create(
+        mockExpenseReadable, mockSqlSessionFactory, mockBatchTransactionWriter);
+    assertThatThrownBy(() -> atomicSwapTransactionSynchronizer.synchronize(sourceTransactions))
+        .isInstanceOf(PersistenceException.class)
+        .hasMessage("Unable to acquire staging table lock within 60 seconds. Live table is not replaced.");
+    Mockito.verify(mockMapper, Mockito.never()).dropStagingTables();
+    Mockito.verify(mockMapper, Mockito.never()).releaseSwapLock();
+    Mockito.verifyNoInteractions(mockBatchTransactionWriter);
+    Mockito.verify(mockSqlSession).close();
+  }
+
+  @Test
+  void synchronize_lockReleaseErrorIsIgnored() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> sourceTransactions = List.of(mockTransaction(1));
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(List.of());
+    prepareTableSession();
+    prepareStagingStream();
+    Mockito.when(mockWriteTransaction.commit()).thenReturn(BatchWriteResult.of(1, List.of()));
+    Mockito.when(mockMapper.releaseSwapLock()).thenThrow(new PersistenceException("Connection is closed."));
+    AtomicSwapTransactionSynchronizer atomicSwapTransactionSynchronizer = AtomicSwapTransactionSynchronizer.create(
+        mockExpenseReadable, mockSqlSessionFactory, mockBatchTransactionWriter);
+    assertThat(atomicSwapTransactionSynchronizer.synchronize(sourceTransactions).getInsertionCount())
+        .isEqualTo(1);
+    Mockito.verify(mockMapper).swapStagingTable();
+  }
+
+  @Test
+  void synchronize_sourceIsNotCollected() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> sourceTransactions = List.of(mockTransaction(1));
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(List.of());
+    prepareTableSession();
+    prepareStagingStream();
+    Mockito.when(mockWriteTransaction.commit()).thenReturn(BatchWriteResult.of(1, List.of()));
+    List<Integer> readCounts = new ArrayList<>();
+    TransactionSource transactionSource = transactionConsumer -> {
+      readCounts.add(1);
+      sourceTransactions.forEach(transactionConsumer);
+    };
+    AtomicSwapTransactionSynchronizer atomicSwapTransactionSynchronizer = AtomicSwapTransactionSynchronizer.create(
+        mockExpenseReadable, mockSqlSessionFactory, mockBatchTransactionWriter);
+    assertThat(atomicSwapTransactionSynchronizer.synchronize(transactionSource).getInsertionCount())
+        .isEqualTo(1);
+    // Once to compare with the live table, and once to load the staging table
+    assertThat(readCounts)
+        .hasSize(2);
+    Mockito.verify(mockRecordStream).add(sourceTransactions.get(0));
+  }
+
+  @Test
+  void synchronize_sourceReadError() throws IOException, SQLException {
+    Mockito.when(mockExpenseReadable.getAllExpenseManagerTransaction()).thenReturn(List.of());
+    AtomicSwapTransactionSynchronizer atomicSwapTransactionSynchronizer = AtomicSwapTransactionSynchronizer.create(
+        mockExpenseReadable, mockSqlSessionFactory, mockBatchTransactionWriter);
+    assertThatThrownBy(() -> atomicSwapTransactionSynchronizer.synchronize((TransactionSource) transactionConsumer -> {
+      throw new SQLException("test SQLException");
+    }))
+        .isInstanceOf(SQLException.class)
+        .hasMessage("test SQLException");
+    Mockito.verifyNoInteractions(mockSqlSessionFactory, mockBatchTransactionWriter);
+  }
+
+  private void prepareStagingStream() {
+    Mockito.when(mockBatchTransactionWriter.begin()).thenReturn(mockWriteTransaction);
+    Mockito.when(mockWriteTransaction.<ExpenseManagerTransaction>open(Mockito.eq("stage"), Mockito.any()))
+        .thenReturn(mockRecordStream);
+  }
+
+  private void prepareTableSession() {
+    prepareTableSession(1);
+  }
+
+  private void prepareTableSession(int lockResult) {
+    Mockito.when(mockSqlSessionFactory.openSession(true)).thenReturn(mockSqlSession);
+    Mockito.when(mockSqlSession.getMapper(AuroraExpenseTransactionMapper.class)).thenReturn(mockMapper);
+    Mockito.when(mockMapper.acquireSwapLock(60)).thenReturn(lockResult);
+  }
+
+  private ExpenseManagerTransaction mockTransaction(int id) {
+    ExpenseManagerTransaction mockTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    Mockito.when(mockTransaction.getId()).thenReturn(id);
+    return mockTransaction;
+  }
+}
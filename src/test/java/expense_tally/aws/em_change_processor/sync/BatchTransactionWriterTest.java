@@ -0,0 +1,183 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.aws.database.AuroraExpenseTransactionMapper;
+import expense_tally.aws.metrics.Stage;
+import expense_tally.aws.metrics.StageMetrics;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class BatchTransactionWriterTest {
+  @Mock
+  private SqlSessionFactory mockSqlSessionFactory;
+
+  @Mock
+  private SqlSession mockSqlSession;
+
+  @Mock
+  private AuroraExpenseTransactionMapper mockMapper;
+
+  @Test
+  void create_batchSizeIsZero() {
+    assertThatThrownBy(() -> BatchTransactionWriter.create(mockSqlSessionFactory, 0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Batch size must be positive.");
+  }
+
+  @Test
+  void create_sqlSessionFactoryIsNull() {
+    assertThatThrownBy(() -> BatchTransactionWriter.create(null, 10))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("sqlSessionFactory cannot be null");
+  }
+
+  @Test
+  void write_emptyRecords() {
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2);
+    assertThat(batchTransactionWriter.write("delete", Collections.<Integer>emptyList(),
+        AuroraExpenseTransactionMapper::deleteById))
+        .satisfies(batchWriteResult -> {
+          assertThat(batchWriteResult.getWrittenCount()).isZero();
+          assertThat(batchWriteResult.hasFailure()).isFalse();
+        });
+    Mockito.verifyNoInteractions(mockSqlSessionFactory);
+  }
+
+  @Test
+  void write_commitOnceAfterAllChunks() {
+    prepareBatchSession();
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2);
+    assertThat(batchTransactionWriter.write("delete", List.of(1, 2, 3, 4, 5),
+        AuroraExpenseTransactionMapper::deleteById))
+        .satisfies(batchWriteResult -> {
+          assertThat(batchWriteResult.getWrittenCount()).isEqualTo(5);
+          assertThat(batchWriteResult.hasFailure()).isFalse();
+        });
+    Mockito.verify(mockMapper, Mockito.times(5)).deleteById(Mockito.anyInt());
+    Mockito.verify(mockSqlSession, Mockito.times(3)).flushStatements();
+    Mockito.verify(mockSqlSession).commit();
+    Mockito.verify(mockSqlSession).close();
+  }
+
+  @Test
+  void write_chunksAreRecorded() {
+    prepareBatchSession();
+    StageMetrics mockStageMetrics = Mockito.mock(StageMetrics.class);
+    Mockito.when(mockStageMetrics.start(Stage.AURORA_WRITE)).thenReturn(Mockito.mock(StageMetrics.Timer.class));
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2,
+        mockStageMetrics);
+    batchTransactionWriter.write("delete", List.of(1, 2, 3), AuroraExpenseTransactionMapper::deleteById);
+    // Two batches are flushed, and then committed
+    Mockito.verify(mockStageMetrics, Mockito.times(3)).start(Stage.AURORA_WRITE);
+    Mockito.verify(mockStageMetrics).addRows(Stage.AURORA_WRITE, 3);
+  }
+
+  @Test
+  void write_failedChunkRollsBackTransaction() {
+    prepareBatchSession();
+    Mockito.lenient().when(mockMapper.deleteById(3)).thenThrow(new PersistenceException("Cannot delete."));
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2);
+    assertThat(batchTransactionWriter.write("delete", List.of(1, 2, 3, 4, 5),
+        AuroraExpenseTransactionMapper::deleteById))
+        .satisfies(batchWriteResult -> {
+          assertThat(batchWriteResult.getWrittenCount()).isZero();
+          assertThat(batchWriteResult.getFailures())
+              .singleElement()
+              .satisfies(chunkFailure -> {
+                assertThat(chunkFailure.getOperation()).isEqualTo("delete");
+                assertThat(chunkFailure.getChunkIndex()).isEqualTo(1);
+                assertThat(chunkFailure.getFirstRecordIndex()).isEqualTo(2);
+                assertThat(chunkFailure.getRecordCount()).isEqualTo(2);
+                assertThat(chunkFailure.getCause()).hasMessage("Cannot delete.");
+              });
+        });
+    // The batch after the failed one is skipped
+    Mockito.verify(mockMapper, Mockito.never()).deleteById(5);
+    Mockito.verify(mockSqlSession).flushStatements();
+    Mockito.verify(mockSqlSession).rollback(true);
+    Mockito.verify(mockSqlSession, Mockito.never()).commit();
+  }
+
+  @Test
+  void begin_fullBatchIsFlushedBeforeCommit() {
+    prepareBatchSession();
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2);
+    try (BatchTransactionWriter.Transaction transaction = batchTransactionWriter.begin()) {
+      BatchTransactionWriter.RecordStream<Integer> recordStream = transaction.open("delete",
+          AuroraExpenseTransactionMapper::deleteById);
+      recordStream.add(1);
+      recordStream.add(2);
+      Mockito.verify(mockSqlSession).flushStatements();
+      Mockito.verify(mockSqlSession, Mockito.never()).commit();
+      recordStream.add(3);
+      assertThat(transaction.commit().getWrittenCount())
+          .isEqualTo(3);
+    }
+    Mockito.verify(mockSqlSession, Mockito.times(2)).flushStatements();
+    Mockito.verify(mockSqlSession).commit();
+    Mockito.verify(mockSqlSession).close();
+  }
+
+  @Test
+  void begin_streamsShareOneTransaction() {
+    prepareBatchSession();
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2);
+    try (BatchTransactionWriter.Transaction transaction = batchTransactionWriter.begin()) {
+      BatchTransactionWriter.RecordStream<Integer> deleteStream = transaction.open("delete",
+          AuroraExpenseTransactionMapper::deleteById);
+      BatchTransactionWriter.RecordStream<Integer> otherDeleteStream = transaction.open("otherDelete",
+          AuroraExpenseTransactionMapper::deleteById);
+      deleteStream.add(1);
+      otherDeleteStream.add(2);
+      assertThat(transaction.commit().getWrittenCount())
+          .isEqualTo(2);
+    }
+    Mockito.verify(mockSqlSessionFactory).openSession(ExecutorType.BATCH, false);
+    Mockito.verify(mockSqlSession).commit();
+  }
+
+  @Test
+  void begin_uncommittedTransactionIsNotCommitted() {
+    prepareBatchSession();
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2);
+    try (BatchTransactionWriter.Transaction transaction = batchTransactionWriter.begin()) {
+      transaction.open("delete", AuroraExpenseTransactionMapper::deleteById).add(1);
+    }
+    Mockito.verify(mockSqlSession, Mockito.never()).commit();
+    Mockito.verify(mockSqlSession).close();
+  }
+
+  @Test
+  void begin_addAfterCommit() {
+    BatchTransactionWriter batchTransactionWriter = BatchTransactionWriter.create(mockSqlSessionFactory, 2);
+    BatchTransactionWriter.Transaction transaction = batchTransactionWriter.begin();
+    BatchTransactionWriter.RecordStream<Integer> recordStream = transaction.open("delete",
+        AuroraExpenseTransactionMapper::deleteById);
+    transaction.commit();
+    assertThatThrownBy(() -> recordStream.add(1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Transaction is ended.");
+    assertThatThrownBy(transaction::commit)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Transaction is ended.");
+    Mockito.verifyNoInteractions(mockSqlSessionFactory);
+  }
+
+  private void prepareBatchSession() {
+    Mockito.when(mockSqlSessionFactory.openSession(ExecutorType.BATCH, false)).thenReturn(mockSqlSession);
+    Mockito.when(mockSqlSession.getMapper(AuroraExpenseTransactionMapper.class)).thenReturn(mockMapper);
+  }
+}
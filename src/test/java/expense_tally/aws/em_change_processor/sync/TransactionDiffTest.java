@@ -0,0 +1,172 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionDiffTest {
+
+  @Test
+  void between_identicalTransactions() {
+    ExpenseManagerTransaction mockTransaction = mockTransaction(1);
+    List<ExpenseManagerTransaction> transactions = List.of(mockTransaction);
+    assertThat(TransactionDiff.between(transactions, transactions))
+        .isNotNull()
+        .satisfies(transactionDiff -> {
+          assertThat(transactionDiff.isEmpty()).isTrue();
+          assertThat(transactionDiff.getInsertions()).isEmpty();
+          assertThat(transactionDiff.getUpdates()).isEmpty();
+          assertThat(transactionDiff.getDeletedIds()).isEmpty();
+        });
+  }
+
+  @Test
+  void between_insertUpdateAndDelete() {
+    ExpenseManagerTransaction mockUnchangedTransaction = mockTransaction(1);
+    ExpenseManagerTransaction mockChangedSourceTransaction = mockTransaction(2);
+    ExpenseManagerTransaction mockChangedTargetTransaction = mockTransaction(2, "changed");
+    ExpenseManagerTransaction mockNewTransaction = mockTransaction(3);
+    ExpenseManagerTransaction mockRemovedTransaction = mockTransaction(4);
+    List<ExpenseManagerTransaction> sourceTransactions = List.of(mockUnchangedTransaction,
+        mockChangedSourceTransaction, mockNewTransaction);
+    List<ExpenseManagerTransaction> targetTransactions = List.of(mockUnchangedTransaction,
+        mockChangedTargetTransaction, mockRemovedTransaction);
+    assertThat(TransactionDiff.between(sourceTransactions, targetTransactions))
+        .isNotNull()
+        .satisfies(transactionDiff -> {
+          assertThat(transactionDiff.isEmpty()).isFalse();
+          assertThat(transactionDiff.getInsertions()).containsExactly(mockNewTransaction);
+          assertThat(transactionDiff.getUpdates()).containsExactly(mockChangedSourceTransaction);
+          assertThat(transactionDiff.getDeletedIds()).containsExactly(4);
+        });
+  }
+
+  @Test
+  void between_emptyTarget() {
+    ExpenseManagerTransaction mockTransaction = mockTransaction(1);
+    assertThat(TransactionDiff.between(List.of(mockTransaction), Collections.emptyList()))
+        .isNotNull()
+        .satisfies(transactionDiff -> {
+          assertThat(transactionDiff.getInsertions()).containsExactly(mockTransaction);
+          assertThat(transactionDiff.getUpdates()).isEmpty();
+          assertThat(transactionDiff.getDeletedIds()).isEmpty();
+        });
+  }
+
+  @Test
+  void between_sourceIsNull() {
+    assertThatThrownBy(() -> TransactionDiff.between(null, Collections.emptyList()))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("sourceTransactions cannot be null");
+  }
+
+  @Test
+  void between_targetIsNull() {
+    assertThatThrownBy(() -> TransactionDiff.between(Collections.emptyList(), null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("targetTransactions cannot be null");
+  }
+
+  @Test
+  void track_insertUpdateAndDelete() {
+    ExpenseManagerTransaction mockUnchangedTransaction = mockTransaction(1);
+    ExpenseManagerTransaction mockChangedSourceTransaction = mockTransaction(2);
+    ExpenseManagerTransaction mockChangedTargetTransaction = mockTransaction(2, "changed");
+    ExpenseManagerTransaction mockNewTransaction = mockTransaction(3);
+    ExpenseManagerTransaction mockRemovedTransaction = mockTransaction(4);
+    TransactionDiff.Tracker tracker = TransactionDiff.track(List.of(mockUnchangedTransaction,
+        mockChangedTargetTransaction, mockRemovedTransaction));
+    assertThat(tracker.compare(mockUnchangedTransaction)).isEqualTo(TransactionDiff.Change.NONE);
+    assertThat(tracker.compare(mockChangedSourceTransaction)).isEqualTo(TransactionDiff.Change.UPDATE);
+    assertThat(tracker.compare(mockNewTransaction)).isEqualTo(TransactionDiff.Change.INSERTION);
+    assertThat(tracker.toTransactionDiff())
+        .satisfies(transactionDiff -> {
+          assertThat(transactionDiff.isEmpty()).isFalse();
+          assertThat(transactionDiff.getInsertionCount()).isEqualTo(1);
+          assertThat(transactionDiff.getUpdateCount()).isEqualTo(1);
+          assertThat(transactionDiff.getDeletedIds()).containsExactly(4);
+        });
+  }
+
+  @Test
+  void track_transactionsAreOnlyCounted() {
+    TransactionDiff transactionDiff = TransactionDiff.track(Collections.emptyList()).toTransactionDiff();
+    assertThatThrownBy(transactionDiff::getInsertions)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Insertions are only counted by a tracker.");
+    assertThatThrownBy(transactionDiff::getUpdates)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Updates are only counted by a tracker.");
+  }
+
+  @Test
+  void track_storedPrecisionIsUnchanged() {
+    ExpenseManagerTransaction mockSourceTransaction = mockTransaction(1, 0.1 + 0.2,
+        Instant.parse("2021-03-04T05:06:07.891Z"));
+    ExpenseManagerTransaction mockTargetTransaction = mockTransaction(1, 0.3, Instant.parse("2021-03-04T05:06:08Z"));
+    assertThat(TransactionDiff.track(List.of(mockTargetTransaction)).compare(mockSourceTransaction))
+        .isEqualTo(TransactionDiff.Change.NONE);
+  }
+
+  @Test
+  void track_differentCentIsUpdated() {
+    ExpenseManagerTransaction mockSourceTransaction = mockTransaction(1, 0.31, Instant.parse("2021-03-04T05:06:08Z"));
+    ExpenseManagerTransaction mockTargetTransaction = mockTransaction(1, 0.3, Instant.parse("2021-03-04T05:06:08Z"));
+    assertThat(TransactionDiff.track(List.of(mockTargetTransaction)).compare(mockSourceTransaction))
+        .isEqualTo(TransactionDiff.Change.UPDATE);
+  }
+
+  @Test
+  void track_differentSecondIsUpdated() {
+    ExpenseManagerTransaction mockSourceTransaction = mockTransaction(1, 0.3, Instant.parse("2021-03-04T05:06:07.4Z"));
+    ExpenseManagerTransaction mockTargetTransaction = mockTransaction(1, 0.3, Instant.parse("2021-03-04T05:06:08Z"));
+    assertThat(TransactionDiff.track(List.of(mockTargetTransaction)).compare(mockSourceTransaction))
+        .isEqualTo(TransactionDiff.Change.UPDATE);
+  }
+
+  @Test
+  void track_differentReferenceAmountIsUpdated() {
+    ExpenseManagerTransaction mockSourceTransaction = mockTransaction(1, 0.3, Instant.parse("2021-03-04T05:06:08Z"));
+    ExpenseManagerTransaction mockTargetTransaction = mockTransaction(1, 0.3, Instant.parse("2021-03-04T05:06:08Z"));
+    Mockito.when(mockSourceTransaction.getReferenceAmount()).thenReturn(9.1);
+    Mockito.when(mockTargetTransaction.getReferenceAmount()).thenReturn(9.0);
+    assertThat(TransactionDiff.track(List.of(mockTargetTransaction)).compare(mockSourceTransaction))
+        .isEqualTo(TransactionDiff.Change.UPDATE);
+  }
+
+  @Test
+  void track_null() {
+    assertThatThrownBy(() -> TransactionDiff.track(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("targetTransactions cannot be null");
+  }
+
+  private ExpenseManagerTransaction mockTransaction(int id) {
+    ExpenseManagerTransaction mockTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    Mockito.when(mockTransaction.getId()).thenReturn(id);
+    return mockTransaction;
+  }
+
+  private ExpenseManagerTransaction mockTransaction(int id, String description) {
+    ExpenseManagerTransaction mockTransaction = mockTransaction(id);
+    Mockito.when(mockTransaction.getDescription()).thenReturn(description);
+    return mockTransaction;
+  }
+
+  private ExpenseManagerTransaction mockTransaction(int id, double amount, Instant expendedTime) {
+    ExpenseManagerTransaction mockTransaction = mockTransaction(id);
+    Mockito.when(mockTransaction.getAmount()).thenReturn(amount);
+    Mockito.lenient().when(mockTransaction.getExpendedTime()).thenReturn(expendedTime);
+    return mockTransaction;
+  }
+}
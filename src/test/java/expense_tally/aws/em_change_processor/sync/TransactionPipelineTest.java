@@ -0,0 +1,171 @@
+package expense_tally.aws.em_change_processor.sync;
+
+import expense_tally.model.persistence.transformation.ExpenseManagerTransaction;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionPipelineTest {
+  @Test
+  void readAhead_inOrderAcrossBatches() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> transactions = mockTransactions(7);
+    List<ExpenseManagerTransaction> consumedTransactions = new ArrayList<>();
+    TransactionPipeline.create(3, 2)
+        .readAhead(TransactionSource.of(transactions))
+        .forEachTransaction(consumedTransactions::add);
+    assertThat(consumedTransactions)
+        .containsExactlyElementsOf(transactions);
+  }
+
+  @Test
+  void readAhead_readOnAnotherThread() throws IOException, SQLException {
+    List<String> readerThreadNames = new CopyOnWriteArrayList<>();
+    List<String> consumerThreadNames = new ArrayList<>();
+    List<ExpenseManagerTransaction> transactions = mockTransactions(2);
+    TransactionSource transactionSource = transactionConsumer -> {
+      readerThreadNames.add(Thread.currentThread().getName());
+      transactions.forEach(transactionConsumer);
+    };
+    TransactionPipeline.create(1, 1)
+        .readAhead(transactionSource)
+        .forEachTransaction(transaction -> consumerThreadNames.add(Thread.currentThread().getName()));
+    assertThat(readerThreadNames)
+        .singleElement()
+        .asString()
+        .startsWith("transaction-reader-");
+    assertThat(consumerThreadNames)
+        .containsOnly(Thread.currentThread().getName());
+  }
+
+  @Test
+  void readAhead_readerWaitsForConsumer() throws IOException, SQLException {
+    List<ExpenseManagerTransaction> transactions = mockTransactions(10);
+    AtomicInteger readCount = new AtomicInteger();
+    TransactionSource transactionSource = transactionConsumer -> transactions.forEach(transaction -> {
+      readCount.incrementAndGet();
+      transactionConsumer.accept(transaction);
+    });
+    List<Integer> readCountsOnFirstTransaction = new ArrayList<>();
+    List<ExpenseManagerTransaction> consumedTransactions = new ArrayList<>();
+    TransactionPipeline.create(1, 1)
+        .readAhead(transactionSource)
+        .forEachTransaction(transaction -> {
+          if (consumedTransactions.isEmpty()) {
+            // One batch is consumed, one is queued and the reader is blocked on the third
+            awaitReadCount(readCount, 3);
+            readCountsOnFirstTransaction.add(readCount.get());
+          }
+          consumedTransactions.add(transaction);
+        });
+    assertThat(readCountsOnFirstTransaction)
+        .containsExactly(3);
+    assertThat(consumedTransactions)
+        .containsExactlyElementsOf(transactions);
+  }
+
+  @Test
+  void readAhead_sourceFailure() {
+    List<ExpenseManagerTransaction> consumedTransactions = new ArrayList<>();
+    ExpenseManagerTransaction mockTransaction = Mockito.mock(ExpenseManagerTransaction.class);
+    TransactionSource transactionSource = TransactionPipeline.create(1, 2).readAhead(transactionConsumer -> {
+      transactionConsumer.accept(mockTransaction);
+      throw new SQLException("test SQLException");
+    });
+    assertThatThrownBy(() -> transactionSource.forEachTransaction(consumedTransactions::add))
+        .isInstanceOf(SQLException.class)
+        .hasMessage("test SQLException");
+    assertThat(consumedTransactions)
+        .containsExactly(mockTransaction);
+  }
+
+  @Test
+  void readAhead_consumerFailureStopsReader() throws InterruptedException {
+    List<ExpenseManagerTransaction> transactions = mockTransactions(100);
+    CountDownLatch readerEnded = new CountDownLatch(1);
+    TransactionSource transactionSource = TransactionPipeline.create(1, 1).readAhead(transactionConsumer -> {
+      try {
+        transactions.forEach(transactionConsumer);
+      } finally {
+        readerEnded.countDown();
+      }
+    });
+    assertThatThrownBy(() -> transactionSource.forEachTransaction(transaction -> {
+      throw new IllegalStateException("test IllegalStateException");
+    }))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("test IllegalStateException");
+    assertThat(readerEnded.await(10, TimeUnit.SECONDS))
+        .isTrue();
+  }
+
+  @Test
+  void readAhead_direct() {
+    TransactionSource transactionSource = TransactionSource.of(mockTransactions(1));
+    assertThat(TransactionPipeline.direct().readAhead(transactionSource))
+        .isSameAs(transactionSource);
+  }
+
+  @Test
+  void readAhead_null() {
+    TransactionPipeline transactionPipeline = TransactionPipeline.direct();
+    assertThatThrownBy(() -> transactionPipeline.readAhead(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("transactionSource cannot be null");
+  }
+
+  @Test
+  void create_readAheadBatchesIsZero() {
+    TransactionPipeline transactionPipeline = TransactionPipeline.create(500, 0);
+    TransactionSource transactionSource = TransactionSource.of(mockTransactions(1));
+    assertThat(transactionPipeline.getReadAheadBatches())
+        .isZero();
+    assertThat(transactionPipeline.readAhead(transactionSource))
+        .isSameAs(transactionSource);
+  }
+
+  @Test
+  void create_readAheadBatchesIsNegative() {
+    assertThatThrownBy(() -> TransactionPipeline.create(500, -1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Read ahead batches must be positive.");
+  }
+
+  @Test
+  void create_batchSizeIsZero() {
+    assertThatThrownBy(() -> TransactionPipeline.create(0, 2))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Batch size must be positive.");
+  }
+
+  private List<ExpenseManagerTransaction> mockTransactions(int count) {
+    List<ExpenseManagerTransaction> transactions = new ArrayList<>(count);
+    for (int index = 0; index < count; index++) {
+      transactions.add(Mockito.mock(ExpenseManagerTransaction.class));
+    }
+    return transactions;
+  }
+
+  private void awaitReadCount(AtomicInteger readCount, int expectedReadCount) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (readCount.get() < expectedReadCount && System.nanoTime() < deadline) {
+      Thread.onSpinWait();
+    }
+    try {
+      // Gives a reader which is not held back the time to read further
+      TimeUnit.MILLISECONDS.sleep(100);
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package expense_tally.aws.init;
+
+import expense_tally.aws.AppStartUpException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ComponentInitializerTest {
+
+  @Test
+  void initializeConcurrently_componentsAreBuiltAtTheSameTime() throws AppStartUpException, IOException,
+      SQLException {
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    Component<String> firstComponent = componentInitializer.initializeConcurrently("first",
+        () -> awaitOther(bothStarted, "firstValue"));
+    Component<String> secondComponent = componentInitializer.initializeConcurrently("second",
+        () -> awaitOther(bothStarted, "secondValue"));
+    componentInitializer.awaitConcurrentComponents();
+    assertThat(firstComponent.get()).isEqualTo("firstValue");
+    assertThat(secondComponent.get()).isEqualTo("secondValue");
+    assertThat(componentInitializer.getInitTimings())
+        .containsOnlyKeys("first", "second");
+  }
+
+  @Test
+  void initializeConcurrently_exceptionIsRethrown() {
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    Component<String> failedComponent = componentInitializer.initializeConcurrently("failed", () -> {
+      throw new SQLException("testException");
+    });
+    assertThatThrownBy(componentInitializer::awaitConcurrentComponents)
+        .isInstanceOf(SQLException.class)
+        .hasMessage("testException");
+    assertThatThrownBy(failedComponent::get)
+        .isInstanceOf(SQLException.class);
+    assertThat(componentInitializer.getInitTimings())
+        .isEmpty();
+  }
+
+  @Test
+  void initialize_componentIsBuiltOnCallingThread() throws AppStartUpException, IOException, SQLException {
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    Thread callingThread = Thread.currentThread();
+    assertThat(componentInitializer.initialize("current", Thread::currentThread))
+        .isSameAs(callingThread);
+    assertThat(componentInitializer.getInitTimings())
+        .containsOnlyKeys("current");
+  }
+
+  @Test
+  void initializeOnFirstUse_componentIsBuiltOnce() throws AppStartUpException, IOException, SQLException {
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    AtomicInteger buildCount = new AtomicInteger();
+    Component<Integer> lazyComponent = componentInitializer.initializeOnFirstUse("lazy",
+        buildCount::incrementAndGet);
+    componentInitializer.awaitConcurrentComponents();
+    assertThat(buildCount).hasValue(0);
+    assertThat(componentInitializer.getInitTimings())
+        .isEmpty();
+    assertThat(lazyComponent.get()).isEqualTo(1);
+    assertThat(lazyComponent.get()).isEqualTo(1);
+    assertThat(componentInitializer.getInitTimings())
+        .containsOnlyKeys("lazy");
+  }
+
+  @Test
+  void initializeOnFirstUse_failedBuildIsRetried() throws AppStartUpException, IOException, SQLException {
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    AtomicInteger buildCount = new AtomicInteger();
+    Component<Integer> lazyComponent = componentInitializer.initializeOnFirstUse("lazy", () -> {
+      if (buildCount.incrementAndGet() == 1) {
+        throw new AppStartUpException("testException");
+      }
+      return buildCount.get();
+    });
+    assertThatThrownBy(lazyComponent::get)
+        .isInstanceOf(AppStartUpException.class)
+        .hasMessage("testException");
+    assertThat(lazyComponent.get()).isEqualTo(2);
+  }
+
+  @Test
+  void initializeConcurrently_nameIsNull() {
+    ComponentInitializer componentInitializer = ComponentInitializer.create();
+    assertThatThrownBy(() -> componentInitializer.initializeConcurrently(null, () -> "value"))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("name cannot be null");
+  }
+
+  private String awaitOther(CountDownLatch bothStarted, String value) throws AppStartUpException {
+    bothStarted.countDown();
+    try {
+      if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+        throw new AppStartUpException("Components are not built concurrently.");
+      }
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new AppStartUpException("Interrupted.", interruptedException);
+    }
+    return value;
+  }
+}
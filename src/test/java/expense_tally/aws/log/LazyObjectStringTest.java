@@ -0,0 +1,39 @@
+package expense_tally.aws.log;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyObjectStringTest {
+  @Test
+  void of_objectIsNotSerialised() {
+    CountingObject testObject = new CountingObject();
+    assertThat(LazyObjectString.of(testObject))
+        .isNotNull();
+    assertThat(testObject.serialisationCount).isZero();
+  }
+
+  @Test
+  void toString_objectIsSerialisedOnce() {
+    CountingObject testObject = new CountingObject();
+    LazyObjectString lazyObjectString = LazyObjectString.of(testObject);
+    assertThat(lazyObjectString.toString()).isEqualTo("{\"value\":\"testValue\"}");
+    assertThat(lazyObjectString.toString()).isEqualTo("{\"value\":\"testValue\"}");
+    assertThat(testObject.serialisationCount).isOne();
+  }
+
+  @Test
+  void toString_null() {
+    assertThat(LazyObjectString.of(null))
+        .hasToString("null");
+  }
+
+  private static final class CountingObject {
+    private int serialisationCount;
+
+    public String getValue() {
+      serialisationCount++;
+      return "testValue";
+    }
+  }
+}
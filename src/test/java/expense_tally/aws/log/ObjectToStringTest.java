@@ -0,0 +1,55 @@
+package expense_tally.aws.log;
+
+import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.lambda.runtime.events.models.s3.S3EventNotification;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObjectToStringTest {
+  @Test
+  void extractStringFromObject_s3EventIsTrimmed() {
+    S3EventNotification.UserIdentityEntity testUserIdentityEntity =
+        new S3EventNotification.UserIdentityEntity("testPrincipal");
+    S3EventNotification.S3Entity testS3Entity = new S3EventNotification.S3Entity("testConfiguration",
+        new S3EventNotification.S3BucketEntity("testBucket", testUserIdentityEntity, "testArn"),
+        new S3EventNotification.S3ObjectEntity("testKey", 10L, "testETag", "testVersionId", "testSequencer"),
+        "1.0");
+    S3EventNotification.S3EventNotificationRecord testS3EventNotificationRecord =
+        new S3EventNotification.S3EventNotificationRecord("us-east-1", "ObjectCreated:Put", "aws:s3",
+            "2020-12-01T00:00:00.000Z", "2.1", null, null, testS3Entity, testUserIdentityEntity);
+    S3Event testS3Event = new S3Event(Collections.singletonList(testS3EventNotificationRecord));
+    assertThat(ObjectToString.extractStringFromObject(testS3Event))
+        .contains("\"eventName\":\"ObjectCreated:Put\"", "\"name\":\"testBucket\"", "\"key\":\"testKey\"",
+            "\"sizeAsLong\":10", "\"eTag\":\"testETag\"", "\"versionId\":\"testVersionId\"", "\"eventTime\":")
+        .doesNotContain("testPrincipal", "testArn", "testSequencer", "testConfiguration");
+  }
+
+  @Test
+  void extractStringFromObject_objectMetadataIsTrimmed() {
+    ObjectMetadata testObjectMetadata = new ObjectMetadata();
+    testObjectMetadata.setContentLength(10L);
+    testObjectMetadata.setHeader("ETag", "testETag");
+    testObjectMetadata.setContentType("testContentType");
+    assertThat(ObjectToString.extractStringFromObject(testObjectMetadata))
+        .contains("\"contentLength\":10", "\"etag\":\"testETag\"")
+        .doesNotContain("testContentType");
+  }
+
+  @Test
+  void extractStringFromObject_sameTypeIsSerialisedRepeatedly() {
+    assertThat(ObjectToString.extractStringFromObject(Collections.singletonMap("testKey", 1)))
+        .isEqualTo("{\"testKey\":1}");
+    assertThat(ObjectToString.extractStringFromObject(Collections.singletonMap("testKey", 2)))
+        .isEqualTo("{\"testKey\":2}");
+  }
+
+  @Test
+  void extractStringFromObject_null() {
+    assertThat(ObjectToString.extractStringFromObject(null))
+        .isEqualTo("null");
+  }
+}
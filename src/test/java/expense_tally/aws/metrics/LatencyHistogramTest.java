@@ -0,0 +1,110 @@
+package expense_tally.aws.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+  @Test
+  void getValueAtPercentile_uniformValues() {
+    LatencyHistogram latencyHistogram = LatencyHistogram.create();
+    for (long value = 1; value <= 10_000; value++) {
+      latencyHistogram.record(value * 1_000L);
+    }
+    assertThat(latencyHistogram.getTotalCount())
+        .isEqualTo(10_000L);
+    assertThat(latencyHistogram.getValueAtPercentile(50.0))
+        .isCloseTo(5_000_000L, within(100_000L));
+    assertThat(latencyHistogram.getValueAtPercentile(90.0))
+        .isCloseTo(9_000_000L, within(180_000L));
+    assertThat(latencyHistogram.getValueAtPercentile(99.0))
+        .isCloseTo(9_900_000L, within(198_000L));
+    assertThat(latencyHistogram.getValueAtPercentile(100.0))
+        .isEqualTo(10_000_000L);
+    assertThat(latencyHistogram.getMax())
+        .isEqualTo(10_000_000L);
+  }
+
+  @Test
+  void getValueAtPercentile_smallValuesAreExact() {
+    LatencyHistogram latencyHistogram = LatencyHistogram.create();
+    latencyHistogram.record(3L);
+    latencyHistogram.record(7L);
+    assertThat(latencyHistogram.getValueAtPercentile(50.0))
+        .isEqualTo(3L);
+    assertThat(latencyHistogram.getValueAtPercentile(99.0))
+        .isEqualTo(7L);
+  }
+
+  @Test
+  void getValueAtPercentile_empty() {
+    assertThat(LatencyHistogram.create().getValueAtPercentile(99.0))
+        .isZero();
+  }
+
+  @Test
+  void getValueAtPercentile_outOfRange() {
+    LatencyHistogram latencyHistogram = LatencyHistogram.create();
+    assertThatThrownBy(() -> latencyHistogram.getValueAtPercentile(100.5))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Percentile must be between 0 and 100.");
+  }
+
+  @Test
+  void record_extremeValues() {
+    LatencyHistogram latencyHistogram = LatencyHistogram.create();
+    latencyHistogram.record(-5L);
+    latencyHistogram.record(Long.MAX_VALUE);
+    assertThat(latencyHistogram.getValueAtPercentile(50.0))
+        .isZero();
+    assertThat(latencyHistogram.getValueAtPercentile(100.0))
+        .isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  void record_concurrently() throws Exception {
+    LatencyHistogram latencyHistogram = LatencyHistogram.create();
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int task = 0; task < 4; task++) {
+        long taskValue = (task + 1) * 1_000L;
+        futures.add(executorService.submit(() -> {
+          for (int run = 0; run < 10_000; run++) {
+            latencyHistogram.record(taskValue);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    assertThat(latencyHistogram.getTotalCount())
+        .isEqualTo(40_000L);
+    assertThat(latencyHistogram.getMax())
+        .isEqualTo(4_000L);
+  }
+
+  @Test
+  void bucketIndexOf_bucketsAreContiguous() {
+    long previousHighestValue = -1L;
+    for (int bucketIndex = 0; bucketIndex < 1_000; bucketIndex++) {
+      long highestValue = LatencyHistogram.highestValueOf(bucketIndex);
+      assertThat(LatencyHistogram.bucketIndexOf(previousHighestValue + 1))
+          .isEqualTo(bucketIndex);
+      assertThat(LatencyHistogram.bucketIndexOf(highestValue))
+          .isEqualTo(bucketIndex);
+      previousHighestValue = highestValue;
+    }
+  }
+}
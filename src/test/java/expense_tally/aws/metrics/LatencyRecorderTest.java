@@ -0,0 +1,64 @@
+package expense_tally.aws.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LatencyRecorderTest {
+  @Test
+  void record_perStage() {
+    LatencyRecorder latencyRecorder = LatencyRecorder.create();
+    latencyRecorder.record(Stage.S3_DOWNLOAD, 1_000_000L);
+    latencyRecorder.record(Stage.S3_DOWNLOAD, 2_000_000L);
+    latencyRecorder.record(Stage.RECONCILE, 3_000_000L);
+    assertThat(latencyRecorder.getCount(Stage.S3_DOWNLOAD))
+        .isEqualTo(2L);
+    assertThat(latencyRecorder.getCount(Stage.RECONCILE))
+        .isEqualTo(1L);
+    assertThat(latencyRecorder.getCount(Stage.AURORA_WRITE))
+        .isZero();
+  }
+
+  @Test
+  void flush_keepsDistribution() {
+    LatencyRecorder latencyRecorder = LatencyRecorder.create(Duration.ofNanos(1));
+    latencyRecorder.record(Stage.AURORA_WRITE, 1_000_000L);
+    latencyRecorder.flushIfDue();
+    latencyRecorder.flush();
+    latencyRecorder.record(Stage.AURORA_WRITE, 2_000_000L);
+    assertThat(latencyRecorder.getCount(Stage.AURORA_WRITE))
+        .isEqualTo(2L);
+  }
+
+  @Test
+  void disabled_recordsNothing() {
+    LatencyRecorder latencyRecorder = LatencyRecorder.disabled();
+    latencyRecorder.record(Stage.S3_DOWNLOAD, 1_000_000L);
+    assertThat(latencyRecorder.getCount(Stage.S3_DOWNLOAD))
+        .isZero();
+    assertThatCode(() -> {
+      latencyRecorder.flushIfDue();
+      latencyRecorder.flush();
+      latencyRecorder.flushOnShutdown();
+    })
+        .doesNotThrowAnyException();
+  }
+
+  @Test
+  void create_flushIntervalIsZero() {
+    assertThatThrownBy(() -> LatencyRecorder.create(Duration.ZERO))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Flush interval must be positive.");
+  }
+
+  @Test
+  void create_flushIntervalIsNull() {
+    assertThatThrownBy(() -> LatencyRecorder.create(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("flushInterval cannot be null");
+  }
+}
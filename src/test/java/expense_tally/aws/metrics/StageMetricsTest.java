@@ -0,0 +1,141 @@
+package expense_tally.aws.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StageMetricsTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void drain_embeddedMetricFormat() throws IOException {
+    StageMetrics stageMetrics = StageMetrics.create("testHandler");
+    stageMetrics.recordTime(Stage.S3_DOWNLOAD, 2_500_000L);
+    stageMetrics.addBytes(Stage.S3_DOWNLOAD, 1024L);
+    stageMetrics.recordTime(Stage.CSV_PARSE, 1_000_000L);
+    stageMetrics.recordTime(Stage.CSV_PARSE, 500_000L);
+    stageMetrics.addRows(Stage.CSV_PARSE, 3L);
+    JsonNode emfDocument = objectMapper.readTree(stageMetrics.drain(1_600_000_000_000L).orElseThrow());
+    JsonNode cloudWatchMetric = emfDocument.path("_aws").path("CloudWatchMetrics").get(0);
+    assertThat(emfDocument.path("_aws").path("Timestamp").asLong())
+        .isEqualTo(1_600_000_000_000L);
+    assertThat(cloudWatchMetric.path("Namespace").asText())
+        .isEqualTo("ExpenseTally");
+    assertThat(cloudWatchMetric.path("Dimensions").toString())
+        .isEqualTo("[[\"Handler\"]]");
+    List<String> metricDefinitions = new ArrayList<>();
+    cloudWatchMetric.path("Metrics").forEach(metricDefinition ->
+        metricDefinitions.add(metricDefinition.path("Name").asText() + ":" + metricDefinition.path("Unit").asText()));
+    assertThat(metricDefinitions)
+        .containsExactly("S3DownloadTime:Milliseconds", "S3DownloadBytes:Bytes", "CsvParseTime:Milliseconds",
+            "CsvParseRows:Count");
+    assertThat(emfDocument.path("Handler").asText())
+        .isEqualTo("testHandler");
+    assertThat(emfDocument.path("S3DownloadTime").asDouble())
+        .isEqualTo(2.5);
+    assertThat(emfDocument.path("S3DownloadBytes").asLong())
+        .isEqualTo(1024L);
+    assertThat(emfDocument.path("CsvParseTime").asDouble())
+        .isEqualTo(1.5);
+    assertThat(emfDocument.path("CsvParseRows").asLong())
+        .isEqualTo(3L);
+  }
+
+  @Test
+  void drain_startsAnew() {
+    StageMetrics stageMetrics = StageMetrics.create("testHandler");
+    stageMetrics.addRows(Stage.DB_FETCH, 10L);
+    assertThat(stageMetrics.drain(0L))
+        .isPresent();
+    assertThat(stageMetrics.drain(0L))
+        .isEmpty();
+  }
+
+  @Test
+  void drain_nothingRecorded() {
+    assertThat(StageMetrics.create("testHandler").drain(0L))
+        .isEmpty();
+  }
+
+  @Test
+  void drain_disabled() {
+    StageMetrics stageMetrics = StageMetrics.disabled();
+    stageMetrics.recordTime(Stage.RECONCILE, 1_000_000L);
+    stageMetrics.addRows(Stage.RECONCILE, 10L);
+    stageMetrics.addBytes(Stage.S3_DOWNLOAD, 10L);
+    assertThat(stageMetrics.drain(0L))
+        .isEmpty();
+  }
+
+  @Test
+  void start_recordsElapsedTime() throws IOException {
+    StageMetrics stageMetrics = StageMetrics.create("testHandler");
+    try (StageMetrics.Timer ignored = stageMetrics.start(Stage.AURORA_SYNC)) {
+      assertThat(stageMetrics.drain(0L))
+          .isEmpty();
+    }
+    JsonNode emfDocument = objectMapper.readTree(stageMetrics.drain(0L).orElseThrow());
+    assertThat(emfDocument.path("AuroraSyncTime").isNumber())
+        .isTrue();
+  }
+
+  @Test
+  void addRows_concurrently() throws Exception {
+    StageMetrics stageMetrics = StageMetrics.create("testHandler");
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int task = 0; task < 4; task++) {
+        futures.add(executorService.submit(() -> {
+          for (int row = 0; row < 1000; row++) {
+            stageMetrics.addRows(Stage.TRANSFORM, 1L);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    JsonNode emfDocument = objectMapper.readTree(stageMetrics.drain(0L).orElseThrow());
+    assertThat(emfDocument.path("TransformRows").asLong())
+        .isEqualTo(4000L);
+  }
+
+  @Test
+  void recordTime_countedByLatencyRecorder() {
+    LatencyRecorder latencyRecorder = LatencyRecorder.create();
+    StageMetrics stageMetrics = StageMetrics.create("testHandler", latencyRecorder);
+    stageMetrics.recordTime(Stage.AURORA_WRITE, 1_000_000L);
+    stageMetrics.recordTime(Stage.AURORA_WRITE, 2_000_000L);
+    stageMetrics.drain(0L);
+    stageMetrics.recordTime(Stage.AURORA_WRITE, 3_000_000L);
+    assertThat(latencyRecorder.getCount(Stage.AURORA_WRITE))
+        .isEqualTo(3L);
+  }
+
+  @Test
+  void create_null() {
+    assertThatThrownBy(() -> StageMetrics.create(null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("handlerName cannot be null");
+  }
+
+  @Test
+  void create_latencyRecorderIsNull() {
+    assertThatThrownBy(() -> StageMetrics.create("testHandler", null))
+        .isInstanceOf(NullPointerException.class)
+        .hasMessage("latencyRecorder cannot be null");
+  }
+}
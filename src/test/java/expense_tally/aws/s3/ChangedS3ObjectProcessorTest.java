@@ -0,0 +1,103 @@
+package expense_tally.aws.s3;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangedS3ObjectProcessorTest {
+  private final List<ChangedS3Object> testChangedS3Objects = List.of(
+      ChangedS3Object.create(new S3ObjectId("testBucket", "first.csv")),
+      ChangedS3Object.create(new S3ObjectId("testBucket", "second.csv")),
+      ChangedS3Object.create(new S3ObjectId("testBucket", "third.csv")));
+
+  @Test
+  void process_sequentialInOrder() throws IOException, SQLException {
+    List<ChangedS3Object> processedS3Objects = new CopyOnWriteArrayList<>();
+    ChangedS3ObjectProcessor.sequential().process(testChangedS3Objects, processedS3Objects::add);
+    assertThat(processedS3Objects)
+        .containsExactlyElementsOf(testChangedS3Objects);
+  }
+
+  @Test
+  void process_concurrently() throws IOException, SQLException {
+    CountDownLatch allStarted = new CountDownLatch(testChangedS3Objects.size());
+    List<String> threadNames = new CopyOnWriteArrayList<>();
+    ChangedS3ObjectProcessor.create(3).process(testChangedS3Objects, changedS3Object -> {
+      threadNames.add(Thread.currentThread().getName());
+      allStarted.countDown();
+      try {
+        // Only completes if all the objects are processed at the same time
+        assertThat(allStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        throw new IOException(interruptedException);
+      }
+    });
+    assertThat(threadNames)
+        .hasSize(3)
+        .doesNotHaveDuplicates()
+        .contains(Thread.currentThread().getName());
+  }
+
+  @Test
+  void process_everyObjectIsAttempted() {
+    List<ChangedS3Object> processedS3Objects = new CopyOnWriteArrayList<>();
+    ChangedS3ObjectProcessor changedS3ObjectProcessor = ChangedS3ObjectProcessor.create(2);
+    assertThatThrownBy(() -> changedS3ObjectProcessor.process(testChangedS3Objects, changedS3Object -> {
+      processedS3Objects.add(changedS3Object);
+      if (!"second.csv".equals(changedS3Object.getS3ObjectId().getKey())) {
+        throw new SQLException("test SQLException " + changedS3Object.getS3ObjectId().getKey());
+      }
+    }))
+        .isInstanceOf(SQLException.class)
+        .hasMessage("test SQLException first.csv")
+        .satisfies(throwable -> assertThat(throwable.getSuppressed())
+            .extracting(Throwable::getMessage)
+            .containsExactly("test SQLException third.csv"));
+    assertThat(processedS3Objects)
+        .containsExactlyInAnyOrderElementsOf(testChangedS3Objects);
+  }
+
+  @Test
+  void process_runtimeException() {
+    ChangedS3ObjectProcessor changedS3ObjectProcessor = ChangedS3ObjectProcessor.sequential();
+    assertThatThrownBy(() -> changedS3ObjectProcessor.process(testChangedS3Objects, changedS3Object -> {
+      throw new IllegalStateException("test IllegalStateException");
+    }))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("test IllegalStateException");
+  }
+
+  @Test
+  void process_empty() {
+    ChangedS3ObjectProcessor changedS3ObjectProcessor = ChangedS3ObjectProcessor.create(2);
+    assertThatCode(() -> changedS3ObjectProcessor.process(Collections.emptyList(), changedS3Object -> {
+      throw new IOException("test IOException");
+    }))
+        .doesNotThrowAnyException();
+  }
+
+  @Test
+  void create_parallelismIsZero() {
+    assertThatThrownBy(() -> ChangedS3ObjectProcessor.create(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Parallelism must be positive.");
+  }
+
+  @Test
+  void create_parallelismIsOne() {
+    assertThat(ChangedS3ObjectProcessor.create(1).getParallelism())
+        .isEqualTo(1);
+  }
+}
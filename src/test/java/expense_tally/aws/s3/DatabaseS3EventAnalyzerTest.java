@@ -15,6 +15,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ExtendWith(MockitoExtension.class)
 class DatabaseS3EventAnalyzerTest {
@@ -74,7 +75,7 @@ class DatabaseS3EventAnalyzerTest {
         .hasValueSatisfying(s3ObjectId -> {
           assertThat(testS3Key.equals(s3ObjectId.getKey()));
           assertThat(testS3Bucket.equals(s3ObjectId.getBucket()));
-          assertThat(testVersionId.equals(s3ObjectId.getVersionId()));
+          assertThat(s3ObjectId.getVersionId()).isEqualTo(testVersionId);
         });
   }
 
@@ -233,4 +234,107 @@ class DatabaseS3EventAnalyzerTest {
         .isNotNull()
         .isEmpty();
   }
-}
\ No newline at end of file
+
+  @Test
+  void extractChangedS3Object_sizeAndETag() {
+    S3EventNotification.S3EventNotificationRecord mockFirstRecord =
+        Mockito.mock(S3EventNotification.S3EventNotificationRecord.class);
+    Mockito.when(mockS3Event.getRecords()).thenReturn(Collections.singletonList(mockFirstRecord));
+    S3EventNotification.S3Entity mockS3Entity = Mockito.mock(S3EventNotification.S3Entity.class);
+    Mockito.when(mockFirstRecord.getS3()).thenReturn(mockS3Entity);
+    S3EventNotification.S3ObjectEntity testS3ObjectEntity = new S3EventNotification.S3ObjectEntity("testKey",
+        1024L, "testETag", "testVersionId", "testSequencer");
+    Mockito.when(mockS3Entity.getObject()).thenReturn(testS3ObjectEntity);
+    S3EventNotification.S3BucketEntity mockS3BucketEntity = Mockito.mock(S3EventNotification.S3BucketEntity.class);
+    Mockito.when(mockS3Entity.getBucket()).thenReturn(mockS3BucketEntity);
+    Mockito.when(mockS3BucketEntity.getName()).thenReturn("testBucket");
+
+    assertThat(DatabaseS3EventAnalyzer.extractChangedS3Object(mockS3Event))
+        .hasValueSatisfying(changedS3Object -> {
+          assertThat(changedS3Object.getS3ObjectId().getBucket()).isEqualTo("testBucket");
+          assertThat(changedS3Object.getS3ObjectId().getKey()).isEqualTo("testKey");
+          assertThat(changedS3Object.getS3ObjectId().getVersionId()).isEqualTo("testVersionId");
+          assertThat(changedS3Object.getSize()).isEqualTo(1024L);
+          assertThat(changedS3Object.getETag()).isEqualTo("testETag");
+        });
+  }
+
+  @Test
+  void extractChangedS3Objects_everyRecord() {
+    List<S3EventNotification.S3EventNotificationRecord> testRecords = List.of(
+        createRecord("testBucket", "first.csv", "testVersionId1", "0055AED6DCD90281E5"),
+        createRecord("testBucket", "second.csv", "testVersionId2", "0055AED6DCD90281E6"));
+    Mockito.when(mockS3Event.getRecords()).thenReturn(testRecords);
+
+    assertThat(DatabaseS3EventAnalyzer.extractChangedS3Objects(mockS3Event))
+        .extracting(changedS3Object -> changedS3Object.getS3ObjectId().getKey(),
+            changedS3Object -> changedS3Object.getS3ObjectId().getVersionId())
+        .containsExactly(tuple("first.csv", "testVersionId1"), tuple("second.csv", "testVersionId2"));
+  }
+
+  @Test
+  void extractChangedS3Objects_duplicatedKeyKeepsNewestSequencer() {
+    List<S3EventNotification.S3EventNotificationRecord> testRecords = List.of(
+        createRecord("testBucket", "first.csv", "testVersionId3", "0055AED6DCD90281FF"),
+        createRecord("testBucket", "second.csv", "testVersionId2", "0055AED6DCD90281E6"),
+        // A shorter sequencer is padded before it is compared
+        createRecord("testBucket", "first.csv", "testVersionId1", "55AED6DCD90281E5"),
+        createRecord("testBucket", "first.csv", "testVersionId4", "0055AED6DCD9028200"));
+    Mockito.when(mockS3Event.getRecords()).thenReturn(testRecords);
+
+    assertThat(DatabaseS3EventAnalyzer.extractChangedS3Objects(mockS3Event))
+        .extracting(changedS3Object -> changedS3Object.getS3ObjectId().getKey(),
+            changedS3Object -> changedS3Object.getS3ObjectId().getVersionId())
+        .containsExactly(tuple("first.csv", "testVersionId4"), tuple("second.csv", "testVersionId2"));
+  }
+
+  @Test
+  void extractChangedS3Objects_noSequencerKeepsLaterRecord() {
+    List<S3EventNotification.S3EventNotificationRecord> testRecords = List.of(
+        createRecord("testBucket", "first.csv", "testVersionId1", "0055AED6DCD90281E5"),
+        createRecord("testBucket", "first.csv", "testVersionId2", null));
+    Mockito.when(mockS3Event.getRecords()).thenReturn(testRecords);
+
+    assertThat(DatabaseS3EventAnalyzer.extractChangedS3Objects(mockS3Event))
+        .extracting(changedS3Object -> changedS3Object.getS3ObjectId().getVersionId())
+        .containsExactly("testVersionId2");
+  }
+
+  @Test
+  void extractChangedS3Objects_sameKeyInDifferentBuckets() {
+    List<S3EventNotification.S3EventNotificationRecord> testRecords = List.of(
+        createRecord("testBucket1", "first.csv", "testVersionId1", "0055AED6DCD90281E5"),
+        createRecord("testBucket2", "first.csv", "testVersionId2", "0055AED6DCD90281E5"));
+    Mockito.when(mockS3Event.getRecords()).thenReturn(testRecords);
+
+    assertThat(DatabaseS3EventAnalyzer.extractChangedS3Objects(mockS3Event))
+        .extracting(changedS3Object -> changedS3Object.getS3ObjectId().getBucket())
+        .containsExactly("testBucket1", "testBucket2");
+  }
+
+  @Test
+  void extractChangedS3Objects_recordsAreNull() {
+    Mockito.when(mockS3Event.getRecords()).thenReturn(null);
+
+    assertThat(DatabaseS3EventAnalyzer.extractChangedS3Objects(mockS3Event))
+        .isEmpty();
+  }
+
+  @Test
+  void extractChangedS3Objects_null() {
+    assertThatThrownBy(() -> DatabaseS3EventAnalyzer.extractChangedS3Objects(null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("S3 Event cannot be null.");
+  }
+
+  private S3EventNotification.S3EventNotificationRecord createRecord(String bucket, String key, String versionId,
+                                                                      String sequencer) {
+    S3EventNotification.S3EventNotificationRecord mockRecord =
+        Mockito.mock(S3EventNotification.S3EventNotificationRecord.class);
+    S3EventNotification.S3Entity testS3Entity = new S3EventNotification.S3Entity("testConfigurationId",
+        new S3EventNotification.S3BucketEntity(bucket, null, null),
+        new S3EventNotification.S3ObjectEntity(key, 1024L, "testETag", versionId, sequencer), "1.0");
+    Mockito.when(mockRecord.getS3()).thenReturn(testS3Entity);
+    return mockRecord;
+  }
+}
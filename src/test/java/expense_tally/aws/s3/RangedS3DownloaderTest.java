@@ -0,0 +1,154 @@
+package expense_tally.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class RangedS3DownloaderTest {
+  private static final String TEST_ETAG = "testETag";
+
+  @Mock
+  private AmazonS3 mockAmazonS3;
+
+  @TempDir
+  Path tempDirectory;
+
+  private ExecutorService executorService;
+
+  private RangedS3Downloader rangedS3Downloader;
+
+  @BeforeEach
+  void setUp() {
+    executorService = Executors.newFixedThreadPool(3);
+    S3DownloadConfiguration s3DownloadConfiguration = new S3DownloadConfiguration.Builder()
+        .rangedDownloadThreshold(100)
+        .rangedDownloadPartSize(64)
+        .build();
+    rangedS3Downloader = RangedS3Downloader.create(mockAmazonS3, executorService, s3DownloadConfiguration);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  void isApplicable() {
+    assertThat(rangedS3Downloader.isApplicable(ChangedS3Object.UNKNOWN_SIZE)).isFalse();
+    assertThat(rangedS3Downloader.isApplicable(99)).isFalse();
+    assertThat(rangedS3Downloader.isApplicable(100)).isTrue();
+  }
+
+  @Test
+  void download_rangesAreWrittenAtTheirOffsets() throws IOException {
+    byte[] testContent = randomContent(1000);
+    serveObject(testContent, TEST_ETAG);
+    File destinationFile = tempDirectory.resolve("download.db").toFile();
+    Files.write(destinationFile.toPath(), randomContent(2000));
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(new S3ObjectId("testBucket", "testKey"),
+        testContent.length, TEST_ETAG);
+    assertThat(rangedS3Downloader.download(testChangedS3Object, destinationFile))
+        .isNotNull()
+        .satisfies(objectMetadata -> {
+          assertThat(objectMetadata.getContentLength()).isEqualTo(1000L);
+          assertThat(objectMetadata.getETag()).isEqualTo(TEST_ETAG);
+        });
+    assertThat(Files.readAllBytes(destinationFile.toPath())).isEqualTo(testContent);
+    // 1000 bytes in parts of 64 bytes
+    Mockito.verify(mockAmazonS3, Mockito.times(16)).getObject(Mockito.any(GetObjectRequest.class));
+  }
+
+  @Test
+  void download_unknownVersionIsPinnedByFirstPart() throws IOException {
+    byte[] testContent = randomContent(300);
+    serveObject(testContent, TEST_ETAG);
+    File destinationFile = tempDirectory.resolve("download.csv").toFile();
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(new S3ObjectId("testBucket", "testKey"),
+        testContent.length, null);
+    assertThat(rangedS3Downloader.download(testChangedS3Object, destinationFile))
+        .isNotNull();
+    assertThat(Files.readAllBytes(destinationFile.toPath())).isEqualTo(testContent);
+  }
+
+  @Test
+  void download_objectIsReplaced() throws IOException {
+    serveObject(randomContent(300), "newETag");
+    File destinationFile = tempDirectory.resolve("download.db").toFile();
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(new S3ObjectId("testBucket", "testKey"), 300,
+        TEST_ETAG);
+    assertThat(rangedS3Downloader.download(testChangedS3Object, destinationFile))
+        .isNull();
+  }
+
+  @Test
+  void download_rangeIsTruncated() {
+    byte[] testContent = randomContent(300);
+    Mockito.when(mockAmazonS3.getObject(Mockito.any(GetObjectRequest.class))).thenAnswer(invocation -> {
+      GetObjectRequest getObjectRequest = invocation.getArgument(0);
+      long[] range = getObjectRequest.getRange();
+      return createS3Object(testContent, range[0], range[1] - 1, TEST_ETAG);
+    });
+    File destinationFile = tempDirectory.resolve("download.db").toFile();
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(new S3ObjectId("testBucket", "testKey"),
+        testContent.length, TEST_ETAG);
+    assertThatThrownBy(() -> rangedS3Downloader.download(testChangedS3Object, destinationFile))
+        .isInstanceOf(IOException.class)
+        .hasMessageStartingWith("S3 returns fewer bytes than requested.");
+  }
+
+  /**
+   * Serve ranged GET requests like S3 does, from an in-memory object
+   */
+  private void serveObject(byte[] content, String eTag) {
+    Mockito.when(mockAmazonS3.getObject(Mockito.any(GetObjectRequest.class))).thenAnswer(invocation -> {
+      GetObjectRequest getObjectRequest = invocation.getArgument(0);
+      List<String> matchingETagConstraints = getObjectRequest.getMatchingETagConstraints();
+      if (!matchingETagConstraints.isEmpty() && !matchingETagConstraints.contains(eTag)) {
+        // The client returns null when a constraint is not met
+        return null;
+      }
+      long[] range = getObjectRequest.getRange();
+      return createS3Object(content, range[0], Math.min(range[1], content.length - 1), eTag);
+    });
+  }
+
+  private S3Object createS3Object(byte[] content, long start, long end, String eTag) {
+    S3Object s3Object = new S3Object();
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    objectMetadata.setHeader("ETag", eTag);
+    objectMetadata.setContentLength(end - start + 1);
+    s3Object.setObjectMetadata(objectMetadata);
+    s3Object.setObjectContent(new ByteArrayInputStream(content, (int) start, (int) (end - start + 1)));
+    return s3Object;
+  }
+
+  private byte[] randomContent(int size) {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    return content;
+  }
+}
@@ -4,10 +4,12 @@ import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectId;
 import expense_tally.aws.log.ObjectToString;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
@@ -18,6 +20,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,6 +33,12 @@ class S3FileRetrieverTest {
   @Mock
   private File mockFile;
 
+  @Mock
+  private S3DownloadCache mockS3DownloadCache;
+
+  @Mock
+  private RangedS3Downloader mockRangedS3Downloader;
+
   @InjectMocks
   private S3FileRetriever s3FileRetriever;
 
@@ -181,4 +190,130 @@ class S3FileRetrieverTest {
       }
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  void retrieveFile_sameVersionIsDownloaded() throws IOException {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey", "testVersionId");
+    S3DownloadCache.CachedS3Object testCachedS3Object = new S3DownloadCache.CachedS3Object(testS3ObjectId,
+        "testVersionId", "testETag", 10L);
+    Mockito.when(mockS3DownloadCache.lookup(mockFile)).thenReturn(Optional.of(testCachedS3Object));
+    Mockito.when(mockFile.isFile()).thenReturn(true);
+    Mockito.when(mockFile.length()).thenReturn(10L);
+    assertThat(s3FileRetriever.retrieveFile(testS3ObjectId, mockFile))
+        .isEqualTo(DownloadStatus.NOT_MODIFIED);
+    Mockito.verifyNoInteractions(mockAmazonS3);
+  }
+
+  @Test
+  void retrieveFile_conditionalGetIsNotModified() throws IOException {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey");
+    S3DownloadCache.CachedS3Object testCachedS3Object = new S3DownloadCache.CachedS3Object(testS3ObjectId,
+        null, "testETag", 10L);
+    Mockito.when(mockS3DownloadCache.lookup(mockFile)).thenReturn(Optional.of(testCachedS3Object));
+    Mockito.when(mockFile.isFile()).thenReturn(true);
+    Mockito.when(mockFile.length()).thenReturn(10L);
+    ArgumentCaptor<GetObjectRequest> getObjectRequestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+    Mockito.when(mockAmazonS3.getObject(getObjectRequestCaptor.capture(), Mockito.eq(mockFile))).thenReturn(null);
+    assertThat(s3FileRetriever.retrieveFile(testS3ObjectId, mockFile))
+        .isEqualTo(DownloadStatus.NOT_MODIFIED);
+    assertThat(getObjectRequestCaptor.getValue().getNonmatchingETagConstraints())
+        .containsExactly("testETag");
+    Mockito.verify(mockFile, Mockito.never()).delete();
+    Mockito.verify(mockS3DownloadCache, Mockito.never()).evict(mockFile);
+  }
+
+  @Test
+  void retrieveFile_conditionalGetIsModified() throws IOException {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey");
+    S3DownloadCache.CachedS3Object testCachedS3Object = new S3DownloadCache.CachedS3Object(testS3ObjectId,
+        null, "testETag", 10L);
+    Mockito.when(mockS3DownloadCache.lookup(mockFile)).thenReturn(Optional.of(testCachedS3Object));
+    Mockito.when(mockFile.isFile()).thenReturn(true);
+    Mockito.when(mockFile.length()).thenReturn(10L);
+    ObjectMetadata mockObjectMetadata = Mockito.mock(ObjectMetadata.class);
+    Mockito.when(mockObjectMetadata.getETag()).thenReturn("newETag");
+    Mockito.when(mockAmazonS3.getObject(Mockito.any(GetObjectRequest.class), Mockito.eq(mockFile)))
+        .thenReturn(mockObjectMetadata);
+    assertThat(s3FileRetriever.retrieveFile(testS3ObjectId, mockFile))
+        .isEqualTo(DownloadStatus.DOWNLOADED);
+    Mockito.verify(mockS3DownloadCache).record(Mockito.eq(mockFile),
+        Mockito.argThat(cachedS3Object -> "newETag".equals(cachedS3Object.getETag())));
+  }
+
+  @Test
+  void retrieveFile_cachedFileIsTruncated() throws IOException {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey", "testVersionId");
+    S3DownloadCache.CachedS3Object testCachedS3Object = new S3DownloadCache.CachedS3Object(testS3ObjectId,
+        "testVersionId", "testETag", 10L);
+    Mockito.when(mockS3DownloadCache.lookup(mockFile)).thenReturn(Optional.of(testCachedS3Object));
+    Mockito.when(mockFile.isFile()).thenReturn(true);
+    Mockito.when(mockFile.length()).thenReturn(5L);
+    Path mockFilePath = Mockito.mock(Path.class);
+    Mockito.when(mockFile.toPath()).thenReturn(mockFilePath);
+    Mockito.when(mockFile.exists()).thenReturn(true);
+    Mockito.when(mockAmazonS3.getObject(Mockito.any(GetObjectRequest.class), Mockito.eq(mockFile)))
+        .thenReturn(Mockito.mock(ObjectMetadata.class));
+    try (MockedStatic<Files> mockFiles = Mockito.mockStatic(Files.class)) {
+      mockFiles.when(() -> Files.createFile(mockFilePath)).thenReturn(mockFilePath);
+      assertThat(s3FileRetriever.retrieveFile(testS3ObjectId, mockFile))
+          .isEqualTo(DownloadStatus.DOWNLOADED);
+      mockFiles.verify(() -> Files.delete(mockFilePath));
+    }
+    Mockito.verify(mockS3DownloadCache).evict(mockFile);
+  }
+
+  @Test
+  void retrieveFile_eTagIsDownloaded() throws IOException {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey");
+    S3DownloadCache.CachedS3Object testCachedS3Object = new S3DownloadCache.CachedS3Object(testS3ObjectId,
+        null, "testETag", 10L);
+    Mockito.when(mockS3DownloadCache.lookup(mockFile)).thenReturn(Optional.of(testCachedS3Object));
+    Mockito.when(mockFile.isFile()).thenReturn(true);
+    Mockito.when(mockFile.length()).thenReturn(10L);
+    assertThat(s3FileRetriever.retrieveFile(ChangedS3Object.create(testS3ObjectId, 10L, "testETag"), mockFile))
+        .isEqualTo(DownloadStatus.NOT_MODIFIED);
+    Mockito.verifyNoInteractions(mockAmazonS3);
+  }
+
+  @Test
+  void retrieveFile_largeObjectIsDownloadedInRanges() throws IOException {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey");
+    ChangedS3Object testChangedS3Object = ChangedS3Object.create(testS3ObjectId, 100L, "testETag");
+    Mockito.when(mockRangedS3Downloader.isApplicable(100L)).thenReturn(true);
+    ObjectMetadata mockObjectMetadata = Mockito.mock(ObjectMetadata.class);
+    Mockito.when(mockRangedS3Downloader.download(testChangedS3Object, mockFile)).thenReturn(mockObjectMetadata);
+    assertThat(s3FileRetriever.retrieveFile(testChangedS3Object, mockFile))
+        .isEqualTo(DownloadStatus.DOWNLOADED);
+    Mockito.verifyNoInteractions(mockAmazonS3);
+    Mockito.verify(mockS3DownloadCache).record(Mockito.eq(mockFile), Mockito.any(S3DownloadCache.CachedS3Object.class));
+  }
+
+  @Test
+  void openObjectStream_eTagIsMatched() {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey");
+    S3Object mockS3Object = Mockito.mock(S3Object.class);
+    Mockito.when(mockAmazonS3.getObject(Mockito.any(GetObjectRequest.class))).thenReturn(mockS3Object);
+    assertThat(s3FileRetriever.openObjectStream(ChangedS3Object.create(testS3ObjectId, 10L, "testETag")))
+        .containsSame(mockS3Object);
+    ArgumentCaptor<GetObjectRequest> getObjectRequestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+    Mockito.verify(mockAmazonS3).getObject(getObjectRequestCaptor.capture());
+    assertThat(getObjectRequestCaptor.getValue().getMatchingETagConstraints())
+        .containsExactly("testETag");
+  }
+
+  @Test
+  void openObjectStream_objectIsReplaced() {
+    S3ObjectId testS3ObjectId = new S3ObjectId("testBucket", "testKey");
+    Mockito.when(mockAmazonS3.getObject(Mockito.any(GetObjectRequest.class))).thenReturn(null);
+    assertThat(s3FileRetriever.openObjectStream(ChangedS3Object.create(testS3ObjectId, 10L, "testETag")))
+        .isEmpty();
+  }
+
+  @Test
+  void openObjectStream_null() {
+    assertThatThrownBy(() -> s3FileRetriever.openObjectStream(null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("S3 Object ID cannot be null.");
+    Mockito.verifyNoInteractions(mockAmazonS3);
+  }
+}